@@ -0,0 +1,212 @@
+package com.example.playerdatasync.nms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact storage of {@link StoredAdvancements}. Completed advancements are a run-length
+ * encoded bitset over the ordinals of an {@link AdvancementDictionary}; keys that have no
+ * ordinal yet and partial criteria follow. The old comma separated key list is still read.
+ *
+ * Layout: "PAV", version, bitset mode, then either varint run count and varint runs
+ * (alternating unset/set, starting with unset) or varint length and the raw bitset bytes,
+ * whichever is smaller; varint unnamed count, keys, varint partial count, then per partial
+ * the ordinal + 1 (or 0 followed by the key), varint criteria count and criteria names.
+ */
+public final class AdvancementCodec {
+    private static final byte[] MAGIC = {'P', 'A', 'V'};
+    private static final byte VERSION = 1;
+    private static final byte BITS_RUNS = 0;
+    private static final byte BITS_RAW = 1;
+    private static final int MAX_ORDINALS = 1 << 20;
+
+    private AdvancementCodec() {
+    }
+
+    public static boolean isBinary(String data) {
+        // Base64 of the magic bytes; key lists never start with it
+        return data != null && data.startsWith("UEFW");
+    }
+
+    public static String encode(StoredAdvancements advancements, AdvancementDictionary dictionary) throws IOException {
+        BitSet bits = new BitSet();
+        List<String> unnamed = new ArrayList<>();
+        for (String key : advancements.getDone()) {
+            int ordinal = dictionary.ordinalOf(key);
+            if (ordinal >= 0) {
+                bits.set(ordinal);
+            } else {
+                unnamed.add(key);
+            }
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(outputStream)) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+
+            ByteArrayOutputStream runBytes = new ByteArrayOutputStream();
+            DataOutputStream runOut = new DataOutputStream(runBytes);
+            int runCount = 0;
+            int position = 0;
+            while (position < bits.length()) {
+                int setStart = bits.nextSetBit(position);
+                int setEnd = bits.nextClearBit(setStart);
+                writeVarInt(runOut, setStart - position);
+                writeVarInt(runOut, setEnd - setStart);
+                runCount += 2;
+                position = setEnd;
+            }
+
+            byte[] raw = bits.toByteArray();
+            if (raw.length < runBytes.size()) {
+                // Dense, scattered completions compress worse as runs
+                out.writeByte(BITS_RAW);
+                writeVarInt(out, raw.length);
+                out.write(raw);
+            } else {
+                out.writeByte(BITS_RUNS);
+                writeVarInt(out, runCount);
+                runBytes.writeTo(out);
+            }
+
+            writeVarInt(out, unnamed.size());
+            for (String key : unnamed) {
+                out.writeUTF(key);
+            }
+
+            Map<String, Set<String>> partial = advancements.getPartial();
+            writeVarInt(out, partial.size());
+            for (Map.Entry<String, Set<String>> entry : partial.entrySet()) {
+                int ordinal = dictionary.ordinalOf(entry.getKey());
+                writeVarInt(out, ordinal + 1);
+                if (ordinal < 0) {
+                    out.writeUTF(entry.getKey());
+                }
+                writeVarInt(out, entry.getValue().size());
+                for (String criterion : entry.getValue()) {
+                    out.writeUTF(criterion);
+                }
+            }
+        }
+        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+
+    /**
+     * Decode packed or comma separated advancement data. Ordinals unknown to the dictionary are skipped.
+     */
+    public static StoredAdvancements decode(String data, AdvancementDictionary dictionary) throws IOException {
+        StoredAdvancements advancements = new StoredAdvancements();
+        if (data == null || data.isEmpty()) {
+            return advancements;
+        }
+        if (!isBinary(data)) {
+            for (String key : data.split(",")) {
+                if (!key.trim().isEmpty()) {
+                    advancements.markDone(key.trim());
+                }
+            }
+            return advancements;
+        }
+        if (dictionary == null) {
+            throw new IOException("Packed advancement data needs the advancement dictionary");
+        }
+
+        byte[] bytes = Base64.getDecoder().decode(data);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            for (byte magic : MAGIC) {
+                if (in.readByte() != magic) {
+                    throw new IOException("Malformed advancement payload");
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported advancement format " + version);
+            }
+
+            BitSet bits;
+            int mode = in.readUnsignedByte();
+            if (mode == BITS_RAW) {
+                int length = readVarInt(in);
+                if (length < 0 || length > bytes.length || length > MAX_ORDINALS / 8) {
+                    throw new IOException("Malformed advancement payload");
+                }
+                byte[] raw = new byte[length];
+                in.readFully(raw);
+                bits = BitSet.valueOf(raw);
+            } else if (mode == BITS_RUNS) {
+                bits = new BitSet();
+                int runCount = readVarInt(in);
+                int position = 0;
+                for (int i = 0; i < runCount; i++) {
+                    int run = readVarInt(in);
+                    if (run < 0 || position + run > MAX_ORDINALS) {
+                        throw new IOException("Malformed advancement payload");
+                    }
+                    if (i % 2 == 1) {
+                        bits.set(position, position + run);
+                    }
+                    position += run;
+                }
+            } else {
+                throw new IOException("Unknown advancement bitset mode " + mode);
+            }
+            for (int ordinal = bits.nextSetBit(0); ordinal >= 0; ordinal = bits.nextSetBit(ordinal + 1)) {
+                String key = dictionary.keyOf(ordinal);
+                if (key != null) {
+                    advancements.markDone(key);
+                }
+            }
+
+            int unnamed = readVarInt(in);
+            for (int i = 0; i < unnamed; i++) {
+                advancements.markDone(in.readUTF());
+            }
+
+            int partialCount = readVarInt(in);
+            for (int i = 0; i < partialCount; i++) {
+                int ordinal = readVarInt(in) - 1;
+                String key = ordinal >= 0 ? dictionary.keyOf(ordinal) : in.readUTF();
+                int criteria = readVarInt(in);
+                for (int c = 0; c < criteria; c++) {
+                    String criterion = in.readUTF();
+                    if (key != null) {
+                        advancements.awardCriterion(key, criterion);
+                    }
+                }
+            }
+        }
+        return advancements;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.playerdatasync.nms;
+
+/**
+ * Stable ordinals for advancement keys, shared by all servers using the same database.
+ */
+public interface AdvancementDictionary {
+    /**
+     * @return the ordinal of the key, or -1 if it has none yet; registering it is then
+     *         requested in the background
+     */
+    int ordinalOf(String key);
+
+    /**
+     * @return the key of the ordinal, or null if it is unknown
+     */
+    String keyOf(int ordinal);
+}
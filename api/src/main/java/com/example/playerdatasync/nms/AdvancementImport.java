@@ -0,0 +1,17 @@
+package com.example.playerdatasync.nms;
+
+/**
+ * Stored advancements being awarded to a player in bounded slices over several ticks.
+ */
+public interface AdvancementImport {
+    /**
+     * Apply up to the given number of advancements, stopping early once the deadline has passed.
+     * Must run on the player's thread.
+     * @return true once everything has been applied
+     */
+    boolean step(int maxAdvancements, long deadlineNanos);
+
+    int getApplied();
+
+    int getTotal();
+}
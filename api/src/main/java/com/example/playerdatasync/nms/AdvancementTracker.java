@@ -0,0 +1,113 @@
+package com.example.playerdatasync.nms;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Per-player advancement state kept current from advancement events, so saves only encode
+ * what is tracked instead of walking every advancement on the server.
+ * Version handlers feed it from events and fill it with a scan when a player has no state yet.
+ */
+public class AdvancementTracker {
+    private final ConcurrentHashMap<UUID, StoredAdvancements> players = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> lastCriteriaScan = new ConcurrentHashMap<>();
+    private volatile AdvancementDictionary dictionary;
+    private volatile long criteriaRescanMs;
+    private volatile boolean criteriaEvents;
+
+    public void setDictionary(AdvancementDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public AdvancementDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * How often partial criteria are rescanned when the server has no criterion event; 0 = never
+     */
+    public void setCriteriaRescanMs(long criteriaRescanMs) {
+        this.criteriaRescanMs = criteriaRescanMs;
+    }
+
+    /**
+     * Whether criteria are reported by events, making rescans unnecessary
+     */
+    public void setCriteriaEvents(boolean criteriaEvents) {
+        this.criteriaEvents = criteriaEvents;
+    }
+
+    public StoredAdvancements get(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    public void put(UUID uuid, StoredAdvancements advancements) {
+        players.put(uuid, advancements);
+        lastCriteriaScan.put(uuid, System.currentTimeMillis());
+    }
+
+    /**
+     * Seed the state from stored data before it is applied
+     */
+    public StoredAdvancements seed(UUID uuid, String data, Logger logger) {
+        try {
+            StoredAdvancements advancements = AdvancementCodec.decode(data, dictionary);
+            players.put(uuid, advancements);
+            if (!AdvancementCodec.isBinary(data)) {
+                // The key list has no criteria; pick them up with the next rescan
+                lastCriteriaScan.put(uuid, 0L);
+            } else {
+                lastCriteriaScan.put(uuid, System.currentTimeMillis());
+            }
+            return advancements;
+        } catch (IOException e) {
+            logger.warning("Could not read stored advancements: " + e.getMessage());
+            players.remove(uuid);
+            return null;
+        }
+    }
+
+    public void forget(UUID uuid) {
+        players.remove(uuid);
+        lastCriteriaScan.remove(uuid);
+    }
+
+    public void markDone(UUID uuid, String key) {
+        StoredAdvancements advancements = players.get(uuid);
+        if (advancements != null) {
+            advancements.markDone(key);
+        }
+    }
+
+    public void awardCriterion(UUID uuid, String key, String criterion) {
+        StoredAdvancements advancements = players.get(uuid);
+        if (advancements != null) {
+            advancements.awardCriterion(key, criterion);
+        }
+    }
+
+    public boolean needsCriteriaScan(UUID uuid) {
+        if (criteriaEvents || criteriaRescanMs <= 0) {
+            return false;
+        }
+        Long last = lastCriteriaScan.get(uuid);
+        return last == null || System.currentTimeMillis() - last >= criteriaRescanMs;
+    }
+
+    public void markCriteriaScanned(UUID uuid) {
+        lastCriteriaScan.put(uuid, System.currentTimeMillis());
+    }
+
+    /**
+     * Packed data when a dictionary is available, the plain key list otherwise
+     */
+    public String encode(StoredAdvancements advancements) throws IOException {
+        AdvancementDictionary current = dictionary;
+        if (current == null) {
+            return String.join(",", advancements.getDone());
+        }
+        return AdvancementCodec.encode(advancements, current);
+    }
+}
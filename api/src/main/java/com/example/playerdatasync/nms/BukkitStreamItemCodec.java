@@ -0,0 +1,47 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Java object serialization through the Bukkit streams. Works on every server version.
+ */
+public final class BukkitStreamItemCodec implements ItemCodec {
+    public static final BukkitStreamItemCodec INSTANCE = new BukkitStreamItemCodec();
+
+    private BukkitStreamItemCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return BUKKIT_STREAM;
+    }
+
+    @Override
+    public String getName() {
+        return "bukkit-stream";
+    }
+
+    @Override
+    public byte[] encode(ItemStack item) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+            dataOutput.writeObject(item);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public ItemStack decode(byte[] data) throws IOException {
+        try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(new ByteArrayInputStream(data))) {
+            return (ItemStack) dataInput.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
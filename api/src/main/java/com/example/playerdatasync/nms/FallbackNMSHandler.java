@@ -6,6 +6,8 @@ import org.bukkit.plugin.Plugin;
 import java.util.UUID;
 
 public class FallbackNMSHandler implements NMSHandler {
+    private volatile AdvancementDictionary advancementDictionary;
+
     @Override
     public void setItemInOffHand(Player player, ItemStack item) {
         try {
@@ -124,6 +126,7 @@ public class FallbackNMSHandler implements NMSHandler {
 
     @Override public void setupAdvancements(Plugin plugin) {}
     @Override public void shutdownAdvancements() {}
+    @Override public void setAdvancementDictionary(AdvancementDictionary dictionary) { this.advancementDictionary = dictionary; }
     @Override public void handlePlayerJoinAdvancements(Player player) {}
     @Override public void handlePlayerQuitAdvancements(Player player) {}
     @Override public void seedAdvancementsFromDatabase(UUID uuid, String csv) {}
@@ -167,6 +170,13 @@ public class FallbackNMSHandler implements NMSHandler {
     @Override
     public void loadAdvancements(Player player, String data) {
         if (data == null || data.isEmpty()) return;
+        if (AdvancementCodec.isBinary(data)) {
+            try {
+                data = String.join(",", AdvancementCodec.decode(data, advancementDictionary).getDone());
+            } catch (java.io.IOException e) {
+                return;
+            }
+        }
         try {
             Class<?> nskClass = Class.forName("org.bukkit.NamespacedKey");
             Class<?> advClass = Class.forName("org.bukkit.advancement.Advancement");
@@ -213,5 +223,18 @@ public class FallbackNMSHandler implements NMSHandler {
         }
     }
 
+    @Override
+    public AdvancementImport prepareAdvancementImport(Player player, String data) {
+        if (data == null || data.isEmpty()) return null;
+        // Reflection gives no cheap way to split the work
+        return new SingleStepAdvancementImport(() -> loadAdvancements(player, data));
+    }
+
     @Override public void queueAdvancementImport(Player player, boolean force) {}
+    @Override public String getAdvancementIndexStats() { return null; }
+
+    @Override
+    public ItemCodec getItemCodec() {
+        return BukkitStreamItemCodec.INSTANCE;
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+
+/**
+ * Binary encoding of a single item.
+ * Stored payloads record the id of the codec that wrote them, so data stays readable
+ * after a server switches to a different codec.
+ */
+public interface ItemCodec {
+    int BUKKIT_STREAM = 0;
+    int TAGGED_MAP = 1;
+    int PAPER_NBT = 2;
+
+    int getId();
+
+    String getName();
+
+    byte[] encode(ItemStack item) throws IOException;
+
+    ItemStack decode(byte[] data) throws IOException;
+}
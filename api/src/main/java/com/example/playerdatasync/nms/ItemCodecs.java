@@ -0,0 +1,47 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.Bukkit;
+
+/**
+ * Lookup of the available {@link ItemCodec} implementations.
+ */
+public final class ItemCodecs {
+    private ItemCodecs() {
+    }
+
+    /**
+     * @return the codec with the given id, or null if it is not available on this server
+     */
+    public static ItemCodec byId(int id) {
+        switch (id) {
+            case ItemCodec.BUKKIT_STREAM:
+                return BukkitStreamItemCodec.INSTANCE;
+            case ItemCodec.TAGGED_MAP:
+                return TaggedMapItemCodec.INSTANCE;
+            case ItemCodec.PAPER_NBT:
+                return PaperNbtItemCodec.isSupported() ? PaperNbtItemCodec.INSTANCE : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Binary NBT when the server exposes it (Paper), the tagged map codec otherwise.
+     */
+    public static ItemCodec preferred() {
+        return PaperNbtItemCodec.isSupported() ? PaperNbtItemCodec.INSTANCE : TaggedMapItemCodec.INSTANCE;
+    }
+
+    /**
+     * Minecraft data version of the running server, or 0 on versions that do not expose it.
+     */
+    @SuppressWarnings("deprecation")
+    public static int currentDataVersion() {
+        try {
+            Object unsafe = Bukkit.getUnsafe();
+            return (Integer) unsafe.getClass().getMethod("getDataVersion").invoke(unsafe);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
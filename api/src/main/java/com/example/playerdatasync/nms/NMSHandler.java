@@ -20,10 +20,16 @@ public interface NMSHandler {
     // Advancements
     void setupAdvancements(Plugin plugin);
     void shutdownAdvancements();
+    void setAdvancementDictionary(AdvancementDictionary dictionary);
     void handlePlayerJoinAdvancements(Player player);
     void handlePlayerQuitAdvancements(Player player);
     void seedAdvancementsFromDatabase(UUID uuid, String csv);
     String serializeAdvancements(Player player);
     void loadAdvancements(Player player, String data);
+    AdvancementImport prepareAdvancementImport(Player player, String data);
     void queueAdvancementImport(Player player, boolean force);
+    String getAdvancementIndexStats();
+
+    // Item serialization
+    ItemCodec getItemCodec();
 }
@@ -0,0 +1,75 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Binary NBT through Paper's ItemStack#serializeAsBytes. The payload carries the item's
+ * DataVersion and is upgraded by the server's data fixers when read on a newer version.
+ */
+public final class PaperNbtItemCodec implements ItemCodec {
+    public static final PaperNbtItemCodec INSTANCE = new PaperNbtItemCodec();
+
+    private static final Method SERIALIZE;
+    private static final Method DESERIALIZE;
+
+    static {
+        Method serialize = null;
+        Method deserialize = null;
+        try {
+            serialize = ItemStack.class.getMethod("serializeAsBytes");
+            deserialize = ItemStack.class.getMethod("deserializeBytes", byte[].class);
+        } catch (NoSuchMethodException ignored) {
+            // Not a Paper server
+        }
+        SERIALIZE = serialize;
+        DESERIALIZE = deserialize;
+    }
+
+    private PaperNbtItemCodec() {
+    }
+
+    public static boolean isSupported() {
+        return SERIALIZE != null && DESERIALIZE != null;
+    }
+
+    @Override
+    public int getId() {
+        return PAPER_NBT;
+    }
+
+    @Override
+    public String getName() {
+        return "paper-nbt";
+    }
+
+    @Override
+    public byte[] encode(ItemStack item) throws IOException {
+        if (item.getType() == Material.AIR || item.getAmount() <= 0) {
+            throw new IOException("Cannot encode an empty item");
+        }
+        return (byte[]) invoke(SERIALIZE, item);
+    }
+
+    @Override
+    public ItemStack decode(byte[] data) throws IOException {
+        return (ItemStack) invoke(DESERIALIZE, null, (Object) data);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) throws IOException {
+        if (method == null) {
+            throw new IOException("Paper item serialization is not available on this server");
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause() != null ? e.getCause() : e);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.playerdatasync.nms;
+
+/**
+ * Import for handlers that cannot split the work; everything is applied in the first step.
+ */
+public class SingleStepAdvancementImport implements AdvancementImport {
+    private final Runnable apply;
+    private boolean applied;
+
+    public SingleStepAdvancementImport(Runnable apply) {
+        this.apply = apply;
+    }
+
+    @Override
+    public boolean step(int maxAdvancements, long deadlineNanos) {
+        if (!applied) {
+            applied = true;
+            apply.run();
+        }
+        return true;
+    }
+
+    @Override
+    public int getApplied() {
+        return applied ? 1 : 0;
+    }
+
+    @Override
+    public int getTotal() {
+        return 1;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.playerdatasync.nms;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Completed advancements and partially awarded criteria of one player, keyed by advancement key.
+ */
+public class StoredAdvancements {
+    private final Set<String> done = new HashSet<>();
+    private final Map<String, Set<String>> partial = new HashMap<>();
+
+    public synchronized void markDone(String key) {
+        done.add(key);
+        partial.remove(key);
+    }
+
+    public synchronized void awardCriterion(String key, String criterion) {
+        if (!done.contains(key)) {
+            partial.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(criterion);
+        }
+    }
+
+    /**
+     * Replace the awarded criteria of an unfinished advancement; an empty collection clears it
+     */
+    public synchronized void setCriteria(String key, Collection<String> criteria) {
+        if (done.contains(key)) {
+            return;
+        }
+        if (criteria.isEmpty()) {
+            partial.remove(key);
+        } else {
+            partial.put(key, new LinkedHashSet<>(criteria));
+        }
+    }
+
+    public synchronized Set<String> getDone() {
+        return new HashSet<>(done);
+    }
+
+    public synchronized Map<String, Set<String>> getPartial() {
+        Map<String, Set<String>> copy = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : partial.entrySet()) {
+            copy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of the item's ConfigurationSerializable map.
+ * Carries the same data as the Bukkit stream without Java serialization's class
+ * descriptors, and works on every server version.
+ */
+public final class TaggedMapItemCodec implements ItemCodec {
+    public static final TaggedMapItemCodec INSTANCE = new TaggedMapItemCodec();
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_BOOLEAN = 6;
+    private static final byte TAG_SHORT = 7;
+    private static final byte TAG_BYTE = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_MAP = 10;
+    private static final byte TAG_SERIALIZABLE = 11;
+    private static final byte TAG_BYTE_ARRAY = 12;
+
+    private static final int MAX_DEPTH = 64;
+
+    private TaggedMapItemCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return TAGGED_MAP;
+    }
+
+    @Override
+    public String getName() {
+        return "tagged-map";
+    }
+
+    @Override
+    public byte[] encode(ItemStack item) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(outputStream)) {
+            writeMap(out, item.serialize(), 0);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public ItemStack decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != TAG_MAP) {
+                throw new IOException("Malformed item payload");
+            }
+            return ItemStack.deserialize(readMap(in, 0));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Item data is nested too deeply");
+        }
+
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(TAG_BYTE_ARRAY);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof ConfigurationSerializable) {
+            out.writeByte(TAG_SERIALIZABLE);
+            writeString(out, ConfigurationSerialization.getAlias(
+                ((ConfigurationSerializable) value).getClass().asSubclass(ConfigurationSerializable.class)));
+            writeMap(out, ((ConfigurationSerializable) value).serialize(), depth + 1);
+        } else if (value instanceof Map) {
+            writeMap(out, (Map<?, ?>) value, depth + 1);
+        } else if (value instanceof Collection) {
+            // Sets such as the hide flags of an item come back as lists, which their deserializers accept
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(TAG_LIST);
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element, depth + 1);
+            }
+        } else {
+            throw new IOException("Unsupported item data type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<?, ?> map, int depth) throws IOException {
+        out.writeByte(TAG_MAP);
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue(), depth + 1);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Item data is nested too deeply");
+        }
+
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_BYTE_ARRAY: {
+                byte[] bytes = new byte[checkedLength(in.readInt(), in)];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case TAG_SERIALIZABLE: {
+                String alias = readString(in);
+                if (in.readByte() != TAG_MAP) {
+                    throw new IOException("Malformed item payload");
+                }
+                Map<String, Object> fields = readMap(in, depth + 1);
+                fields.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                return ConfigurationSerialization.deserializeObject(fields);
+            }
+            case TAG_MAP:
+                return readMap(in, depth + 1);
+            case TAG_LIST: {
+                int size = checkedLength(in.readInt(), in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, depth + 1));
+                }
+                return list;
+            }
+            default:
+                throw new IOException("Unknown item data tag " + tag);
+        }
+    }
+
+    private static Map<String, Object> readMap(DataInputStream in, int depth) throws IOException {
+        int size = checkedLength(in.readInt(), in);
+        Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in, depth + 1));
+        }
+        return map;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[checkedLength(in.readInt(), in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkedLength(int length, DataInputStream in) throws IOException {
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Malformed item payload");
+        }
+        return length;
+    }
+}
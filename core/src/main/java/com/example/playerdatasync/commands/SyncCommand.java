@@ -2,9 +2,16 @@ package com.example.playerdatasync.commands;
 
 import com.example.playerdatasync.api.UpdateChecker;
 import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.database.PlayerHistoryStore;
+import com.example.playerdatasync.database.SQLDatabaseManager;
+import com.example.playerdatasync.database.SaveResult;
+import com.example.playerdatasync.database.WorkloadExecutors;
+import com.example.playerdatasync.database.WorkloadType;
 import com.example.playerdatasync.managers.BackupManager;
 import com.example.playerdatasync.managers.MessageManager;
 import com.example.playerdatasync.utils.InventoryUtils;
+import com.example.playerdatasync.utils.SchedulerUtils;
+import com.example.playerdatasync.utils.StatisticsCodec;
 import com.example.playerdatasync.utils.VersionCompatibility;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -17,8 +24,12 @@ import org.bukkit.plugin.Plugin;
 import su.nightexpress.excellentenchants.api.enchantment.CustomEnchantment;
 import su.nightexpress.excellentenchants.enchantment.EnchantRegistry;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class SyncCommand implements CommandExecutor, TabCompleter {
@@ -33,7 +44,7 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
     );
 
     private static final List<String> SUB_COMMANDS = Arrays.asList(
-            "reload", "status", "save", "help", "cache", "validate", "backup", "restore", "achievements", "checkupdate", "maintenance", "menu", "profile"
+            "reload", "status", "save", "help", "cache", "validate", "backup", "restore", "history", "rollback", "achievements", "checkupdate", "maintenance", "menu", "profile"
     );
 
     public SyncCommand(PlayerDataSync plugin) {
@@ -55,6 +66,8 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
             case "validate": return handleValidate(sender, args);
             case "backup": return handleBackup(sender, args);
             case "restore": return handleRestore(sender, args);
+            case "history": return handleHistory(sender, args);
+            case "rollback": return handleRollback(sender, args);
             case "achievements": return handleAchievements(sender, args);
             case "checkupdate": return handleCheckUpdate(sender);
             case "maintenance": return handleMaintenance(sender, args);
@@ -127,21 +140,30 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
                         messageManager.get("player_not_found").replace("{player}", args[1]));
                 return true;
             }
-            try {
-                boolean saved = plugin.getDatabaseManager().savePlayer(target);
-                sender.sendMessage(messageManager.get("prefix") + " " +
-                        (saved ? messageManager.get("manual_save_success")
-                                : messageManager.get("manual_save_failed").replace("{error}", "Unable to persist player data.")));
-            } catch (Exception e) {
-                sender.sendMessage(messageManager.get("prefix") + " " +
-                        messageManager.get("manual_save_failed").replace("{error}", e.getMessage()));
-            }
+            plugin.getDatabaseManager().saveAsync(target).whenComplete((result, error) -> {
+                String message = messageManager.get("prefix") + " ";
+                if (error == null && result.isSuccess()) {
+                    message += messageManager.get("manual_save_success");
+                } else {
+                    String reason = error != null ? error.getMessage()
+                            : result.getError() != null ? result.getError() : "Unable to persist player data.";
+                    message += messageManager.get("manual_save_failed").replace("{error}", reason);
+                }
+                String finalMessage = message;
+                SchedulerUtils.runTask(plugin, () -> sender.sendMessage(finalMessage));
+            });
         } else {
-            int savedCount = 0;
+            List<CompletableFuture<SaveResult>> saves = new ArrayList<>();
             for (Player player : Bukkit.getOnlinePlayers()) {
-                if (plugin.getDatabaseManager().savePlayer(player)) savedCount++;
+                saves.add(plugin.getDatabaseManager().saveAsync(player).toCompletableFuture());
             }
-            sender.sendMessage(messageManager.get("prefix") + " Saved data for " + savedCount + " players.");
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+                long savedCount = saves.stream()
+                        .filter(save -> !save.isCompletedExceptionally() && save.join().isSuccess())
+                        .count();
+                SchedulerUtils.runTask(plugin, () ->
+                        sender.sendMessage(messageManager.get("prefix") + " Saved data for " + savedCount + " players."));
+            });
         }
         return true;
     }
@@ -152,12 +174,45 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
         if (args.length > 1 && args[1].equalsIgnoreCase("clear")) {
             plugin.getDatabaseManager().resetPerformanceStats();
             InventoryUtils.resetDeserializationStats();
+            if (InventoryUtils.getSerializationCache() != null) {
+                InventoryUtils.getSerializationCache().resetStats();
+            }
+            if (plugin.getStatisticsTracker() != null) {
+                plugin.getStatisticsTracker().resetStats();
+            }
+            if (plugin.getAdvancementImporter() != null) {
+                plugin.getAdvancementImporter().resetStats();
+            }
+            if (plugin.getSaveQueue() != null) {
+                plugin.getSaveQueue().resetStats();
+            }
+            if (plugin.getWorkloadExecutors() != null) {
+                plugin.getWorkloadExecutors().resetStats();
+            }
             sender.sendMessage(messageManager.get("prefix") + " Performance and deserialization statistics cleared.");
         } else {
             sender.sendMessage(messageManager.get("prefix") + " Performance Stats: " + plugin.getDatabaseManager().getPerformanceStats());
             if (plugin.getConnectionPool() != null) {
                 sender.sendMessage(messageManager.get("prefix") + " Connection Pool: " + plugin.getConnectionPool().getStats());
             }
+            if (plugin.getSaveQueue() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + plugin.getSaveQueue().getStats());
+            }
+            if (plugin.getWorkloadExecutors() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + plugin.getWorkloadExecutors().getStats());
+            }
+            if (plugin.getExperienceSaveBatcher() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + plugin.getExperienceSaveBatcher().getStats());
+            }
+            if (InventoryUtils.getSerializationCache() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + InventoryUtils.getSerializationCache().getStats());
+            }
+            if (plugin.getStatisticsTracker() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + plugin.getStatisticsTracker().getStats());
+            }
+            if (plugin.getAdvancementImporter() != null) {
+                sender.sendMessage(messageManager.get("prefix") + " " + plugin.getAdvancementImporter().getStats());
+            }
             String deserializationStats = InventoryUtils.getDeserializationStats();
             sender.sendMessage(messageManager.get("prefix") + " Deserialization Stats: " + deserializationStats);
 
@@ -196,7 +251,8 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
         future.thenAccept(result -> {
             if (result.isSuccess()) {
                 sender.sendMessage(messageManager.get("prefix") + " Backup created: " + result.getFileName() +
-                        " (" + formatFileSize(result.getFileSize()) + ")");
+                        " (" + formatFileSize(result.getFileSize()) + ", " + result.getRows() + " rows, " +
+                        String.format("%.0f", result.getRowsPerSecond()) + " rows/s)");
             } else {
                 sender.sendMessage(messageManager.get("prefix") + " Backup failed!");
             }
@@ -221,13 +277,140 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
         }
 
         String backupName = args[1];
+        if (args.length >= 3) {
+            UUID uuid = resolvePlayerId(args[2]);
+            sender.sendMessage(messageManager.get("prefix") + " Restoring " + args[2] + " from backup: " + backupName);
+            plugin.getBackupManager().restorePlayer(backupName, uuid,
+                    message -> sender.sendMessage(messageManager.get("prefix") + " §7" + message)).thenAccept(success -> {
+                sender.sendMessage(messageManager.get("prefix") + (success ? " Restore completed successfully!" : " Restore failed!"));
+            });
+            return true;
+        }
+
         sender.sendMessage(messageManager.get("prefix") + " Restoring from backup: " + backupName);
-        plugin.getBackupManager().restoreFromBackup(backupName).thenAccept(success -> {
+        plugin.getBackupManager().restoreFromBackup(backupName,
+                message -> sender.sendMessage(messageManager.get("prefix") + " §7" + message)).thenAccept(success -> {
             sender.sendMessage(messageManager.get("prefix") + (success ? " Restore completed successfully!" : " Restore failed!"));
         });
         return true;
     }
 
+    private boolean handleHistory(CommandSender sender, String[] args) {
+        if (!hasPermission(sender, "playerdatasync.admin.history")) return true;
+        SQLDatabaseManager databaseManager = historyManager(sender);
+        if (databaseManager == null) return true;
+
+        if (args.length < 2) {
+            sender.sendMessage(messageManager.get("prefix") + " " +
+                    messageManager.get("invalid_syntax").replace("{usage}", "/sync history <player> [page]"));
+            return true;
+        }
+        int page;
+        try {
+            page = args.length > 2 ? Math.max(1, Integer.parseInt(args[2])) : 1;
+        } catch (NumberFormatException e) {
+            sender.sendMessage(messageManager.get("prefix") + " Invalid page: " + args[2]);
+            return true;
+        }
+
+        final int pageSize = 10;
+        UUID uuid = resolvePlayerId(args[1]);
+        WorkloadExecutors.supply(plugin, WorkloadType.LOOKUP, () -> {
+            try {
+                return databaseManager.listHistory(uuid, (page - 1) * pageSize, pageSize);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((entries, error) -> {
+            if (error != null) {
+                sender.sendMessage(messageManager.get("prefix") + " §cCould not read history: " + error.getMessage());
+                return;
+            }
+            if (entries.isEmpty()) {
+                sender.sendMessage(messageManager.get("prefix") + " No history for " + args[1] + (page > 1 ? " on page " + page : ""));
+                return;
+            }
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            sender.sendMessage("§8§m----------§r §6History: " + args[1] + " §7(page " + page + ") §8§m----------");
+            for (PlayerHistoryStore.HistoryEntry entry : entries) {
+                sender.sendMessage(String.format("§e#%d §f%s §7%s §8(%s, %d B)", entry.getSeq(),
+                        format.format(new Date(entry.getCreated())), entry.getReason() != null ? entry.getReason() : "-",
+                        entry.isFull() ? "full" : "delta", entry.getSize()));
+            }
+            sender.sendMessage("§7Use §b/sync rollback " + args[1] + " <#> §7to restore a snapshot");
+        });
+        return true;
+    }
+
+    private boolean handleRollback(CommandSender sender, String[] args) {
+        if (!hasPermission(sender, "playerdatasync.admin.rollback")) return true;
+        SQLDatabaseManager databaseManager = historyManager(sender);
+        if (databaseManager == null) return true;
+
+        if (args.length < 3) {
+            sender.sendMessage(messageManager.get("prefix") + " " +
+                    messageManager.get("invalid_syntax").replace("{usage}", "/sync rollback <player> <#>"));
+            return true;
+        }
+        int seq;
+        try {
+            seq = Integer.parseInt(args[2].startsWith("#") ? args[2].substring(1) : args[2]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(messageManager.get("prefix") + " Invalid snapshot: " + args[2]);
+            return true;
+        }
+
+        UUID uuid = resolvePlayerId(args[1]);
+        if (Bukkit.getPlayer(uuid) != null) {
+            sender.sendMessage(messageManager.get("prefix") + " §c" + args[1] + " is online; roll them back after they leave.");
+            return true;
+        }
+        sender.sendMessage(messageManager.get("prefix") + " Rolling back " + args[1] + " to snapshot #" + seq + "...");
+        // A save of theirs still queued here must land first; servers they are on elsewhere are checked by the rollback
+        plugin.getSaveQueue().whenWritten(uuid).handle((saved, error) -> null).thenCompose(ignored ->
+                WorkloadExecutors.supply(plugin, WorkloadType.SAVE, () -> {
+                    try {
+                        return databaseManager.rollbackPlayer(uuid, seq);
+                    } catch (SQLException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })).whenComplete((found, failure) -> {
+            Throwable error = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (error != null) {
+                plugin.getLogger().severe("Rollback of " + uuid + " failed: " + error.getMessage());
+                sender.sendMessage(messageManager.get("prefix") + " §cRollback failed: " + error.getMessage());
+            } else if (!found) {
+                sender.sendMessage(messageManager.get("prefix") + " No snapshot #" + seq + " in the history of " + args[1]);
+            } else {
+                sender.sendMessage(messageManager.get("prefix") + " Rollback completed successfully!");
+            }
+        });
+        return true;
+    }
+
+    private SQLDatabaseManager historyManager(CommandSender sender) {
+        if (!(plugin.getDatabaseManager() instanceof SQLDatabaseManager)) {
+            sender.sendMessage(messageManager.get("prefix") + " §cPlayer history needs an SQL database.");
+            return null;
+        }
+        SQLDatabaseManager databaseManager = (SQLDatabaseManager) plugin.getDatabaseManager();
+        if (!databaseManager.isHistoryEnabled()) {
+            sender.sendMessage(messageManager.get("prefix") + " §cPlayer history is disabled (data_management.history.enabled).");
+            return null;
+        }
+        return databaseManager;
+    }
+
+    @SuppressWarnings("deprecation")
+    private UUID resolvePlayerId(String nameOrId) {
+        try {
+            return UUID.fromString(nameOrId);
+        } catch (IllegalArgumentException e) {
+            // Offline players can only be looked up by name through the deprecated method
+            return Bukkit.getOfflinePlayer(nameOrId).getUniqueId();
+        }
+    }
+
     private boolean handleAchievements(CommandSender sender, String[] args) {
         if (!hasPermission(sender, "playerdatasync.admin.achievements")) return true;
 
@@ -306,10 +489,114 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        if (args.length > 1 && args[1].equalsIgnoreCase("statistics")) {
+            return benchmarkStatistics(sender, args);
+        }
+
+        if (args.length > 1 && args[1].equalsIgnoreCase("capture")) {
+            return benchmarkCapture(sender, args);
+        }
+
         plugin.getProfileManager().showProfile(sender);
         return true;
     }
 
+    /**
+     * Compare the packed statistics format with the old "NAME,value;" string on a player's statistics
+     */
+    private boolean benchmarkStatistics(CommandSender sender, String[] args) {
+        Player target = args.length > 2 ? Bukkit.getPlayerExact(args[2])
+                : sender instanceof Player ? (Player) sender : null;
+        if (target == null) {
+            sender.sendMessage(messageManager.get("prefix") + " " +
+                    messageManager.get("player_not_found").replace("{player}", args.length > 2 ? args[2] : "-"));
+            return true;
+        }
+
+        final int rounds = 200;
+        long captureStart = System.nanoTime();
+        Map<String, Integer> values = plugin.getStatisticsTracker().capture(target);
+        long captureNanos = System.nanoTime() - captureStart;
+
+        try {
+            String legacy = StatisticsCodec.encodeLegacy(values);
+            String packed = StatisticsCodec.encode(values);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                StatisticsCodec.decodeLegacy(StatisticsCodec.encodeLegacy(values));
+            }
+            long legacyNanos = (System.nanoTime() - start) / rounds;
+
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                StatisticsCodec.decode(StatisticsCodec.encode(values));
+            }
+            long packedNanos = (System.nanoTime() - start) / rounds;
+
+            int untyped = StatisticsCodec.decodeLegacy(legacy).size();
+            sender.sendMessage("§8§m----------§r §6Statistics Format §8§m----------");
+            sender.sendMessage(String.format("§eCapture: §f%d entries in §b%.2fms", values.size(), captureNanos / 1_000_000.0));
+            sender.sendMessage(String.format("§eString: §f%d entries, §b%d chars§f, encode+decode §b%.1fµs",
+                    untyped, legacy.length(), legacyNanos / 1000.0));
+            sender.sendMessage(String.format("§ePacked: §f%d entries, §b%d chars§f, encode+decode §b%.1fµs",
+                    values.size(), packed.length(), packedNanos / 1000.0));
+            sender.sendMessage("§8§m----------------------------------------");
+        } catch (java.io.IOException e) {
+            sender.sendMessage(messageManager.get("prefix") + " §cStatistics benchmark failed: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Time a player's save capture and measure how much it allocates, using the JVM's per-thread allocation counter
+     */
+    private boolean benchmarkCapture(CommandSender sender, String[] args) {
+        Player target = args.length > 2 ? Bukkit.getPlayerExact(args[2])
+                : sender instanceof Player ? (Player) sender : null;
+        if (target == null) {
+            sender.sendMessage(messageManager.get("prefix") + " " +
+                    messageManager.get("player_not_found").replace("{player}", args.length > 2 ? args[2] : "-"));
+            return true;
+        }
+        if (!(plugin.getDatabaseManager() instanceof SQLDatabaseManager)) {
+            sender.sendMessage(messageManager.get("prefix") + " §cCapture profiling needs an SQL database.");
+            return true;
+        }
+
+        SQLDatabaseManager databaseManager = (SQLDatabaseManager) plugin.getDatabaseManager();
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+
+        final int warmup = 20;
+        final int rounds = 200;
+        for (int i = 0; i < warmup; i++) {
+            databaseManager.captureForBenchmark(target);
+        }
+
+        long allocatedBefore = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : -1;
+        long start = System.nanoTime();
+        int payload = 0;
+        for (int i = 0; i < rounds; i++) {
+            payload = databaseManager.captureForBenchmark(target);
+        }
+        long nanos = (System.nanoTime() - start) / rounds;
+        long allocatedAfter = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : -1;
+
+        sender.sendMessage("§8§m----------§r §6Save Capture §8§m----------");
+        sender.sendMessage(String.format("§eCapture: §b%.1fµs§f per save, §b%d chars§f of payload", nanos / 1000.0, payload));
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            sender.sendMessage(String.format("§eAllocated: §b%.1f KB§f per save",
+                    (allocatedAfter - allocatedBefore) / (double) rounds / 1024.0));
+        } else {
+            sender.sendMessage("§eAllocated: §7not measurable on this JVM");
+        }
+        sender.sendMessage("§8§m----------------------------------------");
+        return true;
+    }
+
     private boolean handleSyncOption(CommandSender sender, String option, String value) {
         if (!hasPermission(sender, "playerdatasync.admin." + option)) return true;
         if (!SYNC_OPTIONS.contains(option.toLowerCase())) {
@@ -340,11 +627,14 @@ public class SyncCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§b/sync cache [clear] §8- §7Manage cache and performance stats");
         sender.sendMessage("§b/sync validate §8- §7Validate data integrity");
         sender.sendMessage("§b/sync backup [type] §8- §7Create manual backup");
-        sender.sendMessage("§b/sync restore [backup] §8- §7Restore from backup");
+        sender.sendMessage("§b/sync restore [backup] [player] §8- §7Restore from backup, or only one player");
+        sender.sendMessage("§b/sync history <player> [page] §8- §7List recent snapshots of a player");
+        sender.sendMessage("§b/sync rollback <player> <#> §8- §7Roll a player back to a snapshot");
         sender.sendMessage("§b/sync checkupdate §8- §7Manually check for updates");
         sender.sendMessage("§b/sync maintenance <on/off> §8- §7Toggle Maintenance Mode");
         sender.sendMessage("§b/sync menu §8- §7Open management GUI");
         sender.sendMessage("§b/sync profile [reset] §8- §7Show performance profiling");
+        sender.sendMessage("§b/sync profile <statistics|capture> [player] §8- §7Benchmark the save path");
         sender.sendMessage("§b/sync help §8- §7Show this help");
         sender.sendMessage(messageManager.get("help_footer"));
         return true;
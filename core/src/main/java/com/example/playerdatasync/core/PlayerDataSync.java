@@ -12,11 +12,19 @@ import net.milkbowl.vault.economy.Economy;
 
 import com.example.playerdatasync.database.ConnectionPool;
 import com.example.playerdatasync.database.DatabaseManager;
+import com.example.playerdatasync.database.ExperienceSaveBatcher;
+import com.example.playerdatasync.database.SavePriority;
+import com.example.playerdatasync.database.SaveQueue;
+import com.example.playerdatasync.database.SaveVersions;
+import com.example.playerdatasync.database.WorkloadExecutors;
+import com.example.playerdatasync.database.WorkloadType;
 import com.example.playerdatasync.integration.InventoryViewerIntegrationManager;
 import com.example.playerdatasync.listeners.PlayerDataListener;
 import com.example.playerdatasync.listeners.ServerSwitchListener;
 import com.example.playerdatasync.commands.SyncCommand;
 import com.example.playerdatasync.api.UpdateChecker;
+import com.example.playerdatasync.utils.InventoryUtils;
+import com.example.playerdatasync.utils.ItemSerializationCache;
 import com.example.playerdatasync.utils.VersionCompatibility;
 import com.example.playerdatasync.utils.SchedulerUtils;
 
@@ -28,15 +36,22 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class PlayerDataSync extends JavaPlugin {
+    // A connection in a transaction holds the SQLite write lock; the others wait this long for it
+    private static final int SQLITE_BUSY_TIMEOUT_MS = 30000;
+
     private Connection connection;
     private ConnectionPool connectionPool;
     private String databaseType;
@@ -69,11 +84,17 @@ public class PlayerDataSync extends JavaPlugin {
     private boolean maintenanceMode = false;
 
     private DatabaseManager databaseManager;
+    private ExperienceSaveBatcher experienceSaveBatcher;
+    private SaveQueue saveQueue;
+    private final SaveVersions saveVersions = new SaveVersions();
+    private WorkloadExecutors workloadExecutors;
     private com.example.playerdatasync.nms.NMSHandler nmsHandler;
     private ConfigManager configManager;
     private BackupManager backupManager;
     private MenuManager menuManager;
     private ProfileManager profileManager;
+    private StatisticsTracker statisticsTracker;
+    private AdvancementImporter advancementImporter;
     private InventoryViewerIntegrationManager inventoryViewerIntegrationManager;
     private int autosaveIntervalSeconds;
     private BukkitTask autosaveTask;
@@ -196,7 +217,7 @@ public class PlayerDataSync extends JavaPlugin {
                 databaseUrl = "jdbc:sqlite:" + file;
                 databaseUser = null;
                 databasePassword = null;
-                connection = DriverManager.getConnection(databaseUrl);
+                connection = createConnection();
                 getLogger().info("Connected to SQLite database at " + file);
             } else {
                 getLogger().severe("Unsupported database type: " + databaseType + ". Supported types: mysql, sqlite");
@@ -223,41 +244,15 @@ public class PlayerDataSync extends JavaPlugin {
 
         if (autosaveIntervalSeconds > 0) {
             long ticks = autosaveIntervalSeconds * 20L;
-            autosaveTask = SchedulerUtils.runTaskTimerAsync(this, () -> {
-                if (maintenanceMode) return;
-                try {
-                    int savedCount = 0;
-                    long startTime = System.currentTimeMillis();
-
-                    for (Player player : Bukkit.getOnlinePlayers()) {
-                        try {
-                            if (databaseManager.savePlayer(player)) {
-                                savedCount++;
-                            } else {
-                                getLogger().warning("Failed to autosave data for " + player.getName()
-                                        + ": See previous log entries for details.");
-                            }
-                        } catch (Exception e) {
-                            getLogger()
-                                    .warning("Failed to autosave data for " + player.getName() + ": " + e.getMessage());
-                        }
-                    }
-
-                    long endTime = System.currentTimeMillis();
-                    if (savedCount > 0 && isPerformanceLoggingEnabled()) {
-                        getLogger().info("Autosaved data for " + savedCount + " players in " +
-                                (endTime - startTime) + "ms");
-                    }
-                } catch (Exception e) {
-                    getLogger().severe("Error during autosave: " + e.getMessage());
-                }
-            }, ticks, ticks);
+            autosaveTask = SchedulerUtils.runTaskTimerAsync(this, this::runAutosave, ticks, ticks);
             getLogger().info("Autosave task scheduled with interval: " + autosaveIntervalSeconds + " seconds");
             if (SchedulerUtils.isFolia()) {
                 getLogger().info("Folia detected - using async scheduler for autosave");
             }
         }
 
+        workloadExecutors = new WorkloadExecutors(this);
+
         if (databaseType.equalsIgnoreCase("mongodb")) {
             // databaseManager = new MongoDatabaseManager(this); // To be implemented
         } else {
@@ -265,6 +260,12 @@ public class PlayerDataSync extends JavaPlugin {
         }
         databaseManager.initialize();
 
+        experienceSaveBatcher = new ExperienceSaveBatcher(this, databaseManager);
+        experienceSaveBatcher.start();
+
+        saveQueue = new SaveQueue(this, databaseManager, workloadExecutors.get(WorkloadType.SAVE));
+        saveQueue.start();
+
         boolean invSeeIntegration = getConfig().getBoolean("integrations.invsee", true);
         boolean openInvIntegration = getConfig().getBoolean("integrations.openinv", true);
         if (invSeeIntegration || openInvIntegration) {
@@ -284,6 +285,12 @@ public class PlayerDataSync extends JavaPlugin {
         // Initialize profile manager
         profileManager = new ProfileManager(this);
 
+        // Initialize statistics tracker
+        statisticsTracker = new StatisticsTracker(this);
+
+        // Initialize advancement importer
+        advancementImporter = new AdvancementImporter(this);
+
         getServer().getPluginManager().registerEvents(new PlayerDataListener(this, databaseManager), this);
         getServer().getPluginManager().registerEvents(new ServerSwitchListener(this, databaseManager), this);
         if (getCommand("sync") != null) {
@@ -337,6 +344,25 @@ public class PlayerDataSync extends JavaPlugin {
             this.nmsHandler = new com.example.playerdatasync.nms.FallbackNMSHandler();
             this.nmsVersionString = "Fallback";
         }
+
+        // Existing payloads stay readable whichever codec is chosen, the header records the writer
+        if ("bukkit".equalsIgnoreCase(getConfig().getString("performance.item_codec", "auto"))) {
+            InventoryUtils.setItemCodec(com.example.playerdatasync.nms.BukkitStreamItemCodec.INSTANCE);
+        } else {
+            InventoryUtils.setItemCodec(nmsHandler.getItemCodec());
+        }
+        getLogger().info("Item serialization codec: " + InventoryUtils.getItemCodec().getName());
+
+        if (getConfig().getBoolean("performance.item_cache.enabled", true)) {
+            InventoryUtils.setSerializationCache(
+                    new ItemSerializationCache(getConfig().getInt("performance.item_cache.max_players", 200)));
+        } else {
+            InventoryUtils.setSerializationCache(null);
+        }
+        // Rows of the item blob store only hold references, so there is nothing to append to
+        InventoryUtils.setMaxDeltaChain(getConfig().getBoolean("performance.inventory_delta.enabled", true)
+                && !getConfig().getBoolean("database.item_store.enabled", false)
+                ? getConfig().getInt("performance.inventory_delta.max_chain", 8) : 0);
     }
 
     @Override
@@ -358,6 +384,18 @@ public class PlayerDataSync extends JavaPlugin {
             getServer().getMessenger().unregisterOutgoingPluginChannel(this);
         }
 
+        // Flush queued saves first; players who already left are only covered by these
+        if (saveQueue != null) {
+            saveQueue.shutdown();
+            saveQueue = null;
+        }
+
+        // Full shutdown saves below include XP, so pending micro-saves can be dropped
+        if (experienceSaveBatcher != null) {
+            experienceSaveBatcher.stop();
+            experienceSaveBatcher = null;
+        }
+
         // Save all online players before shutdown
         // Fix for Issue #42 and #46: Ensure economy is saved before shutdown
         if (databaseManager != null) {
@@ -439,6 +477,12 @@ public class PlayerDataSync extends JavaPlugin {
             inventoryViewerIntegrationManager = null;
         }
 
+        // Let in-flight loads, lookups and backups finish before the pool goes away
+        if (workloadExecutors != null) {
+            workloadExecutors.shutdown();
+            workloadExecutors = null;
+        }
+
         // Shutdown connection pool
         if (connectionPool != null) {
             connectionPool.shutdown();
@@ -462,29 +506,106 @@ public class PlayerDataSync extends JavaPlugin {
         getLogger().info("PlayerDataSync disabled successfully");
     }
 
+    private void runAutosave() {
+        if (maintenanceMode || saveQueue == null) return;
+        try {
+            long startTime = System.currentTimeMillis();
+            List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                saves.add(saveQueue.submit(player, SavePriority.AUTOSAVE));
+            }
+
+            if (saves.isEmpty()) {
+                return;
+            }
+
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).thenRun(() -> {
+                int savedCount = 0;
+                for (CompletableFuture<Boolean> save : saves) {
+                    if (Boolean.TRUE.equals(save.join())) {
+                        savedCount++;
+                    }
+                }
+
+                this.lastSaveDurationMs = System.currentTimeMillis() - startTime;
+                if (savedCount > 0 && isPerformanceLoggingEnabled()) {
+                    getLogger().info("Autosaved data for " + savedCount + " players in " +
+                            this.lastSaveDurationMs + "ms");
+                }
+            });
+        } catch (Exception e) {
+            getLogger().severe("Error during autosave: " + e.getMessage());
+        }
+    }
+
     private Connection createConnection() throws SQLException {
         if (databaseType.equalsIgnoreCase("mysql")) {
             return DriverManager.getConnection(databaseUrl, databaseUser, databasePassword);
         }
-        return DriverManager.getConnection(databaseUrl);
+        Connection sqlite = DriverManager.getConnection(databaseUrl);
+        try (Statement st = sqlite.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + SQLITE_BUSY_TIMEOUT_MS);
+        }
+        return sqlite;
     }
 
-    public synchronized Connection getConnection() {
+    /**
+     * Connection for work that runs its own transaction, released with {@link #returnTransactionConnection}.
+     * Without a pool every other caller shares one connection, and a commit or rollback on it would take
+     * their writes along, so a separate connection is opened instead.
+     */
+    public Connection getTransactionConnection() {
+        if (connectionPool != null) {
+            return getConnection();
+        }
         try {
-            // Use connection pool if available
-            if (connectionPool != null) {
-                return connectionPool.getConnection();
+            return createConnection();
+        } catch (SQLException e) {
+            getLogger().severe("Could not open a database connection: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void returnTransactionConnection(Connection conn) {
+        if (connectionPool != null) {
+            returnConnection(conn);
+            return;
+        }
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                getLogger().warning("Error closing database connection: " + e.getMessage());
             }
+        }
+    }
 
-            // Fallback to single connection
-            if (connection == null || connection.isClosed() || !isConnectionValid(connection)) {
-                connection = createConnection();
-                getLogger().info("Reconnected to database");
+    public Connection getConnection() {
+        // Use connection pool if available; waiting for a pooled connection must
+        // not hold the plugin lock, otherwise one starved workload blocks all others
+        ConnectionPool pool = connectionPool;
+        if (pool != null) {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                getLogger().severe("Could not establish database connection: " + e.getMessage());
+                return null;
             }
-        } catch (SQLException e) {
-            getLogger().severe("Could not establish database connection: " + e.getMessage());
         }
-        return connection;
+
+        synchronized (this) {
+            try {
+                // Fallback to single connection
+                if (connection == null || connection.isClosed() || !isConnectionValid(connection)) {
+                    connection = createConnection();
+                    getLogger().info("Reconnected to database");
+                }
+            } catch (SQLException e) {
+                getLogger().severe("Could not establish database connection: " + e.getMessage());
+            }
+            return connection;
+        }
     }
 
     private boolean isConnectionValid(Connection connection) {
@@ -705,35 +826,7 @@ public class PlayerDataSync extends JavaPlugin {
             }
             if (autosaveIntervalSeconds > 0) {
                 long ticks = autosaveIntervalSeconds * 20L;
-                autosaveTask = SchedulerUtils.runTaskTimerAsync(this, () -> {
-                    try {
-                        int savedCount = 0;
-                        long startTime = System.currentTimeMillis();
-
-                        for (Player player : Bukkit.getOnlinePlayers()) {
-                            try {
-                                if (databaseManager.savePlayer(player)) {
-                                    savedCount++;
-                                } else {
-                                    getLogger().warning("Failed to autosave data for " + player.getName()
-                                            + ": See previous log entries for details.");
-                                }
-                            } catch (Exception e) {
-                                getLogger().warning(
-                                        "Failed to autosave data for " + player.getName() + ": " + e.getMessage());
-                            }
-                        }
-
-                        long endTime = System.currentTimeMillis();
-                        this.lastSaveDurationMs = endTime - startTime;
-                        if (savedCount > 0 && isPerformanceLoggingEnabled()) {
-                            getLogger().info("Autosaved data for " + savedCount + " players in " +
-                                    this.lastSaveDurationMs + "ms");
-                        }
-                    } catch (Exception e) {
-                        getLogger().severe("Error during autosave: " + e.getMessage());
-                    }
-                }, ticks, ticks);
+                autosaveTask = SchedulerUtils.runTaskTimerAsync(this, this::runAutosave, ticks, ticks);
                 getLogger().info("Autosave task restarted with interval: " + autosaveIntervalSeconds + " seconds");
             }
         }
@@ -836,17 +929,15 @@ public class PlayerDataSync extends JavaPlugin {
 
         logDebug("Manual economy sync triggered for " + player.getName());
 
-        try {
-            long startTime = System.currentTimeMillis();
-            databaseManager.savePlayer(player);
-            long endTime = System.currentTimeMillis();
-
+        databaseManager.saveAsync(player).whenComplete((result, error) -> {
+            if (error != null || !result.isSuccess()) {
+                getLogger().severe("Failed to manually sync economy for " + player.getName() + ": "
+                        + (error != null ? error.getMessage() : result.getError()));
+                return;
+            }
             logDebug("Manual economy sync completed for " + player.getName() +
-                    " in " + (endTime - startTime) + "ms");
-
-        } catch (Exception e) {
-            getLogger().severe("Failed to manually sync economy for " + player.getName() + ": " + e.getMessage());
-        }
+                    " in " + result.getDurationMs() + "ms");
+        });
     }
 
     public boolean isMaintenanceMode() {
@@ -870,6 +961,14 @@ public class PlayerDataSync extends JavaPlugin {
         return profileManager;
     }
 
+    public StatisticsTracker getStatisticsTracker() {
+        return statisticsTracker;
+    }
+
+    public AdvancementImporter getAdvancementImporter() {
+        return advancementImporter;
+    }
+
     // Getter methods for components
     public ConfigManager getConfigManager() {
         return configManager;
@@ -883,6 +982,22 @@ public class PlayerDataSync extends JavaPlugin {
         return databaseManager;
     }
 
+    public WorkloadExecutors getWorkloadExecutors() {
+        return workloadExecutors;
+    }
+
+    public SaveQueue getSaveQueue() {
+        return saveQueue;
+    }
+
+    public ExperienceSaveBatcher getExperienceSaveBatcher() {
+        return experienceSaveBatcher;
+    }
+
+    public SaveVersions getSaveVersions() {
+        return saveVersions;
+    }
+
     public com.example.playerdatasync.nms.NMSHandler getNmsHandler() {
         return nmsHandler;
     }
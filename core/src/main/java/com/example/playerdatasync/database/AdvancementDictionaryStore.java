@@ -0,0 +1,193 @@
+package com.example.playerdatasync.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.nms.AdvancementDictionary;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Shared mapping of advancement keys to the bit positions used in packed advancement data.
+ * Ordinals are assigned once in the keys table and never change, so every server reads the
+ * same bits the same way. Unknown keys are registered in the background; until then they are
+ * stored by name.
+ */
+public class AdvancementDictionaryStore implements AdvancementDictionary {
+    private static final long RELOAD_INTERVAL_MS = 10000L;
+    private static final int REGISTER_ATTEMPTS = 3;
+
+    private final PlayerDataSync plugin;
+    private final String table;
+
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> keys = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean registering = new AtomicBoolean();
+    private volatile long lastReload;
+
+    public AdvancementDictionaryStore(PlayerDataSync plugin, String playerTable) {
+        this.plugin = plugin;
+        this.table = playerTable + "_advancement_keys";
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "ordinal INT PRIMARY KEY," +
+                "adv_key VARCHAR(255) NOT NULL UNIQUE" +
+                ")");
+        load(st.getConnection());
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    @Override
+    public int ordinalOf(String key) {
+        Integer ordinal = ordinals.get(key);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (pending.add(key)) {
+            scheduleRegistration();
+        }
+        return -1;
+    }
+
+    @Override
+    public String keyOf(int ordinal) {
+        String key = keys.get(ordinal);
+        if (key == null && !SchedulerUtils.isPrimaryThread()
+                && System.currentTimeMillis() - lastReload >= RELOAD_INTERVAL_MS) {
+            // Another server registered it after our last load
+            reload();
+            key = keys.get(ordinal);
+        }
+        return key;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private void load(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ordinal, adv_key FROM " + table)) {
+            while (rs.next()) {
+                remember(rs.getInt(1), rs.getString(2));
+            }
+        }
+        lastReload = System.currentTimeMillis();
+    }
+
+    private void reload() {
+        Connection connection = null;
+        try {
+            connection = plugin.getConnection();
+            if (connection != null) {
+                load(connection);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not reload advancement keys: " + e.getMessage());
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private void remember(int ordinal, String key) {
+        ordinals.put(key, ordinal);
+        keys.put(ordinal, key);
+    }
+
+    /**
+     * Drain pending keys with a single worker, so a new datapack does not start a task per key
+     */
+    private void scheduleRegistration() {
+        if (!registering.compareAndSet(false, true)) {
+            return;
+        }
+        WorkloadExecutors.supply(plugin, WorkloadType.SAVE, () -> {
+            try {
+                registerPending();
+            } finally {
+                registering.set(false);
+                if (!pending.isEmpty()) {
+                    scheduleRegistration();
+                }
+            }
+            return null;
+        }).whenComplete((ignored, error) -> {
+            // Never ran; the keys are registered with the next new one
+            if (error instanceof RejectedExecutionException) {
+                registering.set(false);
+            }
+        });
+    }
+
+    private void registerPending() {
+        Connection connection = null;
+        try {
+            connection = plugin.getConnection();
+            if (connection == null) {
+                return;
+            }
+            for (String key : pending) {
+                if (!ordinals.containsKey(key)) {
+                    register(connection, key);
+                }
+                pending.remove(key);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not register advancement keys: " + e.getMessage());
+            pending.clear();
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    /**
+     * Assign the next free ordinal; a concurrent insert by another server fails on the
+     * primary or unique key, after which the winner's row is read back.
+     */
+    private void register(Connection connection, String key) throws SQLException {
+        String insert = "INSERT INTO " + table + " (ordinal, adv_key) " +
+                "SELECT COALESCE(MAX(ordinal), -1) + 1, ? FROM " + table;
+        for (int attempt = 0; attempt < REGISTER_ATTEMPTS; attempt++) {
+            if (lookup(connection, key)) {
+                return;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(insert)) {
+                ps.setString(1, key);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                plugin.logDebug("Advancement key registration raced for " + key + ": " + e.getMessage());
+                continue;
+            }
+            if (lookup(connection, key)) {
+                return;
+            }
+        }
+        plugin.getLogger().warning("Could not assign an ordinal to advancement " + key);
+    }
+
+    private boolean lookup(Connection connection, String key) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT ordinal FROM " + table + " WHERE adv_key = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    remember(rs.getInt(1), key);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -3,10 +3,16 @@ package com.example.playerdatasync.database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.SchedulerUtils;
 
 /**
  * Simple connection pool implementation for PlayerDataSync
@@ -21,6 +27,16 @@ public class ConnectionPool {
     private final String password;
     private volatile boolean shutdown = false;
 
+    // Workload quotas: everything except join loads shares the non-reserved slots,
+    // bulk backups are additionally capped
+    private final int reservedLoadConnections;
+    private final Semaphore sharedQuota;
+    private final Semaphore backupQuota;
+    private final Map<Connection, Lease> leases = Collections.synchronizedMap(new IdentityHashMap<>());
+    // Quota leases the thread holds; a thread holding one takes further connections without the quota
+    private final ThreadLocal<AtomicInteger> heldLeases = ThreadLocal.withInitial(AtomicInteger::new);
+    private static final long QUOTA_TIMEOUT_MS = 10000;
+
     public ConnectionPool(PlayerDataSync plugin, String databaseUrl, String username, String password, int maxConnections) {
         this.plugin = plugin;
         this.databaseUrl = databaseUrl;
@@ -29,12 +45,68 @@ public class ConnectionPool {
         this.maxConnections = maxConnections;
         this.availableConnections = new ConcurrentLinkedQueue<>();
         this.connectionCount = new AtomicInteger(0);
+
+        int reserved = plugin.getConfig().getInt("performance.executors.reserved_load_connections", 2);
+        this.reservedLoadConnections = Math.max(0, Math.min(reserved, maxConnections - 1));
+        this.sharedQuota = new Semaphore(maxConnections - reservedLoadConnections, true);
+        int backupConnections = plugin.getConfig().getInt("performance.executors.max_backup_connections", 1);
+        this.backupQuota = new Semaphore(Math.max(1, backupConnections), true);
     }
 
     /**
-     * Get a connection from the pool with improved error handling
+     * Get a connection within the quota of the calling thread's workload.
+     * The server thread never waits for quota or a free connection, it fails at once instead.
      */
     public Connection getConnection() throws SQLException {
+        AtomicInteger held = heldLeases.get();
+        // A nested connection would otherwise wait for the quota its own thread holds
+        Semaphore[] quotas = held.get() > 0 ? new Semaphore[0] : quotasFor(WorkloadType.current());
+        boolean primary = SchedulerUtils.isPrimaryThread();
+        int acquired = 0;
+        try {
+            for (Semaphore quota : quotas) {
+                if (primary ? !quota.tryAcquire() : !quota.tryAcquire(QUOTA_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Connection quota for " + describe(WorkloadType.current())
+                        + " exhausted within timeout (" + (primary ? 0 : QUOTA_TIMEOUT_MS) + "ms)");
+                }
+                acquired++;
+            }
+
+            Connection connection = acquireConnection(primary);
+            if (quotas.length > 0) {
+                held.incrementAndGet();
+                leases.put(connection, new Lease(quotas, held));
+            }
+            acquired = 0;
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for connection quota");
+        } finally {
+            for (int i = 0; i < acquired; i++) {
+                quotas[i].release();
+            }
+        }
+    }
+
+    private Semaphore[] quotasFor(WorkloadType workload) {
+        if (workload == WorkloadType.LOAD) {
+            return new Semaphore[0];
+        }
+        if (workload == WorkloadType.BACKUP) {
+            return new Semaphore[] { backupQuota, sharedQuota };
+        }
+        return new Semaphore[] { sharedQuota };
+    }
+
+    private String describe(WorkloadType workload) {
+        return workload != null ? workload.getConfigKey() : "shared";
+    }
+
+    /**
+     * Get a connection from the pool with improved error handling
+     */
+    private Connection acquireConnection(boolean primary) throws SQLException {
         if (shutdown) {
             throw new SQLException("Connection pool is shut down");
         }
@@ -59,7 +131,7 @@ public class ConnectionPool {
         long startTime = System.currentTimeMillis();
         long waitTime = 10; // Start with 10ms
         final long maxWaitTime = 100; // Max 100ms between attempts
-        final long totalTimeout = 10000; // 10 second total timeout
+        final long totalTimeout = primary ? 0 : 10000; // 10 second total timeout, none on the server thread
         
         while (System.currentTimeMillis() - startTime < totalTimeout) {
             connection = availableConnections.poll();
@@ -85,6 +157,16 @@ public class ConnectionPool {
      * Return a connection to the pool
      */
     public void returnConnection(Connection connection) {
+        if (connection != null) {
+            Lease lease = leases.remove(connection);
+            if (lease != null) {
+                lease.holder.decrementAndGet();
+                for (Semaphore quota : lease.quotas) {
+                    quota.release();
+                }
+            }
+        }
+
         if (connection == null || shutdown) {
             try {
                 if (connection != null) {
@@ -181,8 +263,24 @@ public class ConnectionPool {
     /**
      * Get pool statistics
      */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
     public String getStats() {
-        return String.format("Pool stats: %d/%d connections, %d available", 
-            connectionCount.get(), maxConnections, availableConnections.size());
+        return String.format("Pool stats: %d/%d connections, %d available, %d reserved for loads, %d shared slots free",
+            connectionCount.get(), maxConnections, availableConnections.size(), reservedLoadConnections,
+            sharedQuota.availablePermits());
+    }
+
+    private static class Lease {
+        private final Semaphore[] quotas;
+        // Lease count of the thread that took the connection, which may not be the one returning it
+        private final AtomicInteger holder;
+
+        private Lease(Semaphore[] quotas, AtomicInteger holder) {
+            this.quotas = quotas;
+            this.holder = holder;
+        }
     }
 }
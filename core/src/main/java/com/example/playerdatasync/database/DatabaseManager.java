@@ -1,14 +1,53 @@
 package com.example.playerdatasync.database;
 
 import org.bukkit.entity.Player;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
 import com.example.playerdatasync.utils.OfflinePlayerData;
 
+/**
+ * Storage backend for player data.
+ * The stage-based methods are the primary contract; the blocking methods are thin
+ * adapters kept for callers that already run off the main thread.
+ */
 public interface DatabaseManager {
     void initialize();
 
+    /**
+     * Capture the player's state on their thread and persist it without parking the caller.
+     */
+    CompletionStage<SaveResult> saveAsync(Player player);
+
+    /**
+     * Read the player's stored state and apply it; completes with the state that was read.
+     */
+    CompletionStage<PlayerState> loadAsync(Player player);
+
+    /**
+     * Give the player up once the save written when they left this server has committed.
+     * Until then, a server loading them waits for that save.
+     */
+    void endSession(UUID uuid);
+
+    CompletionStage<OfflinePlayerData> loadOfflinePlayerDataAsync(UUID uuid, String fallbackName);
+
     boolean savePlayer(Player player);
 
+    /**
+     * Capture the player's state now and return the write that persists it.
+     * Capturing happens immediately when called on the main thread; the returned
+     * task may run on any thread.
+     */
+    Callable<Boolean> prepareSave(Player player);
+
+    /**
+     * Field-scoped save of the experience column for several players in one batch.
+     * Rows already holding a later save version than a value are left untouched.
+     */
+    boolean saveExperience(Map<UUID, ExperienceSaveBatcher.Capture> experience);
+
     void loadPlayer(Player player);
 
     String getPerformanceStats();
@@ -0,0 +1,205 @@
+package com.example.playerdatasync.database;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.ExperienceUtils;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Collects XP changes and persists them as field-scoped updates.
+ * Players touched during a tick are captured once (a single int each) at the end
+ * of that tick and written together in one batch instead of a full-row save per event.
+ * Each value carries the player's save version (see {@link SaveVersions}), so it never
+ * overwrites a newer full save, and one a full save captured earlier wrote over is written again.
+ */
+public class ExperienceSaveBatcher {
+    private final PlayerDataSync plugin;
+    private final DatabaseManager databaseManager;
+
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Capture> pendingExperience = new ConcurrentHashMap<>();
+    // Newest value written per player, until a full save of a later version covers it
+    private final Map<UUID, Capture> writtenExperience = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushInProgress = new AtomicBoolean(false);
+    private BukkitTask tickTask;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public ExperienceSaveBatcher(PlayerDataSync plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+
+    public void start() {
+        if (tickTask == null) {
+            tickTask = SchedulerUtils.runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop batching. Pending values are dropped because the shutdown save
+     * persists the complete player state anyway.
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        dirtyPlayers.clear();
+        pendingExperience.clear();
+        writtenExperience.clear();
+    }
+
+    /**
+     * Mark a player's experience as changed; it is captured and written on the next tick.
+     */
+    public void markDirty(Player player) {
+        dirtyPlayers.add(player.getUniqueId());
+    }
+
+    /**
+     * Forget pending XP for a player, e.g. when a full save is about to persist it.
+     */
+    public void discard(UUID uuid) {
+        dirtyPlayers.remove(uuid);
+        pendingExperience.remove(uuid);
+        writtenExperience.remove(uuid);
+    }
+
+    /**
+     * A full save of the given version was written. It replaced any value written since it was
+     * captured, so the newest such value is queued again.
+     */
+    public void fullSaveWritten(UUID uuid, long version) {
+        Capture written = writtenExperience.get(uuid);
+        if (written == null) {
+            return;
+        }
+        if (written.getVersion() <= version) {
+            writtenExperience.remove(uuid, written);
+        } else {
+            pendingExperience.merge(uuid, written, Capture::newer);
+        }
+    }
+
+    private void tick() {
+        if (!dirtyPlayers.isEmpty()) {
+            Iterator<UUID> iterator = dirtyPlayers.iterator();
+            while (iterator.hasNext()) {
+                UUID uuid = iterator.next();
+                iterator.remove();
+
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null && player.isOnline()) {
+                    pendingExperience.put(uuid, new Capture(ExperienceUtils.calculateTotalExperience(player),
+                            plugin.getSaveVersions().next(uuid), System.currentTimeMillis()));
+                }
+            }
+        }
+
+        if (pendingExperience.isEmpty() || !flushInProgress.compareAndSet(false, true)) {
+            return;
+        }
+
+        WorkloadExecutors.supply(plugin, WorkloadType.SAVE, () -> {
+            try {
+                flush();
+            } finally {
+                flushInProgress.set(false);
+            }
+            return null;
+        }).whenComplete((ignored, error) -> {
+            // Never ran; the values stay queued for the next tick
+            if (error instanceof RejectedExecutionException) {
+                flushInProgress.set(false);
+            }
+        });
+    }
+
+    private void flush() {
+        Map<UUID, Capture> batch = new HashMap<>();
+        for (Map.Entry<UUID, Capture> entry : pendingExperience.entrySet()) {
+            // Only take the value we copied; a newer capture stays queued for the next batch
+            if (pendingExperience.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            if (databaseManager.saveExperience(batch)) {
+                for (Map.Entry<UUID, Capture> entry : batch.entrySet()) {
+                    writtenExperience.merge(entry.getKey(), entry.getValue(), Capture::newer);
+                }
+                batchCount.incrementAndGet();
+                updateCount.addAndGet(batch.size());
+            } else {
+                failedBatches.incrementAndGet();
+            }
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            plugin.getLogger().warning("Failed XP micro-save for " + batch.size() + " players: " + e.getMessage());
+        }
+
+        if (plugin.getProfileManager() != null) {
+            plugin.getProfileManager().record("XP-Batch-Save", System.currentTimeMillis() - start);
+        }
+    }
+
+    public String getStats() {
+        long batches = batchCount.get();
+        long updates = updateCount.get();
+        return String.format("XP micro-saves: %d updates in %d batches (avg %.1f/batch), %d failed",
+                updates, batches, batches > 0 ? (double) updates / batches : 0.0, failedBatches.get());
+    }
+
+    /**
+     * Total experience of a player, the save version it was read at and when
+     */
+    public static final class Capture {
+        private final int experience;
+        private final long version;
+        private final long capturedAt;
+
+        public Capture(int experience, long version, long capturedAt) {
+            this.experience = experience;
+            this.version = version;
+            this.capturedAt = capturedAt;
+        }
+
+        public int getExperience() {
+            return experience;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getCapturedAt() {
+            return capturedAt;
+        }
+
+        private static Capture newer(Capture a, Capture b) {
+            return a.version >= b.version ? a : b;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.playerdatasync.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Secondary indexes for the queries the maintenance jobs run: archival and incremental backups
+ * select by last_save, per-server reads by server_id and last_save, the blob sweep and incremental
+ * backups by last_used, incremental backups of the archive by archived, and overflow cleanups by
+ * owner and column. Applied indexes are recorded with their definition, so startup only reads
+ * that record and builds what is new or changed, in the background and without blocking writes
+ * where the engine allows it.
+ */
+public class IndexManager {
+    private final PlayerDataSync plugin;
+    private final String table;
+    private final List<IndexDefinition> indexes = new ArrayList<>();
+
+    public IndexManager(PlayerDataSync plugin, String playerTable) {
+        this.plugin = plugin;
+        this.table = playerTable + "_indexes";
+        indexes.add(new IndexDefinition(playerTable, playerTable + "_last_save", "last_save"));
+        indexes.add(new IndexDefinition(playerTable, playerTable + "_server_save", "server_id, last_save"));
+        indexes.add(new IndexDefinition(playerTable + "_items", playerTable + "_items_last_used", "last_used"));
+        indexes.add(new IndexDefinition(playerTable + "_archive", playerTable + "_archive_archived", "archived"));
+        indexes.add(new IndexDefinition(playerTable + "_overflow", playerTable + "_overflow_owner", "uuid, col"));
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "name VARCHAR(64) PRIMARY KEY," +
+                "definition VARCHAR(255) NOT NULL," +
+                "created BIGINT NOT NULL" +
+                ")");
+    }
+
+    /**
+     * Build missing indexes on the backup workload, so a large table does not hold up startup
+     */
+    public void start() {
+        WorkloadExecutors.supply(plugin, WorkloadType.BACKUP, this::apply);
+    }
+
+    /**
+     * Create every declared index that is not recorded with its current definition
+     *
+     * @return indexes built
+     */
+    public int apply() {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().warning("Skipping index check: database connection unavailable");
+            return 0;
+        }
+
+        boolean mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+        int built = 0;
+        try {
+            Map<String, String> recorded = new HashMap<>();
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT name, definition FROM " + table)) {
+                while (rs.next()) {
+                    recorded.put(rs.getString(1), rs.getString(2));
+                }
+            }
+
+            DatabaseMetaData meta = connection.getMetaData();
+            List<IndexDefinition> pending = new ArrayList<>();
+            for (IndexDefinition index : indexes) {
+                if (!index.getDefinition().equals(recorded.get(index.name)) && tableExists(meta, index.table)) {
+                    pending.add(index);
+                }
+            }
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            plugin.getLogger().info("Building " + pending.size() + " database indexes in the background");
+            for (IndexDefinition index : pending) {
+                long startTime = System.currentTimeMillis();
+                plugin.getLogger().info("[" + (built + 1) + "/" + pending.size() + "] Indexing " + index.table
+                        + " (" + index.columns + ")" + estimateRows(connection, index.table, mysql));
+
+                boolean exists = indexExists(meta, index);
+                if (exists && recorded.containsKey(index.name)) {
+                    // Recorded with another definition
+                    try (Statement st = connection.createStatement()) {
+                        st.executeUpdate(mysql
+                                ? "DROP INDEX " + index.name + " ON " + index.table
+                                : "DROP INDEX IF EXISTS " + index.name);
+                    }
+                    exists = false;
+                }
+                if (!exists) {
+                    create(connection, index, mysql);
+                }
+
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "REPLACE INTO " + table + " (name, definition, created) VALUES (?,?,?)")) {
+                    ps.setString(1, index.name);
+                    ps.setString(2, index.getDefinition());
+                    ps.setLong(3, System.currentTimeMillis());
+                    ps.executeUpdate();
+                }
+                built++;
+                plugin.getLogger().info("[" + built + "/" + pending.size() + "] Index " + index.name
+                        + (exists ? " already existed" : " built in " + (System.currentTimeMillis() - startTime) + "ms"));
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Index build stopped after " + built + " indexes: " + e.getMessage());
+        } finally {
+            plugin.returnConnection(connection);
+        }
+        return built;
+    }
+
+    private void create(Connection connection, IndexDefinition index, boolean mysql) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            if (!mysql) {
+                st.executeUpdate("CREATE INDEX IF NOT EXISTS " + index.name + " ON " + index.table + " (" + index.columns + ")");
+                return;
+            }
+            try {
+                // InnoDB builds the index while reads and writes continue
+                st.executeUpdate("ALTER TABLE " + index.table + " ADD INDEX " + index.name + " (" + index.columns + ")"
+                        + ", ALGORITHM=INPLACE, LOCK=NONE");
+            } catch (SQLException e) {
+                plugin.logDebug("Online index build of " + index.name + " not supported, locking the table: " + e.getMessage());
+                st.executeUpdate("CREATE INDEX " + index.name + " ON " + index.table + " (" + index.columns + ")");
+            }
+        }
+    }
+
+    private static boolean tableExists(DatabaseMetaData meta, String table) throws SQLException {
+        try (ResultSet rs = meta.getTables(null, null, table, new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    private static boolean indexExists(DatabaseMetaData meta, IndexDefinition index) throws SQLException {
+        try (ResultSet rs = meta.getIndexInfo(null, null, index.table, false, false)) {
+            while (rs.next()) {
+                if (index.name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Row estimate for the progress log; MySQL keeps one in its statistics, SQLite would need a scan
+     */
+    private static String estimateRows(Connection connection, String table, boolean mysql) {
+        if (!mysql) {
+            return "";
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT TABLE_ROWS FROM information_schema.TABLES"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? ", about " + rs.getLong(1) + " rows" : "";
+            }
+        } catch (SQLException e) {
+            return "";
+        }
+    }
+
+    private static final class IndexDefinition {
+        private final String table;
+        private final String name;
+        private final String columns;
+
+        private IndexDefinition(String table, String name, String columns) {
+            this.table = table;
+            this.name = name;
+            this.columns = columns;
+        }
+
+        private String getDefinition() {
+            return table + " (" + columns + ")";
+        }
+    }
+}
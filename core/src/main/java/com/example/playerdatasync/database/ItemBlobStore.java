@@ -0,0 +1,376 @@
+package com.example.playerdatasync.database;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.EncodedInventory;
+import com.example.playerdatasync.utils.InventoryUtils;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Content-addressed storage for encoded items. Each distinct item is stored once in the
+ * items table keyed by the SHA-256 of its bytes, and player rows only hold slot-to-hash
+ * references. Unreferenced blobs are removed by a periodic mark-and-sweep pass instead of
+ * reference counting, which would need every row write to adjust counts transactionally.
+ */
+public class ItemBlobStore {
+    private static final int LOOKUP_BATCH = 100;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final PlayerDataSync plugin;
+    private final String playerTable;
+    private final String itemTable;
+    private final long gcGraceMs;
+
+    // Hashes known to exist in the items table and when that was confirmed; saves skip the
+    // write for these. Entries expire after half the sweep grace period, so a blob that another
+    // server's sweep considers old was last relied on long before that sweep started.
+    private final Map<String, Long> knownHashes;
+    // Recently read blobs, so popular items are not fetched again on every join
+    private final Map<String, byte[]> blobCache;
+
+    private final AtomicLong blobsWritten = new AtomicLong();
+    private final AtomicLong blobsReused = new AtomicLong();
+    private final AtomicLong blobsCollected = new AtomicLong();
+
+    public ItemBlobStore(PlayerDataSync plugin, String playerTable) {
+        this.plugin = plugin;
+        this.playerTable = playerTable;
+        this.itemTable = playerTable + "_items";
+        this.gcGraceMs = Math.max(1, plugin.getConfig().getLong("database.item_store.gc_grace_minutes", 60)) * 60000L;
+
+        int knownLimit = Math.max(1000, plugin.getConfig().getInt("database.item_store.known_hashes", 50000));
+        int cacheLimit = Math.max(100, plugin.getConfig().getInt("database.item_store.cached_blobs", 5000));
+        this.knownHashes = new LinkedHashMap<String, Long>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > knownLimit;
+            }
+        };
+        this.blobCache = new LinkedHashMap<String, byte[]>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheLimit;
+            }
+        };
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + itemTable + " (" +
+                "hash VARCHAR(64) PRIMARY KEY," +
+                "codec INT," +
+                "data LONGTEXT," +
+                "last_used BIGINT" +
+                ")");
+    }
+
+    public String getItemTable() {
+        return itemTable;
+    }
+
+    /**
+     * Schedule the periodic garbage collection of unreferenced blobs
+     */
+    public void start() {
+        long minutes = plugin.getConfig().getLong("database.item_store.gc_interval_minutes", 360);
+        if (minutes <= 0) {
+            return;
+        }
+        long ticks = minutes * 60L * 20L;
+        SchedulerUtils.runTaskTimerAsync(plugin,
+                () -> WorkloadExecutors.supply(plugin, WorkloadType.BACKUP, this::collectGarbage), ticks, ticks);
+    }
+
+    /**
+     * Store the section's items as blobs and return the reference payload for the player row.
+     * Sections encoded with the legacy Bukkit stream are returned unchanged.
+     */
+    public String store(Connection connection, EncodedInventory section) throws SQLException, IOException {
+        if (section == null) {
+            return null;
+        }
+        byte[][] slots = section.getEncodedSlots();
+        if (slots == null) {
+            return section.getFull();
+        }
+
+        byte[][] hashes = new byte[slots.length][];
+        Map<String, byte[]> missing = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (slots[slot] == null) {
+                continue;
+            }
+            MessageDigest digest = DIGEST.get();
+            digest.update((byte) section.getCodecId());
+            hashes[slot] = digest.digest(slots[slot]);
+
+            String hash = InventoryUtils.toHex(hashes[slot]);
+            Long learnedAt;
+            synchronized (knownHashes) {
+                learnedAt = knownHashes.get(hash);
+            }
+            if (learnedAt != null && now - learnedAt < gcGraceMs / 2) {
+                blobsReused.incrementAndGet();
+            } else {
+                missing.put(hash, slots[slot]);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            writeBlobs(connection, section.getCodecId(), missing, now);
+            synchronized (knownHashes) {
+                for (String hash : missing.keySet()) {
+                    knownHashes.put(hash, now);
+                }
+            }
+        }
+        return InventoryUtils.writeReferencePayload(section.getCodecId(), hashes);
+    }
+
+    private void writeBlobs(Connection connection, int codecId, Map<String, byte[]> blobs, long now)
+            throws SQLException {
+        boolean mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+
+        // Existing blobs only get their last_used refreshed so sweeps keep them
+        String insert = mysql
+                ? "INSERT INTO " + itemTable + " (hash, codec, data, last_used) VALUES (?,?,?,?)"
+                        + " ON DUPLICATE KEY UPDATE last_used = VALUES(last_used)"
+                : "INSERT OR IGNORE INTO " + itemTable + " (hash, codec, data, last_used) VALUES (?,?,?,?)";
+        try (PreparedStatement ps = connection.prepareStatement(insert)) {
+            for (Map.Entry<String, byte[]> blob : blobs.entrySet()) {
+                ps.setString(1, blob.getKey());
+                ps.setInt(2, codecId);
+                ps.setString(3, Base64.getEncoder().encodeToString(blob.getValue()));
+                ps.setLong(4, now);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int count : counts) {
+                if (count == 1) {
+                    blobsWritten.incrementAndGet();
+                } else {
+                    blobsReused.incrementAndGet();
+                }
+            }
+        }
+
+        if (!mysql) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE " + itemTable + " SET last_used = ? WHERE hash = ?")) {
+                for (String hash : blobs.keySet()) {
+                    ps.setLong(1, now);
+                    ps.setString(2, hash);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Turn a reference payload read from a player row back into a regular item payload.
+     * Other payloads are returned unchanged.
+     */
+    public String resolve(Connection connection, String data) throws SQLException {
+        try {
+            return resolve(connection, data, false);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not resolve item references: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #resolve(Connection, String)}, for callers that drop the references afterwards:
+     * an unreadable payload or a missing blob fails instead of leaving slots empty.
+     */
+    public String resolveComplete(Connection connection, String data) throws SQLException, IOException {
+        return resolve(connection, data, true);
+    }
+
+    private String resolve(Connection connection, String data, boolean complete) throws SQLException, IOException {
+        if (!InventoryUtils.isReferencePayload(data)) {
+            return data;
+        }
+
+        byte[][] hashes = InventoryUtils.readReferenceHashes(data);
+        Map<String, byte[]> blobs = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        synchronized (blobCache) {
+            for (byte[] hash : hashes) {
+                if (hash == null) {
+                    continue;
+                }
+                String key = InventoryUtils.toHex(hash);
+                byte[] cached = blobCache.get(key);
+                if (cached != null) {
+                    blobs.put(key, cached);
+                } else if (!blobs.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+
+        for (int start = 0; start < missing.size(); start += LOOKUP_BATCH) {
+            List<String> batch = missing.subList(start, Math.min(missing.size(), start + LOOKUP_BATCH));
+            fetchBlobs(connection, batch, blobs);
+        }
+        if (complete) {
+            for (String key : missing) {
+                if (!blobs.containsKey(key)) {
+                    throw new IOException("item blob " + key + " is missing");
+                }
+            }
+        }
+        return InventoryUtils.resolveReferencePayload(data, blobs);
+    }
+
+    private void fetchBlobs(Connection connection, List<String> hashes, Map<String, byte[]> into) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT hash, data FROM ").append(itemTable).append(" WHERE hash IN (");
+        for (int i = 0; i < hashes.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < hashes.size(); i++) {
+                ps.setString(i + 1, hashes.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String hash = rs.getString("hash");
+                    byte[] blob = Base64.getDecoder().decode(rs.getString("data"));
+                    into.put(hash, blob);
+                    synchronized (blobCache) {
+                        blobCache.put(hash, blob);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete blobs no player row references any more. Only blobs not touched within the grace
+     * period are considered, so saves running concurrently on any server cannot lose their items.
+     *
+     * @return number of blobs deleted
+     */
+    public int collectGarbage() {
+        long startTime = System.currentTimeMillis();
+        long cutoff = startTime - gcGraceMs;
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().warning("Skipping item blob cleanup: database connection unavailable");
+            return 0;
+        }
+
+        try {
+            Set<String> referenced = new HashSet<>();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT enderchest, inventory, armor, offhand FROM " + playerTable);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    for (int column = 1; column <= 4; column++) {
+                        String data = rs.getString(column);
+                        if (!InventoryUtils.isReferencePayload(data)) {
+                            continue;
+                        }
+                        try {
+                            for (byte[] hash : InventoryUtils.readReferenceHashes(data)) {
+                                if (hash != null) {
+                                    referenced.add(InventoryUtils.toHex(hash));
+                                }
+                            }
+                        } catch (IOException e) {
+                            // A row we cannot parse must not cause its blobs to be deleted
+                            plugin.getLogger().warning("Aborting item blob cleanup, unreadable reference payload: "
+                                    + e.getMessage());
+                            return 0;
+                        }
+                    }
+                }
+            }
+
+            List<String> unreferenced = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT hash FROM " + itemTable + " WHERE last_used < ?")) {
+                ps.setLong(1, cutoff);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String hash = rs.getString(1);
+                        if (!referenced.contains(hash)) {
+                            unreferenced.add(hash);
+                        }
+                    }
+                }
+            }
+
+            int deleted = 0;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM " + itemTable + " WHERE hash = ? AND last_used < ?")) {
+                for (String hash : unreferenced) {
+                    ps.setString(1, hash);
+                    ps.setLong(2, cutoff);
+                    ps.addBatch();
+                    if (++deleted % 500 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            synchronized (blobCache) {
+                blobCache.keySet().removeAll(unreferenced);
+            }
+
+            blobsCollected.addAndGet(deleted);
+            plugin.logDebug("Item blob cleanup removed " + deleted + " unreferenced blobs ("
+                    + referenced.size() + " referenced) in " + (System.currentTimeMillis() - startTime) + "ms");
+            return deleted;
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Item blob cleanup failed: " + e.getMessage());
+            return 0;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    public String getStats() {
+        int known;
+        synchronized (knownHashes) {
+            known = knownHashes.size();
+        }
+        return String.format("Item blob store: %d written, %d deduplicated, %d collected, %d known hashes",
+                blobsWritten.get(), blobsReused.get(), blobsCollected.get(), known);
+    }
+
+    public void resetStats() {
+        blobsWritten.set(0);
+        blobsReused.set(0);
+        blobsCollected.set(0);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.playerdatasync.database;
+
+import org.bukkit.Bukkit;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.InventoryUtils;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Rewrites the items of players who have not joined for a while when they were stored for an
+ * older data version, so Bukkit's upgrade is not repeated on each of their later loads.
+ * Walks the player table by uuid one small batch at a time on the background executor, reading
+ * only the payload headers; online players are upgraded by a save after they join instead.
+ */
+public class ItemUpgradeSweeper {
+    static final String[] COLUMNS = { "enderchest", "inventory", "armor" };
+
+    private final PlayerDataSync plugin;
+    private final SQLDatabaseManager manager;
+    private final int batchSize;
+    private final long minOfflineMillis;
+    private final long passIntervalMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile UUID cursor;
+    private volatile long nextPassAt;
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong upgraded = new AtomicLong();
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong onlineUpgrades = new AtomicLong();
+    private final AtomicLong passes = new AtomicLong();
+
+    public ItemUpgradeSweeper(PlayerDataSync plugin, SQLDatabaseManager manager) {
+        this.plugin = plugin;
+        this.manager = manager;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("performance.item_upgrade.sweep_batch_size", 20));
+        this.minOfflineMillis = Math.max(0, plugin.getConfig().getLong("performance.item_upgrade.sweep_min_offline_days", 7))
+                * 24L * 60L * 60L * 1000L;
+        this.passIntervalMillis = Math.max(0, plugin.getConfig().getLong("performance.item_upgrade.sweep_pass_interval_hours", 24))
+                * 60L * 60L * 1000L;
+    }
+
+    public static boolean isEnabled(PlayerDataSync plugin) {
+        return plugin.getConfig().getBoolean("performance.item_upgrade.enabled", true);
+    }
+
+    /**
+     * Schedule the sweep; each run handles a single batch
+     */
+    public void start() {
+        long seconds = plugin.getConfig().getLong("performance.item_upgrade.sweep_interval_seconds", 30);
+        if (!isEnabled(plugin) || seconds <= 0) {
+            return;
+        }
+        long ticks = seconds * 20L;
+        SchedulerUtils.runTaskTimerAsync(plugin, () -> {
+            if (System.currentTimeMillis() < nextPassAt || !running.compareAndSet(false, true)) {
+                return;
+            }
+            WorkloadExecutors.supply(plugin, WorkloadType.BACKUP, () -> {
+                try {
+                    sweepBatch();
+                } finally {
+                    running.set(false);
+                }
+                return null;
+            }).whenComplete((ignored, error) -> {
+                // Never ran; the next interval tries again
+                if (error instanceof RejectedExecutionException) {
+                    running.set(false);
+                }
+            });
+        }, ticks, ticks);
+    }
+
+    private void sweepBatch() {
+        String sql = "SELECT uuid, SUBSTR(enderchest, 1, ?), SUBSTR(inventory, 1, ?), SUBSTR(armor, 1, ?) FROM "
+                + plugin.getTablePrefix() + " WHERE uuid > ? AND last_save < ? ORDER BY uuid LIMIT ?";
+        int prefixLength = PayloadOverflowStore.MARKER_LENGTH;
+
+        Connection connection = null;
+        try {
+            connection = plugin.getConnection();
+            if (connection == null) {
+                return;
+            }
+
+            List<UUID> outdated = new ArrayList<>();
+            int rows = 0;
+            UuidKeys keys = manager.getUuidKeys();
+            UUID last = cursor;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, prefixLength);
+                ps.setInt(2, prefixLength);
+                ps.setInt(3, prefixLength);
+                keys.bindAfter(ps, 4, cursor);
+                ps.setTimestamp(5, new Timestamp(System.currentTimeMillis() - minOfflineMillis));
+                ps.setInt(6, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        last = keys.read(rs, 1);
+                        for (int i = 0; i < COLUMNS.length; i++) {
+                            if (isOutdated(connection, rs.getString(i + 2))) {
+                                outdated.add(last);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            scanned.addAndGet(rows);
+
+            for (UUID uuid : outdated) {
+                // Joined since the scan; the save after joining covers them
+                if (Bukkit.getPlayer(uuid) != null) {
+                    continue;
+                }
+                if (manager.upgradeStoredItems(connection, uuid)) {
+                    upgraded.incrementAndGet();
+                } else {
+                    changed.incrementAndGet();
+                }
+            }
+
+            if (rows < batchSize) {
+                cursor = null;
+                nextPassAt = System.currentTimeMillis() + passIntervalMillis;
+                passes.incrementAndGet();
+                plugin.logDebug("Item upgrade sweep finished a pass: " + getStats());
+            } else {
+                cursor = last;
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            plugin.getLogger().warning("Item upgrade sweep failed: " + e.getMessage());
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private boolean isOutdated(Connection connection, String head) throws SQLException {
+        if (PayloadOverflowStore.isMarker(head)) {
+            head = manager.getOverflowStore().readPrefix(connection, head, InventoryUtils.getHeaderLength());
+        }
+        return InventoryUtils.isOutdatedPayload(head);
+    }
+
+    /**
+     * Count an upgrade written by an online player's save
+     */
+    public void recordOnlineUpgrade() {
+        onlineUpgrades.incrementAndGet();
+    }
+
+    public String getStats() {
+        return String.format("Item upgrades: %d on join, %d swept of %d scanned rows, %d changed meanwhile, %d passes",
+                onlineUpgrades.get(), upgraded.get(), scanned.get(), changed.get(), passes.get());
+    }
+
+    public void resetStats() {
+        scanned.set(0);
+        upgraded.set(0);
+        changed.set(0);
+        onlineUpgrades.set(0);
+        passes.set(0);
+    }
+}
@@ -4,8 +4,11 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import org.bson.Document;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
@@ -19,14 +22,25 @@ import com.example.playerdatasync.utils.InventoryUtils;
 import com.example.playerdatasync.utils.OfflinePlayerData;
 import com.example.playerdatasync.utils.SchedulerUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class MongoDatabaseManager implements DatabaseManager {
     private final PlayerDataSync plugin;
     private MongoClient mongoClient;
     private MongoDatabase database;
     private MongoCollection<Document> collection;
+    // Which server each player is on, see PlayerSessionStore
+    private MongoCollection<Document> sessions;
 
     private long totalSaveTime = 0;
     private long totalLoadTime = 0;
@@ -47,6 +61,9 @@ public class MongoDatabaseManager implements DatabaseManager {
             mongoClient = MongoClients.create(uri);
             database = mongoClient.getDatabase(dbName);
             collection = database.getCollection(collectionName);
+            sessions = database.getCollection(collectionName + "_sessions");
+            // Left behind if this server stopped before its players' saves were written
+            sessions.deleteMany(Filters.eq("server_id", getServerId()));
             plugin.getLogger().info("Connected to MongoDB at " + uri);
         } catch (Exception e) {
             plugin.getLogger().severe("Could not connect to MongoDB: " + e.getMessage());
@@ -55,148 +72,319 @@ public class MongoDatabaseManager implements DatabaseManager {
 
     @Override
     public boolean savePlayer(Player player) {
+        try {
+            // Captured on the player's thread and written on the save executor, like every other save
+            Callable<Boolean> write = SchedulerUtils.isPrimaryThread()
+                    ? prepareSave(player)
+                    : SchedulerUtils.callSyncMethod(plugin, () -> prepareSave(player));
+            CompletableFuture<Boolean> written = WorkloadExecutors.supply(plugin, WorkloadType.SAVE, () -> {
+                try {
+                    return write.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            try {
+                return written.get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof RejectedExecutionException)) {
+                    throw e;
+                }
+                // The caller waits for the write anyway, so a saturated executor only moves it here
+                return write.call();
+            }
+        } catch (InterruptedException e) {
+            plugin.getLogger().severe("Interrupted while saving player " + player.getName());
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Callable<Boolean> prepareSave(Player player) {
         long startTime = System.currentTimeMillis();
+        try {
+            Document doc = buildDocument(player);
+            return () -> writeDocument(player, doc, startTime);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + e.getMessage());
+            return () -> false;
+        }
+    }
 
+    private boolean writeDocument(Player player, Document doc, long startTime) {
         try {
-            Document doc = new Document("uuid", player.getUniqueId().toString())
-                    .append("last_save", System.currentTimeMillis())
-                    .append("server_id", plugin.getConfig().getString("server.id", "default"));
-
-            if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
-                Location loc = player.getLocation();
-                World world = loc.getWorld();
-                doc.append("world", world != null ? world.getName() : null)
-                        .append("x", loc.getX())
-                        .append("y", loc.getY())
-                        .append("z", loc.getZ())
-                        .append("yaw", loc.getYaw())
-                        .append("pitch", loc.getPitch());
+            collection.replaceOne(Filters.eq("uuid", player.getUniqueId().toString()), doc,
+                    new ReplaceOptions().upsert(true));
+            long saveTime = System.currentTimeMillis() - startTime;
+            totalSaveTime += saveTime;
+            saveCount++;
+            if (plugin.getExperienceSaveBatcher() != null) {
+                plugin.getExperienceSaveBatcher().fullSaveWritten(player.getUniqueId(), doc.getLong("save_version"));
             }
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger()
+                    .severe("Could not save data to MongoDB for " + player.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-            if (plugin.isSyncXp()) {
-                doc.append("xp", player.getTotalExperience());
-            }
+    private Document buildDocument(Player player) throws IOException {
+        Document doc = new Document("uuid", player.getUniqueId().toString())
+                .append("last_save", System.currentTimeMillis())
+                .append("server_id", plugin.getConfig().getString("server.id", "default"))
+                .append("save_version", plugin.getSaveVersions().next(player.getUniqueId()));
+
+        if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
+            Location loc = player.getLocation();
+            World world = loc.getWorld();
+            doc.append("world", world != null ? world.getName() : null)
+                    .append("x", loc.getX())
+                    .append("y", loc.getY())
+                    .append("z", loc.getZ())
+                    .append("yaw", loc.getYaw())
+                    .append("pitch", loc.getPitch());
+        }
 
-            if (plugin.isSyncGamemode()) {
-                doc.append("gamemode", player.getGameMode().name());
-            }
+        if (plugin.isSyncXp()) {
+            doc.append("xp", player.getTotalExperience());
+        }
 
-            if (plugin.isSyncEnderchest()) {
-                doc.append("enderchest", InventoryUtils.itemStackArrayToBase64(player.getEnderChest().getContents()));
-            }
+        if (plugin.isSyncGamemode()) {
+            doc.append("gamemode", player.getGameMode().name());
+        }
 
-            if (plugin.isSyncInventory()) {
-                doc.append("inventory", InventoryUtils.itemStackArrayToBase64(player.getInventory().getContents()));
-            }
+        if (plugin.isSyncEnderchest()) {
+            doc.append("enderchest", InventoryUtils.itemStackArrayToBase64(player.getEnderChest().getContents(),
+                    player.getUniqueId(), "enderchest"));
+        }
 
-            if (plugin.isSyncArmor()) {
-                doc.append("armor", InventoryUtils.itemStackArrayToBase64(player.getInventory().getArmorContents()));
-            }
+        if (plugin.isSyncInventory()) {
+            doc.append("inventory", InventoryUtils.itemStackArrayToBase64(player.getInventory().getContents(),
+                    player.getUniqueId(), "inventory"));
+        }
 
-            if (plugin.isSyncHealth()) {
-                doc.append("health", player.getHealth());
-            }
+        if (plugin.isSyncArmor()) {
+            doc.append("armor", InventoryUtils.itemStackArrayToBase64(player.getInventory().getArmorContents(),
+                    player.getUniqueId(), "armor"));
+        }
 
-            if (plugin.isSyncHunger()) {
-                doc.append("hunger", player.getFoodLevel())
-                        .append("saturation", player.getSaturation());
-            }
+        if (plugin.isSyncHealth()) {
+            doc.append("health", player.getHealth());
+        }
 
-            // Execute replacement
-            SchedulerUtils.runTaskAsync(plugin, () -> {
-                try {
-                    collection.replaceOne(Filters.eq("uuid", player.getUniqueId().toString()), doc,
-                            new ReplaceOptions().upsert(true));
-                    long saveTime = System.currentTimeMillis() - startTime;
-                    totalSaveTime += saveTime;
-                    saveCount++;
-                } catch (Exception e) {
-                    plugin.getLogger()
-                            .severe("Could not save data to MongoDB for " + player.getName() + ": " + e.getMessage());
-                }
-            });
+        if (plugin.isSyncHunger()) {
+            doc.append("hunger", player.getFoodLevel())
+                    .append("saturation", player.getSaturation());
+        }
 
+        return doc;
+    }
+
+    @Override
+    public boolean saveExperience(Map<UUID, ExperienceSaveBatcher.Capture> experience) {
+        if (experience == null || experience.isEmpty()) {
+            return true;
+        }
+
+        try {
+            List<WriteModel<Document>> updates = new ArrayList<>(experience.size());
+            for (Map.Entry<UUID, ExperienceSaveBatcher.Capture> entry : experience.entrySet()) {
+                ExperienceSaveBatcher.Capture capture = entry.getValue();
+                updates.add(new UpdateOneModel<Document>(
+                        Filters.and(Filters.eq("uuid", entry.getKey().toString()),
+                                Filters.or(Filters.exists("save_version", false), Filters.lt("save_version", capture.getVersion()))),
+                        new Document("$set", new Document("xp", capture.getExperience())
+                                .append("last_save", capture.getCapturedAt())
+                                .append("save_version", capture.getVersion()))));
+            }
+            collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
             return true;
         } catch (Exception e) {
-            plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + e.getMessage());
+            plugin.getLogger().warning("Could not save experience batch to MongoDB: " + e.getMessage());
             return false;
         }
     }
 
     @Override
     public void loadPlayer(Player player) {
-        long startTime = System.currentTimeMillis();
+        loadAsync(player);
+    }
 
-        SchedulerUtils.runTaskAsync(plugin, () -> {
+    @Override
+    public CompletionStage<PlayerState> loadAsync(Player player) {
+        long startTime = System.currentTimeMillis();
+        return WorkloadExecutors.supply(plugin, WorkloadType.LOAD, () -> {
             try {
+                // Waits for the save written when the player left another server
+                claimSession(player.getUniqueId());
+
                 Document doc = collection.find(Filters.eq("uuid", player.getUniqueId().toString())).first();
-                if (doc != null) {
-                    SchedulerUtils.runTask(plugin, player, () -> {
-                        if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
-                            String worldName = doc.getString("world");
-                            if (worldName != null && !worldName.isEmpty()) {
-                                World world = Bukkit.getWorld(worldName);
-                                if (world != null) {
-                                    Location loc = new Location(world,
-                                            doc.getDouble("x"),
-                                            doc.getDouble("y"),
-                                            doc.getDouble("z"),
-                                            doc.getDouble("yaw").floatValue(),
-                                            doc.getDouble("pitch").floatValue());
-                                    player.teleport(loc);
-                                }
-                            }
-                        }
-
-                        // Remaining logic simplified for demonstration...
-                        // Load inventory, enderchest, etc using the
-                        // InventoryUtils.safeItemStackArrayFromBase64
-                        if (plugin.isSyncEnderchest()) {
-                            String data = doc.getString("enderchest");
-                            if (data != null) {
-                                try {
-                                    ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
-                                    player.getEnderChest().setContents(items);
-                                } catch (Exception e) {
-                                }
-                            }
-                        }
-
-                        if (plugin.isSyncInventory()) {
-                            String data = doc.getString("inventory");
-                            if (data != null) {
-                                try {
-                                    ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
-                                    player.getInventory().setContents(items);
-                                } catch (Exception e) {
-                                }
-                            }
-                        }
-
-                        if (plugin.isSyncArmor()) {
-                            String data = doc.getString("armor");
-                            if (data != null) {
-                                try {
-                                    ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
-                                    player.getInventory().setArmorContents(items);
-                                } catch (Exception e) {
-                                }
-                            }
-                        }
-                    });
+                PlayerState state = toPlayerState(player.getUniqueId(), doc);
+                plugin.getSaveVersions().loaded(player.getUniqueId(), state.getSaveVersion());
+                if (state.existsInDatabase()) {
+                    SchedulerUtils.runTask(plugin, player, () -> applyPlayerState(player, state));
                 }
 
                 long loadTime = System.currentTimeMillis() - startTime;
                 totalLoadTime += loadTime;
                 loadCount++;
-
+                return state;
             } catch (Exception e) {
                 plugin.getLogger()
                         .severe("Could not load data from MongoDB for " + player.getName() + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
         });
     }
 
+    /**
+     * Wait until no other server holds the player, at most handoff_wait_ms, then take them over
+     */
+    private void claimSession(UUID uuid) {
+        String serverId = getServerId();
+        long waitMs = Math.max(0, plugin.getConfig().getLong("performance.save_queue.handoff_wait_ms", 5000));
+        long deadline = System.currentTimeMillis() + waitMs;
+        Document session;
+        while ((session = sessions.find(Filters.eq("_id", uuid.toString())).first()) != null
+                && !serverId.equals(session.getString("server_id"))) {
+            if (System.currentTimeMillis() >= deadline) {
+                plugin.getLogger().warning("Player " + uuid + " is still on server " + session.getString("server_id")
+                        + " after " + waitMs + "ms, loading without its last save");
+                break;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        sessions.replaceOne(Filters.eq("_id", uuid.toString()),
+                new Document("_id", uuid.toString()).append("server_id", serverId).append("since", System.currentTimeMillis()),
+                new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public void endSession(UUID uuid) {
+        try {
+            sessions.deleteOne(Filters.and(Filters.eq("_id", uuid.toString()), Filters.eq("server_id", getServerId())));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not end the session of " + uuid + ": " + e.getMessage());
+        }
+    }
+
+    private String getServerId() {
+        return plugin.getConfig().getString("server.id", "default");
+    }
+
+    @Override
+    public CompletionStage<SaveResult> saveAsync(Player player) {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Document> capture = new CompletableFuture<>();
+        Runnable captureTask = () -> {
+            try {
+                capture.complete(buildDocument(player));
+            } catch (Exception e) {
+                capture.completeExceptionally(e);
+            }
+        };
+
+        if (SchedulerUtils.isPrimaryThread()) {
+            captureTask.run();
+        } else {
+            SchedulerUtils.runTask(plugin, player, captureTask);
+        }
+
+        return capture.thenCompose(doc -> WorkloadExecutors.supply(plugin, WorkloadType.SAVE,
+                () -> writeDocument(player, doc, startTime)
+                        ? SaveResult.success(System.currentTimeMillis() - startTime)
+                        : SaveResult.failure(System.currentTimeMillis() - startTime, "Database write failed")))
+                .exceptionally(error -> {
+                    plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + error.getMessage());
+                    return SaveResult.failure(System.currentTimeMillis() - startTime, error.getMessage());
+                });
+    }
+
+    private PlayerState toPlayerState(UUID uuid, Document doc) {
+        PlayerState state = PlayerState.empty(uuid);
+        if (doc == null) {
+            return state;
+        }
+
+        state.setExistsInDatabase(true);
+        state.setWorldName(doc.getString("world"));
+        if (doc.get("x") instanceof Number) {
+            state.setX(((Number) doc.get("x")).doubleValue());
+            state.setY(((Number) doc.get("y")).doubleValue());
+            state.setZ(((Number) doc.get("z")).doubleValue());
+            state.setYaw(((Number) doc.get("yaw")).floatValue());
+            state.setPitch(((Number) doc.get("pitch")).floatValue());
+        }
+        if (doc.get("xp") instanceof Number) {
+            state.setExperience(((Number) doc.get("xp")).intValue());
+        }
+        state.setGamemode(doc.getString("gamemode"));
+        state.setEnderChestData(doc.getString("enderchest"));
+        state.setInventoryData(doc.getString("inventory"));
+        state.setArmorData(doc.getString("armor"));
+        if (doc.get("health") instanceof Number) {
+            state.setHealth(((Number) doc.get("health")).doubleValue());
+        }
+        if (doc.get("hunger") instanceof Number) {
+            state.setHunger(((Number) doc.get("hunger")).intValue());
+            state.setSaturation(((Number) doc.get("saturation")).floatValue());
+        }
+        if (doc.get("economy") instanceof Number) {
+            state.setEconomyBalance(((Number) doc.get("economy")).doubleValue());
+        }
+        if (doc.get("last_save") instanceof Number) {
+            state.setLastSave(((Number) doc.get("last_save")).longValue());
+        }
+        state.setServerId(doc.getString("server_id"));
+        if (doc.get("save_version") instanceof Number) {
+            state.setSaveVersion(((Number) doc.get("save_version")).longValue());
+        }
+        return state;
+    }
+
+    private void applyPlayerState(Player player, PlayerState state) {
+        if ((plugin.isSyncCoordinates() || plugin.isSyncPosition()) && state.getWorldName() != null
+                && !state.getWorldName().isEmpty()) {
+            World world = Bukkit.getWorld(state.getWorldName());
+            if (world != null) {
+                player.teleport(new Location(world, state.getX(), state.getY(), state.getZ(),
+                        state.getYaw(), state.getPitch()));
+            }
+        }
+
+        if (plugin.isSyncEnderchest() && state.getEnderChestData() != null) {
+            try {
+                player.getEnderChest().setContents(InventoryUtils.safeItemStackArrayFromBase64(state.getEnderChestData()));
+            } catch (Exception e) {
+            }
+        }
+
+        if (plugin.isSyncInventory() && state.getInventoryData() != null) {
+            try {
+                player.getInventory().setContents(InventoryUtils.safeItemStackArrayFromBase64(state.getInventoryData()));
+            } catch (Exception e) {
+            }
+        }
+
+        if (plugin.isSyncArmor() && state.getArmorData() != null) {
+            try {
+                player.getInventory().setArmorContents(InventoryUtils.safeItemStackArrayFromBase64(state.getArmorData()));
+            } catch (Exception e) {
+            }
+        }
+    }
+
     @Override
     public String getPerformanceStats() {
         double avgSave = saveCount > 0 ? (double) totalSaveTime / saveCount : 0;
@@ -227,6 +415,11 @@ public class MongoDatabaseManager implements DatabaseManager {
                 new Document("$set", new Document("economy", balance)));
     }
 
+    @Override
+    public CompletionStage<OfflinePlayerData> loadOfflinePlayerDataAsync(UUID uuid, String fallbackName) {
+        return WorkloadExecutors.supply(plugin, WorkloadType.LOOKUP, () -> loadOfflinePlayerData(uuid, fallbackName));
+    }
+
     @Override
     public OfflinePlayerData loadOfflinePlayerData(UUID uuid, String fallbackName) {
         Document doc = collection.find(Filters.eq("uuid", uuid.toString())).first();
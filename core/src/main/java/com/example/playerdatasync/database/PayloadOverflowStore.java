@@ -0,0 +1,277 @@
+package com.example.playerdatasync.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Keeps oversized column values out of the player row. A value above the threshold is split
+ * into chunks in the overflow table and the row only holds a marker naming the chunk set, so
+ * no single statement has to carry the whole payload past max_allowed_packet, and reads can
+ * stream the chunks in order. Each spill gets a fresh id and older chunk sets of the same
+ * column are removed after the row points at the new one.
+ */
+public class PayloadOverflowStore {
+    public static final String MARKER_PREFIX = "~OVF:";
+    // Marker prefix plus the 16 hex digits of the chunk set id
+    public static final int MARKER_LENGTH = MARKER_PREFIX.length() + 16;
+
+    private final PlayerDataSync plugin;
+    private final String table;
+    private final UuidKeys keys;
+    private final int thresholdChars;
+    private final int chunkChars;
+
+    // Columns known to have chunks, so small saves only issue a cleanup when one is due
+    private final ConcurrentHashMap<UUID, Set<String>> spilledColumns = new ConcurrentHashMap<>();
+
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong chunksWritten = new AtomicLong();
+    private final AtomicLong streamedReads = new AtomicLong();
+
+    public PayloadOverflowStore(PlayerDataSync plugin, String playerTable, UuidKeys keys) {
+        this.plugin = plugin;
+        this.table = playerTable + "_overflow";
+        this.keys = keys;
+        this.thresholdChars = Math.max(0, plugin.getConfig().getInt("database.overflow.threshold_kb", 1024)) * 1024;
+        this.chunkChars = Math.max(16, plugin.getConfig().getInt("database.overflow.chunk_kb", 256)) * 1024;
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "id VARCHAR(16) NOT NULL," +
+                "seq INT NOT NULL," +
+                "uuid " + keys.columnType(isMySql()) + " NOT NULL," +
+                "col VARCHAR(32) NOT NULL," +
+                "data LONGTEXT," +
+                "PRIMARY KEY (id, seq)" +
+                ")");
+        // The (uuid, col) index for cleanups is built by the IndexManager
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    private boolean isMySql() {
+        return plugin.getDatabaseType().equalsIgnoreCase("mysql");
+    }
+
+    public boolean isEnabled() {
+        return thresholdChars > 0;
+    }
+
+    public static boolean isMarker(String value) {
+        return value != null && value.startsWith(MARKER_PREFIX);
+    }
+
+    /**
+     * Write a value that is over the threshold as chunks and return the marker to store in its place;
+     * other values are returned unchanged
+     */
+    public String spill(Connection connection, UUID uuid, String column, String value) throws SQLException {
+        if (!isEnabled() || value == null || value.length() <= thresholdChars) {
+            return value;
+        }
+
+        String id = String.format("%016x", ThreadLocalRandom.current().nextLong());
+        String sql = "INSERT INTO " + table + " (id, seq, uuid, col, data) VALUES (?,?,?,?,?)";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            // One statement per chunk; a batch may be rewritten into a single oversized packet
+            int seq = 0;
+            for (int start = 0; start < value.length(); start += chunkChars) {
+                ps.setString(1, id);
+                ps.setInt(2, seq++);
+                keys.bind(ps, 3, uuid);
+                ps.setString(4, column);
+                ps.setString(5, value.substring(start, Math.min(value.length(), start + chunkChars)));
+                ps.executeUpdate();
+            }
+            chunksWritten.addAndGet(seq);
+        }
+        spills.incrementAndGet();
+        spilledColumns.computeIfAbsent(uuid, key -> ConcurrentHashMap.newKeySet()).add(column);
+        return MARKER_PREFIX + id;
+    }
+
+    /**
+     * Remove chunk sets of the column that the row no longer points at, once the row is written
+     */
+    public void cleanup(Connection connection, UUID uuid, String column, String storedValue) throws SQLException {
+        Set<String> columns = spilledColumns.get(uuid);
+        if (columns == null || !columns.contains(column)) {
+            return;
+        }
+
+        if (isMarker(storedValue)) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM " + table + " WHERE uuid = ? AND col = ? AND id <> ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.setString(2, column);
+                ps.setString(3, storedValue.substring(MARKER_PREFIX.length()));
+                ps.executeUpdate();
+            }
+        } else {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM " + table + " WHERE uuid = ? AND col = ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.setString(2, column);
+                ps.executeUpdate();
+            }
+            columns.remove(column);
+        }
+    }
+
+    /**
+     * Remember that the player's row points at chunks, so the next small write cleans them up
+     */
+    public void noteMarker(UUID uuid, String column) {
+        spilledColumns.computeIfAbsent(uuid, key -> ConcurrentHashMap.newKeySet()).add(column);
+    }
+
+    /**
+     * Stream the chunks named by a marker in order. The stream holds a statement open until it is closed.
+     */
+    public InputStream open(Connection connection, String marker) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement("SELECT data FROM " + table + " WHERE id = ? ORDER BY seq");
+        try {
+            ps.setString(1, marker.substring(MARKER_PREFIX.length()));
+            streamedReads.incrementAndGet();
+            return new ChunkStream(ps, ps.executeQuery());
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the full value named by a marker, for columns that are used as text
+     */
+    public String read(Connection connection, String marker) throws SQLException {
+        StringBuilder builder = new StringBuilder();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT data FROM " + table + " WHERE id = ? ORDER BY seq")) {
+            ps.setString(1, marker.substring(MARKER_PREFIX.length()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String chunk = rs.getString(1);
+                    if (chunk != null) {
+                        builder.append(chunk);
+                    }
+                }
+            }
+        }
+        if (builder.length() == 0) {
+            plugin.getLogger().warning("Overflow chunks " + marker + " are missing");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The first characters of the value named by a marker, without reading the rest
+     */
+    public String readPrefix(Connection connection, String marker, int length) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT SUBSTR(data, 1, ?) FROM " + table + " WHERE id = ? AND seq = 0")) {
+            ps.setInt(1, length);
+            ps.setString(2, marker.substring(MARKER_PREFIX.length()));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    public String getStats() {
+        return String.format("Overflow store: %d spills, %d chunks written, %d streamed reads",
+                spills.get(), chunksWritten.get(), streamedReads.get());
+    }
+
+    public void resetStats() {
+        spills.set(0);
+        chunksWritten.set(0);
+        streamedReads.set(0);
+    }
+
+    /**
+     * Concatenates the chunk rows of a result set without reading ahead of the current chunk
+     */
+    private static class ChunkStream extends InputStream {
+        private final PreparedStatement statement;
+        private final ResultSet rs;
+        private InputStream current;
+        private boolean done;
+
+        private ChunkStream(PreparedStatement statement, ResultSet rs) {
+            this.statement = statement;
+            this.rs = rs;
+        }
+
+        private boolean advance() throws IOException {
+            try {
+                while (!done) {
+                    if (current != null) {
+                        current.close();
+                        current = null;
+                    }
+                    if (!rs.next()) {
+                        done = true;
+                        break;
+                    }
+                    current = rs.getBinaryStream(1);
+                    if (current != null) {
+                        return true;
+                    }
+                }
+                return false;
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n <= 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                if (current == null && !advance()) {
+                    return -1;
+                }
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (current != null) {
+                    current.close();
+                }
+                rs.close();
+                statement.close();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.playerdatasync.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bukkit.Bukkit;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Cold storage for players who have not saved for a long time. Their row is moved into the archive
+ * table as one compressed record, with overflow chunks and item references resolved into it, so
+ * the archive does not depend on the other tables and the blob sweep may drop their items. The
+ * row is written back the next time the player is loaded.
+ */
+public class PlayerArchiveStore {
+    // Columns that may be spilled to the overflow table when the row is written back
+    private static final List<String> SPILLABLE = Arrays.asList(
+            "enderchest", "inventory", "armor", "offhand", "statistics", "advancements");
+
+    private final PlayerDataSync plugin;
+    private final String playerTable;
+    private final String table;
+    private final UuidKeys keys;
+    private final ItemBlobStore itemBlobStore;
+    private final PayloadOverflowStore overflowStore;
+    private final int batchSize;
+    private final long batchPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong rehydrated = new AtomicLong();
+
+    public PlayerArchiveStore(PlayerDataSync plugin, String playerTable, UuidKeys keys, ItemBlobStore itemBlobStore,
+                              PayloadOverflowStore overflowStore) {
+        this.plugin = plugin;
+        this.playerTable = playerTable;
+        this.table = playerTable + "_archive";
+        this.keys = keys;
+        this.itemBlobStore = itemBlobStore;
+        this.overflowStore = overflowStore;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("data_management.cleanup.batch_size", 50));
+        this.batchPauseMs = Math.max(0, plugin.getConfig().getLong("data_management.cleanup.batch_pause_ms", 500));
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "uuid " + keys.columnType(plugin.getDatabaseType().equalsIgnoreCase("mysql")) + " PRIMARY KEY," +
+                "last_save BIGINT," +
+                "archived BIGINT NOT NULL," +
+                "data LONGTEXT" +
+                ")");
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Schedule the archival job if cleanup is enabled
+     */
+    public void start() {
+        if (!plugin.getConfigManager().isCleanupEnabled()) {
+            return;
+        }
+        long minutes = Math.max(1, plugin.getConfig().getLong("data_management.cleanup.interval_minutes", 60));
+        long ticks = minutes * 60L * 20L;
+        SchedulerUtils.runTaskTimerAsync(plugin,
+                () -> WorkloadExecutors.supply(plugin, WorkloadType.BACKUP, this::archiveInactive), 20L * 60L, ticks);
+    }
+
+    /**
+     * Move every row not saved within days_inactive into the archive, a small batch at a time with
+     * a pause in between, so the job never holds the database for long
+     *
+     * @return rows archived
+     */
+    public int archiveInactive() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        Timestamp cutoff = new Timestamp(startTime - Math.max(1, plugin.getConfigManager().getCleanupDays()) * 86400000L);
+        int total = 0;
+        try {
+            UUID after = null;
+            while (true) {
+                List<UUID> batch = new ArrayList<>();
+                // Each archival is a transaction, which must not take the writes of other threads along
+                Connection connection = plugin.getTransactionConnection();
+                if (connection == null) {
+                    plugin.getLogger().warning("Stopping player archival: database connection unavailable");
+                    break;
+                }
+                try {
+                    // Keyset over the primary key, so skipped players are not selected again
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT uuid FROM " + playerTable
+                            + " WHERE last_save < ? AND uuid > ? ORDER BY uuid LIMIT ?")) {
+                        ps.setTimestamp(1, cutoff);
+                        keys.bindAfter(ps, 2, after);
+                        ps.setInt(3, batchSize);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                batch.add(keys.read(rs, 1));
+                            }
+                        }
+                    }
+                    for (UUID uuid : batch) {
+                        if (archive(connection, uuid, cutoff)) {
+                            total++;
+                        }
+                    }
+                } finally {
+                    plugin.returnTransactionConnection(connection);
+                }
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                after = batch.get(batch.size() - 1);
+                if (batchPauseMs > 0) {
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Player archival failed after " + total + " players: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+
+        archived.addAndGet(total);
+        if (total > 0) {
+            plugin.getLogger().info("Archived " + total + " players inactive for " + plugin.getConfigManager().getCleanupDays()
+                    + " days in " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+        return total;
+    }
+
+    /**
+     * Archive one row in a transaction, unless it was saved after the cutoff in the meantime.
+     * A row whose items cannot all be resolved is left in place, since the row is deleted afterwards.
+     */
+    private boolean archive(Connection connection, UUID uuid, Timestamp cutoff) throws SQLException {
+        if (Bukkit.getPlayer(uuid) != null) {
+            return false;
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            List<String> names = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            long lastSave = 0;
+            try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM " + playerTable
+                    + " WHERE uuid = ? AND last_save < ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.setTimestamp(2, cutoff);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        connection.rollback();
+                        return false;
+                    }
+                    ResultSetMetaData meta = rs.getMetaData();
+                    for (int column = 1; column <= meta.getColumnCount(); column++) {
+                        String name = meta.getColumnName(column).toLowerCase();
+                        names.add(name);
+                        // The record keeps the uuid as text, whatever the key format
+                        values.add("uuid".equals(name) ? uuid.toString() : rs.getString(column));
+                    }
+                    try {
+                        Timestamp saved = rs.getTimestamp("last_save");
+                        lastSave = saved != null ? saved.getTime() : 0;
+                    } catch (SQLException e) {
+                        // SQLite keeps CURRENT_TIMESTAMP defaults as text the driver may not parse
+                    }
+                }
+            }
+
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                if (PayloadOverflowStore.isMarker(value)) {
+                    value = overflowStore.read(connection, value);
+                }
+                values.set(i, itemBlobStore.resolveComplete(connection, value));
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "REPLACE INTO " + table + " (uuid, last_save, archived, data) VALUES (?,?,?,?)")) {
+                keys.bind(ps, 1, uuid);
+                ps.setLong(2, lastSave);
+                ps.setLong(3, System.currentTimeMillis());
+                ps.setString(4, Base64.getEncoder().encodeToString(encode(names, values)));
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + playerTable
+                    + " WHERE uuid = ? AND last_save < ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.setTimestamp(2, cutoff);
+                if (ps.executeUpdate() == 0) {
+                    connection.rollback();
+                    return false;
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM " + overflowStore.getTable() + " WHERE uuid = ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.executeUpdate();
+            }
+            connection.commit();
+            return true;
+        } catch (IOException e) {
+            connection.rollback();
+            plugin.getLogger().warning("Not archiving " + uuid + ", its items could not be read: " + e.getMessage());
+            return false;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Write an archived player back into the player table, in a transaction on a connection of its own
+     *
+     * @return true if the player was archived and now has a row again
+     */
+    public boolean rehydrate(UUID uuid) throws SQLException {
+        Connection connection = plugin.getTransactionConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection unavailable");
+        }
+        try {
+            return rehydrate(connection, uuid);
+        } finally {
+            plugin.returnTransactionConnection(connection);
+        }
+    }
+
+    private boolean rehydrate(Connection connection, UUID uuid) throws SQLException {
+        String data;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT data FROM " + table + " WHERE uuid = ?")) {
+            keys.bind(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                data = rs.getString(1);
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        try {
+            decode(Base64.getDecoder().decode(data), names, values);
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().severe("Archived data of " + uuid + " is unreadable: " + e.getMessage());
+            return false;
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                if (SPILLABLE.contains(names.get(i))) {
+                    values.set(i, overflowStore.spill(connection, uuid, names.get(i), values.get(i)));
+                }
+            }
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(playerTable).append(" (")
+                    .append(String.join(", ", names)).append(") VALUES (");
+            for (int i = 0; i < names.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            try (PreparedStatement ps = connection.prepareStatement(sql.append(")").toString())) {
+                for (int i = 0; i < values.size(); i++) {
+                    if ("uuid".equals(names.get(i))) {
+                        keys.bind(ps, i + 1, uuid);
+                    } else {
+                        ps.setString(i + 1, values.get(i));
+                    }
+                }
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE uuid = ?")) {
+                keys.bind(ps, 1, uuid);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            // Another server may have brought the player back first
+            try (PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM " + playerTable + " WHERE uuid = ?")) {
+                keys.bind(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        rehydrated.incrementAndGet();
+        plugin.logDebug("Restored archived data of " + uuid);
+        return true;
+    }
+
+    private static byte[] encode(List<String> names, List<String> values) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            out.writeUTF(names.get(i));
+            String value = values.get(i);
+            out.writeBoolean(value != null);
+            if (value != null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        out.flush();
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void decode(byte[] compressed, List<String> names, List<String> values) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(compressed.length * 4);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("archive record is truncated");
+                }
+                raw.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("archive record is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw.toByteArray()));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+            if (in.readBoolean()) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                values.add(new String(bytes, StandardCharsets.UTF_8));
+            } else {
+                values.add(null);
+            }
+        }
+    }
+
+    public String getStats() {
+        return String.format("Archive: %d players archived, %d restored on load", archived.get(), rehydrated.get());
+    }
+
+    public void resetStats() {
+        archived.set(0);
+        rehydrated.set(0);
+    }
+}
@@ -0,0 +1,641 @@
+package com.example.playerdatasync.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bukkit.Bukkit;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Recent point-in-time snapshots of each player. Snapshots form chains: the first one of a chain
+ * holds every column, the following ones only a binary delta against the snapshot before them,
+ * so a save that moved a few slots costs a few hundred bytes. A point is rebuilt by applying
+ * the deltas of its chain in order, and whole chains are dropped once they fall out of the
+ * retention window, so no kept snapshot ever loses its base.
+ */
+public class PlayerHistoryStore {
+    // Column values kept per snapshot, in the order of the player table
+    public static final String[] COLUMNS = {
+        "world", "x", "y", "z", "yaw", "pitch", "xp", "gamemode", "enderchest", "inventory", "armor",
+        "offhand", "effects", "statistics", "attributes", "health", "hunger", "saturation", "advancements",
+        "economy"
+    };
+
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+
+    private static final byte SAME = 0;
+    private static final byte NULL = 1;
+    private static final byte VALUE = 2;
+    private static final byte PATCH = 3;
+
+    private static final byte COPY = 0;
+    private static final byte INSERT = 1;
+
+    // Bytes a match must cover before it is worth a copy op
+    private static final int BLOCK = 16;
+
+    private final PlayerDataSync plugin;
+    private final String table;
+    private final UuidKeys keys;
+    private final boolean enabled;
+    private final long minIntervalMs;
+    private final int maxSnapshots;
+    private final long maxAgeMs;
+    private final int fullEvery;
+
+    // Last recorded snapshot of players with a chain open on this server
+    private final ConcurrentHashMap<UUID, Chain> chains = new ConcurrentHashMap<>();
+    // Reason for a snapshot that must be taken on the next save regardless of the interval
+    private final ConcurrentHashMap<UUID, String> forced = new ConcurrentHashMap<>();
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong fullSnapshots = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong pruned = new AtomicLong();
+
+    public PlayerHistoryStore(PlayerDataSync plugin, String playerTable, UuidKeys keys) {
+        this.plugin = plugin;
+        this.table = playerTable + "_history";
+        this.keys = keys;
+        this.enabled = plugin.getConfig().getBoolean("data_management.history.enabled", true);
+        this.minIntervalMs = Math.max(0, plugin.getConfig().getLong("data_management.history.min_interval_seconds", 300)) * 1000L;
+        this.maxSnapshots = Math.max(1, plugin.getConfig().getInt("data_management.history.max_snapshots", 50));
+        this.maxAgeMs = Math.max(1, plugin.getConfig().getLong("data_management.history.max_age_hours", 72)) * 3600000L;
+        this.fullEvery = Math.max(1, plugin.getConfig().getInt("data_management.history.full_every", 20));
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "uuid " + keys.columnType(plugin.getDatabaseType().equalsIgnoreCase("mysql")) + " NOT NULL," +
+                "seq INT NOT NULL," +
+                "created BIGINT NOT NULL," +
+                "base_seq INT NOT NULL," +
+                "reason VARCHAR(32)," +
+                "data LONGBLOB," +
+                "PRIMARY KEY (uuid, seq)" +
+                ")");
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Schedule the periodic removal of chains older than the retention window
+     */
+    public void start() {
+        long ticks = 60L * 60L * 20L;
+        SchedulerUtils.runTaskTimerAsync(plugin,
+                () -> WorkloadExecutors.supply(plugin, WorkloadType.BACKUP, this::pruneExpired), ticks, ticks);
+    }
+
+    /**
+     * Take a snapshot on the player's next save even if the interval has not passed
+     */
+    public void forceNext(UUID uuid, String reason) {
+        forced.put(uuid, reason);
+    }
+
+    /**
+     * Drop the open chain of a player, so the next snapshot starts a new one. Called when the
+     * player loads, since another server may have added snapshots in the meantime.
+     */
+    public void forget(UUID uuid) {
+        chains.remove(uuid);
+    }
+
+    /**
+     * Record the column values of a save. Failures are logged and never fail the save.
+     *
+     * @param values full inline values in the order of {@link #COLUMNS}
+     */
+    public void record(Connection connection, UUID uuid, String[] values, String reason) {
+        if (!enabled) {
+            return;
+        }
+        Chain chain = chains.computeIfAbsent(uuid, key -> new Chain());
+        synchronized (chain) {
+            long now = System.currentTimeMillis();
+            String forcedReason = forced.remove(uuid);
+            if (forcedReason != null) {
+                reason = forcedReason;
+            } else if (chain.values != null && (Arrays.equals(chain.values, values)
+                    // The save after a player left is always kept, it is the state they leave with
+                    || (now - chain.created < minIntervalMs && Bukkit.getPlayer(uuid) != null))) {
+                return;
+            }
+
+            try {
+                if (chain.seq < 0) {
+                    chain.seq = latestSeq(connection, uuid);
+                }
+                boolean full = chain.values == null || chain.length + 1 >= fullEvery;
+                byte[] data = deflate(full ? encodeFull(values) : encodeDelta(chain.values, values));
+                int seq = chain.seq + 1;
+                int baseSeq = full ? seq : chain.baseSeq;
+
+                try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + table
+                        + " (uuid, seq, created, base_seq, reason, data) VALUES (?,?,?,?,?,?)")) {
+                    keys.bind(ps, 1, uuid);
+                    ps.setInt(2, seq);
+                    ps.setLong(3, now);
+                    ps.setInt(4, baseSeq);
+                    ps.setString(5, reason);
+                    ps.setBytes(6, data);
+                    ps.executeUpdate();
+                }
+
+                chain.seq = seq;
+                chain.baseSeq = baseSeq;
+                chain.length = full ? 0 : chain.length + 1;
+                chain.created = now;
+                chain.values = values.clone();
+                snapshots.incrementAndGet();
+                bytesWritten.addAndGet(data.length);
+                if (full) {
+                    fullSnapshots.incrementAndGet();
+                    pruneOldest(connection, uuid, seq);
+                }
+            } catch (SQLException | IOException e) {
+                // Another server may have added to the history; start over with a full snapshot
+                chains.remove(uuid);
+                plugin.getLogger().warning("Could not record history for " + uuid + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (Bukkit.getPlayer(uuid) == null) {
+            chains.remove(uuid);
+        }
+    }
+
+    private int latestSeq(Connection connection, UUID uuid) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT MAX(seq) FROM " + table + " WHERE uuid = ?")) {
+            keys.bind(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Remove the chains that lie entirely before the newest max_snapshots snapshots of the player
+     */
+    private void pruneOldest(Connection connection, UUID uuid, int newestSeq) throws SQLException {
+        int oldestKept = newestSeq - maxSnapshots + 1;
+        if (oldestKept <= 1) {
+            return;
+        }
+        Integer keepFrom = null;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT base_seq FROM " + table
+                + " WHERE uuid = ? AND seq <= ? ORDER BY seq DESC LIMIT 1")) {
+            keys.bind(ps, 1, uuid);
+            ps.setInt(2, oldestKept);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    keepFrom = rs.getInt(1);
+                }
+            }
+        }
+        if (keepFrom == null) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE uuid = ? AND seq < ?")) {
+            keys.bind(ps, 1, uuid);
+            ps.setInt(2, keepFrom);
+            pruned.addAndGet(ps.executeUpdate());
+        }
+    }
+
+    /**
+     * Remove chains whose newest snapshot is older than the retention window
+     */
+    public int pruneExpired() {
+        if (!enabled) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        long cutoff = startTime - maxAgeMs;
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().warning("Skipping history cleanup: database connection unavailable");
+            return 0;
+        }
+
+        try {
+            List<Object[]> expired = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement("SELECT uuid, base_seq, MAX(created) FROM " + table
+                    + " GROUP BY uuid, base_seq")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID uuid = keys.read(rs, 1);
+                        if (rs.getLong(3) < cutoff && !chains.containsKey(uuid)) {
+                            expired.add(new Object[] { uuid, rs.getInt(2) });
+                        }
+                    }
+                }
+            }
+
+            int deleted = 0;
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table
+                    + " WHERE uuid = ? AND base_seq = ? AND created < ?")) {
+                int batched = 0;
+                for (Object[] chain : expired) {
+                    keys.bind(ps, 1, (UUID) chain[0]);
+                    ps.setInt(2, (Integer) chain[1]);
+                    ps.setLong(3, cutoff);
+                    ps.addBatch();
+                    if (++batched % 500 == 0) {
+                        deleted += sum(ps.executeBatch());
+                    }
+                }
+                deleted += sum(ps.executeBatch());
+            }
+
+            pruned.addAndGet(deleted);
+            plugin.logDebug("History cleanup removed " + deleted + " snapshots of " + expired.size()
+                    + " expired chains in " + (System.currentTimeMillis() - startTime) + "ms");
+            return deleted;
+        } catch (SQLException e) {
+            plugin.getLogger().warning("History cleanup failed: " + e.getMessage());
+            return 0;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(0, count);
+        }
+        return total;
+    }
+
+    /**
+     * Snapshots of a player, newest first
+     */
+    public List<HistoryEntry> list(Connection connection, UUID uuid, int offset, int limit) throws SQLException {
+        List<HistoryEntry> entries = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT seq, created, base_seq, reason, LENGTH(data) FROM "
+                + table + " WHERE uuid = ? ORDER BY seq DESC LIMIT ? OFFSET ?")) {
+            keys.bind(ps, 1, uuid);
+            ps.setInt(2, limit);
+            ps.setInt(3, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int seq = rs.getInt(1);
+                    entries.add(new HistoryEntry(seq, rs.getLong(2), seq == rs.getInt(3), rs.getString(4), rs.getLong(5)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Rebuild the column values of a snapshot from the full snapshot of its chain
+     *
+     * @return values in the order of {@link #COLUMNS}, or null if the snapshot does not exist
+     */
+    public String[] reconstruct(Connection connection, UUID uuid, int seq) throws SQLException, IOException {
+        Integer baseSeq = null;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT base_seq FROM " + table
+                + " WHERE uuid = ? AND seq = ?")) {
+            keys.bind(ps, 1, uuid);
+            ps.setInt(2, seq);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    baseSeq = rs.getInt(1);
+                }
+            }
+        }
+        if (baseSeq == null) {
+            return null;
+        }
+
+        String[] values = null;
+        int expected = baseSeq;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT seq, data FROM " + table
+                + " WHERE uuid = ? AND seq >= ? AND seq <= ? ORDER BY seq")) {
+            keys.bind(ps, 1, uuid);
+            ps.setInt(2, baseSeq);
+            ps.setInt(3, seq);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getInt(1) != expected) {
+                        throw new IOException("History of " + uuid + " is missing snapshot " + expected);
+                    }
+                    values = decode(inflate(rs.getBytes(2)), values);
+                    expected++;
+                }
+            }
+        }
+        if (expected != seq + 1) {
+            throw new IOException("History of " + uuid + " is missing snapshot " + expected);
+        }
+        return values;
+    }
+
+    private static byte[] encodeFull(String[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FULL);
+        out.writeInt(values.length);
+        for (String value : values) {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else {
+                out.writeByte(VALUE);
+                writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelta(String[] previous, String[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DELTA);
+        out.writeInt(values.length);
+        for (int i = 0; i < values.length; i++) {
+            String before = i < previous.length ? previous[i] : null;
+            String value = values[i];
+            if (Objects.equals(before, value)) {
+                out.writeByte(SAME);
+            } else if (value == null) {
+                out.writeByte(NULL);
+            } else {
+                byte[] target = value.getBytes(StandardCharsets.UTF_8);
+                byte[] patch = before != null ? diff(before.getBytes(StandardCharsets.UTF_8), target) : null;
+                if (patch != null && patch.length < target.length) {
+                    out.writeByte(PATCH);
+                    out.write(patch);
+                } else {
+                    out.writeByte(VALUE);
+                    writeBytes(out, target);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Copy and insert ops that turn the source into the target. Blocks of the source are indexed by
+     * hash, every position of the target is looked up, and each hit is extended in both directions.
+     */
+    static byte[] diff(byte[] source, byte[] target) throws IOException {
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int at = 0; at + BLOCK <= source.length; at += BLOCK) {
+            blocks.putIfAbsent(hash(source, at), at);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int ops = 0;
+        int pending = 0;
+        int pos = 0;
+        while (pos + BLOCK <= target.length) {
+            Integer at = blocks.get(hash(target, pos));
+            if (at == null || !regionMatches(source, at, target, pos, BLOCK)) {
+                pos++;
+                continue;
+            }
+            int from = pos;
+            int start = at;
+            while (from > pending && start > 0 && source[start - 1] == target[from - 1]) {
+                from--;
+                start--;
+            }
+            int end = pos + BLOCK;
+            int sourceEnd = at + BLOCK;
+            while (end < target.length && sourceEnd < source.length && source[sourceEnd] == target[end]) {
+                end++;
+                sourceEnd++;
+            }
+            if (from > pending) {
+                out.writeByte(INSERT);
+                out.writeInt(from - pending);
+                out.write(target, pending, from - pending);
+                ops++;
+            }
+            out.writeByte(COPY);
+            out.writeInt(start);
+            out.writeInt(end - from);
+            ops++;
+            pos = end;
+            pending = end;
+        }
+        if (pending < target.length) {
+            out.writeByte(INSERT);
+            out.writeInt(target.length - pending);
+            out.write(target, pending, target.length - pending);
+            ops++;
+        }
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream(bytes.size() + 8);
+        DataOutputStream header = new DataOutputStream(patch);
+        header.writeInt(target.length);
+        header.writeInt(ops);
+        bytes.writeTo(header);
+        return patch.toByteArray();
+    }
+
+    private static byte[] patch(byte[] source, DataInputStream in) throws IOException {
+        byte[] target = new byte[in.readInt()];
+        int ops = in.readInt();
+        int length = 0;
+        for (int op = 0; op < ops; op++) {
+            byte type = in.readByte();
+            if (type == COPY) {
+                int start = in.readInt();
+                int count = in.readInt();
+                if (start < 0 || count < 0 || start + count > source.length || length + count > target.length) {
+                    throw new IOException("History delta copies outside its base");
+                }
+                System.arraycopy(source, start, target, length, count);
+                length += count;
+            } else if (type == INSERT) {
+                int count = in.readInt();
+                if (count < 0 || length + count > target.length) {
+                    throw new IOException("History delta overruns its value");
+                }
+                in.readFully(target, length, count);
+                length += count;
+            } else {
+                throw new IOException("Unknown history delta op " + type);
+            }
+        }
+        if (length != target.length) {
+            throw new IOException("History delta is truncated");
+        }
+        return target;
+    }
+
+    private static String[] decode(byte[] raw, String[] previous) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        byte kind = in.readByte();
+        if (kind == DELTA && previous == null) {
+            throw new IOException("History delta without a full snapshot before it");
+        }
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            String before = previous != null && i < previous.length ? previous[i] : null;
+            byte op = in.readByte();
+            switch (op) {
+                case SAME:
+                    values[i] = before;
+                    break;
+                case NULL:
+                    values[i] = null;
+                    break;
+                case VALUE: {
+                    byte[] value = new byte[in.readInt()];
+                    in.readFully(value);
+                    values[i] = new String(value, StandardCharsets.UTF_8);
+                    break;
+                }
+                case PATCH:
+                    if (before == null) {
+                        throw new IOException("History delta patches a missing value");
+                    }
+                    values[i] = new String(patch(before.getBytes(StandardCharsets.UTF_8), in), StandardCharsets.UTF_8);
+                    break;
+                default:
+                    throw new IOException("Unknown history value op " + op);
+            }
+        }
+        return values;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 1;
+        for (int i = offset; i < offset + BLOCK; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash;
+    }
+
+    private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("History snapshot is truncated");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("History snapshot is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public String getStats() {
+        return String.format("History: %d snapshots (%d full), %d KB written, %d pruned",
+                snapshots.get(), fullSnapshots.get(), bytesWritten.get() / 1024, pruned.get());
+    }
+
+    public void resetStats() {
+        snapshots.set(0);
+        fullSnapshots.set(0);
+        bytesWritten.set(0);
+        pruned.set(0);
+    }
+
+    private static final class Chain {
+        private int seq = -1;
+        private int baseSeq;
+        private int length;
+        private long created;
+        private String[] values;
+    }
+
+    /**
+     * One stored snapshot as listed by /sync history
+     */
+    public static class HistoryEntry {
+        private final int seq;
+        private final long created;
+        private final boolean full;
+        private final String reason;
+        private final long size;
+
+        HistoryEntry(int seq, long created, boolean full, String reason, long size) {
+            this.seq = seq;
+            this.created = created;
+            this.full = full;
+            this.reason = reason;
+            this.size = size;
+        }
+
+        public int getSeq() { return seq; }
+        public long getCreated() { return created; }
+        public boolean isFull() { return full; }
+        public String getReason() { return reason; }
+        public long getSize() { return size; }
+    }
+}
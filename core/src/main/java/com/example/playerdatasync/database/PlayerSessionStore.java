@@ -0,0 +1,106 @@
+package com.example.playerdatasync.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Records which server each player is on. A server claims the player when it loads them and
+ * gives them up once the save written when they leave has committed, so the server they switch
+ * to waits for that save instead of loading the data from before it.
+ */
+public class PlayerSessionStore {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final PlayerDataSync plugin;
+    private final String table;
+    private final UuidKeys keys;
+    private final long handoffWaitMs;
+
+    public PlayerSessionStore(PlayerDataSync plugin, String playerTable, UuidKeys keys) {
+        this.plugin = plugin;
+        this.table = playerTable + "_sessions";
+        this.keys = keys;
+        this.handoffWaitMs = Math.max(0, plugin.getConfig().getLong("performance.save_queue.handoff_wait_ms", 5000));
+    }
+
+    public void initialize(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "uuid " + keys.columnType(plugin.getDatabaseType().equalsIgnoreCase("mysql")) + " PRIMARY KEY," +
+                "server_id VARCHAR(50) NOT NULL," +
+                "since BIGINT NOT NULL" +
+                ")");
+
+        // Left behind if this server stopped before its players' saves were written
+        try (PreparedStatement ps = st.getConnection().prepareStatement("DELETE FROM " + table + " WHERE server_id = ?")) {
+            ps.setString(1, serverId());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Wait until no other server holds the player, at most handoff_wait_ms, then take them over
+     */
+    public void claim(Connection connection, UUID uuid) throws SQLException {
+        long deadline = System.currentTimeMillis() + handoffWaitMs;
+        String holder;
+        while ((holder = findElsewhere(connection, uuid)) != null) {
+            if (System.currentTimeMillis() >= deadline) {
+                plugin.getLogger().warning("Player " + uuid + " is still on server " + holder
+                        + " after " + handoffWaitMs + "ms, loading without its last save");
+                break;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "REPLACE INTO " + table + " (uuid, server_id, since) VALUES (?,?,?)")) {
+            keys.bind(ps, 1, uuid);
+            ps.setString(2, serverId());
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Give the player up, unless another server has claimed them since
+     */
+    public void release(Connection connection, UUID uuid) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM " + table + " WHERE uuid = ? AND server_id = ?")) {
+            keys.bind(ps, 1, uuid);
+            ps.setString(2, serverId());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the server holding the player, or null if that is none or this one
+     */
+    public String findElsewhere(Connection connection, UUID uuid) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT server_id FROM " + table + " WHERE uuid = ?")) {
+            keys.bind(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String holder = rs.getString(1);
+                return serverId().equals(holder) ? null : holder;
+            }
+        }
+    }
+
+    private String serverId() {
+        return plugin.getConfigManager().getServerId();
+    }
+}
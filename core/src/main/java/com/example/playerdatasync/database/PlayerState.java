@@ -0,0 +1,146 @@
+package com.example.playerdatasync.database;
+
+import java.util.UUID;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Stored state of a player as read from the database, before it is applied.
+ * Serialized columns are kept in their stored form and decoded when applied, except item
+ * columns that were decoded while streaming them from the database.
+ */
+public class PlayerState {
+    private final UUID uuid;
+    private boolean existsInDatabase;
+
+    private String worldName;
+    private double x;
+    private double y;
+    private double z;
+    private float yaw;
+    private float pitch;
+    private int experience;
+    private String gamemode;
+    private String enderChestData;
+    private String inventoryData;
+    private String armorData;
+    private String offhandData;
+    private ItemStack[] enderChestItems;
+    private ItemStack[] inventoryItems;
+    private ItemStack[] armorItems;
+    private boolean itemsOutdated;
+    private String effectsData;
+    private String statisticsData;
+    private String attributesData;
+    private double health;
+    private int hunger;
+    private float saturation;
+    private String advancementsData;
+    private double economyBalance;
+    private long lastSave;
+    private String serverId;
+    private long saveVersion;
+
+    public PlayerState(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * State for a player without a stored row.
+     */
+    public static PlayerState empty(UUID uuid) {
+        return new PlayerState(uuid);
+    }
+
+    public UUID getUuid() { return uuid; }
+
+    public boolean existsInDatabase() { return existsInDatabase; }
+    public void setExistsInDatabase(boolean existsInDatabase) { this.existsInDatabase = existsInDatabase; }
+
+    public String getWorldName() { return worldName; }
+    public void setWorldName(String worldName) { this.worldName = worldName; }
+
+    public double getX() { return x; }
+    public void setX(double x) { this.x = x; }
+
+    public double getY() { return y; }
+    public void setY(double y) { this.y = y; }
+
+    public double getZ() { return z; }
+    public void setZ(double z) { this.z = z; }
+
+    public float getYaw() { return yaw; }
+    public void setYaw(float yaw) { this.yaw = yaw; }
+
+    public float getPitch() { return pitch; }
+    public void setPitch(float pitch) { this.pitch = pitch; }
+
+    public int getExperience() { return experience; }
+    public void setExperience(int experience) { this.experience = experience; }
+
+    public String getGamemode() { return gamemode; }
+    public void setGamemode(String gamemode) { this.gamemode = gamemode; }
+
+    public String getEnderChestData() { return enderChestData; }
+    public void setEnderChestData(String enderChestData) { this.enderChestData = enderChestData; }
+
+    public String getInventoryData() { return inventoryData; }
+    public void setInventoryData(String inventoryData) { this.inventoryData = inventoryData; }
+
+    public String getArmorData() { return armorData; }
+    public void setArmorData(String armorData) { this.armorData = armorData; }
+
+    public String getOffhandData() { return offhandData; }
+    public void setOffhandData(String offhandData) { this.offhandData = offhandData; }
+
+    /**
+     * Decoded ender chest, or null when only the stored text is available
+     */
+    public ItemStack[] getEnderChestItems() { return enderChestItems; }
+    public void setEnderChestItems(ItemStack[] enderChestItems) { this.enderChestItems = enderChestItems; }
+
+    public ItemStack[] getInventoryItems() { return inventoryItems; }
+    public void setInventoryItems(ItemStack[] inventoryItems) { this.inventoryItems = inventoryItems; }
+
+    public ItemStack[] getArmorItems() { return armorItems; }
+    public void setArmorItems(ItemStack[] armorItems) { this.armorItems = armorItems; }
+
+    /**
+     * Whether an item column was stored for an older data version and should be written again
+     */
+    public boolean hasOutdatedItems() { return itemsOutdated; }
+    public void setItemsOutdated(boolean itemsOutdated) { this.itemsOutdated = itemsOutdated; }
+
+    public String getEffectsData() { return effectsData; }
+    public void setEffectsData(String effectsData) { this.effectsData = effectsData; }
+
+    public String getStatisticsData() { return statisticsData; }
+    public void setStatisticsData(String statisticsData) { this.statisticsData = statisticsData; }
+
+    public String getAttributesData() { return attributesData; }
+    public void setAttributesData(String attributesData) { this.attributesData = attributesData; }
+
+    public double getHealth() { return health; }
+    public void setHealth(double health) { this.health = health; }
+
+    public int getHunger() { return hunger; }
+    public void setHunger(int hunger) { this.hunger = hunger; }
+
+    public float getSaturation() { return saturation; }
+    public void setSaturation(float saturation) { this.saturation = saturation; }
+
+    public String getAdvancementsData() { return advancementsData; }
+    public void setAdvancementsData(String advancementsData) { this.advancementsData = advancementsData; }
+
+    public double getEconomyBalance() { return economyBalance; }
+    public void setEconomyBalance(double economyBalance) { this.economyBalance = economyBalance; }
+
+    public long getLastSave() { return lastSave; }
+    public void setLastSave(long lastSave) { this.lastSave = lastSave; }
+
+    public String getServerId() { return serverId; }
+    public void setServerId(String serverId) { this.serverId = serverId; }
+
+    public long getSaveVersion() { return saveVersion; }
+    public void setSaveVersion(long saveVersion) { this.saveVersion = saveVersion; }
+}
@@ -8,9 +8,19 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -19,10 +29,15 @@ import net.milkbowl.vault.economy.EconomyResponse;
 
 import com.example.playerdatasync.core.PlayerDataSync;
 import com.example.playerdatasync.managers.ConfigManager;
+import com.example.playerdatasync.managers.StatisticsTracker;
+import com.example.playerdatasync.utils.EncodedInventory;
+import com.example.playerdatasync.utils.ExperienceUtils;
 import com.example.playerdatasync.utils.InventoryUtils;
 import com.example.playerdatasync.utils.OfflinePlayerData;
 import com.example.playerdatasync.utils.PlayerDataCache;
+import com.example.playerdatasync.utils.PooledBuffers;
 import com.example.playerdatasync.utils.SchedulerUtils;
+import com.example.playerdatasync.utils.StatisticsCodec;
 
 public class SQLDatabaseManager implements DatabaseManager {
     private final PlayerDataSync plugin;
@@ -37,36 +52,42 @@ public class SQLDatabaseManager implements DatabaseManager {
     private int loadCount = 0;
     private long lastPerformanceLog = 0;
     private final long PERFORMANCE_LOG_INTERVAL = 300000; // 5 minutes
+    // Copying a large table to convert its keys may keep other servers waiting for a while
+    private static final int UUID_KEY_LOCK_TIMEOUT_SECONDS = 3600;
+
+    // Item blobs are always resolved on read; new saves only use them when the store is enabled
+    private final ItemBlobStore itemBlobStore;
+    private final boolean itemStoreEnabled;
+    private final AdvancementDictionaryStore advancementDictionary;
+    private final PayloadOverflowStore overflowStore;
+    private final ItemUpgradeSweeper itemUpgradeSweeper;
+    private final PlayerHistoryStore historyStore;
+    private final PlayerArchiveStore archiveStore;
+    private final PlayerSessionStore sessionStore;
+    private final IndexManager indexManager;
+    private final UuidKeys uuidKeys = new UuidKeys();
+    private final SchemaMigrator schemaMigrator;
+
+    // Snapshots are reused once written, so autosaves do not allocate one per player each round
+    private final ArrayBlockingQueue<PlayerSnapshot> snapshotPool = new ArrayBlockingQueue<>(64);
 
     public SQLDatabaseManager(PlayerDataSync plugin) {
         this.plugin = plugin;
         this.cache = new PlayerDataCache(plugin);
+        this.itemBlobStore = new ItemBlobStore(plugin, getTableName());
+        this.itemStoreEnabled = plugin.getConfig().getBoolean("database.item_store.enabled", false);
+        this.advancementDictionary = new AdvancementDictionaryStore(plugin, getTableName());
+        this.overflowStore = new PayloadOverflowStore(plugin, getTableName(), uuidKeys);
+        this.itemUpgradeSweeper = ItemUpgradeSweeper.isEnabled(plugin) ? new ItemUpgradeSweeper(plugin, this) : null;
+        this.historyStore = new PlayerHistoryStore(plugin, getTableName(), uuidKeys);
+        this.archiveStore = new PlayerArchiveStore(plugin, getTableName(), uuidKeys, itemBlobStore, overflowStore);
+        this.sessionStore = new PlayerSessionStore(plugin, getTableName(), uuidKeys);
+        this.indexManager = new IndexManager(plugin, getTableName());
+        this.schemaMigrator = new SchemaMigrator(plugin, getTableName(), uuidKeys);
     }
 
     public void initialize() {
         String tableName = getTableName();
-        String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
-                "uuid VARCHAR(36) PRIMARY KEY," +
-                "world VARCHAR(255)," +
-                "x DOUBLE,y DOUBLE,z DOUBLE," +
-                "yaw FLOAT,pitch FLOAT," +
-                "xp INT," +
-                "gamemode VARCHAR(20)," +
-                "enderchest LONGTEXT," +
-                "inventory LONGTEXT," +
-                "armor LONGTEXT," +
-                "offhand LONGTEXT," +
-                "effects TEXT," +
-                "statistics LONGTEXT," +
-                "attributes TEXT," +
-                "health DOUBLE," +
-                "hunger INT," +
-                "saturation FLOAT," +
-                "advancements LONGTEXT," +
-                "economy DOUBLE DEFAULT 0.0," +
-                "last_save TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "server_id VARCHAR(50) DEFAULT 'default'" +
-                ")";
         Connection connection = null;
         try {
             connection = plugin.getConnection();
@@ -75,55 +96,49 @@ public class SQLDatabaseManager implements DatabaseManager {
                 return;
             }
 
+            // Before any table is created, so new tables get the same key format as the existing ones
+            initializeUuidKeys(connection, tableName);
+
+            try {
+                schemaMigrator.migrate(connection);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Schema migration failed, it is retried on the next start: " + e.getMessage());
+            }
+
             try (Statement st = connection.createStatement()) {
-                st.executeUpdate(sql);
-                // Ensure columns exist for older installations
-                DatabaseMetaData meta = connection.getMetaData();
-                try (ResultSet rs = meta.getColumns(null, null, tableName, "hunger")) {
-                    if (!rs.next()) {
-                        st.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN hunger INT");
-                    }
+                if (itemStoreEnabled) {
+                    itemBlobStore.initialize(st);
+                    itemBlobStore.start();
+                    plugin.getLogger().info("Item blob store enabled, items are stored once in " + itemBlobStore.getItemTable());
                 }
-                try (ResultSet rs = meta.getColumns(null, null, tableName, "saturation")) {
-                    if (!rs.next()) {
-                        st.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN saturation FLOAT");
-                    }
+
+                advancementDictionary.initialize(st);
+                if (plugin.getNmsHandler() != null) {
+                    plugin.getNmsHandler().setAdvancementDictionary(advancementDictionary);
                 }
-                // Upgrade inventory-related columns from TEXT to LONGTEXT to support large
-                // inventories
-                // with custom enchantments (e.g., ExcellentEnchants)
-                upgradeColumnToLongText(meta, st, tableName, "inventory");
-                upgradeColumnToLongText(meta, st, tableName, "enderchest");
-                upgradeColumnToLongText(meta, st, tableName, "armor");
-                upgradeColumnToLongText(meta, st, tableName, "offhand");
-
-                try (ResultSet rs = meta.getColumns(null, null, tableName, "advancements")) {
-                    if (!rs.next()) {
-                        st.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN advancements LONGTEXT");
-                    } else {
-                        // Check if it's TEXT and upgrade to LONGTEXT
-                        String dataType = rs.getString("TYPE_NAME");
-                        if ("TEXT".equalsIgnoreCase(dataType)) {
-                            try {
-                                st.executeUpdate("ALTER TABLE " + tableName + " MODIFY COLUMN advancements LONGTEXT");
-                                plugin.getLogger().info("Upgraded advancements column from TEXT to LONGTEXT");
-                            } catch (SQLException e) {
-                                plugin.getLogger().warning(
-                                        "Could not upgrade advancements column to LONGTEXT: " + e.getMessage());
-                            }
-                        }
-                    }
+                plugin.logDebug("Loaded " + advancementDictionary.size() + " advancement keys");
+
+                // Also needed with spilling disabled, to read rows written while it was enabled
+                overflowStore.initialize(st);
+
+                if (itemUpgradeSweeper != null) {
+                    itemUpgradeSweeper.start();
+                }
+
+                if (historyStore.isEnabled()) {
+                    historyStore.initialize(st);
+                    historyStore.start();
                 }
 
-                // Add new columns for extended features
-                addColumnIfNotExists(meta, st, tableName, "armor", "LONGTEXT");
-                addColumnIfNotExists(meta, st, tableName, "offhand", "LONGTEXT");
-                addColumnIfNotExists(meta, st, tableName, "effects", "TEXT");
-                addColumnIfNotExists(meta, st, tableName, "statistics", "LONGTEXT");
-                addColumnIfNotExists(meta, st, tableName, "attributes", "TEXT");
-                addColumnIfNotExists(meta, st, tableName, "economy", "DOUBLE DEFAULT 0.0");
-                addColumnIfNotExists(meta, st, tableName, "last_save", "TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
-                addColumnIfNotExists(meta, st, tableName, "server_id", "VARCHAR(50) DEFAULT 'default'");
+                // Also needed with cleanup disabled, to bring back players archived while it was enabled
+                archiveStore.initialize(st);
+                archiveStore.start();
+
+                sessionStore.initialize(st);
+
+                // After every table it indexes exists
+                indexManager.initialize(st);
+                indexManager.start();
             }
         } catch (SQLException e) {
             plugin.getLogger().severe("Could not create table: " + e.getMessage());
@@ -133,66 +148,43 @@ public class SQLDatabaseManager implements DatabaseManager {
     }
 
     /**
-     * Helper method to add column if it doesn't exist
-     */
-    private void addColumnIfNotExists(DatabaseMetaData meta, Statement st, String table, String columnName,
-            String columnType) throws SQLException {
-        try (ResultSet rs = meta.getColumns(null, null, table, columnName)) {
-            if (!rs.next()) {
-                st.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + columnName + " " + columnType);
-                plugin.getLogger().info("Added new column: " + columnName);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Could not add column " + columnName + ": " + e.getMessage());
-        }
-    }
-
-    /**
-     * Helper method to upgrade column from TEXT to LONGTEXT
-     * This is needed for large inventories with custom enchantments (e.g.,
-     * ExcellentEnchants)
+     * Pick up the uuid key format of the existing tables, converting them first if the configured one differs
      */
-    private void upgradeColumnToLongText(DatabaseMetaData meta, Statement st, String table, String columnName) {
-        try (ResultSet rs = meta.getColumns(null, null, table, columnName)) {
-            if (rs.next()) {
-                String dataType = rs.getString("TYPE_NAME");
-                if ("TEXT".equalsIgnoreCase(dataType)) {
+    private void initializeUuidKeys(Connection connection, String tableName) {
+        boolean wanted = "binary".equalsIgnoreCase(plugin.getConfig().getString("database.uuid_keys.format", "text"));
+        try {
+            Boolean existing = UuidKeys.detect(connection.getMetaData(), tableName);
+            if (existing != null && existing != wanted) {
+                // The SQLite swap is a transaction, kept off the connection other threads share
+                Connection conversion = plugin.getTransactionConnection();
+                try {
+                    if (conversion == null) {
+                        throw new SQLException("Database connection unavailable");
+                    }
+                    // Servers starting together convert one at a time; the migrator checks the format
+                    // of each table again under the lock and skips what another server converted
+                    schemaMigrator.lock(conversion, UUID_KEY_LOCK_TIMEOUT_SECONDS);
                     try {
-                        st.executeUpdate("ALTER TABLE " + table + " MODIFY COLUMN " + columnName + " LONGTEXT");
-                        plugin.getLogger().info("Upgraded " + columnName
-                                + " column from TEXT to LONGTEXT to support large inventories");
-                    } catch (SQLException e) {
-                        plugin.getLogger()
-                                .warning("Could not upgrade " + columnName + " column to LONGTEXT: " + e.getMessage());
+                        new UuidKeyMigrator(plugin, tableName).migrate(conversion, wanted);
+                    } finally {
+                        schemaMigrator.unlock(conversion);
                     }
+                } catch (SQLException e) {
+                    plugin.getLogger().severe("Could not convert uuid keys, keeping the current format: " + e.getMessage());
+                    wanted = Boolean.TRUE.equals(UuidKeys.detect(connection.getMetaData(), tableName));
+                } finally {
+                    plugin.returnTransactionConnection(conversion);
                 }
             }
         } catch (SQLException e) {
-            plugin.getLogger().fine("Could not check " + columnName + " column type: " + e.getMessage());
+            plugin.getLogger().warning("Could not check the uuid key format: " + e.getMessage());
         }
+        uuidKeys.setBinary(wanted);
+        plugin.logDebug("Using " + (wanted ? "binary" : "text") + " uuid keys");
     }
 
-    /**
-     * Try to upgrade a column immediately when a truncation error occurs
-     */
-    private void upgradeColumnToLongTextImmediate(Connection connection, String table, String columnName) {
-        try {
-            DatabaseMetaData meta = connection.getMetaData();
-            try (ResultSet rs = meta.getColumns(null, null, table, columnName)) {
-                if (rs.next()) {
-                    String dataType = rs.getString("TYPE_NAME");
-                    if ("TEXT".equalsIgnoreCase(dataType)) {
-                        try (Statement st = connection.createStatement()) {
-                            st.executeUpdate("ALTER TABLE " + table + " MODIFY COLUMN " + columnName + " LONGTEXT");
-                            plugin.getLogger()
-                                    .info("Successfully upgraded " + columnName + " column to LONGTEXT during runtime");
-                        }
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().fine("Could not upgrade " + columnName + " column immediately: " + e.getMessage());
-        }
+    public UuidKeys getUuidKeys() {
+        return uuidKeys;
     }
 
     /**
@@ -217,9 +209,6 @@ public class SQLDatabaseManager implements DatabaseManager {
 
     public boolean savePlayer(Player player) {
         long startTime = System.currentTimeMillis();
-        String tableName = getTableName();
-        String sql = "REPLACE INTO " + tableName
-                + " (uuid, world, x, y, z, yaw, pitch, xp, gamemode, enderchest, inventory, armor, offhand, effects, statistics, attributes, health, hunger, saturation, advancements, economy, last_save, server_id) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
 
         try {
             PlayerSnapshot snapshot;
@@ -235,90 +224,358 @@ public class SQLDatabaseManager implements DatabaseManager {
                 return false;
             }
 
-            Connection connection = plugin.getConnection();
-            if (connection == null) {
-                plugin.getLogger().severe("Database connection unavailable");
-                return false;
-            }
+            return writeAndRelease(snapshot, startTime);
+        } catch (InterruptedException e) {
+            plugin.getLogger().severe("Failed to capture data for player " + player.getName() + ": " + e.getMessage());
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Failed to capture data for player " + player.getName() + ": " + e.getMessage());
+            return false;
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, snapshot.uuid.toString());
-                ps.setString(2, snapshot.worldName);
-                ps.setDouble(3, snapshot.x);
-                ps.setDouble(4, snapshot.y);
-                ps.setDouble(5, snapshot.z);
-                ps.setFloat(6, snapshot.yaw);
-                ps.setFloat(7, snapshot.pitch);
-                ps.setInt(8, snapshot.totalExperience);
-                ps.setString(9, snapshot.gamemode);
-                ps.setString(10, snapshot.enderChestData);
-                ps.setString(11, snapshot.inventoryData);
-                ps.setString(12, snapshot.armorData);
-                ps.setString(13, snapshot.offhandData);
-                ps.setString(14, snapshot.effectsData);
-                ps.setString(15, snapshot.statisticsData);
-                ps.setString(16, snapshot.attributesData);
-                ps.setDouble(17, snapshot.health);
-                ps.setInt(18, snapshot.hunger);
-                ps.setFloat(19, snapshot.saturation);
-                ps.setString(20, snapshot.advancementsData);
-                ps.setDouble(21, snapshot.economyBalance);
-                ps.setTimestamp(22, new Timestamp(System.currentTimeMillis()));
-                ps.setString(23, plugin.getConfig().getString("server.id", "default"));
-
-                ps.executeUpdate();
-
-                long saveTime = System.currentTimeMillis() - startTime;
-                totalSaveTime += saveTime;
-                saveCount++;
-
-                if (saveTime > 1000) {
-                    plugin.getLogger()
-                            .warning("Slow save detected for " + snapshot.playerName + ": " + saveTime + "ms");
+    public Callable<Boolean> prepareSave(Player player) {
+        if (!SchedulerUtils.isPrimaryThread()) {
+            return () -> savePlayer(player);
+        }
+
+        long startTime = System.currentTimeMillis();
+        PlayerSnapshot snapshot;
+        try {
+            snapshot = capturePlayerSnapshot(player);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to capture data for player " + player.getName() + ": " + e.getMessage());
+            return () -> false;
+        }
+
+        if (snapshot == null) {
+            plugin.getLogger()
+                    .warning("Skipping save for player " + player.getName() + " because snapshot creation failed");
+            return () -> false;
+        }
+
+        return () -> writeAndRelease(snapshot, startTime);
+    }
+
+    private boolean writeAndRelease(PlayerSnapshot snapshot, long startTime) {
+        try {
+            return writeSnapshot(snapshot, startTime);
+        } finally {
+            releaseSnapshot(snapshot);
+        }
+    }
+
+    private PlayerSnapshot acquireSnapshot(UUID uuid, String playerName) {
+        PlayerSnapshot snapshot = snapshotPool.poll();
+        if (snapshot == null) {
+            snapshot = new PlayerSnapshot();
+        }
+        snapshot.reset(uuid, playerName);
+        return snapshot;
+    }
+
+    private void releaseSnapshot(PlayerSnapshot snapshot) {
+        // Drop references to the payloads before the snapshot waits in the pool
+        snapshot.reset(null, null);
+        snapshotPool.offer(snapshot);
+    }
+
+    /**
+     * Capture a player's state and discard it, for measuring the capture path
+     */
+    public int captureForBenchmark(Player player) {
+        PlayerSnapshot snapshot = capturePlayerSnapshot(player);
+        int size = snapshot.payloadLength();
+        releaseSnapshot(snapshot);
+        return size;
+    }
+
+    private String fullWriteSql() {
+        return "REPLACE INTO " + getTableName()
+                + " (uuid, world, x, y, z, yaw, pitch, xp, gamemode, enderchest, inventory, armor, offhand, effects, statistics, attributes, health, hunger, saturation, advancements, economy, last_save, server_id, save_version) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    }
+
+    private boolean writeSnapshot(PlayerSnapshot snapshot, long startTime) {
+        String sql = fullWriteSql();
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().severe("Database connection unavailable");
+            return false;
+        }
+
+        try {
+            // Taken before items become references or overflow markers, so history never depends on them
+            String[] history = historyStore.isEnabled() ? historyValues(snapshot) : null;
+            if (itemStoreEnabled) {
+                // Rows hold only references, so the columns are small and always rewritten in full
+                snapshot.enderChestData = itemBlobStore.store(connection, snapshot.enderChest);
+                snapshot.inventoryData = itemBlobStore.store(connection, snapshot.inventory);
+                snapshot.armorData = itemBlobStore.store(connection, snapshot.armor);
+                snapshot.offhandData = itemBlobStore.store(connection, snapshot.offhand);
+                spillOversizedColumns(connection, snapshot);
+                writeFullSnapshot(connection, sql, snapshot);
+                cleanupOverflow(connection, snapshot);
+            } else {
+                // Spilled columns only hold a marker in the row, so there is nothing to append a delta to
+                boolean spilled = spillOversizedColumns(connection, snapshot);
+                boolean deltaWritten = !spilled && hasInventoryDelta(snapshot) && writeInventoryDelta(connection, snapshot);
+                if (!deltaWritten) {
+                    writeFullSnapshot(connection, sql, snapshot);
                 }
+                cleanupOverflow(connection, snapshot);
+                confirmInventoryWrite(snapshot, deltaWritten);
+            }
+            if (history != null) {
+                historyStore.record(connection, snapshot.uuid, history, "save");
+            }
+            if (plugin.getExperienceSaveBatcher() != null) {
+                plugin.getExperienceSaveBatcher().fullSaveWritten(snapshot.uuid, snapshot.saveVersion);
+            }
 
-                logPerformanceStats();
+            long saveTime = System.currentTimeMillis() - startTime;
+            totalSaveTime += saveTime;
+            saveCount++;
 
-                return true;
+            if (saveTime > 1000) {
+                plugin.getLogger()
+                        .warning("Slow save detected for " + snapshot.playerName + ": " + saveTime + "ms");
+            }
 
-            } catch (SQLException e) {
-                if (e.getMessage().contains("Data too long for column")) {
-                    String columnName = extractColumnName(e.getMessage());
-                    plugin.getLogger().severe("Data truncation error for " + snapshot.playerName +
-                            ": " + e.getMessage());
-                    plugin.getLogger().severe("The " + columnName + " column is too small. " +
-                            "The plugin will automatically upgrade TEXT columns to LONGTEXT on next restart. " +
-                            "If this error persists, please restart the server to trigger the database upgrade.");
-
-                    // Try to upgrade the column immediately if possible
-                    try {
-                        upgradeColumnToLongTextImmediate(connection, getTableName(), columnName);
-                    } catch (Exception upgradeError) {
-                        plugin.getLogger()
-                                .warning("Could not upgrade column immediately: " + upgradeError.getMessage());
-                    }
+            logPerformanceStats();
+
+            return true;
+
+        } catch (SQLException e) {
+            if (e.getMessage().contains("Data too long for column")) {
+                plugin.getLogger().severe("Data truncation error for " + snapshot.playerName + ": " + e.getMessage());
+                plugin.getLogger().severe("The " + extractColumnName(e.getMessage()) + " column is too small for schema version "
+                        + schemaMigrator.getLatestVersion() + "; check that " + schemaMigrator.getTable()
+                        + " lists every migration and that the column was not changed by hand");
+            } else {
+                plugin.getLogger().severe("Could not save data for " + snapshot.playerName + ": " + e.getMessage());
+            }
+            return false;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not store items for " + snapshot.playerName + ": " + e.getMessage());
+            return false;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private void writeFullSnapshot(Connection connection, String sql, PlayerSnapshot snapshot) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            uuidKeys.bind(ps, 1, snapshot.uuid);
+            ps.setString(2, snapshot.worldName);
+            ps.setDouble(3, snapshot.x);
+            ps.setDouble(4, snapshot.y);
+            ps.setDouble(5, snapshot.z);
+            ps.setFloat(6, snapshot.yaw);
+            ps.setFloat(7, snapshot.pitch);
+            ps.setInt(8, snapshot.totalExperience);
+            ps.setString(9, snapshot.gamemode);
+            ps.setString(10, snapshot.enderChestData);
+            ps.setString(11, snapshot.inventoryData);
+            ps.setString(12, snapshot.armorData);
+            ps.setString(13, snapshot.offhandData);
+            ps.setString(14, snapshot.effectsData);
+            ps.setString(15, snapshot.statisticsData);
+            ps.setString(16, snapshot.attributesData);
+            ps.setDouble(17, snapshot.health);
+            ps.setInt(18, snapshot.hunger);
+            ps.setFloat(19, snapshot.saturation);
+            ps.setString(20, snapshot.advancementsData);
+            ps.setDouble(21, snapshot.economyBalance);
+            ps.setTimestamp(22, new Timestamp(System.currentTimeMillis()));
+            ps.setString(23, plugin.getConfig().getString("server.id", "default"));
+            ps.setLong(24, snapshot.saveVersion);
+
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Move column values above the overflow threshold into the overflow table
+     *
+     * @return true if any column now holds a marker
+     */
+    private boolean spillOversizedColumns(Connection connection, PlayerSnapshot snapshot) throws SQLException {
+        if (!overflowStore.isEnabled()) {
+            return false;
+        }
+        UUID uuid = snapshot.uuid;
+        snapshot.enderChestData = overflowStore.spill(connection, uuid, "enderchest", snapshot.enderChestData);
+        snapshot.inventoryData = overflowStore.spill(connection, uuid, "inventory", snapshot.inventoryData);
+        snapshot.armorData = overflowStore.spill(connection, uuid, "armor", snapshot.armorData);
+        snapshot.offhandData = overflowStore.spill(connection, uuid, "offhand", snapshot.offhandData);
+        snapshot.statisticsData = overflowStore.spill(connection, uuid, "statistics", snapshot.statisticsData);
+        snapshot.advancementsData = overflowStore.spill(connection, uuid, "advancements", snapshot.advancementsData);
+        return PayloadOverflowStore.isMarker(snapshot.enderChestData)
+                || PayloadOverflowStore.isMarker(snapshot.inventoryData)
+                || PayloadOverflowStore.isMarker(snapshot.armorData)
+                || PayloadOverflowStore.isMarker(snapshot.offhandData)
+                || PayloadOverflowStore.isMarker(snapshot.statisticsData)
+                || PayloadOverflowStore.isMarker(snapshot.advancementsData);
+    }
+
+    /**
+     * Drop overflow chunks the written row no longer points at
+     */
+    private void cleanupOverflow(Connection connection, PlayerSnapshot snapshot) throws SQLException {
+        UUID uuid = snapshot.uuid;
+        overflowStore.cleanup(connection, uuid, "enderchest", snapshot.enderChestData);
+        overflowStore.cleanup(connection, uuid, "inventory", snapshot.inventoryData);
+        overflowStore.cleanup(connection, uuid, "armor", snapshot.armorData);
+        overflowStore.cleanup(connection, uuid, "offhand", snapshot.offhandData);
+        overflowStore.cleanup(connection, uuid, "statistics", snapshot.statisticsData);
+        overflowStore.cleanup(connection, uuid, "advancements", snapshot.advancementsData);
+    }
+
+    private boolean hasInventoryDelta(PlayerSnapshot snapshot) {
+        return (snapshot.enderChest != null && snapshot.enderChest.hasDelta())
+                || (snapshot.inventory != null && snapshot.inventory.hasDelta())
+                || (snapshot.armor != null && snapshot.armor.hasDelta());
+    }
+
+    /**
+     * Update the row in place, appending only the changed slots to the inventory columns that have a delta.
+     * Each appended column is guarded by the lineage prefix and length it was last saved with, so the
+     * delta is only applied on top of the exact payload it was computed against.
+     *
+     * @return false if the row did not match and a full write is needed
+     */
+    private boolean writeInventoryDelta(Connection connection, PlayerSnapshot snapshot) throws SQLException {
+        boolean mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+        EncodedInventory[] sections = { snapshot.enderChest, snapshot.inventory, snapshot.armor };
+        String[] columns = { "enderchest", "inventory", "armor" };
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(getTableName())
+                .append(" SET world=?, x=?, y=?, z=?, yaw=?, pitch=?, xp=?, gamemode=?");
+        for (int i = 0; i < columns.length; i++) {
+            if (sections[i] != null && sections[i].hasDelta()) {
+                sql.append(", ").append(columns[i]).append(mysql
+                        ? "=CONCAT(" + columns[i] + ", ?)"
+                        : "=" + columns[i] + " || ?");
+            } else {
+                sql.append(", ").append(columns[i]).append("=?");
+            }
+        }
+        sql.append(", offhand=?, effects=?, statistics=?, attributes=?, health=?, hunger=?, saturation=?,"
+                + " advancements=?, economy=?, last_save=?, server_id=?, save_version=? WHERE uuid=?");
+        for (int i = 0; i < columns.length; i++) {
+            if (sections[i] != null && sections[i].hasDelta()) {
+                sql.append(" AND SUBSTR(").append(columns[i]).append(", 1, ")
+                        .append(InventoryUtils.getLineagePrefixLength()).append(")=? AND LENGTH(")
+                        .append(columns[i]).append(")=?");
+            }
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            ps.setString(index++, snapshot.worldName);
+            ps.setDouble(index++, snapshot.x);
+            ps.setDouble(index++, snapshot.y);
+            ps.setDouble(index++, snapshot.z);
+            ps.setFloat(index++, snapshot.yaw);
+            ps.setFloat(index++, snapshot.pitch);
+            ps.setInt(index++, snapshot.totalExperience);
+            ps.setString(index++, snapshot.gamemode);
+            for (EncodedInventory section : sections) {
+                if (section == null) {
+                    ps.setString(index++, null);
                 } else {
-                    plugin.getLogger().severe("Could not save data for " + snapshot.playerName + ": " + e.getMessage());
+                    ps.setString(index++, section.hasDelta() ? section.getDelta() : section.getFull());
+                }
+            }
+            ps.setString(index++, snapshot.offhandData);
+            ps.setString(index++, snapshot.effectsData);
+            ps.setString(index++, snapshot.statisticsData);
+            ps.setString(index++, snapshot.attributesData);
+            ps.setDouble(index++, snapshot.health);
+            ps.setInt(index++, snapshot.hunger);
+            ps.setFloat(index++, snapshot.saturation);
+            ps.setString(index++, snapshot.advancementsData);
+            ps.setDouble(index++, snapshot.economyBalance);
+            ps.setTimestamp(index++, new Timestamp(System.currentTimeMillis()));
+            ps.setString(index++, plugin.getConfig().getString("server.id", "default"));
+            ps.setLong(index++, snapshot.saveVersion);
+            uuidKeys.bind(ps, index++, snapshot.uuid);
+            for (EncodedInventory section : sections) {
+                if (section != null && section.hasDelta()) {
+                    ps.setString(index++, section.getExpectedPrefix());
+                    ps.setInt(index++, section.getExpectedLength());
                 }
+            }
+
+            if (ps.executeUpdate() == 0) {
+                plugin.logDebug("Stored inventory of " + snapshot.playerName + " changed elsewhere, writing it in full");
                 return false;
-            } finally {
-                plugin.returnConnection(connection);
             }
-        } catch (InterruptedException e) {
-            plugin.getLogger().severe("Failed to capture data for player " + player.getName() + ": " + e.getMessage());
-            Thread.currentThread().interrupt();
-            return false;
-        } catch (ExecutionException e) {
-            plugin.getLogger().severe("Failed to capture data for player " + player.getName() + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void confirmInventoryWrite(PlayerSnapshot snapshot, boolean deltaWritten) {
+        EncodedInventory[] sections = { snapshot.enderChest, snapshot.inventory, snapshot.armor };
+        String[] written = { snapshot.enderChestData, snapshot.inventoryData, snapshot.armorData };
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] == null) {
+                continue;
+            }
+            if (PayloadOverflowStore.isMarker(written[i])) {
+                sections[i].confirmDetached();
+            } else {
+                sections[i].confirm(deltaWritten);
+            }
+        }
+    }
+
+    public boolean saveExperience(Map<UUID, ExperienceSaveBatcher.Capture> experience) {
+        if (experience == null || experience.isEmpty()) {
+            return true;
+        }
+
+        long startTime = System.currentTimeMillis();
+        String sql = "UPDATE " + getTableName()
+                + " SET xp = ?, last_save = ?, save_version = ? WHERE uuid = ? AND save_version < ?";
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().severe("Database connection unavailable");
             return false;
-        } catch (Exception e) {
-            plugin.getLogger().severe("Unexpected error saving player " + player.getName() + ": " + e.getMessage());
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Map.Entry<UUID, ExperienceSaveBatcher.Capture> entry : experience.entrySet()) {
+                ExperienceSaveBatcher.Capture capture = entry.getValue();
+                ps.setInt(1, capture.getExperience());
+                ps.setTimestamp(2, new Timestamp(capture.getCapturedAt()));
+                ps.setLong(3, capture.getVersion());
+                uuidKeys.bind(ps, 4, entry.getKey());
+                ps.setLong(5, capture.getVersion());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            plugin.logDebug("Saved experience for " + experience.size() + " players in "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not save experience batch of " + experience.size()
+                    + " players: " + e.getMessage());
             return false;
+        } finally {
+            plugin.returnConnection(connection);
         }
     }
 
     private PlayerSnapshot capturePlayerSnapshot(Player player) {
-        PlayerSnapshot snapshot = new PlayerSnapshot(player.getUniqueId(), player.getName());
+        PlayerSnapshot snapshot = acquireSnapshot(player.getUniqueId(), player.getName());
 
         if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
             Location loc = player.getLocation();
@@ -331,25 +588,35 @@ public class SQLDatabaseManager implements DatabaseManager {
             snapshot.pitch = loc.getPitch();
         }
 
-        snapshot.totalExperience = plugin.isSyncXp() ? calculateTotalExperience(player) : 0;
+        snapshot.saveVersion = plugin.getSaveVersions().next(player.getUniqueId());
+        snapshot.totalExperience = plugin.isSyncXp() ? ExperienceUtils.calculateTotalExperience(player) : 0;
         snapshot.gamemode = plugin.isSyncGamemode() ? player.getGameMode().name() : null;
 
         try {
-            snapshot.enderChestData = plugin.isSyncEnderchest()
-                    ? InventoryUtils.itemStackArrayToBase64(player.getEnderChest().getContents())
+            snapshot.enderChest = plugin.isSyncEnderchest()
+                    ? InventoryUtils.encodeInventory(player.getEnderChest().getContents(),
+                            player.getUniqueId(), "enderchest")
                     : null;
-            snapshot.inventoryData = plugin.isSyncInventory()
-                    ? InventoryUtils.itemStackArrayToBase64(getStorageContents(player))
+            snapshot.inventory = plugin.isSyncInventory()
+                    ? InventoryUtils.encodeInventory(getStorageContents(player),
+                            player.getUniqueId(), "inventory")
                     : null;
-            snapshot.armorData = plugin.isSyncArmor()
-                    ? InventoryUtils.itemStackArrayToBase64(player.getInventory().getArmorContents())
+            snapshot.armor = plugin.isSyncArmor()
+                    ? InventoryUtils.encodeInventory(player.getInventory().getArmorContents(),
+                            player.getUniqueId(), "armor")
                     : null;
+            snapshot.enderChestData = snapshot.enderChest != null ? snapshot.enderChest.getFull() : null;
+            snapshot.inventoryData = snapshot.inventory != null ? snapshot.inventory.getFull() : null;
+            snapshot.armorData = snapshot.armor != null ? snapshot.armor.getFull() : null;
             // Offhand requires 1.9+
             snapshot.offhandData = null;
             if (plugin.isSyncOffhand() && plugin.getNmsHandler() != null) {
                 try {
                     ItemStack offhand = plugin.getNmsHandler().getItemInOffHand(player);
-                    snapshot.offhandData = offhand != null ? InventoryUtils.itemStackToBase64(offhand) : null;
+                    snapshot.offhand = offhand != null
+                            ? InventoryUtils.encodeInventory(new ItemStack[] { offhand }, player.getUniqueId(), "offhand")
+                            : null;
+                    snapshot.offhandData = snapshot.offhand != null ? snapshot.offhand.getFull() : null;
                 } catch (Exception e) {
                     plugin.getLogger().warning("Error serializing offhand: " + e.getMessage());
                 }
@@ -359,6 +626,10 @@ public class SQLDatabaseManager implements DatabaseManager {
             snapshot.attributesData = plugin.isSyncAttributes() ? serializeAttributes(player) : null;
         } catch (Exception e) {
             plugin.getLogger().severe("Error serializing data for " + player.getName() + ": " + e.getMessage());
+            snapshot.enderChest = null;
+            snapshot.inventory = null;
+            snapshot.armor = null;
+            snapshot.offhand = null;
             snapshot.enderChestData = null;
             snapshot.inventoryData = null;
             snapshot.armorData = null;
@@ -421,10 +692,11 @@ public class SQLDatabaseManager implements DatabaseManager {
         if (plugin.isSyncEconomy()) {
             double balance = getPlayerBalance(player);
             snapshot.economyBalance = balance;
-            plugin.logDebug("Saving economy balance for " + player.getName() + ": " + balance);
+            if (plugin.isDebugEnabled()) {
+                plugin.logDebug("Saving economy balance for " + player.getName() + ": " + balance);
+            }
         } else {
             snapshot.economyBalance = 0.0;
-            plugin.logDebug("Economy sync disabled, setting balance to 0.0 for " + player.getName());
         }
 
         return snapshot;
@@ -432,386 +704,608 @@ public class SQLDatabaseManager implements DatabaseManager {
 
     public void loadPlayer(Player player) {
         long startTime = System.currentTimeMillis();
-        String tableName = getTableName();
-        String sql = "SELECT * FROM " + tableName + " WHERE uuid = ?";
+        try {
+            PlayerState state = readPlayerState(player.getUniqueId());
+            applyPlayerState(player, state);
+            recordLoad(player, startTime);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not load data for " + player.getName() + ": " + e.getMessage());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error loading player " + player.getName() + ": " + e.getMessage());
+        }
+    }
 
-        Connection connection = null;
+    @Override
+    public CompletionStage<PlayerState> loadAsync(Player player) {
+        long startTime = System.currentTimeMillis();
+        return WorkloadExecutors.supply(plugin, WorkloadType.LOAD, () -> {
+            try {
+                PlayerState state = readPlayerState(player.getUniqueId());
+                applyPlayerState(player, state);
+                recordLoad(player, startTime);
+                return state;
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not load data for " + player.getName() + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    public void endSession(UUID uuid) {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            plugin.getLogger().warning("Could not end the session of " + uuid + ": database connection unavailable");
+            return;
+        }
         try {
-            connection = plugin.getConnection();
-            if (connection == null) {
-                plugin.getLogger().severe("Database connection unavailable");
-                return;
+            sessionStore.release(connection, uuid);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not end the session of " + uuid + ": " + e.getMessage());
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    @Override
+    public CompletionStage<SaveResult> saveAsync(Player player) {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<PlayerSnapshot> capture = new CompletableFuture<>();
+        Runnable captureTask = () -> {
+            try {
+                capture.complete(capturePlayerSnapshot(player));
+            } catch (Exception e) {
+                capture.completeExceptionally(e);
+            }
+        };
+
+        // Capture on the player's thread without parking the caller
+        if (SchedulerUtils.isPrimaryThread()) {
+            captureTask.run();
+        } else {
+            SchedulerUtils.runTask(plugin, player, captureTask);
+        }
+
+        return capture.thenCompose(snapshot -> {
+            if (snapshot == null) {
+                return CompletableFuture.completedFuture(SaveResult.failure(
+                        System.currentTimeMillis() - startTime, "Snapshot creation failed"));
+            }
+            return WorkloadExecutors.supply(plugin, WorkloadType.SAVE, () -> writeAndRelease(snapshot, startTime)
+                    ? SaveResult.success(System.currentTimeMillis() - startTime)
+                    : SaveResult.failure(System.currentTimeMillis() - startTime, "Database write failed"));
+        }).exceptionally(error -> {
+            plugin.getLogger().severe("Failed to save player " + player.getName() + ": " + error.getMessage());
+            return SaveResult.failure(System.currentTimeMillis() - startTime, error.getMessage());
+        });
+    }
+
+    private PlayerState readPlayerState(UUID uuid) throws SQLException {
+        // Another server may have extended the player's history since this one last saved them
+        historyStore.forget(uuid);
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection unavailable");
+        }
+
+        try {
+            // Waits for the save written when the player left another server
+            sessionStore.claim(connection, uuid);
+
+            PlayerState state = readStoredState(connection, uuid);
+            if (state == null && archiveStore.rehydrate(uuid)) {
+                state = readStoredState(connection, uuid);
+            }
+            if (state == null) {
+                state = PlayerState.empty(uuid);
+            }
+            plugin.getSaveVersions().loaded(uuid, state.getSaveVersion());
+            return state;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    /**
+     * @return null if the player has no row
+     */
+    private PlayerState readStoredState(Connection connection, UUID uuid) throws SQLException {
+        String sql = "SELECT * FROM " + getTableName() + " WHERE uuid = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            uuidKeys.bind(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                PlayerState state = new PlayerState(uuid);
+                state.setExistsInDatabase(true);
+                state.setWorldName(rs.getString("world"));
+                state.setX(rs.getDouble("x"));
+                state.setY(rs.getDouble("y"));
+                state.setZ(rs.getDouble("z"));
+                state.setYaw(rs.getFloat("yaw"));
+                state.setPitch(rs.getFloat("pitch"));
+                state.setExperience(rs.getInt("xp"));
+                state.setGamemode(rs.getString("gamemode"));
+                state.setEnderChestItems(readItemColumn(connection, uuid, rs, "enderchest", state));
+                state.setInventoryItems(readItemColumn(connection, uuid, rs, "inventory", state));
+                state.setArmorItems(readItemColumn(connection, uuid, rs, "armor", state));
+                state.setOffhandData(itemBlobStore.resolve(connection, readTextColumn(connection, uuid, rs, "offhand")));
+                state.setEffectsData(rs.getString("effects"));
+                state.setStatisticsData(readTextColumn(connection, uuid, rs, "statistics"));
+                state.setAttributesData(rs.getString("attributes"));
+                state.setHealth(rs.getDouble("health"));
+                state.setHunger(rs.getInt("hunger"));
+                state.setSaturation(rs.getFloat("saturation"));
+                state.setAdvancementsData(readTextColumn(connection, uuid, rs, "advancements"));
+                state.setEconomyBalance(rs.getDouble("economy"));
+                Timestamp lastSave = rs.getTimestamp("last_save");
+                state.setLastSave(lastSave != null ? lastSave.getTime() : 0L);
+                state.setServerId(rs.getString("server_id"));
+                state.setSaveVersion(rs.getLong("save_version"));
+                return state;
+            }
+        }
+    }
+
+    /**
+     * Decode an item column while it streams from the driver, without materializing the stored
+     * text as a String. Values kept in the overflow table are streamed chunk by chunk; reference
+     * payloads are small and go through the blob store as text. Outdated payloads are flagged on
+     * the state, if one is given.
+     *
+     * @return null if the column is null
+     */
+    private ItemStack[] readItemColumn(Connection connection, UUID uuid, ResultSet rs, String column,
+                                       PlayerState state) throws SQLException {
+        InputStream raw = rs.getBinaryStream(column);
+        if (raw == null) {
+            return null;
+        }
+
+        try (PushbackInputStream in = new PushbackInputStream(raw, PayloadOverflowStore.MARKER_LENGTH)) {
+            String head = peek(in, PayloadOverflowStore.MARKER_LENGTH);
+            if (PayloadOverflowStore.isMarker(head)) {
+                overflowStore.noteMarker(uuid, column);
+                try (PushbackInputStream chunks = new PushbackInputStream(overflowStore.open(connection, head),
+                        InventoryUtils.getHeaderLength())) {
+                    noteOutdated(state, peek(chunks, InventoryUtils.getHeaderLength()));
+                    return InventoryUtils.safeItemStackArrayFromStream(chunks);
+                }
+            }
+
+            noteOutdated(state, head);
+            if (InventoryUtils.isReferencePayload(head)) {
+                StringBuilder text = new StringBuilder();
+                byte[] buffer = new byte[1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    text.append(new String(buffer, 0, n, StandardCharsets.ISO_8859_1));
+                }
+                return InventoryUtils.safeItemStackArrayFromBase64(itemBlobStore.resolve(connection, text.toString()));
+            }
+            return InventoryUtils.safeItemStackArrayFromStream(in);
+        } catch (IOException e) {
+            throw new SQLException("Could not read " + column + " column: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read up to the given number of characters and push them back onto the stream
+     */
+    private static String peek(PushbackInputStream in, int length) throws IOException {
+        byte[] head = new byte[length];
+        int read = 0;
+        int n;
+        while (read < length && (n = in.read(head, read, length - read)) > 0) {
+            read += n;
+        }
+        in.unread(head, 0, read);
+        return new String(head, 0, read, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void noteOutdated(PlayerState state, String head) {
+        if (state != null && InventoryUtils.isOutdatedPayload(head)) {
+            state.setItemsOutdated(true);
+        }
+    }
+
+    /**
+     * Read a text column, following an overflow marker to the stored chunks
+     */
+    private String readTextColumn(Connection connection, UUID uuid, ResultSet rs, String column) throws SQLException {
+        String value = rs.getString(column);
+        if (PayloadOverflowStore.isMarker(value)) {
+            overflowStore.noteMarker(uuid, column);
+            return overflowStore.read(connection, value);
+        }
+        return value;
+    }
+
+    /**
+     * Decode the stored state and schedule it onto the player. Item decoding happens
+     * on the calling thread, applying happens on the player's thread.
+     */
+    private void applyPlayerState(Player player, PlayerState state) {
+        if (state == null || !state.existsInDatabase()) {
+            return;
+        }
+
+        if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
+            String worldName = state.getWorldName();
+            if (worldName != null && !worldName.isEmpty()) {
+                World world = Bukkit.getWorld(worldName);
+                if (world != null) {
+                    Location loc = new Location(world,
+                            state.getX(),
+                            state.getY(),
+                            state.getZ(),
+                            state.getYaw(),
+                            state.getPitch());
+                    SchedulerUtils.runTask(plugin, player, () -> player.teleport(loc));
+                } else {
+                    plugin.getLogger().warning("World " + worldName
+                            + " not found when loading data for " + player.getName());
+                }
+            }
+        }
+        if (plugin.isSyncXp()) {
+            int xp = state.getExperience();
+            SchedulerUtils.runTask(plugin, player, () -> applyExperience(player, xp));
+        }
+        if (plugin.isSyncGamemode()) {
+            String gm = state.getGamemode();
+            if (gm != null) {
+                GameMode mode = GameMode.valueOf(gm);
+                SchedulerUtils.runTask(plugin, player, () -> player.setGameMode(mode));
             }
+        }
+        if (plugin.isSyncEnderchest()) {
+            ItemStack[] stored = state.getEnderChestItems();
+            String data = state.getEnderChestData();
+            if (stored != null || data != null) {
+                try {
+                    ItemStack[] items = stored != null ? stored : InventoryUtils.safeItemStackArrayFromBase64(data);
+                    // Validate enderchest size (standard enderchest is 27 slots)
+                    if (items.length > 27) {
+                        ItemStack[] validEnderchest = new ItemStack[27];
+                        System.arraycopy(items, 0, validEnderchest, 0, 27);
+                        items = validEnderchest;
+                    } else if (items.length < 27) {
+                        ItemStack[] extendedEnderchest = new ItemStack[27];
+                        System.arraycopy(items, 0, extendedEnderchest, 0, items.length);
+                        items = extendedEnderchest;
+                    }
+                    final ItemStack[] finalItems = items;
+                    SchedulerUtils.runTask(plugin, player, () -> {
+                        try {
+                            // Set enderchest contents - this preserves all NBT data including custom
+                            // enchantments
+                            player.getEnderChest().setContents(finalItems);
 
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, player.getUniqueId().toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        if (plugin.isSyncCoordinates() || plugin.isSyncPosition()) {
-                            String worldName = rs.getString("world");
-                            if (worldName != null && !worldName.isEmpty()) {
-                                World world = Bukkit.getWorld(worldName);
-                                if (world != null) {
-                                    Location loc = new Location(world,
-                                            rs.getDouble("x"),
-                                            rs.getDouble("y"),
-                                            rs.getDouble("z"),
-                                            rs.getFloat("yaw"),
-                                            rs.getFloat("pitch"));
-                                    SchedulerUtils.runTask(plugin, player, () -> player.teleport(loc));
-                                } else {
-                                    plugin.getLogger().warning("World " + worldName
-                                            + " not found when loading data for " + player.getName());
+                            // Force refresh of enderchest to ensure custom enchantments are recognized
+                            SchedulerUtils.runTaskLater(plugin, player, () -> {
+                                if (player.isOnline()) {
+                                    ItemStack[] currentItems = player.getEnderChest().getContents();
+                                    player.getEnderChest().setContents(currentItems);
+                                    plugin.logDebug("Successfully loaded enderchest for "
+                                            + player.getName() +
+                                            " (" + InventoryUtils.countItems(finalItems) + " items)");
                                 }
-                            }
-                        }
-                        if (plugin.isSyncXp()) {
-                            int xp = rs.getInt("xp");
-                            SchedulerUtils.runTask(plugin, player, () -> applyExperience(player, xp));
-                        }
-                        if (plugin.isSyncGamemode()) {
-                            String gm = rs.getString("gamemode");
-                            if (gm != null) {
-                                GameMode mode = GameMode.valueOf(gm);
-                                SchedulerUtils.runTask(plugin, player, () -> player.setGameMode(mode));
-                            }
+                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
+                        } catch (Exception e) {
+                            plugin.getLogger().severe("Error setting enderchest for " + player.getName()
+                                    + ": " + e.getMessage());
+                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
                         }
-                        if (plugin.isSyncEnderchest()) {
-                            String data = rs.getString("enderchest");
-                            if (data != null) {
-                                try {
-                                    ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
-                                    // Validate enderchest size (standard enderchest is 27 slots)
-                                    if (items.length > 27) {
-                                        ItemStack[] validEnderchest = new ItemStack[27];
-                                        System.arraycopy(items, 0, validEnderchest, 0, 27);
-                                        items = validEnderchest;
-                                    } else if (items.length < 27) {
-                                        ItemStack[] extendedEnderchest = new ItemStack[27];
-                                        System.arraycopy(items, 0, extendedEnderchest, 0, items.length);
-                                        items = extendedEnderchest;
-                                    }
-                                    final ItemStack[] finalItems = items;
-                                    SchedulerUtils.runTask(plugin, player, () -> {
-                                        try {
-                                            // Set enderchest contents - this preserves all NBT data including custom
-                                            // enchantments
-                                            player.getEnderChest().setContents(finalItems);
-
-                                            // Force refresh of enderchest to ensure custom enchantments are recognized
-                                            SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                                if (player.isOnline()) {
-                                                    ItemStack[] currentItems = player.getEnderChest().getContents();
-                                                    player.getEnderChest().setContents(currentItems);
-                                                    plugin.logDebug("Successfully loaded enderchest for "
-                                                            + player.getName() +
-                                                            " (" + InventoryUtils.countItems(finalItems) + " items)");
+                    });
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error deserializing enderchest for " + player.getName()
+                            + ": " + e.getMessage());
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                }
+            }
+        }
+        if (plugin.isSyncInventory()) {
+            ItemStack[] stored = state.getInventoryItems();
+            String data = state.getInventoryData();
+            if (stored != null || data != null) {
+                try {
+                    ItemStack[] items = stored != null ? stored : InventoryUtils.safeItemStackArrayFromBase64(data);
+                    // Validate inventory size (standard inventory is 36 slots)
+                    if (items.length > 36) {
+                        // Extract only main inventory slots (0-35)
+                        ItemStack[] mainInventory = new ItemStack[36];
+                        System.arraycopy(items, 0, mainInventory, 0, Math.min(36, items.length));
+                        items = mainInventory;
+                    } else if (items.length < 36) {
+                        // Extend to 36 slots if smaller
+                        ItemStack[] extendedInventory = new ItemStack[36];
+                        System.arraycopy(items, 0, extendedInventory, 0, items.length);
+                        items = extendedInventory;
+                    }
+                    final ItemStack[] finalItems = items;
+                    SchedulerUtils.runTask(plugin, player, () -> {
+                        try {
+                            // Set inventory contents - this preserves all NBT data including custom
+                            // enchantments
+                            player.getInventory().setContents(finalItems);
+                            // Critical: Update inventory to sync with client
+                            player.updateInventory();
+
+                            // Force refresh of items to ensure custom enchantments (e.g.,
+                            // ExcellentEnchants) are recognized
+                            // Some plugins need a tick delay to process custom NBT data
+                            SchedulerUtils.runTaskLater(plugin, player, () -> {
+                                if (player.isOnline()) {
+                                    // Refresh inventory by re-setting items to trigger plugin
+                                    // processing
+                                    ItemStack[] currentItems = player.getInventory().getContents();
+                                    player.getInventory().setContents(currentItems);
+                                    player.updateInventory();
+
+                                    plugin.logDebug("Successfully loaded inventory for "
+                                            + player.getName() +
+                                            " (" + InventoryUtils.countItems(finalItems) + " items)");
+
+                                    // Debug: Check for custom enchantments (e.g., ExcellentEnchants)
+                                    if (plugin.isDebugEnabled()) {
+                                        int customEnchantCount = 0;
+                                        for (ItemStack item : currentItems) {
+                                            if (item != null && item.hasItemMeta()) {
+                                                // Check if item has enchantments (including custom
+                                                // ones)
+                                                if (item.getItemMeta().hasEnchants()) {
+                                                    customEnchantCount++;
                                                 }
-                                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("Error setting enderchest for " + player.getName()
-                                                    + ": " + e.getMessage());
-                                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                                            }
                                         }
-                                    });
-                                } catch (Exception e) {
-                                    plugin.getLogger().severe("Error deserializing enderchest for " + player.getName()
-                                            + ": " + e.getMessage());
-                                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
-                                }
-                            }
-                        }
-                        if (plugin.isSyncInventory()) {
-                            String data = rs.getString("inventory");
-                            if (data != null) {
-                                try {
-                                    ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
-                                    // Validate inventory size (standard inventory is 36 slots)
-                                    if (items.length > 36) {
-                                        // Extract only main inventory slots (0-35)
-                                        ItemStack[] mainInventory = new ItemStack[36];
-                                        System.arraycopy(items, 0, mainInventory, 0, Math.min(36, items.length));
-                                        items = mainInventory;
-                                    } else if (items.length < 36) {
-                                        // Extend to 36 slots if smaller
-                                        ItemStack[] extendedInventory = new ItemStack[36];
-                                        System.arraycopy(items, 0, extendedInventory, 0, items.length);
-                                        items = extendedInventory;
-                                    }
-                                    final ItemStack[] finalItems = items;
-                                    SchedulerUtils.runTask(plugin, player, () -> {
-                                        try {
-                                            // Set inventory contents - this preserves all NBT data including custom
-                                            // enchantments
-                                            player.getInventory().setContents(finalItems);
-                                            // Critical: Update inventory to sync with client
-                                            player.updateInventory();
-
-                                            // Force refresh of items to ensure custom enchantments (e.g.,
-                                            // ExcellentEnchants) are recognized
-                                            // Some plugins need a tick delay to process custom NBT data
-                                            SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                                if (player.isOnline()) {
-                                                    // Refresh inventory by re-setting items to trigger plugin
-                                                    // processing
-                                                    ItemStack[] currentItems = player.getInventory().getContents();
-                                                    player.getInventory().setContents(currentItems);
-                                                    player.updateInventory();
-
-                                                    plugin.logDebug("Successfully loaded inventory for "
-                                                            + player.getName() +
-                                                            " (" + InventoryUtils.countItems(finalItems) + " items)");
-
-                                                    // Debug: Check for custom enchantments (e.g., ExcellentEnchants)
-                                                    if (plugin.isDebugEnabled()) {
-                                                        int customEnchantCount = 0;
-                                                        for (ItemStack item : currentItems) {
-                                                            if (item != null && item.hasItemMeta()) {
-                                                                // Check if item has enchantments (including custom
-                                                                // ones)
-                                                                if (item.getItemMeta().hasEnchants()) {
-                                                                    customEnchantCount++;
-                                                                }
-                                                            }
-                                                        }
-                                                        if (customEnchantCount > 0) {
-                                                            plugin.logDebug("Detected " + customEnchantCount
-                                                                    + " items with enchantments/metadata in inventory for "
-                                                                    + player.getName());
-                                                        }
-                                                    }
-                                                }
-                                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("Error setting inventory for " + player.getName()
-                                                    + ": " + e.getMessage());
-                                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                                        if (customEnchantCount > 0) {
+                                            plugin.logDebug("Detected " + customEnchantCount
+                                                    + " items with enchantments/metadata in inventory for "
+                                                    + player.getName());
                                         }
-                                    });
-                                } catch (Exception e) {
-                                    plugin.getLogger().severe("Error deserializing inventory for " + player.getName()
-                                            + ": " + e.getMessage());
-                                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
-                                }
-                            }
-                        }
-                        if (plugin.isSyncHealth()) {
-                            double health = rs.getDouble("health");
-                            SchedulerUtils.runTask(plugin, player, () -> {
-                                double maxHealth = 20.0;
-                                try {
-                                    maxHealth = plugin.getNmsHandler().getGenericMaxHealth(player);
-                                } catch (Exception e) {
-                                    maxHealth = 20.0;
+                                    }
                                 }
-                                player.setHealth(Math.min(health, maxHealth));
-                            });
-                        }
-                        if (plugin.isSyncHunger()) {
-                            int hunger = rs.getInt("hunger");
-                            float saturation = rs.getFloat("saturation");
-                            SchedulerUtils.runTask(plugin, player, () -> {
-                                player.setFoodLevel(hunger);
-                                player.setSaturation(saturation);
-                            });
+                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
+                        } catch (Exception e) {
+                            plugin.getLogger().severe("Error setting inventory for " + player.getName()
+                                    + ": " + e.getMessage());
+                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
                         }
-                        if (plugin.isSyncArmor()) {
-                            String armorData = rs.getString("armor");
-                            if (armorData != null) {
-                                try {
-                                    ItemStack[] armor = InventoryUtils.safeItemStackArrayFromBase64(armorData);
-                                    // Normalize armor array to exactly 4 slots (boots, leggings, chestplate,
-                                    // helmet)
-                                    armor = normalizeArmorArray(armor);
-                                    final ItemStack[] finalArmor = armor;
-                                    SchedulerUtils.runTask(plugin, player, () -> {
-                                        try {
-                                            // Set armor contents - this preserves all NBT data including custom
-                                            // enchantments
-                                            player.getInventory().setArmorContents(finalArmor);
-                                            // Update inventory to sync armor with client
-                                            player.updateInventory();
-
-                                            // Force refresh of armor to ensure custom enchantments are recognized
-                                            SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                                if (player.isOnline()) {
-                                                    ItemStack[] currentArmor = player.getInventory().getArmorContents();
-                                                    player.getInventory().setArmorContents(currentArmor);
-                                                    player.updateInventory();
-                                                    plugin.logDebug(
-                                                            "Successfully loaded armor for " + player.getName());
-                                                }
-                                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("Error setting armor for " + player.getName()
-                                                    + ": " + e.getMessage());
-                                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
-                                        }
-                                    });
-                                } catch (Exception e) {
-                                    plugin.getLogger().severe("Error deserializing armor for " + player.getName() + ": "
-                                            + e.getMessage());
-                                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                    });
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error deserializing inventory for " + player.getName()
+                            + ": " + e.getMessage());
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                }
+            }
+        }
+        if (plugin.isSyncHealth()) {
+            double health = state.getHealth();
+            SchedulerUtils.runTask(plugin, player, () -> {
+                double maxHealth = 20.0;
+                try {
+                    maxHealth = plugin.getNmsHandler().getGenericMaxHealth(player);
+                } catch (Exception e) {
+                    maxHealth = 20.0;
+                }
+                player.setHealth(Math.min(health, maxHealth));
+            });
+        }
+        if (plugin.isSyncHunger()) {
+            int hunger = state.getHunger();
+            float saturation = state.getSaturation();
+            SchedulerUtils.runTask(plugin, player, () -> {
+                player.setFoodLevel(hunger);
+                player.setSaturation(saturation);
+            });
+        }
+        if (plugin.isSyncArmor()) {
+            ItemStack[] storedArmor = state.getArmorItems();
+            String armorData = state.getArmorData();
+            if (storedArmor != null || armorData != null) {
+                try {
+                    ItemStack[] armor = storedArmor != null ? storedArmor
+                            : InventoryUtils.safeItemStackArrayFromBase64(armorData);
+                    // Normalize armor array to exactly 4 slots (boots, leggings, chestplate,
+                    // helmet)
+                    armor = normalizeArmorArray(armor);
+                    final ItemStack[] finalArmor = armor;
+                    SchedulerUtils.runTask(plugin, player, () -> {
+                        try {
+                            // Set armor contents - this preserves all NBT data including custom
+                            // enchantments
+                            player.getInventory().setArmorContents(finalArmor);
+                            // Update inventory to sync armor with client
+                            player.updateInventory();
+
+                            // Force refresh of armor to ensure custom enchantments are recognized
+                            SchedulerUtils.runTaskLater(plugin, player, () -> {
+                                if (player.isOnline()) {
+                                    ItemStack[] currentArmor = player.getInventory().getArmorContents();
+                                    player.getInventory().setArmorContents(currentArmor);
+                                    player.updateInventory();
+                                    plugin.logDebug(
+                                            "Successfully loaded armor for " + player.getName());
                                 }
-                            }
+                            }, 2L); // 2 ticks delay to allow plugins to process custom enchantments
+                        } catch (Exception e) {
+                            plugin.getLogger().severe("Error setting armor for " + player.getName()
+                                    + ": " + e.getMessage());
+                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
                         }
-                        if (plugin.isSyncOffhand()
-                                && com.example.playerdatasync.utils.VersionCompatibility.isOffhandSupported()) {
-                            String offhandData = rs.getString("offhand");
-                            if (offhandData != null) {
+                    });
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error deserializing armor for " + player.getName() + ": "
+                            + e.getMessage());
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                }
+            }
+        }
+        if (plugin.isSyncOffhand()
+                && com.example.playerdatasync.utils.VersionCompatibility.isOffhandSupported()) {
+            String offhandData = state.getOffhandData();
+            if (offhandData != null) {
+                try {
+                    ItemStack offhand = InventoryUtils.safeItemStackFromBase64(offhandData);
+                    
+                    // If offhand is null/AIR but inventory was > 36 slots, try to recover from inventory column
+                    if ((offhand == null || offhand.getType() == org.bukkit.Material.AIR) && 
+                        plugin.isSyncInventory()) {
+                        ItemStack[] invItems = state.getInventoryItems();
+                        String invData = state.getInventoryData();
+                        if (invItems != null || invData != null) {
+                            // Only slot 40 is needed, indexed payloads decode it without the rest
+                            ItemStack recovered = null;
+                            if (invItems != null) {
+                                recovered = invItems.length > 40 ? invItems[40] : null;
+                            } else {
                                 try {
-                                    ItemStack offhand = InventoryUtils.safeItemStackFromBase64(offhandData);
-                                    
-                                    // If offhand is null/AIR but inventory was > 36 slots, try to recover from inventory column
-                                    if ((offhand == null || offhand.getType() == org.bukkit.Material.AIR) && 
-                                        plugin.isSyncInventory()) {
-                                        String invData = rs.getString("inventory");
-                                        if (invData != null) {
-                                            ItemStack[] invItems = InventoryUtils.safeItemStackArrayFromBase64(invData);
-                                            if (invItems.length > 40 && invItems[40] != null && invItems[40].getType() != org.bukkit.Material.AIR) {
-                                                offhand = invItems[40];
-                                                plugin.logDebug("Recovered offhand from inventory column for " + player.getName());
-                                            }
-                                        }
-                                    }
-
-                                    final ItemStack finalOffhand = offhand;
-                                    SchedulerUtils.runTask(plugin, player, () -> {
-                                        try {
-                                            plugin.getNmsHandler().setItemInOffHand(player, finalOffhand);
-                                            player.updateInventory();
-
-                                            SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                                if (player.isOnline()) {
-                                                    ItemStack currentOffhand = plugin.getNmsHandler().getItemInOffHand(player);
-                                                    plugin.getNmsHandler().setItemInOffHand(player, currentOffhand);
-                                                    player.updateInventory();
-                                                    plugin.logDebug(
-                                                            "Successfully loaded offhand for " + player.getName());
-                                                }
-                                            }, 2L);
-                                        } catch (NoSuchMethodError e) {
-                                            plugin.getLogger().warning("Offhand not supported on this version");
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("Error setting offhand for " + player.getName()
-                                                    + ": " + e.getMessage());
-                                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
-                                        }
-                                    });
+                                    recovered = InventoryUtils.readSlot(invData, 40);
                                 } catch (Exception e) {
-                                    plugin.getLogger().severe("Error deserializing offhand for " + player.getName()
-                                            + ": " + e.getMessage());
-                                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                                    plugin.logDebug("Could not read offhand slot from inventory column: " + e.getMessage());
                                 }
                             }
-                        }
-                        if (plugin.isSyncEffects()) {
-                            String effectsData = rs.getString("effects");
-                            if (effectsData != null) {
-                                // Fix for Issue #41: Don't restore effects immediately after death
-                                // Check if player just died (has no health or is in respawn state)
-                                SchedulerUtils.runTask(plugin, player, () -> {
-                                    // Only restore effects if player is not in death/respawn state
-                                    if (player.getHealth() > 0 && !player.isDead()) {
-                                        loadEffects(player, effectsData);
-                                    } else {
-                                        plugin.logDebug("Skipping effect restoration for " + player.getName() +
-                                                " - player appears to be dead or respawning");
-                                    }
-                                });
-                            }
-                        }
-                        if (plugin.isSyncStatistics()) {
-                            String statsData = rs.getString("statistics");
-                            if (statsData != null) {
-                                SchedulerUtils.runTask(plugin, player, () -> loadStatistics(player, statsData));
-                            }
-                        }
-                        if (plugin.isSyncAttributes()) {
-                            String attributesData = rs.getString("attributes");
-                            if (attributesData != null) {
-                                SchedulerUtils.runTask(plugin, player, () -> plugin.getNmsHandler().loadAttributes(player, attributesData));
+                            if (recovered != null && recovered.getType() != org.bukkit.Material.AIR) {
+                                offhand = recovered;
+                                plugin.logDebug("Recovered offhand from inventory column for " + player.getName());
                             }
                         }
-                        if (plugin.isSyncAchievements()) {
-                            String advData = rs.getString("advancements");
-                            if (plugin.getNmsHandler() != null) {
-                                plugin.getNmsHandler().seedAdvancementsFromDatabase(player.getUniqueId(), advData);
-                                if (advData == null && plugin.getConfig()
-                                        .getBoolean("performance.automatic_player_advancement_import", true)) {
-                                    SchedulerUtils.runTask(plugin, player,
-                                            () -> plugin.getNmsHandler().queueAdvancementImport(player, false));
-                                }
-                            }
+                    }
+
+                    final ItemStack finalOffhand = offhand;
+                    SchedulerUtils.runTask(plugin, player, () -> {
+                        try {
+                            plugin.getNmsHandler().setItemInOffHand(player, finalOffhand);
+                            player.updateInventory();
 
-                            if (advData != null && !advData.isEmpty()) {
-                                String[] achievementKeys = advData.split(",");
-                                if (achievementKeys.length > 200) {
-                                    plugin.getLogger()
-                                            .warning("Large amount of achievements detected for " + player.getName() +
-                                                    " (" + achievementKeys.length
-                                                    + "). Loading in background to prevent server lag.");
-                                    SchedulerUtils.runTaskAsync(plugin, () -> {
-                                        try {
-                                            plugin.getNmsHandler().loadAdvancements(player, advData);
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("Error loading achievements for "
-                                                    + player.getName() + ": " + e.getMessage());
-                                        }
-                                    });
-                                } else {
-                                    SchedulerUtils.runTask(plugin, player, () -> plugin.getNmsHandler().loadAdvancements(player, advData));
-                                }
-                            }
-                        }
-                        if (plugin.isSyncEconomy()) {
-                            double balance = rs.getDouble("economy");
-                            plugin.logDebug("Loading economy balance for " + player.getName() + ": " + balance);
-                            // Fix for Issue #42: Ensure economy provider is available before restoring
-                            // balance
-                            // Delay balance restoration slightly to ensure Vault is fully loaded
                             SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                // Re-check economy provider availability
-                                if (plugin.getEconomyProvider() != null) {
-                                    setPlayerBalance(player, balance);
-                                } else {
-                                    plugin.getLogger()
-                                            .warning("Economy provider not available when loading balance for " +
-                                                    player.getName() + ". Retrying in 1 second...");
-                                    // Retry after 1 second
-                                    SchedulerUtils.runTaskLater(plugin, player, () -> {
-                                        if (plugin.getEconomyProvider() != null) {
-                                            setPlayerBalance(player, balance);
-                                        } else {
-                                            plugin.getLogger().severe("Failed to restore economy balance for " +
-                                                    player.getName() + " - economy provider unavailable");
-                                        }
-                                    }, 20L);
+                                if (player.isOnline()) {
+                                    ItemStack currentOffhand = plugin.getNmsHandler().getItemInOffHand(player);
+                                    plugin.getNmsHandler().setItemInOffHand(player, currentOffhand);
+                                    player.updateInventory();
+                                    plugin.logDebug(
+                                            "Successfully loaded offhand for " + player.getName());
                                 }
-                            }, 5L); // 5 ticks delay to ensure Vault is ready
-                        } else {
-                            plugin.logDebug("Economy sync disabled, skipping balance load for " + player.getName());
+                            }, 2L);
+                        } catch (NoSuchMethodError e) {
+                            plugin.getLogger().warning("Offhand not supported on this version");
+                        } catch (Exception e) {
+                            plugin.getLogger().severe("Error setting offhand for " + player.getName()
+                                    + ": " + e.getMessage());
+                            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
                         }
+                    });
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error deserializing offhand for " + player.getName()
+                            + ": " + e.getMessage());
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+                }
+            }
+        }
+        if (plugin.isSyncEffects()) {
+            String effectsData = state.getEffectsData();
+            if (effectsData != null) {
+                // Fix for Issue #41: Don't restore effects immediately after death
+                // Check if player just died (has no health or is in respawn state)
+                SchedulerUtils.runTask(plugin, player, () -> {
+                    // Only restore effects if player is not in death/respawn state
+                    if (player.getHealth() > 0 && !player.isDead()) {
+                        loadEffects(player, effectsData);
+                    } else {
+                        plugin.logDebug("Skipping effect restoration for " + player.getName() +
+                                " - player appears to be dead or respawning");
                     }
+                });
+            }
+        }
+        if (plugin.isSyncStatistics()) {
+            String statsData = state.getStatisticsData();
+            if (statsData != null) {
+                SchedulerUtils.runTask(plugin, player, () -> loadStatistics(player, statsData));
+            }
+        }
+        if (plugin.isSyncAttributes()) {
+            String attributesData = state.getAttributesData();
+            if (attributesData != null) {
+                SchedulerUtils.runTask(plugin, player, () -> plugin.getNmsHandler().loadAttributes(player, attributesData));
+            }
+        }
+        if (plugin.isSyncAchievements()) {
+            String advData = state.getAdvancementsData();
+            if (plugin.getNmsHandler() != null) {
+                plugin.getNmsHandler().seedAdvancementsFromDatabase(player.getUniqueId(), advData);
+                if (advData == null && plugin.getConfig()
+                        .getBoolean("performance.automatic_player_advancement_import", true)) {
+                    SchedulerUtils.runTask(plugin, player,
+                            () -> plugin.getNmsHandler().queueAdvancementImport(player, false));
                 }
+            }
 
-                // Update performance metrics
-                long loadTime = System.currentTimeMillis() - startTime;
-                totalLoadTime += loadTime;
-                loadCount++;
-
-                // Log slow loads
-                if (loadTime > 2000) { // More than 2 seconds
-                    plugin.getLogger().warning("Slow load detected for " + player.getName() + ": " + loadTime + "ms");
+            if (advData != null && !advData.isEmpty() && plugin.getAdvancementImporter() != null) {
+                // Applied in slices on the player's thread, however many advancements are stored
+                plugin.getAdvancementImporter().queue(player, advData);
+            }
+        }
+        if (plugin.isSyncEconomy()) {
+            double balance = state.getEconomyBalance();
+            plugin.logDebug("Loading economy balance for " + player.getName() + ": " + balance);
+            // Fix for Issue #42: Ensure economy provider is available before restoring
+            // balance
+            // Delay balance restoration slightly to ensure Vault is fully loaded
+            SchedulerUtils.runTaskLater(plugin, player, () -> {
+                // Re-check economy provider availability
+                if (plugin.getEconomyProvider() != null) {
+                    setPlayerBalance(player, balance);
+                } else {
+                    plugin.getLogger()
+                            .warning("Economy provider not available when loading balance for " +
+                                    player.getName() + ". Retrying in 1 second...");
+                    // Retry after 1 second
+                    SchedulerUtils.runTaskLater(plugin, player, () -> {
+                        if (plugin.getEconomyProvider() != null) {
+                            setPlayerBalance(player, balance);
+                        } else {
+                            plugin.getLogger().severe("Failed to restore economy balance for " +
+                                    player.getName() + " - economy provider unavailable");
+                        }
+                    }, 20L);
+                }
+            }, 5L); // 5 ticks delay to ensure Vault is ready
+        } else {
+            plugin.logDebug("Economy sync disabled, skipping balance load for " + player.getName());
+        }
+        if (state.hasOutdatedItems() && itemUpgradeSweeper != null) {
+            // Write the upgraded items back once applied, so the next join loads them without upgrading
+            SchedulerUtils.runTaskLater(plugin, player, () -> {
+                if (!player.isOnline()) {
+                    return;
                 }
+                // Queued like any other save so it cannot overlap or reorder with this player's writes
+                plugin.getSaveQueue().submit(player, SavePriority.STATE_CHANGE).whenComplete((saved, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Could not write upgraded items for " + player.getName()
+                                + ": " + error.getMessage());
+                    } else if (Boolean.TRUE.equals(saved)) {
+                        itemUpgradeSweeper.recordOnlineUpgrade();
+                    }
+                });
+            }, 100L);
+        }
+    }
 
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not load data for " + player.getName() + ": " + e.getMessage());
-            } finally {
-                plugin.returnConnection(connection);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("Unexpected error loading player " + player.getName() + ": " + e.getMessage());
+    private void recordLoad(Player player, long startTime) {
+        // Update performance metrics
+        long loadTime = System.currentTimeMillis() - startTime;
+        totalLoadTime += loadTime;
+        loadCount++;
+
+        // Log slow loads
+        if (loadTime > 2000) { // More than 2 seconds
+            plugin.getLogger().warning("Slow load detected for " + player.getName() + ": " + loadTime + "ms");
         }
     }
 
@@ -903,36 +1397,6 @@ public class SQLDatabaseManager implements DatabaseManager {
         }
     }
 
-    /**
-     * Calculates the player's total experience using level + progress.
-     *
-     * <p>
-     * Using {@link Player#getTotalExperience()} directly can return stale values
-     * in edge-cases where experience is spent quickly (for example in enchanting
-     * workflows followed by immediate logout/server switch).
-     */
-    private int calculateTotalExperience(Player player) {
-        if (player == null) {
-            return 0;
-        }
-
-        int level = Math.max(0, player.getLevel());
-        float progress = player.getExp();
-        int total = getExpAtLevel(level) + Math.round(progress * player.getExpToLevel());
-
-        return Math.max(total, 0);
-    }
-
-    private int getExpAtLevel(int level) {
-        if (level <= 16) {
-            return level * level + 6 * level;
-        }
-        if (level <= 31) {
-            return (int) (2.5 * level * level - 40.5 * level + 360);
-        }
-        return (int) (4.5 * level * level - 162.5 * level + 2220);
-    }
-
     private String serializeAdvancements(Player player) {
         if (plugin.getNmsHandler() != null) {
             return plugin.getNmsHandler().serializeAdvancements(player);
@@ -945,7 +1409,7 @@ public class SQLDatabaseManager implements DatabaseManager {
      */
     private String serializeEffects(Player player) {
         try {
-            StringBuilder sb = new StringBuilder();
+            StringBuilder sb = PooledBuffers.acquire().text();
             for (org.bukkit.potion.PotionEffect effect : player.getActivePotionEffects()) {
                 if (sb.length() > 0)
                     sb.append(";");
@@ -966,24 +1430,11 @@ public class SQLDatabaseManager implements DatabaseManager {
     }
 
     /**
-     * Serialize player statistics
+     * Serialize player statistics, including per-material and per-entity statistics
      */
     private String serializeStatistics(Player player) {
         try {
-            StringBuilder sb = new StringBuilder();
-            for (org.bukkit.Statistic stat : org.bukkit.Statistic.values()) {
-                try {
-                    int value = player.getStatistic(stat);
-                    if (value > 0) {
-                        if (sb.length() > 0)
-                            sb.append(";");
-                        sb.append(stat.name()).append(",").append(value);
-                    }
-                } catch (Exception e) {
-                    // Some statistics might require additional parameters, skip them for now
-                }
-            }
-            return sb.toString();
+            return StatisticsCodec.encode(plugin.getStatisticsTracker().capture(player));
         } catch (Exception e) {
             plugin.getLogger().warning("Error serializing statistics for " + player.getName() + ": " + e.getMessage());
             return null;
@@ -1073,22 +1524,13 @@ public class SQLDatabaseManager implements DatabaseManager {
             return;
 
         try {
-            String[] stats = data.split(";");
-            for (String statStr : stats) {
-                if (statStr.trim().isEmpty())
-                    continue;
-
-                try {
-                    String[] parts = statStr.split(",");
-                    if (parts.length >= 2) {
-                        org.bukkit.Statistic stat = org.bukkit.Statistic.valueOf(parts[0]);
-                        int value = Integer.parseInt(parts[1]);
-                        player.setStatistic(stat, value);
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Failed to load statistic '" + statStr + "' for " + player.getName()
-                            + ": " + e.getMessage());
-                }
+            StatisticsTracker tracker = plugin.getStatisticsTracker();
+            Map<String, Integer> applied = tracker.apply(player, StatisticsCodec.decode(data));
+            if (StatisticsCodec.isBinary(data)) {
+                tracker.seed(player.getUniqueId(), applied);
+            } else {
+                // The old format has no per-material statistics, so rescan once on the next save
+                tracker.forget(player.getUniqueId());
             }
         } catch (Exception e) {
             plugin.getLogger().severe("Error loading statistics for " + player.getName() + ": " + e.getMessage());
@@ -1131,8 +1573,21 @@ public class SQLDatabaseManager implements DatabaseManager {
         double avgSaveTime = saveCount > 0 ? (double) totalSaveTime / saveCount : 0;
         double avgLoadTime = loadCount > 0 ? (double) totalLoadTime / loadCount : 0;
 
-        return String.format("Saves: %d (avg: %.1fms), Loads: %d (avg: %.1fms)",
+        String stats = String.format("Saves: %d (avg: %.1fms), Loads: %d (avg: %.1fms)",
                 saveCount, avgSaveTime, loadCount, avgLoadTime);
+        if (overflowStore.isEnabled()) {
+            stats += ", " + overflowStore.getStats();
+        }
+        if (itemUpgradeSweeper != null) {
+            stats += ", " + itemUpgradeSweeper.getStats();
+        }
+        if (historyStore.isEnabled()) {
+            stats += ", " + historyStore.getStats();
+        }
+        if (plugin.getConfigManager().isCleanupEnabled()) {
+            stats += ", " + archiveStore.getStats();
+        }
+        return itemStoreEnabled ? stats + ", " + itemBlobStore.getStats() : stats;
     }
 
     /**
@@ -1144,6 +1599,13 @@ public class SQLDatabaseManager implements DatabaseManager {
         saveCount = 0;
         loadCount = 0;
         lastPerformanceLog = System.currentTimeMillis();
+        itemBlobStore.resetStats();
+        overflowStore.resetStats();
+        historyStore.resetStats();
+        archiveStore.resetStats();
+        if (itemUpgradeSweeper != null) {
+            itemUpgradeSweeper.resetStats();
+        }
     }
 
     /**
@@ -1271,6 +1733,11 @@ public class SQLDatabaseManager implements DatabaseManager {
         return Math.abs(normalizeBalance(actual) - normalizeBalance(expected)) < 0.01D;
     }
 
+    @Override
+    public CompletionStage<OfflinePlayerData> loadOfflinePlayerDataAsync(UUID uuid, String fallbackName) {
+        return WorkloadExecutors.supply(plugin, WorkloadType.LOOKUP, () -> loadOfflinePlayerData(uuid, fallbackName));
+    }
+
     public OfflinePlayerData loadOfflinePlayerData(UUID uuid, String fallbackName) {
         String displayName = fallbackName != null ? fallbackName : "unknown";
         if (uuid == null) {
@@ -1296,41 +1763,46 @@ public class SQLDatabaseManager implements DatabaseManager {
                 return empty;
             }
 
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, uuid.toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        OfflinePlayerData data = new OfflinePlayerData(uuid, displayName);
-                        data.setExistsInDatabase(true);
-
-                        ItemStack[] combinedInventory = InventoryUtils
-                                .safeItemStackArrayFromBase64(rs.getString("inventory"));
-                        data.setInventoryContents(extractMainInventory(combinedInventory));
-
-                        ItemStack[] armor = InventoryUtils.safeItemStackArrayFromBase64(rs.getString("armor"));
-                        if (armor.length == 0 && combinedInventory.length > 36) {
-                            armor = new ItemStack[] {
-                                    combinedInventory.length > 36 ? combinedInventory[36] : null,
-                                    combinedInventory.length > 37 ? combinedInventory[37] : null,
-                                    combinedInventory.length > 38 ? combinedInventory[38] : null,
-                                    combinedInventory.length > 39 ? combinedInventory[39] : null
-                            };
-                        }
-                        data.setArmorContents(normalizeArmorArray(armor));
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    uuidKeys.bind(ps, 1, uuid);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            OfflinePlayerData data = new OfflinePlayerData(uuid, displayName);
+                            data.setExistsInDatabase(true);
+
+                            ItemStack[] combinedInventory = orEmpty(readItemColumn(connection, uuid, rs, "inventory", null));
+                            data.setInventoryContents(extractMainInventory(combinedInventory));
+
+                            ItemStack[] armor = orEmpty(readItemColumn(connection, uuid, rs, "armor", null));
+                            if (armor.length == 0 && combinedInventory.length > 36) {
+                                armor = new ItemStack[] {
+                                        combinedInventory.length > 36 ? combinedInventory[36] : null,
+                                        combinedInventory.length > 37 ? combinedInventory[37] : null,
+                                        combinedInventory.length > 38 ? combinedInventory[38] : null,
+                                        combinedInventory.length > 39 ? combinedInventory[39] : null
+                                };
+                            }
+                            data.setArmorContents(normalizeArmorArray(armor));
 
-                        ItemStack offhand = InventoryUtils.safeItemStackFromBase64(rs.getString("offhand"));
-                        if (offhand == null && combinedInventory.length > 40) {
-                            offhand = combinedInventory[40];
-                        }
-                        data.setOffhandItem(offhand);
+                            ItemStack offhand = InventoryUtils.safeItemStackFromBase64(
+                                    itemBlobStore.resolve(connection, readTextColumn(connection, uuid, rs, "offhand")));
+                            if (offhand == null && combinedInventory.length > 40) {
+                                offhand = combinedInventory[40];
+                            }
+                            data.setOffhandItem(offhand);
 
-                        ItemStack[] enderChest = InventoryUtils
-                                .safeItemStackArrayFromBase64(rs.getString("enderchest"));
-                        data.setEnderChestContents(enderChest);
+                            ItemStack[] enderChest = orEmpty(readItemColumn(connection, uuid, rs, "enderchest", null));
+                            data.setEnderChestContents(enderChest);
 
-                        return data;
+                            return data;
+                        }
                     }
                 }
+                // Viewing or editing an archived player works on their real data
+                if (attempt > 0 || !archiveStore.rehydrate(uuid)) {
+                    break;
+                }
             }
         } catch (SQLException e) {
             plugin.getLogger().severe("Error loading offline data for " + displayName + ": " + e.getMessage());
@@ -1363,7 +1835,8 @@ public class SQLDatabaseManager implements DatabaseManager {
             ItemStack offhand = data.getOffhandItem();
 
             ItemStack[] combined = combineInventoryAndEquipment(main, armor, offhand);
-            String inventoryData = InventoryUtils.itemStackArrayToBase64(combined);
+            String inventoryData = overflowStore.spill(connection, data.getUuid(), "inventory",
+                    InventoryUtils.itemStackArrayToBase64(combined));
             String armorData = InventoryUtils.itemStackArrayToBase64(armor);
             String offhandData = offhand != null ? InventoryUtils.itemStackToBase64(offhand) : "";
 
@@ -1378,8 +1851,9 @@ public class SQLDatabaseManager implements DatabaseManager {
                     ps.setString(2, armorData);
                     ps.setString(3, offhandData);
                     ps.setString(4, serverId);
-                    ps.setString(5, data.getUuid().toString());
+                    uuidKeys.bind(ps, 5, data.getUuid());
                     if (ps.executeUpdate() > 0) {
+                        overflowStore.cleanup(connection, data.getUuid(), "inventory", inventoryData);
                         return true;
                     }
                 }
@@ -1388,7 +1862,7 @@ public class SQLDatabaseManager implements DatabaseManager {
             String insertSql = "INSERT INTO " + tableName
                     + " (uuid, inventory, armor, offhand, server_id) VALUES (?,?,?,?,?)";
             try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
-                ps.setString(1, data.getUuid().toString());
+                uuidKeys.bind(ps, 1, data.getUuid());
                 ps.setString(2, inventoryData);
                 ps.setString(3, armorData);
                 ps.setString(4, offhandData);
@@ -1421,7 +1895,8 @@ public class SQLDatabaseManager implements DatabaseManager {
             }
 
             ItemStack[] contents = data.getEnderChestContents();
-            String enderData = InventoryUtils.itemStackArrayToBase64(contents != null ? contents : new ItemStack[0]);
+            String enderData = overflowStore.spill(connection, data.getUuid(), "enderchest",
+                    InventoryUtils.itemStackArrayToBase64(contents != null ? contents : new ItemStack[0]));
 
             String tableName = getTableName();
             String serverId = plugin.getConfig().getString("server.id", "default");
@@ -1432,8 +1907,9 @@ public class SQLDatabaseManager implements DatabaseManager {
                 try (PreparedStatement ps = connection.prepareStatement(updateSql)) {
                     ps.setString(1, enderData);
                     ps.setString(2, serverId);
-                    ps.setString(3, data.getUuid().toString());
+                    uuidKeys.bind(ps, 3, data.getUuid());
                     if (ps.executeUpdate() > 0) {
+                        overflowStore.cleanup(connection, data.getUuid(), "enderchest", enderData);
                         return true;
                     }
                 }
@@ -1441,7 +1917,7 @@ public class SQLDatabaseManager implements DatabaseManager {
 
             String insertSql = "INSERT INTO " + tableName + " (uuid, enderchest, server_id) VALUES (?,?,?)";
             try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
-                ps.setString(1, data.getUuid().toString());
+                uuidKeys.bind(ps, 1, data.getUuid());
                 ps.setString(2, enderData);
                 ps.setString(3, serverId);
                 if (ps.executeUpdate() > 0) {
@@ -1458,6 +1934,239 @@ public class SQLDatabaseManager implements DatabaseManager {
         return false;
     }
 
+    PayloadOverflowStore getOverflowStore() {
+        return overflowStore;
+    }
+
+    public boolean isHistoryEnabled() {
+        return historyStore.isEnabled();
+    }
+
+    /**
+     * Snapshots in a player's history, newest first
+     */
+    public List<PlayerHistoryStore.HistoryEntry> listHistory(UUID uuid, int offset, int limit) throws SQLException {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection unavailable");
+        }
+        try {
+            return historyStore.list(connection, uuid, offset, limit);
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    /**
+     * Replace the stored state of a player with a snapshot from their history. The player must be
+     * offline: saves of an online player are queued and would overwrite the rolled back row.
+     *
+     * @return false if the snapshot does not exist
+     * @throws IllegalStateException if the player is online
+     */
+    public boolean rollbackPlayer(UUID uuid, int seq) throws SQLException, IOException {
+        if (Bukkit.getPlayer(uuid) != null) {
+            throw new IllegalStateException("Player " + uuid + " is online; roll them back after they leave");
+        }
+        // It would land after the rollback and undo it
+        if (plugin.getSaveQueue() != null && !plugin.getSaveQueue().whenWritten(uuid).isDone()) {
+            throw new IllegalStateException("Player " + uuid + " still has a save queued; try again in a moment");
+        }
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection unavailable");
+        }
+        PlayerSnapshot snapshot = null;
+        try {
+            String server = sessionStore.findElsewhere(connection, uuid);
+            if (server != null) {
+                throw new IllegalStateException("Player " + uuid + " is online on server " + server
+                        + "; roll them back after they leave");
+            }
+
+            String[] values = historyStore.reconstruct(connection, uuid, seq);
+            if (values == null) {
+                return false;
+            }
+
+            snapshot = acquireSnapshot(uuid, uuid.toString());
+            applyHistoryValues(snapshot, values);
+            if (itemStoreEnabled) {
+                snapshot.enderChestData = storeHistoryItems(connection, snapshot.enderChestData);
+                snapshot.inventoryData = storeHistoryItems(connection, snapshot.inventoryData);
+                snapshot.armorData = storeHistoryItems(connection, snapshot.armorData);
+                snapshot.offhandData = storeHistoryItems(connection, snapshot.offhandData);
+            }
+            spillOversizedColumns(connection, snapshot);
+            writeFullSnapshot(connection, fullWriteSql(), snapshot);
+            cleanupOverflow(connection, snapshot);
+
+            historyStore.forceNext(uuid, "rollback to #" + seq);
+            historyStore.record(connection, uuid, values, "rollback");
+        } finally {
+            if (snapshot != null) {
+                releaseSnapshot(snapshot);
+            }
+            plugin.returnConnection(connection);
+        }
+
+        plugin.getLogger().info("Rolled back " + uuid + " to history snapshot #" + seq);
+        return true;
+    }
+
+    private static String[] historyValues(PlayerSnapshot snapshot) {
+        return new String[] {
+            snapshot.worldName, String.valueOf(snapshot.x), String.valueOf(snapshot.y), String.valueOf(snapshot.z),
+            String.valueOf(snapshot.yaw), String.valueOf(snapshot.pitch), String.valueOf(snapshot.totalExperience),
+            snapshot.gamemode, snapshot.enderChestData, snapshot.inventoryData, snapshot.armorData,
+            snapshot.offhandData, snapshot.effectsData, snapshot.statisticsData, snapshot.attributesData,
+            String.valueOf(snapshot.health), String.valueOf(snapshot.hunger), String.valueOf(snapshot.saturation),
+            snapshot.advancementsData, String.valueOf(snapshot.economyBalance)
+        };
+    }
+
+    private static void applyHistoryValues(PlayerSnapshot snapshot, String[] values) throws IOException {
+        if (values.length < PlayerHistoryStore.COLUMNS.length) {
+            throw new IOException("History snapshot has " + values.length + " columns");
+        }
+        try {
+            snapshot.worldName = values[0];
+            snapshot.x = Double.parseDouble(values[1]);
+            snapshot.y = Double.parseDouble(values[2]);
+            snapshot.z = Double.parseDouble(values[3]);
+            snapshot.yaw = Float.parseFloat(values[4]);
+            snapshot.pitch = Float.parseFloat(values[5]);
+            snapshot.totalExperience = Integer.parseInt(values[6]);
+            snapshot.gamemode = values[7];
+            snapshot.enderChestData = values[8];
+            snapshot.inventoryData = values[9];
+            snapshot.armorData = values[10];
+            snapshot.offhandData = values[11];
+            snapshot.effectsData = values[12];
+            snapshot.statisticsData = values[13];
+            snapshot.attributesData = values[14];
+            snapshot.health = Double.parseDouble(values[15]);
+            snapshot.hunger = Integer.parseInt(values[16]);
+            snapshot.saturation = Float.parseFloat(values[17]);
+            snapshot.advancementsData = values[18];
+            snapshot.economyBalance = Double.parseDouble(values[19]);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("History snapshot has an unreadable value: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Turn an inline item payload from the history into blob references for the player row
+     */
+    private String storeHistoryItems(Connection connection, String data) throws SQLException, IOException {
+        if (data == null) {
+            return null;
+        }
+        ItemStack[] items = InventoryUtils.safeItemStackArrayFromBase64(data);
+        return itemBlobStore.store(connection, InventoryUtils.encodeInventory(items, null, null));
+    }
+
+    /**
+     * Re-encode the stored item columns of an offline player in the current format. The write is
+     * guarded by the prefix and length of each column as read, so a save in between wins.
+     *
+     * @return false if the row changed or nothing needed rewriting
+     */
+    boolean upgradeStoredItems(Connection connection, UUID uuid) throws SQLException {
+        String[] columns = ItemUpgradeSweeper.COLUMNS;
+        String[] stored = new String[columns.length];
+        ItemStack[][] items = new ItemStack[columns.length][];
+        PlayerState state = PlayerState.empty(uuid);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (String column : columns) {
+            select.append("SUBSTR(").append(column).append(", 1, ").append(InventoryUtils.getLineagePrefixLength())
+                    .append(") AS ").append(column).append("_prefix, LENGTH(").append(column).append(") AS ")
+                    .append(column).append("_length, ");
+        }
+        select.append(String.join(", ", columns)).append(" FROM ").append(getTableName()).append(" WHERE uuid = ?");
+
+        String[] prefixes = new String[columns.length];
+        long[] lengths = new long[columns.length];
+        try (PreparedStatement ps = connection.prepareStatement(select.toString())) {
+            uuidKeys.bind(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    prefixes[i] = rs.getString(columns[i] + "_prefix");
+                    lengths[i] = rs.getLong(columns[i] + "_length");
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    items[i] = readItemColumn(connection, uuid, rs, columns[i], state);
+                }
+            }
+        }
+        if (!state.hasOutdatedItems()) {
+            return false;
+        }
+
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                if (items[i] == null) {
+                    continue;
+                }
+                EncodedInventory encoded = InventoryUtils.encodeInventory(items[i], null, null);
+                String data = itemStoreEnabled ? itemBlobStore.store(connection, encoded) : encoded.getFull();
+                stored[i] = overflowStore.spill(connection, uuid, columns[i], data);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not re-encode items: " + e.getMessage(), e);
+        }
+
+        StringBuilder update = new StringBuilder("UPDATE ").append(getTableName()).append(" SET ");
+        StringBuilder guard = new StringBuilder(" WHERE uuid = ?");
+        boolean first = true;
+        for (int i = 0; i < columns.length; i++) {
+            if (stored[i] == null) {
+                continue;
+            }
+            update.append(first ? "" : ", ").append(columns[i]).append(" = ?");
+            guard.append(" AND SUBSTR(").append(columns[i]).append(", 1, ").append(InventoryUtils.getLineagePrefixLength())
+                    .append(") = ? AND LENGTH(").append(columns[i]).append(") = ?");
+            first = false;
+        }
+        if (first) {
+            return false;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(update.append(guard).toString())) {
+            int index = 1;
+            for (String value : stored) {
+                if (value != null) {
+                    ps.setString(index++, value);
+                }
+            }
+            uuidKeys.bind(ps, index++, uuid);
+            for (int i = 0; i < columns.length; i++) {
+                if (stored[i] != null) {
+                    ps.setString(index++, prefixes[i]);
+                    ps.setLong(index++, lengths[i]);
+                }
+            }
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (stored[i] != null) {
+                overflowStore.cleanup(connection, uuid, columns[i], stored[i]);
+            }
+        }
+        return true;
+    }
+
+    private static ItemStack[] orEmpty(ItemStack[] items) {
+        return items != null ? items : new ItemStack[0];
+    }
+
     private ItemStack[] extractMainInventory(ItemStack[] combined) {
         ItemStack[] main = new ItemStack[36];
         if (combined != null) {
@@ -1508,32 +2217,71 @@ public class SQLDatabaseManager implements DatabaseManager {
     }
 
     private static class PlayerSnapshot {
-        private final UUID uuid;
-        private final String playerName;
-        private String worldName = null;
-        private double x = 0;
-        private double y = 0;
-        private double z = 0;
-        private float yaw = 0;
-        private float pitch = 0;
-        private int totalExperience = 0;
-        private String gamemode = null;
-        private String enderChestData = null;
-        private String inventoryData = null;
-        private String armorData = null;
-        private String offhandData = null;
-        private String effectsData = null;
-        private String statisticsData = null;
-        private String attributesData = null;
-        private double health = 20.0;
-        private int hunger = 20;
-        private float saturation = 5f;
-        private String advancementsData = null;
-        private double economyBalance = 0.0;
-
-        private PlayerSnapshot(UUID uuid, String playerName) {
+        private UUID uuid;
+        private String playerName;
+        private String worldName;
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private float pitch;
+        private int totalExperience;
+        private String gamemode;
+        private EncodedInventory enderChest;
+        private EncodedInventory inventory;
+        private EncodedInventory armor;
+        private EncodedInventory offhand;
+        private String enderChestData;
+        private String inventoryData;
+        private String armorData;
+        private String offhandData;
+        private String effectsData;
+        private String statisticsData;
+        private String attributesData;
+        private double health;
+        private int hunger;
+        private float saturation;
+        private String advancementsData;
+        private double economyBalance;
+        private long saveVersion;
+
+        private void reset(UUID uuid, String playerName) {
             this.uuid = uuid;
             this.playerName = playerName;
+            worldName = null;
+            x = 0;
+            y = 0;
+            z = 0;
+            yaw = 0;
+            pitch = 0;
+            totalExperience = 0;
+            gamemode = null;
+            enderChest = null;
+            inventory = null;
+            armor = null;
+            offhand = null;
+            enderChestData = null;
+            inventoryData = null;
+            armorData = null;
+            offhandData = null;
+            effectsData = null;
+            statisticsData = null;
+            attributesData = null;
+            health = 20.0;
+            hunger = 20;
+            saturation = 5f;
+            advancementsData = null;
+            economyBalance = 0.0;
+            saveVersion = 0;
+        }
+
+        private int payloadLength() {
+            return length(enderChestData) + length(inventoryData) + length(armorData) + length(offhandData)
+                    + length(effectsData) + length(statisticsData) + length(attributesData) + length(advancementsData);
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
         }
     }
 }
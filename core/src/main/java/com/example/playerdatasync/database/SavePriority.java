@@ -0,0 +1,29 @@
+package com.example.playerdatasync.database;
+
+/**
+ * Urgency classes for queued saves, highest priority first.
+ */
+public enum SavePriority {
+    /** Quit, kick and server switch - the player is about to load elsewhere. */
+    DISCONNECT("disconnect", 1000L),
+    /** Death, world change and similar state transitions. */
+    STATE_CHANGE("state_change", 5000L),
+    /** Periodic autosave; shed or coalesced under pressure. */
+    AUTOSAVE("autosave", 30000L);
+
+    private final String configKey;
+    private final long defaultDeadlineMs;
+
+    SavePriority(String configKey, long defaultDeadlineMs) {
+        this.configKey = configKey;
+        this.defaultDeadlineMs = defaultDeadlineMs;
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    public long getDefaultDeadlineMs() {
+        return defaultDeadlineMs;
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.playerdatasync.database;
+
+import org.bukkit.entity.Player;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Central queue for player saves.
+ * Requests are ordered by {@link SavePriority}, coalesced per player while they
+ * wait, and autosaves are shed once the backlog exceeds the configured limit.
+ * Writes of one player never overlap: a request whose player is being written
+ * waits behind that write, so an older capture cannot land after a newer one.
+ */
+public class SaveQueue {
+    private final PlayerDataSync plugin;
+    private final DatabaseManager databaseManager;
+
+    private final PriorityBlockingQueue<SaveRequest> queue = new PriorityBlockingQueue<>();
+    private final Map<UUID, SaveRequest> pending = new ConcurrentHashMap<>();
+    // Requests being written, guarded by lock
+    private final Map<UUID, SaveRequest> inFlight = new HashMap<>();
+    private final Object lock = new Object();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<SavePriority, ClassMetrics> metrics = new EnumMap<>(SavePriority.class);
+    private final Map<SavePriority, Long> deadlines = new EnumMap<>(SavePriority.class);
+
+    private final Executor executor;
+    private final int maxPending;
+    private volatile boolean running;
+
+    public SaveQueue(PlayerDataSync plugin, DatabaseManager databaseManager, Executor executor) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.executor = executor;
+        this.maxPending = Math.max(1, plugin.getConfig().getInt("performance.save_queue.max_pending", 500));
+
+        for (SavePriority priority : SavePriority.values()) {
+            metrics.put(priority, new ClassMetrics());
+            deadlines.put(priority, plugin.getConfig().getLong(
+                "performance.save_queue.deadlines." + priority.getConfigKey(), priority.getDefaultDeadlineMs()));
+        }
+    }
+
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Stop accepting saves and run whatever is still queued on the calling thread.
+     */
+    public void shutdown() {
+        running = false;
+
+        SaveRequest request;
+        while ((request = queue.poll()) != null) {
+            execute(takeNext(request));
+        }
+    }
+
+    /**
+     * Queue a save for the player. The player's state is captured on their thread
+     * so the queued write reflects this moment; callers off that thread never wait.
+     */
+    public CompletableFuture<Boolean> submit(Player player, SavePriority priority) {
+        return submit(player, priority, false);
+    }
+
+    /**
+     * Queue the save written when the player leaves this server. Once it is written, the
+     * player's session here ends and a server waiting to load them goes ahead.
+     */
+    public CompletableFuture<Boolean> submitQuit(Player player) {
+        return submit(player, SavePriority.DISCONNECT, true);
+    }
+
+    /**
+     * @return completed once the player's queued or running save is written, or already if there is none
+     */
+    public CompletableFuture<Boolean> whenWritten(UUID uuid) {
+        synchronized (lock) {
+            // A pending request is written after the one in flight
+            SaveRequest request = pending.get(uuid);
+            if (request == null) {
+                request = inFlight.get(uuid);
+            }
+            return request != null ? request.future : CompletableFuture.completedFuture(true);
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(Player player, SavePriority priority, boolean endsSession) {
+        ClassMetrics classMetrics = metrics.get(priority);
+        classMetrics.submitted.incrementAndGet();
+
+        if (!running) {
+            classMetrics.shed.incrementAndGet();
+            CompletableFuture<Boolean> rejected = new CompletableFuture<>();
+            rejected.complete(false);
+            return rejected;
+        }
+
+        if (!SchedulerUtils.isPrimaryThread()) {
+            return submitFromAsync(player, priority, endsSession);
+        }
+
+        return enqueue(player, priority, endsSession, databaseManager.prepareSave(player));
+    }
+
+    private CompletableFuture<Boolean> submitFromAsync(Player player, SavePriority priority, boolean endsSession) {
+        synchronized (lock) {
+            // A queued request will capture fresh state anyway, so only its class needs upgrading
+            SaveRequest existing = pending.get(player.getUniqueId());
+            if (existing != null) {
+                upgrade(existing, priority);
+                existing.endsSession |= endsSession;
+                metrics.get(priority).coalesced.incrementAndGet();
+                return existing.future;
+            }
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        SchedulerUtils.runTask(plugin, player, () -> enqueue(player, priority, endsSession, databaseManager.prepareSave(player))
+            .whenComplete((saved, error) -> result.complete(error == null && Boolean.TRUE.equals(saved))));
+        return result;
+    }
+
+    private CompletableFuture<Boolean> enqueue(Player player, SavePriority priority, boolean endsSession,
+                                               Callable<Boolean> write) {
+        ClassMetrics classMetrics = metrics.get(priority);
+        UUID uuid = player.getUniqueId();
+
+        SaveRequest request;
+        synchronized (lock) {
+            SaveRequest existing = pending.get(uuid);
+            if (existing != null) {
+                // Newer capture wins; the request keeps the most urgent class and its original enqueue time
+                existing.write = write;
+                existing.playerName = player.getName();
+                upgrade(existing, priority);
+                existing.endsSession |= endsSession;
+                classMetrics.coalesced.incrementAndGet();
+                return existing.future;
+            }
+
+            if (priority == SavePriority.AUTOSAVE && queue.size() >= maxPending) {
+                classMetrics.shed.incrementAndGet();
+                CompletableFuture<Boolean> shed = new CompletableFuture<>();
+                shed.complete(false);
+                return shed;
+            }
+
+            request = new SaveRequest(uuid, player.getName(), priority, write, sequence.incrementAndGet());
+            request.endsSession = endsSession;
+            pending.put(uuid, request);
+            queue.add(request);
+        }
+
+        try {
+            // Each drain task runs whichever request is most urgent at that moment
+            executor.execute(this::drainNext);
+            return request.future;
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                // A drain task that was already running may have taken it in the meantime
+                if (!queue.remove(request)) {
+                    return request.future;
+                }
+                if (request.priority == SavePriority.AUTOSAVE) {
+                    pending.remove(uuid, request);
+                    classMetrics.shed.incrementAndGet();
+                    plugin.getLogger().warning("Save executor is saturated, dropped autosave for " + player.getName());
+                    request.future.complete(false);
+                    return request.future;
+                }
+            }
+        }
+
+        // Losing this save would lose player data, so only this player's request is written here;
+        // if an earlier write of theirs is running, that write picks it up instead
+        plugin.getLogger().warning("Save executor is saturated, writing " + priority.getConfigKey()
+            + " save for " + player.getName() + " on the calling thread");
+        execute(takeNext(request));
+        return request.future;
+    }
+
+    private void upgrade(SaveRequest request, SavePriority priority) {
+        if (priority.ordinal() < request.priority.ordinal()) {
+            if (queue.remove(request)) {
+                request.priority = priority;
+                queue.add(request);
+            } else {
+                request.priority = priority;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Write queued requests, most urgent first, until the queue is empty.
+     * Draining past the task's own request covers requests whose drain task was rejected.
+     */
+    private void drainNext() {
+        SaveRequest request;
+        while ((request = queue.poll()) != null) {
+            execute(takeNext(request));
+        }
+    }
+
+    /**
+     * Mark the request as being written, or park it while an earlier write of the player runs
+     *
+     * @return the request to write now, or null if it was parked
+     */
+    private SaveRequest takeNext(SaveRequest request) {
+        synchronized (lock) {
+            if (inFlight.containsKey(request.uuid)) {
+                // Stays pending so newer captures still coalesce into it; the running write starts it
+                request.parked = true;
+                return null;
+            }
+            pending.remove(request.uuid, request);
+            inFlight.put(request.uuid, request);
+        }
+        return request;
+    }
+
+    /**
+     * Write the request, then any request of the same player parked behind it
+     */
+    private void execute(SaveRequest request) {
+        while (request != null) {
+            write(request);
+            synchronized (lock) {
+                inFlight.remove(request.uuid, request);
+                SaveRequest next = pending.get(request.uuid);
+                if (next != null && next.parked) {
+                    next.parked = false;
+                    pending.remove(next.uuid, next);
+                    inFlight.put(next.uuid, next);
+                } else {
+                    next = null;
+                }
+                request = next;
+            }
+        }
+    }
+
+    private void write(SaveRequest request) {
+        long started = System.currentTimeMillis();
+        long waitMs = started - request.enqueuedAt;
+        ClassMetrics classMetrics = metrics.get(request.priority);
+
+        boolean success;
+        try {
+            success = Boolean.TRUE.equals(request.write.call());
+        } catch (Exception e) {
+            plugin.getLogger().warning("Queued save failed for " + request.playerName + ": " + e.getMessage());
+            success = false;
+        }
+
+        long totalMs = System.currentTimeMillis() - request.enqueuedAt;
+        boolean late = totalMs > deadlines.get(request.priority);
+        classMetrics.record(waitMs, success, late);
+        if (late) {
+            plugin.logDebug("Save for " + request.playerName + " (" + request.priority.getConfigKey()
+                + ") missed its deadline: " + totalMs + "ms");
+        }
+        if (plugin.getProfileManager() != null) {
+            plugin.getProfileManager().record("SaveQueue-" + request.priority.getConfigKey(), totalMs);
+        }
+
+        // Also after a failed write; waiting longer would not bring the data back. Done before the
+        // future completes, so a rejoin waiting on it claims the player after this
+        if (request.endsSession) {
+            databaseManager.endSession(request.uuid);
+        }
+
+        request.future.complete(success);
+    }
+
+    public String getStats() {
+        StringBuilder builder = new StringBuilder("Save queue: depth " + queue.size());
+        for (SavePriority priority : SavePriority.values()) {
+            ClassMetrics m = metrics.get(priority);
+            long completed = m.completed.get();
+            builder.append(String.format(" | %s: %d done, avg wait %.1fms, %d late, %d coalesced, %d shed",
+                priority.getConfigKey(), completed,
+                completed > 0 ? (double) m.totalWaitMs.get() / completed : 0.0,
+                m.deadlineMisses.get(), m.coalesced.get(), m.shed.get()));
+        }
+        return builder.toString();
+    }
+
+    public void resetStats() {
+        for (ClassMetrics m : metrics.values()) {
+            m.reset();
+        }
+    }
+
+    private static class SaveRequest implements Comparable<SaveRequest> {
+        private final UUID uuid;
+        private final long sequence;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private volatile String playerName;
+        private volatile SavePriority priority;
+        private volatile Callable<Boolean> write;
+        private volatile boolean endsSession;
+        // Polled while an earlier write of the player ran; guarded by lock
+        private boolean parked;
+
+        private SaveRequest(UUID uuid, String playerName, SavePriority priority, Callable<Boolean> write, long sequence) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.priority = priority;
+            this.write = write;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(SaveRequest other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class ClassMetrics {
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+        private final AtomicLong deadlineMisses = new AtomicLong();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+
+        private void record(long waitMs, boolean success, boolean late) {
+            completed.incrementAndGet();
+            totalWaitMs.addAndGet(waitMs);
+            if (!success) {
+                failed.incrementAndGet();
+            }
+            if (late) {
+                deadlineMisses.incrementAndGet();
+            }
+        }
+
+        private void reset() {
+            submitted.set(0);
+            completed.set(0);
+            failed.set(0);
+            coalesced.set(0);
+            shed.set(0);
+            deadlineMisses.set(0);
+            totalWaitMs.set(0);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.playerdatasync.database;
+
+/**
+ * Outcome of an asynchronous save.
+ */
+public class SaveResult {
+    private final boolean success;
+    private final long durationMs;
+    private final String error;
+
+    private SaveResult(boolean success, long durationMs, String error) {
+        this.success = success;
+        this.durationMs = durationMs;
+        this.error = error;
+    }
+
+    public static SaveResult success(long durationMs) {
+        return new SaveResult(true, durationMs, null);
+    }
+
+    public static SaveResult failure(long durationMs, String error) {
+        return new SaveResult(false, durationMs, error);
+    }
+
+    public boolean isSuccess() { return success; }
+    public long getDurationMs() { return durationMs; }
+    public String getError() { return error; }
+}
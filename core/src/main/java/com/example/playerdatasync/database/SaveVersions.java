@@ -0,0 +1,31 @@
+package com.example.playerdatasync.database;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player save version. Every capture of a player's state takes the next number, counting on
+ * from the version stored with their data when they were loaded, so a write can tell whether the
+ * stored data holds a newer capture without comparing the clocks of different machines. Only the
+ * server holding the player (see {@link PlayerSessionStore}) numbers their captures.
+ */
+public class SaveVersions {
+    private final Map<UUID, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Continue from the version the player's data was loaded with
+     */
+    public void loaded(UUID uuid, long stored) {
+        versions.compute(uuid, (key, current) -> current != null && current.get() >= stored ? current : new AtomicLong(stored));
+    }
+
+    public long next(UUID uuid) {
+        return versions.computeIfAbsent(uuid, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void forget(UUID uuid) {
+        versions.remove(uuid);
+    }
+}
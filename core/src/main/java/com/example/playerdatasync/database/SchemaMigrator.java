@@ -0,0 +1,254 @@
+package com.example.playerdatasync.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Versioned schema of the player table. Every change to it is a numbered migration, applied once
+ * in order and recorded in the schema version table, so starting against an up to date schema
+ * costs a single query. Servers starting together take a named lock on MySQL; the first applies
+ * what is pending and the others find it recorded once they get the lock. Migrations check what
+ * they change, so installations from before versioning are brought up to date by running them all.
+ */
+public class SchemaMigrator {
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+    private final PlayerDataSync plugin;
+    private final String playerTable;
+    private final String table;
+    private final UuidKeys keys;
+    private final boolean mysql;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator(PlayerDataSync plugin, String playerTable, UuidKeys keys) {
+        this.plugin = plugin;
+        this.playerTable = playerTable;
+        this.table = playerTable + "_schema_version";
+        this.keys = keys;
+        this.mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+
+        // Append only; a released migration is never changed or renumbered
+        migrations.add(new Migration(1, "Create the player table", this::createPlayerTable));
+        migrations.add(new Migration(2, "Add the columns missing from older installations", this::addMissingColumns));
+        migrations.add(new Migration(3, "Widen item and advancement columns to LONGTEXT", this::widenPayloadColumns));
+        migrations.add(new Migration(4, "Add the save version column", this::addSaveVersionColumn));
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getLatestVersion() {
+        return migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * Apply the migrations newer than the recorded version
+     *
+     * @return migrations applied
+     */
+    public int migrate(Connection connection) throws SQLException {
+        int latest = getLatestVersion();
+        int version = currentVersion(connection);
+        if (version >= latest) {
+            if (version > latest) {
+                plugin.getLogger().warning("Database schema version " + version + " is newer than the " + latest
+                        + " this version of the plugin knows; it was written by a newer release");
+            }
+            return 0;
+        }
+
+        lock(connection, LOCK_TIMEOUT_SECONDS);
+        int applied = 0;
+        try {
+            // Another server may have migrated while we waited for the lock
+            version = currentVersion(connection);
+            for (Migration migration : migrations) {
+                if (migration.version <= version) {
+                    continue;
+                }
+                long startTime = System.currentTimeMillis();
+                try (Statement st = connection.createStatement()) {
+                    migration.step.apply(st, connection.getMetaData());
+                }
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO " + table + " (version, description, applied, server_id) VALUES (?,?,?,?)")) {
+                    ps.setInt(1, migration.version);
+                    ps.setString(2, migration.description);
+                    ps.setLong(3, System.currentTimeMillis());
+                    ps.setString(4, plugin.getConfig().getString("server.id", "default"));
+                    ps.executeUpdate();
+                }
+                applied++;
+                plugin.getLogger().info("Applied schema migration " + migration.version + " (" + migration.description
+                        + ") in " + (System.currentTimeMillis() - startTime) + "ms");
+            }
+        } finally {
+            unlock(connection);
+        }
+        return applied;
+    }
+
+    private int currentVersion(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            // First start with a versioned schema
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                        "version INT PRIMARY KEY," +
+                        "description VARCHAR(255)," +
+                        "applied BIGINT NOT NULL," +
+                        "server_id VARCHAR(50)" +
+                        ")");
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Named lock held by the connection until released, taken for every change to the table layout;
+     * an SQLite file is only written by one server
+     */
+    void lock(Connection connection, int timeoutSeconds) throws SQLException {
+        if (!mysql) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, table);
+            ps.setInt(2, timeoutSeconds);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish changing the schema");
+                }
+            }
+        }
+    }
+
+    void unlock(Connection connection) {
+        if (!mysql) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, table);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not release the schema lock: " + e.getMessage());
+        }
+    }
+
+    private void createPlayerTable(Statement st, DatabaseMetaData meta) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + playerTable + " (" +
+                "uuid " + keys.columnType(mysql) + " PRIMARY KEY," +
+                "world VARCHAR(255)," +
+                "x DOUBLE,y DOUBLE,z DOUBLE," +
+                "yaw FLOAT,pitch FLOAT," +
+                "xp INT," +
+                "gamemode VARCHAR(20)," +
+                "enderchest LONGTEXT," +
+                "inventory LONGTEXT," +
+                "armor LONGTEXT," +
+                "offhand LONGTEXT," +
+                "effects TEXT," +
+                "statistics LONGTEXT," +
+                "attributes TEXT," +
+                "health DOUBLE," +
+                "hunger INT," +
+                "saturation FLOAT," +
+                "advancements LONGTEXT," +
+                "economy DOUBLE DEFAULT 0.0," +
+                "last_save TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "server_id VARCHAR(50) DEFAULT 'default'" +
+                ")");
+    }
+
+    private void addMissingColumns(Statement st, DatabaseMetaData meta) throws SQLException {
+        Map<String, String> columns = columnTypes(meta);
+        String[][] added = {
+                { "hunger", "INT" },
+                { "saturation", "FLOAT" },
+                { "advancements", "LONGTEXT" },
+                { "armor", "LONGTEXT" },
+                { "offhand", "LONGTEXT" },
+                { "effects", "TEXT" },
+                { "statistics", "LONGTEXT" },
+                { "attributes", "TEXT" },
+                { "economy", "DOUBLE DEFAULT 0.0" },
+                { "last_save", "TIMESTAMP DEFAULT CURRENT_TIMESTAMP" },
+                { "server_id", "VARCHAR(50) DEFAULT 'default'" }
+        };
+        for (String[] column : added) {
+            if (!columns.containsKey(column[0])) {
+                st.executeUpdate("ALTER TABLE " + playerTable + " ADD COLUMN " + column[0] + " " + column[1]);
+                plugin.getLogger().info("Added new column: " + column[0]);
+            }
+        }
+    }
+
+    /**
+     * Large inventories with custom enchantments (e.g. ExcellentEnchants) do not fit in TEXT.
+     * SQLite does not limit the length of TEXT.
+     */
+    private void widenPayloadColumns(Statement st, DatabaseMetaData meta) throws SQLException {
+        if (!mysql) {
+            return;
+        }
+        Map<String, String> columns = columnTypes(meta);
+        for (String column : new String[] { "inventory", "enderchest", "armor", "offhand", "advancements" }) {
+            if ("TEXT".equalsIgnoreCase(columns.get(column))) {
+                st.executeUpdate("ALTER TABLE " + playerTable + " MODIFY COLUMN " + column + " LONGTEXT");
+                plugin.getLogger().info("Upgraded " + column + " column from TEXT to LONGTEXT");
+            }
+        }
+    }
+
+    /**
+     * Version of the capture a row holds, see SaveVersions
+     */
+    private void addSaveVersionColumn(Statement st, DatabaseMetaData meta) throws SQLException {
+        if (!columnTypes(meta).containsKey("save_version")) {
+            st.executeUpdate("ALTER TABLE " + playerTable + " ADD COLUMN save_version BIGINT NOT NULL DEFAULT 0");
+            plugin.getLogger().info("Added new column: save_version");
+        }
+    }
+
+    /**
+     * Type of every column of the player table, from a single metadata call
+     */
+    private Map<String, String> columnTypes(DatabaseMetaData meta) throws SQLException {
+        Map<String, String> columns = new HashMap<>();
+        try (ResultSet rs = meta.getColumns(null, null, playerTable, null)) {
+            while (rs.next()) {
+                columns.put(rs.getString("COLUMN_NAME").toLowerCase(), rs.getString("TYPE_NAME"));
+            }
+        }
+        return columns;
+    }
+
+    private interface Step {
+        void apply(Statement st, DatabaseMetaData meta) throws SQLException;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
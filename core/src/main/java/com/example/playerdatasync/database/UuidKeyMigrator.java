@@ -0,0 +1,322 @@
+package com.example.playerdatasync.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Converts the uuid key columns of the player, overflow, history and archive tables between text
+ * and binary. Each table is copied into a shadow table in keyset pages and the shadows then replace
+ * the tables in a single rename. Every other server on the database must be stopped first: a server
+ * that is still running keeps binding keys in the old format, which MySQL rejects or truncates and
+ * SQLite stores as duplicate rows. The conversion is refused while other servers are still saving.
+ */
+public class UuidKeyMigrator {
+    private static final String SHADOW_SUFFIX = "_keys";
+    private static final String REPLACED_SUFFIX = "_old_keys";
+    // Saves by another server this recent mean it is still running
+    private static final long ACTIVE_SERVER_WINDOW_MS = 10 * 60_000L;
+    private static final Pattern SQLITE_TABLE = Pattern.compile("^CREATE TABLE\\s+(IF NOT EXISTS\\s+)?[\"`]?\\w+[\"`]?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SQLITE_UUID = Pattern.compile("([\"`]?\\buuid[\"`]?\\s+)(VARCHAR\\s*\\(\\s*36\\s*\\)|BLOB)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final PlayerDataSync plugin;
+    private final String playerTable;
+    private final boolean mysql;
+    private final int batchSize;
+
+    public UuidKeyMigrator(PlayerDataSync plugin, String playerTable) {
+        this.plugin = plugin;
+        this.playerTable = playerTable;
+        this.mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("database.uuid_keys.batch_size", 500));
+    }
+
+    /**
+     * Convert every table whose keys are not in the wanted format
+     *
+     * @return tables converted
+     */
+    public int migrate(Connection connection, boolean binary) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        List<String> pending = new ArrayList<>();
+        for (String table : new String[] { playerTable, playerTable + "_overflow", playerTable + "_history",
+                playerTable + "_archive", playerTable + "_sessions" }) {
+            Boolean current = UuidKeys.detect(meta, table);
+            if (current != null && current != binary) {
+                pending.add(table);
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        if (pending.contains(playerTable)) {
+            checkNoOtherServers(connection);
+        }
+
+        UuidKeys from = new UuidKeys(!binary);
+        UuidKeys to = new UuidKeys(binary);
+        String format = binary ? "binary" : "text";
+        long startTime = System.currentTimeMillis();
+        plugin.getLogger().info("Converting the uuid keys of " + pending.size() + " tables to " + format);
+
+        Map<String, List<String>> indexes = new HashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            String table = pending.get(i);
+            long tableStart = System.currentTimeMillis();
+            indexes.put(table, createShadow(connection, table, to));
+            long rows = copy(connection, table, table + SHADOW_SUFFIX, null, null, from, to);
+            plugin.getLogger().info("[" + (i + 1) + "/" + pending.size() + "] Copied " + rows + " rows of " + table
+                    + " in " + (System.currentTimeMillis() - tableStart) + "ms");
+        }
+
+        swap(connection, pending, indexes);
+        if (mysql) {
+            try (Statement st = connection.createStatement()) {
+                for (String table : pending) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table + REPLACED_SUFFIX);
+                }
+            }
+        }
+
+        plugin.getLogger().info("Converted the uuid keys of " + pending.size() + " tables to " + format + " in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return pending.size();
+    }
+
+    /**
+     * Refuse to convert while another server has saved players recently; it would go on writing keys
+     * in the old format after the swap
+     */
+    private void checkNoOtherServers(Connection connection) throws SQLException {
+        String serverId = plugin.getConfig().getString("server.id", "default");
+        Set<String> active = new LinkedHashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT server_id FROM " + playerTable
+                + " WHERE last_save >= ? AND server_id <> ?")) {
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis() - ACTIVE_SERVER_WINDOW_MS));
+            ps.setString(2, serverId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    active.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            // Installations from before server ids cannot tell; the requirement is still documented
+            plugin.logDebug("Could not check for other servers before converting uuid keys: " + e.getMessage());
+            return;
+        }
+        if (!active.isEmpty()) {
+            throw new SQLException("Servers " + active + " saved players in the last "
+                    + (ACTIVE_SERVER_WINDOW_MS / 60_000L) + " minutes; stop every other server before changing "
+                    + "database.uuid_keys.format");
+        }
+    }
+
+    /**
+     * Create an empty copy of the table with the uuid column in the new format
+     *
+     * @return the index definitions on SQLite, created once the copy has replaced the table
+     */
+    private List<String> createShadow(Connection connection, String table, UuidKeys to) throws SQLException {
+        String shadow = table + SHADOW_SUFFIX;
+        List<String> indexes = new ArrayList<>();
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS " + shadow);
+            if (mysql) {
+                st.executeUpdate("CREATE TABLE " + shadow + " LIKE " + table);
+                st.executeUpdate("ALTER TABLE " + shadow + " MODIFY uuid " + to.columnType(true) + " NOT NULL");
+                return indexes;
+            }
+
+            // SQLite cannot change a column type, so the stored definition is replayed with the new one
+            String tableSql = null;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT type, sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if ("table".equals(rs.getString(1))) {
+                            tableSql = rs.getString(2);
+                        } else {
+                            indexes.add(rs.getString(2));
+                        }
+                    }
+                }
+            }
+            if (tableSql == null) {
+                throw new SQLException("Definition of " + table + " not found");
+            }
+            tableSql = SQLITE_TABLE.matcher(tableSql).replaceFirst("CREATE TABLE " + shadow);
+            st.executeUpdate(SQLITE_UUID.matcher(tableSql).replaceFirst("$1" + to.columnType(false)));
+        }
+        return indexes;
+    }
+
+    /**
+     * Copy the matching rows of the source into the target a page at a time, converting the uuid column
+     *
+     * @return rows copied
+     */
+    private long copy(Connection connection, String source, String target, String filter, Object filterValue,
+                      UuidKeys from, UuidKeys to) throws SQLException {
+        List<String> keyColumns = primaryKey(connection.getMetaData(), source);
+        if (keyColumns.isEmpty()) {
+            throw new SQLException(source + " has no primary key to page over");
+        }
+
+        long rows = 0;
+        Object[] lastKey = null;
+        while (true) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM ").append(source);
+            List<Object> params = new ArrayList<>();
+            List<String> conditions = new ArrayList<>();
+            if (filter != null) {
+                conditions.add(filter);
+                params.add(filterValue);
+            }
+            if (lastKey != null) {
+                conditions.add(keysetCondition(keyColumns, lastKey, params));
+            }
+            if (!conditions.isEmpty()) {
+                sql.append(" WHERE ").append(String.join(" AND ", conditions));
+            }
+            sql.append(" ORDER BY ").append(String.join(", ", keyColumns)).append(" LIMIT ").append(batchSize);
+
+            int count = 0;
+            try (PreparedStatement select = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    select.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = select.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    int columns = meta.getColumnCount();
+                    int uuidColumn = -1;
+                    StringBuilder names = new StringBuilder();
+                    StringBuilder placeholders = new StringBuilder();
+                    for (int i = 1; i <= columns; i++) {
+                        String name = meta.getColumnName(i);
+                        if ("uuid".equalsIgnoreCase(name)) {
+                            uuidColumn = i;
+                        }
+                        names.append(i > 1 ? ", " : "").append(name);
+                        placeholders.append(i > 1 ? ",?" : "?");
+                    }
+
+                    try (PreparedStatement insert = connection.prepareStatement(
+                            "REPLACE INTO " + target + " (" + names + ") VALUES (" + placeholders + ")")) {
+                        while (rs.next()) {
+                            for (int i = 1; i <= columns; i++) {
+                                if (i == uuidColumn) {
+                                    to.bind(insert, i, from.read(rs, i));
+                                } else {
+                                    insert.setObject(i, rs.getObject(i));
+                                }
+                            }
+                            insert.addBatch();
+                            lastKey = new Object[keyColumns.size()];
+                            for (int k = 0; k < keyColumns.size(); k++) {
+                                lastKey[k] = rs.getObject(keyColumns.get(k));
+                            }
+                            count++;
+                        }
+                        if (count > 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                }
+            }
+            rows += count;
+            if (count < batchSize) {
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * Replace every converted table with its shadow in one step
+     */
+    private void swap(Connection connection, List<String> pending, Map<String, List<String>> indexes) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            if (mysql) {
+                // A single RENAME TABLE is atomic across all the tables it names
+                StringBuilder rename = new StringBuilder("RENAME TABLE ");
+                for (String table : pending) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table + REPLACED_SUFFIX);
+                    if (rename.length() > "RENAME TABLE ".length()) {
+                        rename.append(", ");
+                    }
+                    rename.append(table).append(" TO ").append(table).append(REPLACED_SUFFIX).append(", ")
+                            .append(table).append(SHADOW_SUFFIX).append(" TO ").append(table);
+                }
+                st.executeUpdate(rename.toString());
+                return;
+            }
+
+            // SQLite renames are transactional; the indexes went with the old table and are created again
+            connection.setAutoCommit(false);
+            try {
+                for (String table : pending) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table + REPLACED_SUFFIX);
+                    st.executeUpdate("ALTER TABLE " + table + " RENAME TO " + table + REPLACED_SUFFIX);
+                    st.executeUpdate("ALTER TABLE " + table + SHADOW_SUFFIX + " RENAME TO " + table);
+                    st.executeUpdate("DROP TABLE " + table + REPLACED_SUFFIX);
+                    for (String index : indexes.get(table)) {
+                        st.executeUpdate(index);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static List<String> primaryKey(DatabaseMetaData meta, String table) throws SQLException {
+        TreeMap<Short, String> keys = new TreeMap<>();
+        try (ResultSet rs = meta.getPrimaryKeys(null, null, table)) {
+            while (rs.next()) {
+                keys.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(keys.values());
+    }
+
+    /**
+     * Rows whose key sorts after the given one, e.g. (a > ? OR (a = ? AND b > ?)) for a two column key
+     */
+    private static String keysetCondition(List<String> keys, Object[] lastKey, List<Object> params) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(keys.get(j)).append(" = ? AND ");
+                params.add(lastKey[j]);
+            }
+            condition.append(keys.get(i)).append(" > ?)");
+            params.add(lastKey[i]);
+        }
+        return condition.append(")").toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.playerdatasync.database;
+
+import java.nio.ByteBuffer;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * How player UUIDs are kept in key columns: as 36 characters of text, or as their 16 bytes
+ * (BINARY(16) on MySQL, a blob on SQLite). Binary keys are less than half the size in the
+ * primary key and in every secondary index entry that carries it, compare as plain bytes and
+ * are bound without building a string. The format follows the tables as found at startup and is
+ * not checked again, so every server on the database must be stopped while it is converted.
+ */
+public class UuidKeys {
+    private static final byte[] MIN_BINARY = new byte[0];
+
+    private volatile boolean binary;
+
+    public UuidKeys() {
+    }
+
+    public UuidKeys(boolean binary) {
+        this.binary = binary;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Column type of uuid key columns in the given format
+     */
+    public static String columnType(boolean binary, boolean mysql) {
+        if (!binary) {
+            return "VARCHAR(36)";
+        }
+        return mysql ? "BINARY(16)" : "BLOB";
+    }
+
+    public String columnType(boolean mysql) {
+        return columnType(binary, mysql);
+    }
+
+    public void bind(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        if (binary) {
+            ps.setBytes(index, toBytes(uuid));
+        } else {
+            ps.setString(index, uuid.toString());
+        }
+    }
+
+    /**
+     * Bind the key a keyset scan continues after; null starts before the first key
+     */
+    public void bindAfter(PreparedStatement ps, int index, UUID after) throws SQLException {
+        if (after != null) {
+            bind(ps, index, after);
+        } else if (binary) {
+            ps.setBytes(index, MIN_BINARY);
+        } else {
+            ps.setString(index, "");
+        }
+    }
+
+    public UUID read(ResultSet rs, int column) throws SQLException {
+        if (binary) {
+            byte[] bytes = rs.getBytes(column);
+            return bytes != null ? fromBytes(bytes) : null;
+        }
+        String text = rs.getString(column);
+        return text != null ? UUID.fromString(text) : null;
+    }
+
+    /**
+     * A uuid value read in either format, converted to this one; other values are returned unchanged
+     */
+    public Object convert(Object value) {
+        if (binary && value instanceof String) {
+            try {
+                return toBytes(UUID.fromString((String) value));
+            } catch (IllegalArgumentException e) {
+                return value;
+            }
+        }
+        if (!binary && value instanceof byte[] && ((byte[]) value).length == 16) {
+            return fromBytes((byte[]) value).toString();
+        }
+        return value;
+    }
+
+    /**
+     * A uuid column value as text in either format, for backups that must restore into both
+     */
+    public static String text(ResultSet rs, int column, int sqlType) throws SQLException {
+        switch (sqlType) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                byte[] bytes = rs.getBytes(column);
+                return bytes != null ? fromBytes(bytes).toString() : null;
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("UUID key has " + bytes.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Format of the uuid column of an existing table
+     *
+     * @return null if the table does not exist
+     */
+    public static Boolean detect(DatabaseMetaData meta, String table) throws SQLException {
+        try (ResultSet rs = meta.getColumns(null, null, table, "uuid")) {
+            if (!rs.next()) {
+                return null;
+            }
+            String type = rs.getString("TYPE_NAME").toUpperCase();
+            return type.contains("BINARY") || type.contains("BLOB");
+        }
+    }
+}
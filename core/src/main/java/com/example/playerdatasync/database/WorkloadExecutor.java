@@ -0,0 +1,109 @@
+package com.example.playerdatasync.database;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded executor for a single {@link WorkloadType} with queue-depth and wait-time metrics.
+ * Tasks run with the workload marked on their thread so the connection pool can apply quotas.
+ * The backing threads come from {@link WorkloadThreads}, which uses virtual threads on Java 21+.
+ */
+public class WorkloadExecutor implements Executor {
+    private final WorkloadType type;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final int concurrency;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
+    public WorkloadExecutor(WorkloadType type, int concurrency, int queueCapacity, Logger logger) {
+        this.type = type;
+        this.logger = logger;
+        this.concurrency = Math.max(1, concurrency);
+        this.executor = WorkloadThreads.newExecutor(type, this.concurrency, Math.max(1, queueCapacity));
+    }
+
+    /**
+     * @throws RejectedExecutionException when the queue is full or the executor is shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        submitted.incrementAndGet();
+        queued.incrementAndGet();
+        long enqueuedAt = System.currentTimeMillis();
+        try {
+            executor.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                long waited = System.currentTimeMillis() - enqueuedAt;
+                totalWaitMs.addAndGet(waited);
+                maxWaitMs.accumulateAndGet(waited, Math::max);
+
+                WorkloadType previous = WorkloadType.current();
+                WorkloadType.setCurrent(type);
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Unhandled error in " + type.getConfigKey() + " task", e);
+                } finally {
+                    WorkloadType.setCurrent(previous);
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public WorkloadType getType() {
+        return type;
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public void shutdown(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getStats() {
+        long done = completed.get();
+        return String.format("%s (%s x%d): %d queued, %d active, avg wait %.1fms, max wait %dms, %d done, %d rejected",
+            type.getConfigKey(), WorkloadThreads.isVirtual() ? "virtual" : "platform", concurrency,
+            queued.get(), active.get(),
+            done > 0 ? (double) totalWaitMs.get() / done : 0.0, maxWaitMs.get(), done, rejected.get());
+    }
+
+    public void resetStats() {
+        submitted.set(0);
+        completed.set(0);
+        rejected.set(0);
+        totalWaitMs.set(0);
+        maxWaitMs.set(0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.playerdatasync.database;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+
+/**
+ * Owns one bounded {@link WorkloadExecutor} per {@link WorkloadType} so that bulk
+ * work such as backups cannot starve join loads.
+ */
+public class WorkloadExecutors {
+    private final Map<WorkloadType, WorkloadExecutor> executors = new EnumMap<>(WorkloadType.class);
+
+    public WorkloadExecutors(PlayerDataSync plugin) {
+        // Virtual threads are cheap, so concurrency is bounded by what the database can serve instead
+        int poolSize = plugin.getConnectionPool() != null ? plugin.getConnectionPool().getMaxConnections() : 1;
+
+        for (WorkloadType type : WorkloadType.values()) {
+            String path = "performance.executors." + type.getConfigKey();
+            int threads = plugin.getConfig().getInt(path + ".threads", type.getDefaultThreads());
+            int queue = plugin.getConfig().getInt(path + ".queue", type.getDefaultQueueCapacity());
+            int concurrency = WorkloadThreads.isVirtual() && type.scalesWithPool() ? Math.max(threads, poolSize) : threads;
+            executors.put(type, new WorkloadExecutor(type, concurrency, queue, plugin.getLogger()));
+        }
+
+        if (WorkloadThreads.isVirtual()) {
+            plugin.getLogger().info("Database workloads run on virtual threads (up to " + poolSize + " concurrent per workload, backups keep their configured threads)");
+        }
+    }
+
+    public WorkloadExecutor get(WorkloadType type) {
+        return executors.get(type);
+    }
+
+    /**
+     * Run work on the executor of the given workload. When that executor is saturated the
+     * returned future fails with the rejection, so the bound holds; during shutdown it runs inline.
+     */
+    public static <T> CompletableFuture<T> supply(PlayerDataSync plugin, WorkloadType type, Supplier<T> work) {
+        WorkloadExecutors executors = plugin.getWorkloadExecutors();
+        if (executors == null) {
+            try {
+                return CompletableFuture.completedFuture(work.get());
+            } catch (RuntimeException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                return failed;
+            }
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(work, executors.get(type));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("The " + type.getConfigKey() + " executor is saturated, rejected its task");
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    public void shutdown() {
+        for (WorkloadExecutor executor : executors.values()) {
+            executor.shutdown(5000L);
+        }
+    }
+
+    public String getStats() {
+        StringBuilder builder = new StringBuilder("Executors:");
+        for (WorkloadExecutor executor : executors.values()) {
+            builder.append(" | ").append(executor.getStats());
+        }
+        return builder.toString();
+    }
+
+    public void resetStats() {
+        for (WorkloadExecutor executor : executors.values()) {
+            executor.resetStats();
+        }
+    }
+}
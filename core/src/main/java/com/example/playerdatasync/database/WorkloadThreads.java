@@ -0,0 +1,42 @@
+package com.example.playerdatasync.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads behind a {@link WorkloadExecutor}.
+ * This is the platform-thread variant; the jar ships a Java 21 variant under
+ * META-INF/versions/21 that runs workloads on virtual threads instead.
+ */
+final class WorkloadThreads {
+    private WorkloadThreads() {
+    }
+
+    static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @param concurrency   maximum number of tasks running at once
+     * @param queueCapacity maximum number of tasks waiting for a thread
+     */
+    static ExecutorService newExecutor(WorkloadType type, int concurrency, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, threadPrefix(type) + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static String threadPrefix(WorkloadType type) {
+        String key = type.getConfigKey();
+        return "PlayerDataSync-" + key.substring(0, 1).toUpperCase() + key.substring(1) + "-";
+    }
+}
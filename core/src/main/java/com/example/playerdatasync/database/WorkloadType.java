@@ -0,0 +1,64 @@
+package com.example.playerdatasync.database;
+
+/**
+ * Workload classes that get their own executor and connection quota.
+ */
+public enum WorkloadType {
+    /** Join loads - latency critical, may use the reserved pool slots. */
+    LOAD("load", 4, 1000, true),
+    /** Queued player saves. */
+    SAVE("save", 2, 2000, true),
+    /** Bulk backup and export jobs; run with exactly the configured threads. */
+    BACKUP("backup", 1, 4, false),
+    /** Inventory viewer lookups and edits of offline players. */
+    LOOKUP("lookup", 2, 100, true);
+
+    private static final ThreadLocal<WorkloadType> CURRENT = new ThreadLocal<>();
+
+    private final String configKey;
+    private final int defaultThreads;
+    private final int defaultQueueCapacity;
+    private final boolean scalesWithPool;
+
+    WorkloadType(String configKey, int defaultThreads, int defaultQueueCapacity, boolean scalesWithPool) {
+        this.configKey = configKey;
+        this.defaultThreads = defaultThreads;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+        this.scalesWithPool = scalesWithPool;
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    public int getDefaultThreads() {
+        return defaultThreads;
+    }
+
+    public int getDefaultQueueCapacity() {
+        return defaultQueueCapacity;
+    }
+
+    /**
+     * Whether the workload may run as many tasks as the connection pool serves on virtual threads.
+     * Backups are not raised: a single backup thread keeps backup jobs from running concurrently.
+     */
+    public boolean scalesWithPool() {
+        return scalesWithPool;
+    }
+
+    /**
+     * Workload of the task running on the current thread, or null outside the workload executors.
+     */
+    public static WorkloadType current() {
+        return CURRENT.get();
+    }
+
+    static void setCurrent(WorkloadType type) {
+        if (type == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(type);
+        }
+    }
+}
@@ -23,9 +23,12 @@ import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.example.playerdatasync.core.PlayerDataSync;
 import com.example.playerdatasync.database.DatabaseManager;
+import com.example.playerdatasync.database.WorkloadExecutors;
+import com.example.playerdatasync.database.WorkloadType;
 import com.example.playerdatasync.managers.MessageManager;
 import com.example.playerdatasync.utils.OfflinePlayerData;
 import com.example.playerdatasync.utils.SchedulerUtils;
@@ -165,13 +168,9 @@ public class InventoryViewerIntegrationManager implements Listener {
         viewer.sendMessage(messageManager.get("prefix") + " "
             + messageManager.get("inventory_view_loading").replace("{player}", displayName));
 
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            OfflinePlayerData data;
-            try {
-                data = databaseManager.loadOfflinePlayerData(targetUuid, displayName);
-            } catch (Exception ex) {
-                plugin.getLogger().severe("Failed to load offline data for " + displayName + ": " + ex.getMessage());
-                data = null;
+        databaseManager.loadOfflinePlayerDataAsync(targetUuid, displayName).whenComplete((data, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Failed to load offline data for " + displayName + ": " + error.getMessage());
             }
 
             if (data == null) {
@@ -185,21 +184,20 @@ public class InventoryViewerIntegrationManager implements Listener {
                 return;
             }
 
-            OfflinePlayerData finalData = data;
             SchedulerUtils.runTask(plugin, viewer, () -> {
                 if (!viewer.isOnline()) {
                     return;
                 }
 
-                if (!finalData.existsInDatabase()) {
+                if (!data.existsInDatabase()) {
                     viewer.sendMessage(messageManager.get("prefix") + " "
-                        + messageManager.get("inventory_view_no_data").replace("{player}", finalData.getDisplayName()));
+                        + messageManager.get("inventory_view_no_data").replace("{player}", data.getDisplayName()));
                 }
 
                 if (enderChest) {
-                    openEnderChestInventory(viewer, finalData);
+                    openEnderChestInventory(viewer, data);
                 } else {
-                    openMainInventory(viewer, finalData);
+                    openMainInventory(viewer, data);
                 }
             });
         });
@@ -296,7 +294,7 @@ public class InventoryViewerIntegrationManager implements Listener {
         if (holder.isEnderChest()) {
             ItemStack[] contents = Arrays.copyOf(inventory.getContents(), inventory.getSize());
             data.setEnderChestContents(contents);
-            SchedulerUtils.runTaskAsync(plugin, () -> {
+            runLookup(() -> {
                 boolean success = databaseManager.saveOfflineEnderChestData(data);
                 if (!success) {
                     notifySaveFailure(viewerId, data.getDisplayName());
@@ -319,7 +317,7 @@ public class InventoryViewerIntegrationManager implements Listener {
             data.setArmorContents(armor);
             data.setOffhandItem(offhand);
 
-            SchedulerUtils.runTaskAsync(plugin, () -> {
+            runLookup(() -> {
                 boolean success = databaseManager.saveOfflineInventoryData(data);
                 if (!success) {
                     notifySaveFailure(viewerId, data.getDisplayName());
@@ -328,6 +326,23 @@ public class InventoryViewerIntegrationManager implements Listener {
         }
     }
 
+    /**
+     * Offline lookups and edits run on their own executor so they never compete with join loads.
+     */
+    private void runLookup(Runnable task) {
+        WorkloadExecutors executors = plugin.getWorkloadExecutors();
+        if (executors == null) {
+            SchedulerUtils.runTaskAsync(plugin, task);
+            return;
+        }
+        try {
+            executors.get(WorkloadType.LOOKUP).execute(task);
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("Inventory viewer executor is saturated, running lookup on the shared scheduler");
+            SchedulerUtils.runTaskAsync(plugin, task);
+        }
+    }
+
     private void notifySaveFailure(UUID viewerId, String playerName) {
         Player viewer = Bukkit.getPlayer(viewerId);
         if (viewer != null) {
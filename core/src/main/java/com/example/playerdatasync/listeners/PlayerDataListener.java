@@ -1,5 +1,8 @@
 package com.example.playerdatasync.listeners;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -13,25 +16,23 @@ import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerExpChangeEvent;
 import org.bukkit.event.player.PlayerLevelChangeEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerStatisticIncrementEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.enchantment.EnchantItemEvent;
 
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import com.example.playerdatasync.core.PlayerDataSync;
 import com.example.playerdatasync.database.DatabaseManager;
+import com.example.playerdatasync.database.SavePriority;
 import com.example.playerdatasync.nms.NMSHandler;
 import com.example.playerdatasync.managers.MessageManager;
+import com.example.playerdatasync.utils.InventoryUtils;
 import com.example.playerdatasync.utils.SchedulerUtils;
 
 public class PlayerDataListener implements Listener {
     private final PlayerDataSync plugin;
     private final DatabaseManager dbManager;
     private final MessageManager messageManager;
-    private final Map<UUID, Long> lastXpSaveTime = new ConcurrentHashMap<UUID, Long>();
-    private static final long XP_SAVE_DEBOUNCE_MS = 250L;
 
     public PlayerDataListener(PlayerDataSync plugin, DatabaseManager dbManager) {
         this.plugin = plugin;
@@ -51,28 +52,32 @@ public class PlayerDataListener implements Listener {
             player.sendMessage(messageManager.get("prefix") + " " + messageManager.get("loading"));
         }
 
-        // Load data almost immediately after join to minimize empty inventories during server switches
-        SchedulerUtils.runTaskLaterAsync(plugin, () -> {
-            try {
-                long start = System.currentTimeMillis();
-                dbManager.loadPlayer(player);
+        // Load data immediately after join to minimize empty inventories during server switches
+        long start = System.currentTimeMillis();
+        // A save still queued from an earlier visit to this server must land before the load
+        plugin.getSaveQueue().whenWritten(player.getUniqueId())
+            .handle((saved, error) -> null)
+            .thenCompose(ignored -> dbManager.loadAsync(player))
+            .whenComplete((state, error) -> {
                 plugin.getProfileManager().record("PlayerJoin-Load", System.currentTimeMillis() - start);
-                
-                if (player.isOnline() && plugin.getConfigManager() != null 
-                    && plugin.getConfigManager().shouldShowSyncMessages() 
-                    && player.hasPermission("playerdatasync.message.show.loaded")) {
-                    SchedulerUtils.runTask(plugin, player, () ->
-                        player.sendMessage(messageManager.get("prefix") + " " + messageManager.get("loaded")));
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    plugin.getLogger().severe("Error loading data for " + player.getName() + ": " + cause.getMessage());
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", cause);
+                }
+                if (!player.isOnline() || plugin.getConfigManager() == null
+                    || !plugin.getConfigManager().shouldShowSyncMessages()) {
+                    return;
                 }
-            } catch (Exception e) {
-                plugin.getLogger().severe("Error loading data for " + player.getName() + ": " + e.getMessage());
-                if (player.isOnline() && plugin.getConfigManager() != null 
-                    && plugin.getConfigManager().shouldShowSyncMessages()) {
+
+                if (error != null) {
                     SchedulerUtils.runTask(plugin, player, () ->
                         player.sendMessage(messageManager.get("prefix") + " " + messageManager.get("load_failed")));
+                } else if (player.hasPermission("playerdatasync.message.show.loaded")) {
+                    SchedulerUtils.runTask(plugin, player, () ->
+                        player.sendMessage(messageManager.get("prefix") + " " + messageManager.get("loaded")));
                 }
-            }
-        }, 1L);
+            });
 
         if (plugin.getNmsHandler() != null) {
             SchedulerUtils.runTaskLater(plugin, player, () -> plugin.getNmsHandler().handlePlayerJoinAdvancements(player), 2L);
@@ -83,27 +88,24 @@ public class PlayerDataListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent event) {
         if (plugin.isMaintenanceMode()) return;
         Player player = event.getPlayer();
-        lastXpSaveTime.remove(player.getUniqueId());
+        if (plugin.getExperienceSaveBatcher() != null) {
+            plugin.getExperienceSaveBatcher().discard(player.getUniqueId());
+        }
         
-        // Save data synchronously so the database is updated before the player
-        // joins another server. Using an async task here can lead to race
-        // conditions when switching servers quickly via BungeeCord or similar
-        // proxies, causing recent changes not to be stored in time.
-        try {
-            long startTime = System.currentTimeMillis();
-            boolean saved = dbManager.savePlayer(player);
-            long endTime = System.currentTimeMillis();
-            plugin.getProfileManager().record("PlayerQuit-Save", endTime - startTime);
-
-            // Log slow saves for performance monitoring
-            if (saved && endTime - startTime > 1000) { // More than 1 second
-                plugin.getLogger().warning("Slow save detected for " + player.getName() +
-                    ": " + (endTime - startTime) + "ms");
-            }
-
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to save data for " + player.getName() + ": " + e.getMessage());
-            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+        // The write jumps ahead of any queued autosaves. The player's session here ends once it
+        // commits, and a server they switch to through BungeeCord or similar proxies waits for that
+        // before loading them, so nothing has to wait for it here.
+        queueSave(player, SavePriority.DISCONNECT, true, "PlayerQuit-Save");
+        // Captured above; the server they join next counts on from the stored version
+        plugin.getSaveVersions().forget(player.getUniqueId());
+        if (InventoryUtils.getSerializationCache() != null) {
+            InventoryUtils.getSerializationCache().invalidate(player.getUniqueId());
+        }
+        if (plugin.getStatisticsTracker() != null) {
+            plugin.getStatisticsTracker().forget(player.getUniqueId());
+        }
+        if (plugin.getAdvancementImporter() != null) {
+            plugin.getAdvancementImporter().cancel(player.getUniqueId());
         }
 
         if (plugin.getNmsHandler() != null) {
@@ -118,14 +120,17 @@ public class PlayerDataListener implements Listener {
         Player player = event.getPlayer();
         
         // Save player data asynchronously when changing worlds
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            try {
-                dbManager.savePlayer(player);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to save data for " + player.getName() + 
-                    " on world change: " + e.getMessage());
-            }
-        });
+        queueSave(player, SavePriority.STATE_CHANGE, null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStatisticIncrement(PlayerStatisticIncrementEvent event) {
+        if (!plugin.isSyncStatistics() || plugin.getStatisticsTracker() == null) {
+            return;
+        }
+
+        plugin.getStatisticsTracker().record(event.getPlayer(), event.getStatistic(), event.getMaterial(),
+            event.getEntityType(), event.getNewValue());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -161,15 +166,8 @@ public class PlayerDataListener implements Listener {
         // Save player data BEFORE death effects are cleared
         // This ensures potion effects are saved, but they won't be restored on respawn
         // because Minecraft clears them on death
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            try {
-                // Capture data before death clears effects
-                dbManager.savePlayer(player);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to save data for " + player.getName() + 
-                    " on death: " + e.getMessage());
-            }
-        });
+        // Capture data before death clears effects
+        queueSave(player, SavePriority.STATE_CHANGE, null);
         
         // Schedule a delayed save after respawn to ensure death state is saved
         // This prevents potion effects from being restored after death
@@ -191,17 +189,7 @@ public class PlayerDataListener implements Listener {
         
         plugin.logDebug("Player " + player.getName() + " was kicked, saving data");
         
-        try {
-            long startTime = System.currentTimeMillis();
-            dbManager.savePlayer(player);
-            long endTime = System.currentTimeMillis();
-            
-            plugin.logDebug("Saved data for kicked player " + player.getName() + 
-                " in " + (endTime - startTime) + "ms");
-            
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to save data for kicked player " + player.getName() + ": " + e.getMessage());
-        }
+        queueSave(player, SavePriority.DISCONNECT, "PlayerKick-Save");
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -217,17 +205,7 @@ public class PlayerDataListener implements Listener {
                     plugin.logDebug("Player " + player.getName() + " teleported via plugin, saving data");
                 
                 // Save data before teleport
-                try {
-                    long startTime = System.currentTimeMillis();
-                    dbManager.savePlayer(player);
-                    long endTime = System.currentTimeMillis();
-                    
-                    plugin.logDebug("Saved data for teleporting player " + player.getName() + 
-                        " in " + (endTime - startTime) + "ms");
-                    
-                } catch (Exception e) {
-                    plugin.getLogger().severe("Failed to save data for teleporting player " + player.getName() + ": " + e.getMessage());
-                }
+                queueSave(player, SavePriority.DISCONNECT, null);
             }
         }
     }
@@ -262,26 +240,25 @@ public class PlayerDataListener implements Listener {
         
         // Save player data before transferring
         plugin.logDebug("Saving data for " + player.getName() + " before respawn to lobby");
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            try {
-                boolean saved = dbManager.savePlayer(player);
-                if (saved) {
-                    plugin.logDebug("Data saved for " + player.getName() + " before respawn to lobby");
-                } else {
-                    plugin.getLogger().warning("Failed to save data for " + player.getName() + " before respawn to lobby");
-                }
-                
-                // Transfer player to lobby server after save completes
-                SchedulerUtils.runTask(plugin, player, () -> {
-                    if (player.isOnline()) {
-                        plugin.getLogger().info("Transferring " + player.getName() + " to lobby server '" + lobbyServer + "' after respawn");
-                        plugin.connectPlayerToServer(player, lobbyServer);
-                    }
-                });
-            } catch (Exception e) {
-                plugin.getLogger().severe("Error saving data for " + player.getName() + " before respawn to lobby: " + e.getMessage());
-                plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", e);
+        plugin.getSaveQueue().submit(player, SavePriority.DISCONNECT).whenComplete((saved, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Error saving data for " + player.getName() + " before respawn to lobby: " + error.getMessage());
+                plugin.getLogger().log(java.util.logging.Level.SEVERE, "Stack trace:", error);
+                return;
+            }
+            if (saved) {
+                plugin.logDebug("Data saved for " + player.getName() + " before respawn to lobby");
+            } else {
+                plugin.getLogger().warning("Failed to save data for " + player.getName() + " before respawn to lobby");
             }
+
+            // Transfer player to lobby server after save completes
+            SchedulerUtils.runTask(plugin, player, () -> {
+                if (player.isOnline()) {
+                    plugin.getLogger().info("Transferring " + player.getName() + " to lobby server '" + lobbyServer + "' after respawn");
+                    plugin.connectPlayerToServer(player, lobbyServer);
+                }
+            });
         });
     }
 
@@ -290,18 +267,29 @@ public class PlayerDataListener implements Listener {
             return;
         }
 
-        long now = System.currentTimeMillis();
-        Long lastSave = lastXpSaveTime.get(player.getUniqueId());
-        if (lastSave != null && now - lastSave < XP_SAVE_DEBOUNCE_MS) {
-            return;
+        // XP-only changes are written as batched field-scoped updates instead of full saves
+        if (plugin.getExperienceSaveBatcher() != null) {
+            plugin.getExperienceSaveBatcher().markDirty(player);
         }
+    }
 
-        lastXpSaveTime.put(player.getUniqueId(), now);
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            try {
-                dbManager.savePlayer(player);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed immediate XP autosave for " + player.getName() + ": " + e.getMessage());
+    private void queueSave(Player player, SavePriority priority, String profileName) {
+        queueSave(player, priority, false, profileName);
+    }
+
+    private void queueSave(Player player, SavePriority priority, boolean quit, String profileName) {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Boolean> future = quit
+            ? plugin.getSaveQueue().submitQuit(player)
+            : plugin.getSaveQueue().submit(player, priority);
+        future.whenComplete((saved, error) -> {
+            if (error != null || !Boolean.TRUE.equals(saved)) {
+                plugin.getLogger().warning("Failed to save data for " + player.getName() + " ("
+                    + priority.getConfigKey() + ")" + (error != null ? ": " + error.getMessage() : ""));
+                return;
+            }
+            if (profileName != null) {
+                plugin.getProfileManager().record(profileName, System.currentTimeMillis() - startTime);
             }
         });
     }
@@ -10,6 +10,7 @@ import org.bukkit.inventory.ItemStack;
 
 import com.example.playerdatasync.core.PlayerDataSync;
 import com.example.playerdatasync.database.DatabaseManager;
+import com.example.playerdatasync.database.SavePriority;
 import com.example.playerdatasync.managers.MessageManager;
 import com.example.playerdatasync.utils.SchedulerUtils;
 
@@ -70,8 +71,8 @@ public class ServerSwitchListener implements Listener {
             player.sendMessage(messageManager.get("prefix") + " " + messageManager.get("server_switch_save"));
         }
 
-        SchedulerUtils.runTaskAsync(plugin, () -> {
-            boolean saveSuccessful = databaseManager.savePlayer(player);
+        plugin.getSaveQueue().submit(player, SavePriority.DISCONNECT).whenComplete((saved, error) -> {
+            boolean saveSuccessful = error == null && Boolean.TRUE.equals(saved);
 
             SchedulerUtils.runTask(plugin, player, () -> {
                 if (!player.isOnline()) {
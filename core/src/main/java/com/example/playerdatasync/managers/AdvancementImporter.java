@@ -0,0 +1,137 @@
+package com.example.playerdatasync.managers;
+
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.nms.AdvancementImport;
+import com.example.playerdatasync.nms.NMSHandler;
+import com.example.playerdatasync.utils.SchedulerUtils;
+
+/**
+ * Applies stored advancements to joining players in bounded slices, one batch per tick on the
+ * player's thread, so a veteran player with thousands of advancements does not stall a tick.
+ * Decoding happens on the calling thread before the first slice is scheduled.
+ */
+public class AdvancementImporter {
+    private final PlayerDataSync plugin;
+    private final int batchSize;
+    private final long maxSliceNanos;
+    private final ConcurrentHashMap<UUID, AdvancementImport> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong slices = new AtomicLong();
+    private final AtomicLong totalSliceNanos = new AtomicLong();
+    private final AtomicLong maxSliceNanosSeen = new AtomicLong();
+
+    public AdvancementImporter(PlayerDataSync plugin) {
+        this.plugin = plugin;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("performance.player_advancement_import_batch_size", 150));
+        this.maxSliceNanos = Math.max(1, plugin.getConfig().getLong("performance.advancement_import_max_tick_ms", 5)) * 1000000L;
+    }
+
+    /**
+     * Start applying stored advancement data to the player, replacing an import still running for them
+     */
+    public void queue(Player player, String data) {
+        NMSHandler handler = plugin.getNmsHandler();
+        if (handler == null || data == null || data.isEmpty()) {
+            return;
+        }
+
+        AdvancementImport job;
+        try {
+            job = handler.prepareAdvancementImport(player, data);
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error loading achievements for " + player.getName() + ": " + e.getMessage());
+            return;
+        }
+        if (job == null) {
+            return;
+        }
+
+        if (jobs.put(player.getUniqueId(), job) != null) {
+            cancelled.incrementAndGet();
+        }
+        started.incrementAndGet();
+        SchedulerUtils.runTask(plugin, player, () -> runSlice(player, job));
+    }
+
+    private void runSlice(Player player, AdvancementImport job) {
+        UUID uuid = player.getUniqueId();
+        if (jobs.get(uuid) != job) {
+            // Replaced by a newer import or cancelled on quit
+            return;
+        }
+        if (!player.isOnline()) {
+            if (jobs.remove(uuid, job)) {
+                cancelled.incrementAndGet();
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        int before = job.getApplied();
+        boolean finished;
+        try {
+            finished = job.step(batchSize, start + maxSliceNanos);
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error loading achievements for " + player.getName() + ": " + e.getMessage());
+            jobs.remove(uuid, job);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        slices.incrementAndGet();
+        totalSliceNanos.addAndGet(elapsed);
+        maxSliceNanosSeen.accumulateAndGet(elapsed, Math::max);
+        applied.addAndGet(job.getApplied() - before);
+
+        if (finished) {
+            jobs.remove(uuid, job);
+            completed.incrementAndGet();
+            if (job.getTotal() > batchSize) {
+                plugin.logDebug("Applied " + job.getTotal() + " advancements to " + player.getName() + " in slices");
+            }
+        } else {
+            SchedulerUtils.runTaskLater(plugin, player, () -> runSlice(player, job), 1L);
+        }
+    }
+
+    public void cancel(UUID uuid) {
+        if (jobs.remove(uuid) != null) {
+            cancelled.incrementAndGet();
+        }
+    }
+
+    public boolean isImporting(UUID uuid) {
+        return jobs.containsKey(uuid);
+    }
+
+    public String getStats() {
+        long sliceCount = slices.get();
+        String stats = String.format("Advancement importer: %d active, %d started, %d completed, %d cancelled, " +
+                "%d advancements in %d slices, avg slice %.2fms, max slice %.2fms",
+                jobs.size(), started.get(), completed.get(), cancelled.get(), applied.get(), sliceCount,
+                sliceCount > 0 ? totalSliceNanos.get() / (double) sliceCount / 1000000.0 : 0.0,
+                maxSliceNanosSeen.get() / 1000000.0);
+        NMSHandler handler = plugin.getNmsHandler();
+        String indexStats = handler != null ? handler.getAdvancementIndexStats() : null;
+        return indexStats != null ? stats + " | " + indexStats : stats;
+    }
+
+    public void resetStats() {
+        started.set(0);
+        completed.set(0);
+        cancelled.set(0);
+        applied.set(0);
+        slices.set(0);
+        totalSliceNanos.set(0);
+        maxSliceNanosSeen.set(0);
+    }
+}
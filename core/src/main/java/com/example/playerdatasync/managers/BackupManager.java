@@ -1,18 +1,28 @@
 package com.example.playerdatasync.managers;
 
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.database.UuidKeys;
+import com.example.playerdatasync.database.WorkloadExecutors;
+import com.example.playerdatasync.database.WorkloadType;
 import com.example.playerdatasync.utils.SchedulerUtils;
 
 /**
@@ -23,6 +33,7 @@ public class BackupManager {
     private final PlayerDataSync plugin;
     private BukkitTask backupTask;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
+    private static final int DUMP_BUFFER_SIZE = 64 * 1024;
     
     public BackupManager(PlayerDataSync plugin) {
         this.plugin = plugin;
@@ -66,125 +77,547 @@ public class BackupManager {
     }
     
     /**
-     * Create a backup with specified type
+     * Create a backup with specified type. Automatic and "incremental" backups only export rows
+     * saved since the previous backup when a chain to a full backup can be continued.
      */
     public CompletableFuture<BackupResult> createBackup(String type) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supplyOnBackupExecutor(() -> {
             try {
                 String timestamp = dateFormat.format(new java.util.Date());
-                String backupName = "backup_" + type + "_" + timestamp;
                 File backupDir = new File(plugin.getDataFolder(), "backups");
                 
                 if (!backupDir.exists()) {
                     backupDir.mkdirs();
                 }
                 
+                BackupManifest parent = ("automatic".equals(type) || "incremental".equals(type)) ? findChainParent(backupDir) : null;
+                String backupName = "backup_" + type + (parent != null ? "_incremental_" : "_") + timestamp;
                 File backupFile = new File(backupDir, backupName + ".zip");
+                long start = System.currentTimeMillis();
+                // Rows saved from here on are picked up by the next incremental backup
+                BackupManifest manifest = parent != null
+                    ? BackupManifest.incremental(backupFile.getName(), parent, start)
+                    : BackupManifest.full(backupFile.getName(), start);
+                long since = parent != null ? parent.getWatermark() - getWatermarkOverlapMillis() : -1;
+                long rows;
                 
                 // Create backup
-                try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(backupFile))) {
+                try (ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(backupFile)))) {
                     // Backup database
-                    backupDatabase(zipOut, backupName);
+                    rows = backupDatabase(zipOut, backupDir, backupName, since);
                     
                     // Backup configuration
                     backupConfiguration(zipOut, backupName);
                     
                     // Backup logs
                     backupLogs(zipOut, backupName);
+
+                    // Written last, so an interrupted backup is never taken for a chain member
+                    manifest.setRows(rows);
+                    zipOut.putNextEntry(new ZipEntry(backupName + "/" + BackupManifest.ENTRY));
+                    zipOut.write(manifest.toYaml().getBytes(StandardCharsets.UTF_8));
+                    zipOut.closeEntry();
                 }
                 
                 // Clean old backups
                 cleanOldBackups();
                 
-                plugin.getLogger().info("Backup created: " + backupFile.getName());
-                return new BackupResult(true, backupFile.getName(), backupFile.length());
+                BackupResult result = new BackupResult(true, backupFile.getName(), backupFile.length(),
+                    rows, System.currentTimeMillis() - start);
+                plugin.getLogger().info(String.format("Backup created: %s (%s, %d rows, %.0f rows/s)",
+                    backupFile.getName(), parent != null ? "incremental on " + manifest.getBase() : "full",
+                    rows, result.getRowsPerSecond()));
+                return result;
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Backup creation failed: " + e.getMessage());
                 return new BackupResult(false, null, 0);
             }
-        });
+        }, new BackupResult(false, null, 0));
+    }
+
+    /**
+     * Run bulk work on the dedicated backup executor so it cannot starve player loads
+     */
+    private <T> CompletableFuture<T> supplyOnBackupExecutor(Supplier<T> work, T rejectedResult) {
+        WorkloadExecutors executors = plugin.getWorkloadExecutors();
+        if (executors == null) {
+            return CompletableFuture.completedFuture(rejectedResult);
+        }
+        try {
+            return CompletableFuture.supplyAsync(work, executors.get(WorkloadType.BACKUP));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("A backup job is already running; request rejected");
+            return CompletableFuture.completedFuture(rejectedResult);
+        }
     }
     
     /**
-     * Backup database data
+     * Backup database data. Tables are read page by page in key order, each page a short
+     * non-locking read, and written to the zip as they are read. Pages are paced to the
+     * configured I/O budget so live saves never queue behind the dump. The binary format
+     * compresses blocks of rows in parallel into a temporary file that is then stored in the zip.
+     *
+     * @return number of rows written
      */
-    private void backupDatabase(ZipOutputStream zipOut, String backupName) throws SQLException, IOException {
+    private long backupDatabase(ZipOutputStream zipOut, File backupDir, String backupName, long since)
+            throws SQLException, IOException {
         Connection connection = plugin.getConnection();
         if (connection == null) {
             throw new SQLException("No database connection available");
         }
 
         try {
-            String tableName = plugin.getTablePrefix();
-            // Create SQL dump
-            StringBuilder sqlDump = new StringBuilder();
-            sqlDump.append("-- PlayerDataSync Database Backup\n");
-            sqlDump.append("-- Created: ").append(new java.util.Date()).append("\n\n");
-
-            // Get table structure
-            DatabaseMetaData metaData = connection.getMetaData();
-            try (ResultSet rs = metaData.getTables(null, null, tableName, new String[]{"TABLE"})) {
-                if (rs.next()) {
-                    sqlDump.append("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (\n");
-                    try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
-                        List<String> columnDefs = new ArrayList<>();
-                        while (columns.next()) {
-                            String columnName = columns.getString("COLUMN_NAME");
-                            String dataType = columns.getString("TYPE_NAME");
-                            int columnSize = columns.getInt("COLUMN_SIZE");
-                            String nullable = columns.getString("IS_NULLABLE");
-                            
-                            StringBuilder columnDef = new StringBuilder("  ").append(columnName).append(" ");
-                            if (dataType.equals("VARCHAR")) {
-                                columnDef.append("VARCHAR(").append(columnSize).append(")");
-                            } else {
-                                columnDef.append(dataType);
-                            }
-                            
-                            if ("NO".equals(nullable)) {
-                                columnDef.append(" NOT NULL");
-                            }
-                            
-                            columnDefs.add(columnDef.toString());
-                        }
-                        sqlDump.append(String.join(",\n", columnDefs));
-                    }
-                    sqlDump.append("\n);\n\n");
+            if (!"sql".equalsIgnoreCase(plugin.getConfig().getString("data_management.backup.format", "binary"))) {
+                return backupDatabaseBinary(connection, zipOut, backupDir, backupName, since);
+            }
+
+            zipOut.putNextEntry(new ZipEntry(backupName + "/database.sql"));
+            // Closing the output would close the zip, so it is only flushed
+            DumpOutput sqlDump = new DumpOutput(zipOut);
+            sqlDump.write("-- PlayerDataSync Database Backup\n");
+            sqlDump.write("-- Created: " + new java.util.Date() + "\n\n");
+            if (since >= 0) {
+                sqlDump.write("-- Incremental since " + new java.util.Date(since) + "\n\n");
+            }
+            long rows = dumpTables(connection, since, sqlDump);
+            sqlDump.flush();
+            zipOut.closeEntry();
+            return rows;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private long backupDatabaseBinary(Connection connection, ZipOutputStream zipOut, File backupDir, String backupName,
+                                      long since) throws SQLException, IOException {
+        File temp = new File(backupDir, backupName + ".pdsb.tmp");
+        int threads = plugin.getConfig().getInt("data_management.backup.compression_threads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+        int blockSize = Math.max(4, plugin.getConfig().getInt("data_management.backup.block_kb", 1024)) * 1024;
+        int level = plugin.getConfig().getInt("data_management.backup.compression_level", Deflater.DEFAULT_COMPRESSION);
+        try {
+            long rows;
+            try (BinaryBackupWriter writer = new BinaryBackupWriter(temp, threads, blockSize, level)) {
+                rows = dumpTables(connection, since, writer);
+                writer.finish();
+                plugin.logDebug("Binary backup " + backupName + ": " + writer.getSummary());
+            }
+
+            // Stored, not deflated again, so a restore can seek straight to a block
+            ZipEntry entry = new ZipEntry(backupName + "/" + BinaryBackupReader.ENTRY);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(temp.length());
+            entry.setCompressedSize(temp.length());
+            entry.setCrc(fileCrc(temp));
+            zipOut.putNextEntry(entry);
+            Files.copy(temp.toPath(), zipOut);
+            zipOut.closeEntry();
+            return rows;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static long fileCrc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[DUMP_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Dump every table of the plugin, or for an incremental backup what changed since the watermark
+     */
+    private long dumpTables(Connection connection, long since, BackupSink sink) throws SQLException, IOException {
+        String tableName = plugin.getTablePrefix();
+        Pacer pacer = new Pacer(plugin.getConfig().getLong("data_management.backup.max_kb_per_second", 8192) * 1024L);
+        if (since < 0) {
+            long rows = dumpTable(connection, tableName, null, null, sink, pacer);
+            // Item blobs referenced by the player rows, if the item store was ever used
+            rows += dumpTable(connection, tableName + "_items", null, null, sink, pacer);
+            // Ordinals of packed advancement data
+            rows += dumpTable(connection, tableName + "_advancement_keys", null, null, sink, pacer);
+            // Chunks of payloads too large to keep in the player row
+            rows += dumpTable(connection, tableName + "_overflow", null, null, sink, pacer);
+            // Players moved out of the player table for inactivity
+            rows += dumpTable(connection, tableName + "_archive", null, null, sink, pacer);
+            return rows;
+        }
+
+        // Incremental: only what changed since the parent backup, replayed over the chain on restore
+        Timestamp sinceTime = new Timestamp(since);
+        long rows = dumpTable(connection, tableName, "last_save >= ?", sinceTime, sink, pacer);
+        rows += dumpTable(connection, tableName + "_items", "last_used >= ?", since, sink, pacer);
+        rows += dumpTable(connection, tableName + "_advancement_keys", null, null, sink, pacer);
+        rows += dumpTable(connection, tableName + "_overflow",
+            "uuid IN (SELECT uuid FROM " + tableName + " WHERE last_save >= ?)", sinceTime, sink, pacer);
+        rows += dumpTable(connection, tableName + "_archive", "archived >= ?", since, sink, pacer);
+        return rows;
+    }
+    
+    /**
+     * Write the structure and rows of a table to the backup; missing tables are skipped.
+     * With a filter only matching rows are written, as replacements so they apply over an earlier backup.
+     *
+     * @return number of rows written
+     */
+    private long dumpTable(Connection connection, String tableName, String filter, Object filterValue, BackupSink sink,
+                           Pacer pacer) throws SQLException, IOException {
+        // Get table structure
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(null, null, tableName, new String[]{"TABLE"})) {
+            if (!rs.next()) {
+                return 0;
+            }
+        }
+
+        List<String> columnNames = new ArrayList<>();
+        List<String> columnDefs = new ArrayList<>();
+        try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
+            while (columns.next()) {
+                String columnName = columns.getString("COLUMN_NAME");
+                String dataType = columns.getString("TYPE_NAME");
+                int columnSize = columns.getInt("COLUMN_SIZE");
+                String nullable = columns.getString("IS_NULLABLE");
+
+                StringBuilder columnDef = new StringBuilder("  ").append(columnName).append(" ");
+                if (dataType.equals("VARCHAR") || dataType.equals("BINARY")) {
+                    columnDef.append(dataType).append("(").append(columnSize).append(")");
+                } else {
+                    columnDef.append(dataType);
+                }
+
+                if ("NO".equals(nullable)) {
+                    columnDef.append(" NOT NULL");
                 }
+
+                columnNames.add(columnName);
+                columnDefs.add(columnDef.toString());
+            }
+        }
+
+        List<String> keys = primaryKey(metaData, tableName);
+        int keyColumn = -1;
+        for (int i = 0; i < columnNames.size() && !keys.isEmpty(); i++) {
+            if (columnNames.get(i).equalsIgnoreCase(keys.get(0))) {
+                keyColumn = i;
             }
+        }
+        sink.beginTable(tableName, columnNames, columnDefs, keyColumn, filter != null);
+
+        int pageRows = Math.max(1, plugin.getConfig().getInt("data_management.backup.page_rows", 200));
+        long rows = 0;
+        long start = System.nanoTime();
 
-            // Get table data
-            try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM " + tableName)) {
+        // Keyset pages: each query starts after the last key of the previous page, so no read spans the dump
+        Object[] lastKey = null;
+        while (true) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM ").append(tableName);
+            List<Object> params = new ArrayList<>();
+            List<String> conditions = new ArrayList<>();
+            if (filter != null) {
+                conditions.add(filter);
+                params.add(filterValue);
+            }
+            if (lastKey != null) {
+                conditions.add(keysetCondition(keys, lastKey, params));
+            }
+            if (!conditions.isEmpty()) {
+                sql.append(" WHERE ").append(String.join(" AND ", conditions));
+            }
+            if (!keys.isEmpty()) {
+                sql.append(" ORDER BY ").append(String.join(", ", keys)).append(" LIMIT ").append(pageRows);
+            }
+
+            int pageCount = 0;
+            sink.startChunk();
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(streamingFetchSize());
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
                 try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData resultMeta = rs.getMetaData();
+                    int[] types = new int[resultMeta.getColumnCount()];
+                    for (int i = 0; i < types.length; i++) {
+                        types[i] = resultMeta.getColumnType(i + 1);
+                    }
                     while (rs.next()) {
-                        sqlDump.append("INSERT INTO ").append(tableName).append(" VALUES (");
-                        ResultSetMetaData rsMeta = rs.getMetaData();
-                        List<String> values = new ArrayList<>();
-                        for (int i = 1; i <= rsMeta.getColumnCount(); i++) {
-                            String value = rs.getString(i);
-                            if (value == null) {
-                                values.add("NULL");
-                            } else {
-                                values.add("'" + value.replace("'", "''") + "'");
+                        sink.row(rs, types);
+                        pageCount++;
+                        if (!keys.isEmpty()) {
+                            lastKey = new Object[keys.size()];
+                            for (int k = 0; k < keys.size(); k++) {
+                                lastKey[k] = rs.getObject(keys.get(k));
                             }
                         }
-                        sqlDump.append(String.join(", ", values));
-                        sqlDump.append(");\n");
                     }
                 }
             }
-            
-            // Add to zip
-            zipOut.putNextEntry(new ZipEntry(backupName + "/database.sql"));
-            zipOut.write(sqlDump.toString().getBytes());
-            zipOut.closeEntry();
-            
-        } finally {
-            plugin.returnConnection(connection);
+            if (pageCount > 0) {
+                sink.endChunk(pageCount);
+            }
+            rows += pageCount;
+            pacer.pace(sink.bytesWritten());
+            // Tables without a primary key are read in a single query
+            if (keys.isEmpty() || pageCount < pageRows) {
+                break;
+            }
         }
+        sink.endTable();
+
+        if (rows > 0) {
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            plugin.logDebug(String.format("Dumped %d rows of %s in %.1fs (%.0f rows/s)",
+                rows, tableName, seconds, seconds > 0 ? rows / seconds : rows));
+        }
+        return rows;
     }
-    
+
+    private static List<String> primaryKey(DatabaseMetaData metaData, String tableName) throws SQLException {
+        TreeMap<Short, String> keys = new TreeMap<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(null, null, tableName)) {
+            while (rs.next()) {
+                keys.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(keys.values());
+    }
+
+    /**
+     * Rows whose key sorts after the given one, e.g. (a > ? OR (a = ? AND b > ?)) for a two column key
+     */
+    private static String keysetCondition(List<String> keys, Object[] lastKey, List<Object> params) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(keys.get(j)).append(" = ? AND ");
+                params.add(lastKey[j]);
+            }
+            condition.append(keys.get(i)).append(" > ?)");
+            params.add(lastKey[i]);
+        }
+        return condition.append(")").toString();
+    }
+
+    /**
+     * Fetch size that makes the driver stream rows instead of buffering the whole result.
+     * MySQL Connector/J only streams with Integer.MIN_VALUE unless cursor fetch is enabled.
+     */
+    private int streamingFetchSize() {
+        if (plugin.getDatabaseType().equalsIgnoreCase("mysql")) {
+            return Integer.MIN_VALUE;
+        }
+        return Math.max(1, plugin.getConfig().getInt("data_management.backup.fetch_size", 500));
+    }
+
+    private long getWatermarkOverlapMillis() {
+        return Math.max(0, plugin.getConfig().getLong("data_management.backup.incremental.overlap_seconds", 300)) * 1000L;
+    }
+
+    /**
+     * Newest backup an incremental backup can extend, or null if the next backup must be full
+     */
+    private BackupManifest findChainParent(File backupDir) {
+        if (!plugin.getConfig().getBoolean("data_management.backup.incremental.enabled", true)) {
+            return null;
+        }
+        int fullEvery = plugin.getConfig().getInt("data_management.backup.incremental.full_every", 7);
+
+        File[] backupFiles = backupDir.listFiles((dir, name) -> name.endsWith(".zip"));
+        if (backupFiles == null) {
+            return null;
+        }
+        Arrays.sort(backupFiles, Comparator.comparingLong(File::lastModified).reversed());
+        for (File backupFile : backupFiles) {
+            BackupManifest manifest = BackupManifest.read(backupFile);
+            if (manifest == null) {
+                continue;
+            }
+            if (manifest.getChainLength() + 1 >= fullEvery || !new File(backupDir, manifest.getBase()).exists()) {
+                return null;
+            }
+            return manifest;
+        }
+        return null;
+    }
+
+    /**
+     * Position of the uuid column, 1-based, or 0; dumps always hold uuids as text so they restore in either key format
+     */
+    static int uuidColumn(List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if ("uuid".equalsIgnoreCase(columns.get(i))) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void writeValue(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("NULL");
+            return;
+        }
+        out.write('\'');
+        int from = 0;
+        for (int i = value.indexOf('\''); i >= 0; i = value.indexOf('\'', from)) {
+            out.write(value, from, i + 1 - from);
+            out.write('\'');
+            from = i + 1;
+        }
+        out.write(value, from, value.length() - from);
+        out.write('\'');
+    }
+
+    /**
+     * SQL text dump. Each page of rows ends with a comment carrying its row count and CRC32.
+     * Closing it only flushes, the zip stays open.
+     */
+    private static final class DumpOutput extends Writer implements BackupSink {
+        private final ChecksumOutputStream checksum;
+        private final Writer out;
+        private String table;
+        private String verb;
+        private int uuidColumn;
+
+        private DumpOutput(OutputStream zipOut) {
+            this.checksum = new ChecksumOutputStream(zipOut);
+            this.out = new BufferedWriter(new OutputStreamWriter(checksum, StandardCharsets.UTF_8), DUMP_BUFFER_SIZE);
+        }
+
+        @Override
+        public void beginTable(String name, List<String> columns, List<String> definitions, int keyColumn,
+                               boolean replace) throws IOException {
+            table = name;
+            verb = replace ? "REPLACE INTO " : "INSERT INTO ";
+            uuidColumn = uuidColumn(columns);
+            out.write("CREATE TABLE IF NOT EXISTS " + name + " (\n");
+            out.write(String.join(",\n", definitions));
+            out.write("\n);\n\n");
+        }
+
+        @Override
+        public void startChunk() throws IOException {
+            out.flush();
+            checksum.crc.reset();
+        }
+
+        @Override
+        public void row(ResultSet rs, int[] types) throws SQLException, IOException {
+            out.write(verb);
+            out.write(table);
+            out.write(" VALUES (");
+            for (int i = 1; i <= types.length; i++) {
+                if (i > 1) {
+                    out.write(", ");
+                }
+                writeValue(out, i == uuidColumn ? UuidKeys.text(rs, i, types[i - 1]) : rs.getString(i));
+            }
+            out.write(");\n");
+        }
+
+        @Override
+        public void endChunk(int rows) throws IOException {
+            out.flush();
+            out.write(String.format("-- chunk %d %08x\n", rows, checksum.crc.getValue()));
+        }
+
+        @Override
+        public void endTable() {
+        }
+
+        @Override
+        public long bytesWritten() {
+            return checksum.bytes;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Delays the dump whenever it gets ahead of the I/O budget
+     */
+    private static final class Pacer {
+        private final long bytesPerSecond;
+        private final long start = System.currentTimeMillis();
+
+        private Pacer(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        private void pace(long bytes) {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long ahead = bytes * 1000L / bytesPerSecond - (System.currentTimeMillis() - start);
+            if (ahead > 0) {
+                try {
+                    Thread.sleep(ahead);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static final class ChecksumOutputStream extends FilterOutputStream {
+        private final CRC32 crc = new CRC32();
+        private long bytes;
+
+        private ChecksumOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            bytes += len;
+        }
+    }
+
     /**
      * Backup configuration files
      */
@@ -243,9 +676,23 @@ public class BackupManager {
         // Sort by modification time (oldest first)
         Arrays.sort(backupFiles, Comparator.comparingLong(File::lastModified));
         
+        // Backups that kept incremental backups build on must stay
+        Set<String> required = new HashSet<>();
+        for (int i = backupFiles.length - keepBackups; i < backupFiles.length; i++) {
+            BackupManifest manifest = BackupManifest.read(backupFiles[i]);
+            String parent = manifest != null ? manifest.getParent() : null;
+            while (parent != null && required.add(parent)) {
+                BackupManifest parentManifest = BackupManifest.read(new File(backupDir, parent));
+                parent = parentManifest != null ? parentManifest.getParent() : null;
+            }
+        }
+        
         // Delete oldest backups
         int toDelete = backupFiles.length - keepBackups;
         for (int i = 0; i < toDelete; i++) {
+            if (required.contains(backupFiles[i].getName())) {
+                continue;
+            }
             if (backupFiles[i].delete()) {
                 plugin.getLogger().info("Deleted old backup: " + backupFiles[i].getName());
             }
@@ -281,23 +728,53 @@ public class BackupManager {
      * Restore from backup
      */
     public CompletableFuture<Boolean> restoreFromBackup(String backupName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return restoreFromBackup(backupName, null);
+    }
+
+    /**
+     * Restore a backup, replaying the chain of an incremental one over its full backup
+     *
+     * @param progress receives progress messages while the restore runs, may be null
+     */
+    public CompletableFuture<Boolean> restoreFromBackup(String backupName, Consumer<String> progress) {
+        return supplyOnBackupExecutor(() -> {
             try {
-                File backupFile = new File(plugin.getDataFolder(), "backups/" + backupName);
+                File backupDir = new File(plugin.getDataFolder(), "backups");
+                File backupFile = new File(backupDir, backupName);
                 if (!backupFile.exists()) {
                     plugin.getLogger().severe("Backup file not found: " + backupName);
                     return false;
                 }
-                
-                // TODO: Implement restore functionality
-                plugin.getLogger().info("Restore from backup: " + backupName + " (not implemented yet)");
-                return true;
-                
+
+                return new BackupRestorer(plugin, backupDir, progress).restore(backupFile);
             } catch (Exception e) {
                 plugin.getLogger().severe("Restore failed: " + e.getMessage());
                 return false;
             }
-        });
+        }, false);
+    }
+
+    /**
+     * Restore a single player from a binary backup without replacing anyone else's data
+     *
+     * @param progress receives progress messages while the restore runs, may be null
+     */
+    public CompletableFuture<Boolean> restorePlayer(String backupName, UUID uuid, Consumer<String> progress) {
+        return supplyOnBackupExecutor(() -> {
+            try {
+                File backupDir = new File(plugin.getDataFolder(), "backups");
+                File backupFile = new File(backupDir, backupName);
+                if (!backupFile.exists()) {
+                    plugin.getLogger().severe("Backup file not found: " + backupName);
+                    return false;
+                }
+
+                return new BackupRestorer(plugin, backupDir, progress).restorePlayer(backupFile, uuid);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Restore of " + uuid + " failed: " + e.getMessage());
+                return false;
+            }
+        }, false);
     }
     
     /**
@@ -308,15 +785,111 @@ public class BackupManager {
         private final String fileName;
         private final long fileSize;
         
+        private final long rows;
+        private final long durationMs;
+        
         public BackupResult(boolean success, String fileName, long fileSize) {
+            this(success, fileName, fileSize, 0, 0);
+        }
+        
+        public BackupResult(boolean success, String fileName, long fileSize, long rows, long durationMs) {
             this.success = success;
             this.fileName = fileName;
             this.fileSize = fileSize;
+            this.rows = rows;
+            this.durationMs = durationMs;
         }
         
         public boolean isSuccess() { return success; }
         public String getFileName() { return fileName; }
         public long getFileSize() { return fileSize; }
+        public long getRows() { return rows; }
+        public long getDurationMs() { return durationMs; }
+        
+        public double getRowsPerSecond() {
+            return durationMs > 0 ? rows * 1000.0 / durationMs : rows;
+        }
+    }
+    
+    /**
+     * Manifest stored in each backup: whether it is a full dump or an incremental one, the full
+     * backup its chain starts at, the backup it extends and the watermark the next one starts from.
+     */
+    public static class BackupManifest {
+        static final String ENTRY = "manifest.yml";
+
+        private final String name;
+        private final String type;
+        private final String base;
+        private final String parent;
+        private final long watermark;
+        private final int chainLength;
+        private long rows;
+
+        private BackupManifest(String name, String type, String base, String parent, long watermark, int chainLength) {
+            this.name = name;
+            this.type = type;
+            this.base = base;
+            this.parent = parent;
+            this.watermark = watermark;
+            this.chainLength = chainLength;
+        }
+
+        static BackupManifest full(String name, long watermark) {
+            return new BackupManifest(name, "full", name, null, watermark, 0);
+        }
+
+        static BackupManifest incremental(String name, BackupManifest parent, long watermark) {
+            return new BackupManifest(name, "incremental", parent.base, parent.name, watermark, parent.chainLength + 1);
+        }
+
+        /**
+         * Manifest of a backup file, or null for backups without one or that cannot be read
+         */
+        public static BackupManifest read(File backupFile) {
+            try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(backupFile)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.getName().endsWith("/" + ENTRY)) {
+                        continue;
+                    }
+                    try (Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
+                        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(reader);
+                        BackupManifest manifest = new BackupManifest(backupFile.getName(), yaml.getString("type", "full"),
+                            yaml.getString("base", backupFile.getName()), yaml.getString("parent"),
+                            yaml.getLong("watermark"), yaml.getInt("chain_length"));
+                        manifest.rows = yaml.getLong("rows");
+                        return manifest;
+                    }
+                }
+            } catch (IOException e) {
+                return null;
+            }
+            return null;
+        }
+
+        String toYaml() {
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("type", type);
+            yaml.set("base", base);
+            yaml.set("parent", parent);
+            yaml.set("watermark", watermark);
+            yaml.set("chain_length", chainLength);
+            yaml.set("rows", rows);
+            return yaml.saveToString();
+        }
+
+        void setRows(long rows) { this.rows = rows; }
+
+        public String getName() { return name; }
+        public String getType() { return type; }
+        public boolean isIncremental() { return parent != null; }
+        public String getBase() { return base; }
+        public String getParent() { return parent; }
+        public long getWatermark() { return watermark; }
+        public int getChainLength() { return chainLength; }
+        public long getRows() { return rows; }
     }
     
     /**
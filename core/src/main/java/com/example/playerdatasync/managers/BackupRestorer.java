@@ -0,0 +1,1080 @@
+package com.example.playerdatasync.managers;
+
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.database.PayloadOverflowStore;
+import com.example.playerdatasync.database.UuidKeys;
+import com.example.playerdatasync.utils.InventoryUtils;
+
+/**
+ * Restores a backup chain into staging copies of the live tables and swaps them in at the end.
+ * The dump is read from the archive as a stream; rows are handed out in chunks to worker threads
+ * that parse them and load each chunk with a batched upsert in its own transaction. The live tables
+ * stay untouched until every file of the chain has loaded, then all of them are replaced at once.
+ */
+public class BackupRestorer {
+    private static final String STAGING_SUFFIX = "_restore";
+    private static final String REPLACED_SUFFIX = "_pre_restore";
+    private static final String DUMP_ENTRY = "database.sql";
+    private static final long PROGRESS_INTERVAL_MS = 10_000L;
+    private static final String CHUNK_COMMENT = "-- chunk ";
+    private static final byte[] ROW_END = ";\n".getBytes(StandardCharsets.UTF_8);
+    private static final Pattern SQLITE_TABLE = Pattern.compile("^CREATE TABLE\\s+(IF NOT EXISTS\\s+)?[\"`]?\\w+[\"`]?",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern SQLITE_INDEX = Pattern.compile(
+        "^CREATE (UNIQUE )?INDEX\\s+(IF NOT EXISTS\\s+)?[\"`]?(\\w+)[\"`]?\\s+ON\\s+[\"`]?\\w+[\"`]?",
+        Pattern.CASE_INSENSITIVE);
+
+    private final PlayerDataSync plugin;
+    private final File backupDir;
+    private final Consumer<String> progress;
+    private final int workers;
+    private final int chunkRows;
+    private final boolean mysql;
+
+    // Live table -> load target, in the order the dumps declare them
+    private final Map<String, TableLoad> tables = new LinkedHashMap<>();
+    // SQLite has a single writer, so chunks are parsed in parallel but written one at a time
+    private final Object writeLock = new Object();
+
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private volatile Exception failure;
+
+    public BackupRestorer(PlayerDataSync plugin, File backupDir, Consumer<String> progress) {
+        this.plugin = plugin;
+        this.backupDir = backupDir;
+        this.progress = progress;
+        this.workers = Math.max(1, plugin.getConfig().getInt("data_management.backup.restore.workers", 4));
+        this.chunkRows = Math.max(1, plugin.getConfig().getInt("data_management.backup.restore.chunk_rows", 500));
+        this.mysql = plugin.getDatabaseType().equalsIgnoreCase("mysql");
+    }
+
+    /**
+     * Restore the backup and, for an incremental one, the chain it extends
+     *
+     * @return false if the restore failed and the live tables were left as they were
+     */
+    public boolean restore(File backupFile) throws IOException, SQLException {
+        List<File> chain = resolveChain(backupFile);
+        long totalBytes = 0;
+        for (File file : chain) {
+            try (ZipFile zip = new ZipFile(file)) {
+                ZipEntry binary = BinaryBackupReader.findEntry(zip);
+                ZipEntry entry = binary != null ? binary : findDump(zip, file);
+                totalBytes = entry.getSize() >= 0 && totalBytes >= 0 ? totalBytes + entry.getSize() : -1;
+            }
+        }
+
+        int online = plugin.getServer().getOnlinePlayers().size();
+        if (online > 0) {
+            plugin.getLogger().warning("Restoring while " + online + " players are online; their next save "
+                + "overwrites the restored data");
+        }
+        report("Restoring " + backupFile.getName() + " from " + chain.size() + " backup file(s) with "
+            + workers + " workers");
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "PlayerDataSync-Restore-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.currentTimeMillis();
+        Progress tracker = new Progress(start, totalBytes);
+        try {
+            for (File file : chain) {
+                // Each file must be fully loaded before the next one replaces its rows
+                loadDump(file, pool, tracker);
+                if (failure != null) {
+                    break;
+                }
+            }
+        } catch (IOException | SQLException e) {
+            failure = e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (failure != null) {
+            plugin.getLogger().severe("Restore of " + backupFile.getName() + " failed: " + failure.getMessage());
+            dropStaging();
+            return false;
+        }
+
+        try {
+            swap();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not swap in the restored tables of " + backupFile.getName() + ": " + e.getMessage());
+            dropStaging();
+            return false;
+        }
+        long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        report(String.format("Restored %d rows into %d tables in %ds (%d rows/s)",
+            rowsLoaded.get(), tables.size(), seconds, rowsLoaded.get() / seconds));
+        plugin.getLogger().warning("Restart the servers sharing this database so no cached data is written over the restore");
+        return true;
+    }
+
+    /**
+     * Restore one player's row, with the overflow chunks and item blobs it points at, straight into
+     * the live tables. Only the block indexes and the blocks whose key range covers the player are
+     * read, newest backup of the chain first. Needs binary backups and the player to be offline.
+     */
+    public boolean restorePlayer(File backupFile, UUID uuid) throws IOException, SQLException {
+        if (Bukkit.getPlayer(uuid) != null) {
+            report("Player " + uuid + " is online; restore them after they leave");
+            return false;
+        }
+
+        List<File> chain = resolveChain(backupFile);
+        List<ZipFile> zips = new ArrayList<>();
+        List<BinaryBackupReader> readers = new ArrayList<>();
+        try {
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                ZipFile zip = new ZipFile(chain.get(i));
+                zips.add(zip);
+                ZipEntry entry = BinaryBackupReader.findEntry(zip);
+                if (entry == null) {
+                    report("Single player restore needs binary backups; " + chain.get(i).getName() + " is a SQL dump");
+                    return false;
+                }
+                readers.add(new BinaryBackupReader(zip, entry));
+            }
+
+            String playerTable = plugin.getTablePrefix();
+            Found player = findNewest(readers, playerTable, uuid.toString());
+            if (player == null) {
+                Found archived = findNewest(readers, playerTable + "_archive", uuid.toString());
+                if (archived == null) {
+                    report("Player " + uuid + " is not in backup " + backupFile.getName());
+                    return false;
+                }
+                writeArchived(uuid, archived);
+                report("Restored " + uuid + " from " + backupFile.getName() + " into the archive; they are restored on their next join");
+                return true;
+            }
+
+            List<Found> overflow = new ArrayList<>();
+            Set<String> hashes = new HashSet<>();
+            for (Object value : player.rows.get(0)) {
+                if (!(value instanceof String)) {
+                    continue;
+                }
+                String text = (String) value;
+                if (PayloadOverflowStore.isMarker(text)) {
+                    Found chunks = findNewest(readers, playerTable + "_overflow",
+                        text.substring(PayloadOverflowStore.MARKER_PREFIX.length()));
+                    if (chunks == null) {
+                        throw new IOException("Overflow chunks of " + text + " are missing from the backup");
+                    }
+                    overflow.add(chunks);
+                    text = joinChunks(chunks);
+                }
+                if (InventoryUtils.isReferencePayload(text)) {
+                    for (byte[] hash : InventoryUtils.readReferenceHashes(text)) {
+                        if (hash != null) {
+                            hashes.add(InventoryUtils.toHex(hash));
+                        }
+                    }
+                }
+            }
+            List<Found> items = new ArrayList<>();
+            for (String hash : hashes) {
+                Found blob = findNewest(readers, playerTable + "_items", hash);
+                if (blob != null) {
+                    items.add(blob);
+                }
+            }
+            if (items.size() < hashes.size()) {
+                plugin.getLogger().warning((hashes.size() - items.size()) + " item blobs of " + uuid
+                    + " are not in the backup; the live item table must still hold them");
+            }
+
+            writePlayer(uuid, player, overflow, items);
+            report("Restored " + uuid + " from " + backupFile.getName() + " with " + overflow.size()
+                + " overflow values and " + items.size() + " item blobs");
+            return true;
+        } finally {
+            for (ZipFile zip : zips) {
+                zip.close();
+            }
+        }
+    }
+
+    /**
+     * Rows with the key from the newest backup of the chain holding any
+     */
+    private static Found findNewest(List<BinaryBackupReader> readers, String table, String key) throws IOException {
+        for (BinaryBackupReader reader : readers) {
+            BinaryBackupReader.TableIndex index = reader.getTable(table);
+            List<Object[]> rows = reader.find(index, key);
+            if (!rows.isEmpty()) {
+                return new Found(index, rows);
+            }
+        }
+        return null;
+    }
+
+    private static String joinChunks(Found chunks) {
+        int seq = chunks.index.getColumns().indexOf("seq");
+        int data = chunks.index.getColumns().indexOf("data");
+        List<Object[]> rows = new ArrayList<>(chunks.rows);
+        rows.sort(Comparator.comparingLong(row -> ((Number) row[seq]).longValue()));
+        StringBuilder joined = new StringBuilder();
+        for (Object[] row : rows) {
+            if (row[data] != null) {
+                joined.append(row[data]);
+            }
+        }
+        return joined.toString();
+    }
+
+    private void writePlayer(UUID uuid, Found player, List<Found> overflow, List<Found> items) throws SQLException {
+        String playerTable = plugin.getTablePrefix();
+        TableLoad playerLoad = liveLoad(player.index);
+        TableLoad overflowLoad = overflow.isEmpty() ? null : liveLoad(overflow.get(0).index);
+        UuidKeys keys = playerLoad.keys;
+        TableLoad itemLoad = items.isEmpty() ? null : liveLoad(items.get(0).index);
+        // Restored blobs count as used now, so a concurrent sweep does not collect them
+        int lastUsed = itemLoad != null ? itemLoad.dumpColumns.indexOf("last_used") : -1;
+
+        Connection connection = plugin.getTransactionConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            connection.setAutoCommit(false);
+            try {
+                // Chunks of the current row would otherwise be left behind
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "DELETE FROM " + playerTable + "_overflow WHERE uuid = ?")) {
+                    keys.bind(ps, 1, uuid);
+                    ps.executeUpdate();
+                }
+                for (Found found : items) {
+                    for (Object[] row : found.rows) {
+                        if (lastUsed >= 0) {
+                            row[lastUsed] = System.currentTimeMillis();
+                        }
+                        upsert(connection, itemLoad, row);
+                    }
+                }
+                for (Found found : overflow) {
+                    for (Object[] row : found.rows) {
+                        upsert(connection, overflowLoad, row);
+                    }
+                }
+                upsert(connection, playerLoad, player.rows.get(0));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+            plugin.returnTransactionConnection(connection);
+        }
+    }
+
+    /**
+     * Write a player that was archived at backup time. Archive records are self-contained, so only
+     * the current row and its chunks have to go for the record to take effect on the next join.
+     */
+    private void writeArchived(UUID uuid, Found archived) throws SQLException {
+        String playerTable = plugin.getTablePrefix();
+        TableLoad archiveLoad = liveLoad(archived.index);
+        UuidKeys keys = archiveLoad.keys;
+
+        Connection connection = plugin.getTransactionConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            connection.setAutoCommit(false);
+            try {
+                for (String table : new String[] { playerTable + "_overflow", playerTable }) {
+                    try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE uuid = ?")) {
+                        keys.bind(ps, 1, uuid);
+                        ps.executeUpdate();
+                    }
+                }
+                upsert(connection, archiveLoad, archived.rows.get(0));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+            plugin.returnTransactionConnection(connection);
+        }
+    }
+
+    private static void upsert(Connection connection, TableLoad table, Object[] values) throws SQLException {
+        Object[] row = table.bind(values);
+        try (PreparedStatement ps = connection.prepareStatement(table.upsertSql)) {
+            for (int i = 0; i < row.length; i++) {
+                ps.setObject(i + 1, row[i]);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Load target writing a backed up table straight into the live table
+     */
+    private TableLoad liveLoad(BinaryBackupReader.TableIndex index) throws SQLException {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            return new TableLoad(index.getName(), index.getName(), index.getColumns(), null)
+                .withColumns(index.getColumns(), liveColumns(index.getName()), liveKeys(connection, index.getName()));
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    /**
+     * Key format of a live table; backups hold uuids as text, older ones included
+     */
+    private static UuidKeys liveKeys(Connection connection, String table) throws SQLException {
+        return new UuidKeys(Boolean.TRUE.equals(UuidKeys.detect(connection.getMetaData(), table)));
+    }
+
+    /**
+     * The backup files to apply, full backup first
+     */
+    private List<File> resolveChain(File backupFile) throws IOException {
+        LinkedList<File> chain = new LinkedList<>();
+        File current = backupFile;
+        while (true) {
+            chain.addFirst(current);
+            BackupManager.BackupManifest manifest = BackupManager.BackupManifest.read(current);
+            // Backups from before manifests were written are always full
+            if (manifest == null || !manifest.isIncremental()) {
+                return chain;
+            }
+            current = new File(backupDir, manifest.getParent());
+            if (!current.exists()) {
+                throw new IOException("Backup " + manifest.getParent() + " that " + manifest.getName() + " extends is missing");
+            }
+            if (chain.size() > manifest.getChainLength() + 1) {
+                throw new IOException("Backup chain of " + backupFile.getName() + " loops");
+            }
+        }
+    }
+
+    private static ZipEntry findDump(ZipFile zip, File file) throws IOException {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.getName().endsWith("/" + DUMP_ENTRY)) {
+                return entry;
+            }
+        }
+        throw new IOException("Backup " + file.getName() + " contains no database dump");
+    }
+
+    private void loadDump(File file, ExecutorService pool, Progress tracker) throws IOException, SQLException {
+        // Bounds the rows held in memory; each permit is one chunk queued or loading
+        Semaphore slots = new Semaphore(workers * 2);
+        try (ZipFile zip = new ZipFile(file)) {
+            ZipEntry binary = BinaryBackupReader.findEntry(zip);
+            if (binary != null) {
+                loadBinary(new BinaryBackupReader(zip, binary), pool, slots, tracker);
+                return;
+            }
+            CountingInputStream counted = new CountingInputStream(zip.getInputStream(findDump(zip, file)));
+            tracker.startFile(counted);
+            try (Reader reader = new InputStreamReader(counted, StandardCharsets.UTF_8)) {
+                StatementReader statements = new StatementReader(reader);
+                TableLoad table = null;
+                List<String> chunk = new ArrayList<>(chunkRows);
+                // Rows since the last chunk checksum the dump wrote; dumps from before checksums have none
+                CRC32 crc = new CRC32();
+                int unchecked = 0;
+                String statement;
+                while (failure == null && (statement = statements.next()) != null) {
+                    if (statement.startsWith("--")) {
+                        if (statement.startsWith(CHUNK_COMMENT)) {
+                            verifyChunk(statement, crc.getValue(), unchecked, file);
+                            crc.reset();
+                            unchecked = 0;
+                        }
+                        continue;
+                    }
+                    if (statement.regionMatches(true, 0, "CREATE TABLE", 0, 12)) {
+                        submit(pool, slots, table, chunk);
+                        chunk = new ArrayList<>(chunkRows);
+                        table = prepareTable(statement);
+                        crc.reset();
+                        unchecked = 0;
+                        continue;
+                    }
+                    // The dump wrote each row as the statement followed by ";\n"
+                    crc.update(statement.getBytes(StandardCharsets.UTF_8));
+                    crc.update(ROW_END);
+                    unchecked++;
+                    if (table == null) {
+                        continue;
+                    }
+                    chunk.add(statement);
+                    if (chunk.size() >= chunkRows) {
+                        submit(pool, slots, table, chunk);
+                        chunk = new ArrayList<>(chunkRows);
+                    }
+                    tracker.maybeReport();
+                }
+                submit(pool, slots, table, chunk);
+            } finally {
+                // Wait for the chunks of this file before the next file or the swap
+                slots.acquireUninterruptibly(workers * 2);
+                tracker.finishFile();
+            }
+        }
+    }
+
+    /**
+     * Load every block of a binary backup; workers decompress, decode and write blocks independently
+     */
+    private void loadBinary(BinaryBackupReader reader, ExecutorService pool, Semaphore slots, Progress tracker)
+            throws SQLException {
+        try {
+            for (BinaryBackupReader.TableIndex index : reader.getTables()) {
+                TableLoad table = prepareTable(index.getName(), index.getColumns());
+                if (table.skipped) {
+                    continue;
+                }
+                for (BinaryBackupReader.BlockIndex block : index.getBlocks()) {
+                    if (failure != null) {
+                        return;
+                    }
+                    slots.acquireUninterruptibly();
+                    pool.execute(() -> {
+                        try {
+                            if (failure == null) {
+                                List<Object[]> rows = reader.readBlock(index, block);
+                                tracker.blockBytes.addAndGet(block.getCompressedLength());
+                                writeRows(table, rows);
+                            }
+                        } catch (IOException | SQLException | RuntimeException e) {
+                            failure = e;
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                    tracker.maybeReport();
+                }
+            }
+        } finally {
+            // The zip stays open until every block of it is loaded
+            slots.acquireUninterruptibly(workers * 2);
+            tracker.finishFile();
+        }
+    }
+
+    private static void verifyChunk(String comment, long crc, int rows, File file) throws IOException {
+        String[] parts = comment.substring(CHUNK_COMMENT.length()).trim().split(" ");
+        try {
+            if (parts.length != 2 || Integer.parseInt(parts[0]) != rows || Long.parseLong(parts[1], 16) != crc) {
+                throw new IOException("Backup " + file.getName() + " is corrupt: checksum mismatch in a chunk of "
+                    + rows + " rows");
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Backup " + file.getName() + " has a malformed chunk checksum");
+        }
+    }
+
+    private void submit(ExecutorService pool, Semaphore slots, TableLoad table, List<String> chunk) {
+        if (table == null || chunk.isEmpty() || table.skipped) {
+            return;
+        }
+        slots.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                if (failure == null) {
+                    loadChunk(table, chunk);
+                }
+            } catch (SQLException | RuntimeException e) {
+                failure = e;
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * Set up the staging table for a table declared in the dump, the first time it is seen
+     */
+    private TableLoad prepareTable(String createStatement) throws SQLException {
+        String name = createStatement.substring("CREATE TABLE IF NOT EXISTS ".length(), createStatement.indexOf('(')).trim();
+        List<String> dumpColumns = new ArrayList<>();
+        String body = createStatement.substring(createStatement.indexOf('(') + 1, createStatement.lastIndexOf(')'));
+        for (String definition : body.split(",\n")) {
+            String trimmed = definition.trim();
+            if (!trimmed.isEmpty()) {
+                dumpColumns.add(trimmed.split("\\s+")[0]);
+            }
+        }
+        return prepareTable(name, dumpColumns);
+    }
+
+    private TableLoad prepareTable(String name, List<String> dumpColumns) throws SQLException {
+        TableLoad existing = tables.get(name);
+        if (existing != null) {
+            if (existing.skipped || existing.dumpColumns.equals(dumpColumns)) {
+                return existing;
+            }
+            // Same table dumped by a newer version within the chain
+            TableLoad updated = existing.withColumns(dumpColumns, liveColumns(existing.staging), existing.keys);
+            tables.put(name, updated);
+            return updated;
+        }
+
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            if (!tableExists(connection, name)) {
+                plugin.getLogger().warning("Skipping " + name + " from the backup; the table does not exist");
+                TableLoad skipped = new TableLoad(name, null, dumpColumns, null);
+                tables.put(name, skipped);
+                return skipped;
+            }
+            String staging = name + STAGING_SUFFIX;
+            List<String> indexes = createStaging(connection, name, staging);
+            TableLoad load = new TableLoad(name, staging, dumpColumns, indexes)
+                .withColumns(dumpColumns, liveColumns(staging), liveKeys(connection, staging));
+            tables.put(name, load);
+            return load;
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    /**
+     * Create an empty copy of the live table, left over copies of a failed restore are dropped first
+     *
+     * @return the index definitions of the live table on SQLite, to restore their names after the swap
+     */
+    private List<String> createStaging(Connection connection, String live, String staging) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS " + staging);
+            if (mysql) {
+                st.executeUpdate("CREATE TABLE " + staging + " LIKE " + live);
+                return indexes;
+            }
+
+            // SQLite has no CREATE TABLE ... LIKE, so the stored definitions are replayed under the new name
+            String tableSql = null;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT type, sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL")) {
+                ps.setString(1, live);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if ("table".equals(rs.getString(1))) {
+                            tableSql = rs.getString(2);
+                        } else {
+                            indexes.add(rs.getString(2));
+                        }
+                    }
+                }
+            }
+            if (tableSql == null) {
+                throw new SQLException("Definition of " + live + " not found");
+            }
+            st.executeUpdate(SQLITE_TABLE.matcher(tableSql).replaceFirst("CREATE TABLE " + staging));
+            for (String index : indexes) {
+                Matcher matcher = SQLITE_INDEX.matcher(index);
+                if (matcher.find()) {
+                    String unique = matcher.group(1) != null ? matcher.group(1) : "";
+                    st.executeUpdate(matcher.replaceFirst("CREATE " + unique + "INDEX " + matcher.group(3) + STAGING_SUFFIX
+                        + " ON " + staging));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private List<String> liveColumns(String table) throws SQLException {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = connection.getMetaData().getColumns(null, null, table, null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME"));
+            }
+        } finally {
+            plugin.returnConnection(connection);
+        }
+        return columns;
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Parse a chunk of dumped rows and upsert them into the staging table in one transaction
+     */
+    private void loadChunk(TableLoad table, List<String> statements) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(statements.size());
+        for (String statement : statements) {
+            rows.add(parseValues(statement).toArray());
+        }
+        writeRows(table, rows);
+    }
+
+    /**
+     * Upsert rows in the dumped column order into the table's target in one transaction
+     */
+    private void writeRows(TableLoad table, List<Object[]> dumped) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(dumped.size());
+        for (Object[] values : dumped) {
+            rows.add(table.bind(values));
+        }
+
+        if (mysql) {
+            write(table, rows);
+        } else {
+            synchronized (writeLock) {
+                write(table, rows);
+            }
+        }
+        rowsLoaded.addAndGet(rows.size());
+    }
+
+    private void write(TableLoad table, List<Object[]> rows) throws SQLException {
+        Connection connection = plugin.getTransactionConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(table.upsertSql)) {
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+            plugin.returnTransactionConnection(connection);
+        }
+    }
+
+    /**
+     * Values of an INSERT or REPLACE statement written by the backup dump
+     */
+    static List<String> parseValues(String statement) throws SQLException {
+        int open = statement.indexOf(" VALUES (");
+        int end = statement.lastIndexOf(')');
+        if (open < 0 || end < open) {
+            throw new SQLException("Malformed row in backup: " + statement.substring(0, Math.min(60, statement.length())));
+        }
+
+        List<String> values = new ArrayList<>();
+        int i = open + " VALUES (".length();
+        while (i < end) {
+            while (i < end && statement.charAt(i) == ' ') {
+                i++;
+            }
+            if (statement.charAt(i) == '\'') {
+                StringBuilder value = new StringBuilder();
+                int from = ++i;
+                while (true) {
+                    int quote = statement.indexOf('\'', i);
+                    if (quote < 0 || quote > end) {
+                        throw new SQLException("Unterminated value in backup row");
+                    }
+                    if (quote + 1 < end && statement.charAt(quote + 1) == '\'') {
+                        value.append(statement, from, quote + 1);
+                        i = quote + 2;
+                        from = i;
+                        continue;
+                    }
+                    value.append(statement, from, quote);
+                    i = quote + 1;
+                    break;
+                }
+                values.add(value.toString());
+            } else {
+                int comma = statement.indexOf(',', i);
+                int stop = comma < 0 || comma > end ? end : comma;
+                String token = statement.substring(i, stop).trim();
+                values.add("NULL".equalsIgnoreCase(token) ? null : token);
+                i = stop;
+            }
+            while (i < end && statement.charAt(i) == ' ') {
+                i++;
+            }
+            if (i < end && statement.charAt(i) == ',') {
+                i++;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Replace every live table with its staging copy in one step and drop the replaced tables
+     */
+    private void swap() throws SQLException {
+        List<TableLoad> loaded = new ArrayList<>();
+        for (TableLoad table : tables.values()) {
+            if (!table.skipped) {
+                loaded.add(table);
+            }
+        }
+        if (loaded.isEmpty()) {
+            return;
+        }
+
+        Connection connection = plugin.getTransactionConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try (Statement st = connection.createStatement()) {
+            if (mysql) {
+                // A single RENAME TABLE is atomic across all the tables it names
+                StringBuilder rename = new StringBuilder("RENAME TABLE ");
+                for (TableLoad table : loaded) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table.live + REPLACED_SUFFIX);
+                    if (rename.length() > "RENAME TABLE ".length()) {
+                        rename.append(", ");
+                    }
+                    rename.append(table.live).append(" TO ").append(table.live).append(REPLACED_SUFFIX).append(", ")
+                        .append(table.staging).append(" TO ").append(table.live);
+                }
+                st.executeUpdate(rename.toString());
+                for (TableLoad table : loaded) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table.live + REPLACED_SUFFIX);
+                }
+                return;
+            }
+
+            // SQLite renames are transactional; index names are global, so the staged ones get the live names back
+            connection.setAutoCommit(false);
+            try {
+                for (TableLoad table : loaded) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table.live + REPLACED_SUFFIX);
+                    st.executeUpdate("ALTER TABLE " + table.live + " RENAME TO " + table.live + REPLACED_SUFFIX);
+                    st.executeUpdate("ALTER TABLE " + table.staging + " RENAME TO " + table.live);
+                    st.executeUpdate("DROP TABLE " + table.live + REPLACED_SUFFIX);
+                    for (String index : table.indexes) {
+                        Matcher matcher = SQLITE_INDEX.matcher(index);
+                        if (matcher.find()) {
+                            st.executeUpdate("DROP INDEX IF EXISTS " + matcher.group(3) + STAGING_SUFFIX);
+                            st.executeUpdate(index);
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            plugin.returnTransactionConnection(connection);
+        }
+    }
+
+    private void dropStaging() {
+        Connection connection = plugin.getConnection();
+        if (connection == null) {
+            return;
+        }
+        try (Statement st = connection.createStatement()) {
+            for (TableLoad table : tables.values()) {
+                if (!table.skipped) {
+                    st.executeUpdate("DROP TABLE IF EXISTS " + table.staging);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not drop restore staging tables: " + e.getMessage());
+        } finally {
+            plugin.returnConnection(connection);
+        }
+    }
+
+    private void report(String message) {
+        plugin.getLogger().info(message);
+        if (progress != null) {
+            progress.accept(message);
+        }
+    }
+
+    /**
+     * Where the rows of one dumped table go: the staging table, its column list and, per staging
+     * column, the position of its value in the dumped rows
+     */
+    private static final class TableLoad {
+        private final String live;
+        private final String staging;
+        private final List<String> dumpColumns;
+        private final List<String> indexes;
+        private final boolean skipped;
+        private int[] targetIndexes;
+        private String upsertSql;
+        // Dumped uuids are converted to the key format of the target
+        private UuidKeys keys;
+        private int uuidTarget = -1;
+
+        private TableLoad(String live, String staging, List<String> dumpColumns, List<String> indexes) {
+            this.live = live;
+            this.staging = staging;
+            this.dumpColumns = dumpColumns;
+            this.indexes = indexes;
+            this.skipped = staging == null;
+        }
+
+        /**
+         * The values of a dumped row in the order of the upsert's columns
+         */
+        private Object[] bind(Object[] values) throws SQLException {
+            if (values.length != dumpColumns.size()) {
+                throw new SQLException("Row of " + live + " has " + values.length + " values, expected "
+                    + dumpColumns.size());
+            }
+            Object[] row = new Object[targetIndexes.length];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = values[targetIndexes[i]];
+            }
+            if (uuidTarget >= 0) {
+                row[uuidTarget] = keys.convert(row[uuidTarget]);
+            }
+            return row;
+        }
+
+        /**
+         * Map the dumped columns onto the staging table; columns it no longer has are left out
+         */
+        private TableLoad withColumns(List<String> dumped, List<String> stagingColumns, UuidKeys keys) throws SQLException {
+            TableLoad load = new TableLoad(live, staging, dumped, indexes);
+            load.keys = keys;
+            List<Integer> targets = new ArrayList<>();
+            StringBuilder columns = new StringBuilder();
+            for (int i = 0; i < dumped.size(); i++) {
+                for (String column : stagingColumns) {
+                    if (column.equalsIgnoreCase(dumped.get(i))) {
+                        if ("uuid".equalsIgnoreCase(column)) {
+                            load.uuidTarget = targets.size();
+                        }
+                        targets.add(i);
+                        columns.append(columns.length() > 0 ? ", " : "").append(column);
+                        break;
+                    }
+                }
+            }
+            if (targets.isEmpty()) {
+                throw new SQLException("No column of " + live + " in the backup matches the database");
+            }
+            load.targetIndexes = new int[targets.size()];
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < targets.size(); i++) {
+                load.targetIndexes[i] = targets.get(i);
+                placeholders.append(i > 0 ? ",?" : "?");
+            }
+            load.upsertSql = "REPLACE INTO " + staging + " (" + columns + ") VALUES (" + placeholders + ")";
+            return load;
+        }
+    }
+
+    private static final class Found {
+        private final BinaryBackupReader.TableIndex index;
+        private final List<Object[]> rows;
+
+        private Found(BinaryBackupReader.TableIndex index, List<Object[]> rows) {
+            this.index = index;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Splits the dump into statements at semicolons outside quoted values; comment lines come back as they are
+     */
+    private static final class StatementReader {
+        private final Reader reader;
+        private final char[] buffer = new char[64 * 1024];
+        private final StringBuilder statement = new StringBuilder(1024);
+        private int pos;
+        private int limit;
+
+        private StatementReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() throws IOException {
+            if (pos >= limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    return -1;
+                }
+            }
+            return buffer[pos++];
+        }
+
+        private String next() throws IOException {
+            statement.setLength(0);
+            boolean quoted = false;
+            int c;
+            while ((c = read()) != -1) {
+                if (statement.length() == 0 && !quoted) {
+                    if (Character.isWhitespace(c)) {
+                        continue;
+                    }
+                    if (c == '-') {
+                        // Comment lines are returned whole, some carry chunk checksums
+                        while (c != -1 && c != '\n') {
+                            statement.append((char) c);
+                            c = read();
+                        }
+                        return statement.toString();
+                    }
+                }
+                if (c == ';' && !quoted) {
+                    return statement.toString();
+                }
+                if (c == '\'') {
+                    // A doubled quote inside a value toggles twice
+                    quoted = !quoted;
+                }
+                statement.append((char) c);
+            }
+            if (statement.length() > 0) {
+                throw new IOException("Backup dump ends in the middle of a statement");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Logs progress from the bytes of the dumps read so far, at most every few seconds
+     */
+    private final class Progress {
+        private final long start;
+        private final long totalBytes;
+        private long finishedBytes;
+        private CountingInputStream current;
+        // Compressed bytes of binary blocks loaded from the current file
+        private final AtomicLong blockBytes = new AtomicLong();
+        private long lastReport;
+
+        private Progress(long start, long totalBytes) {
+            this.start = start;
+            this.totalBytes = totalBytes;
+            this.lastReport = start;
+        }
+
+        private void startFile(CountingInputStream stream) {
+            current = stream;
+        }
+
+        private void finishFile() {
+            if (current != null) {
+                finishedBytes += current.count;
+                current = null;
+            }
+            finishedBytes += blockBytes.getAndSet(0);
+        }
+
+        private void maybeReport() {
+            long now = System.currentTimeMillis();
+            if (now - lastReport < PROGRESS_INTERVAL_MS) {
+                return;
+            }
+            lastReport = now;
+            long read = finishedBytes + (current != null ? current.count : 0) + blockBytes.get();
+            long seconds = Math.max(1, (now - start) / 1000);
+            long rows = rowsLoaded.get();
+            if (totalBytes <= 0 || read <= 0) {
+                report(String.format("Restore progress: %d rows (%d rows/s)", rows, rows / seconds));
+                return;
+            }
+            double done = Math.min(1.0, read / (double) totalBytes);
+            long eta = (long) ((now - start) * (1 - done) / done / 1000);
+            report(String.format("Restore progress: %.0f%%, %d rows (%d rows/s), about %ds left",
+                done * 100, rows, rows / seconds, eta));
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
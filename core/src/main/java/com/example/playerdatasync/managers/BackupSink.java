@@ -0,0 +1,37 @@
+package com.example.playerdatasync.managers;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Receives the tables and rows of a database backup as they are read, one keyset page at a time
+ */
+interface BackupSink {
+    /**
+     * @param definitions column definitions as they would appear in CREATE TABLE
+     * @param keyColumn   position of the first primary key column, or -1 if the table has none
+     * @param replace     whether rows overwrite those of an earlier backup in the chain
+     */
+    void beginTable(String table, List<String> columns, List<String> definitions, int keyColumn, boolean replace)
+            throws IOException;
+
+    void startChunk() throws IOException;
+
+    /**
+     * Write the current row of the result set
+     *
+     * @param types JDBC types of the result columns
+     */
+    void row(ResultSet rs, int[] types) throws SQLException, IOException;
+
+    void endChunk(int rows) throws IOException;
+
+    void endTable() throws IOException;
+
+    /**
+     * Bytes produced so far, for pacing the backup to its I/O budget
+     */
+    long bytesWritten();
+}
@@ -0,0 +1,276 @@
+package com.example.playerdatasync.managers;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads backups written by {@link BinaryBackupWriter}. The entry is stored uncompressed in the zip,
+ * so any block can be read by skipping to its offset; blocks are independent and can be decoded
+ * on several threads at once.
+ */
+public class BinaryBackupReader {
+    static final String ENTRY = "database.pdsb";
+    static final int MAGIC = 0x50445342;
+    static final int VERSION = 1;
+    // Index offset and magic at the end of the entry
+    static final int TRAILER_LENGTH = 12;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte TIMESTAMP = 4;
+    static final byte BYTES = 5;
+
+    private final ZipFile zip;
+    private final ZipEntry entry;
+    private final List<TableIndex> tables = new ArrayList<>();
+
+    public BinaryBackupReader(ZipFile zip, ZipEntry entry) throws IOException {
+        if (entry.getMethod() != ZipEntry.STORED || entry.getSize() < TRAILER_LENGTH) {
+            throw new IOException("Binary backup entry " + entry.getName() + " is not stored for random access");
+        }
+        this.zip = zip;
+        this.entry = entry;
+
+        long indexOffset;
+        try (DataInputStream in = open(entry.getSize() - TRAILER_LENGTH)) {
+            indexOffset = in.readLong();
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Binary backup " + zip.getName() + " is truncated");
+            }
+        }
+        try (DataInputStream in = open(indexOffset)) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary backup version " + version);
+            }
+            int tableCount = in.readInt();
+            for (int t = 0; t < tableCount; t++) {
+                TableIndex table = new TableIndex(in.readUTF(), in.readBoolean(), in.readInt());
+                int columnCount = in.readInt();
+                for (int c = 0; c < columnCount; c++) {
+                    table.columns.add(in.readUTF());
+                }
+                int blockCount = in.readInt();
+                for (int b = 0; b < blockCount; b++) {
+                    BlockIndex block = new BlockIndex(in.readInt(), in.readInt(), in.readUTF(), in.readUTF());
+                    block.offset = in.readLong();
+                    block.compressedLength = in.readInt();
+                    block.crc = in.readInt() & 0xFFFFFFFFL;
+                    table.blocks.add(block);
+                }
+                tables.add(table);
+            }
+        }
+    }
+
+    /**
+     * The binary database entry of a backup, or null for backups with a SQL dump
+     */
+    public static ZipEntry findEntry(ZipFile zip) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.getName().endsWith("/" + ENTRY)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public List<TableIndex> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    public TableIndex getTable(String name) {
+        for (TableIndex table : tables) {
+            if (table.name.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private DataInputStream open(long offset) throws IOException {
+        InputStream in = zip.getInputStream(entry);
+        skipFully(in, offset);
+        return new DataInputStream(new BufferedInputStream(in));
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        // Skipping a stored entry only moves the read position
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException("Binary backup ends before offset " + count);
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Decompress and decode one block; values are String, Long, Double, Timestamp, byte[] or null
+     */
+    public List<Object[]> readBlock(TableIndex table, BlockIndex block) throws IOException {
+        byte[] compressed = new byte[block.compressedLength];
+        try (DataInputStream in = open(block.offset)) {
+            in.readFully(compressed);
+        }
+
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != raw.length) {
+                throw new IOException("Block of " + table.name + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block of " + table.name + " is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if (crc.getValue() != block.crc) {
+            throw new IOException("Block of " + table.name + " is corrupt: checksum mismatch");
+        }
+
+        int columns = table.columns.size();
+        List<Object[]> rows = new ArrayList<>(block.rows);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        for (int r = 0; r < block.rows; r++) {
+            // Record length, so readers of a later version can skip fields they do not know
+            int length = in.readInt();
+            int start = raw.length - in.available();
+            Object[] row = new Object[columns];
+            for (int c = 0; c < columns; c++) {
+                row[c] = readValue(in, raw);
+            }
+            int remaining = length - (raw.length - in.available() - start);
+            if (remaining < 0) {
+                throw new IOException("Record of " + table.name + " overruns its length");
+            }
+            skipFully(in, remaining);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Object readValue(DataInputStream in, byte[] raw) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING: {
+                int length = in.readInt();
+                int offset = raw.length - in.available();
+                String value = new String(raw, offset, length, StandardCharsets.UTF_8);
+                skipFully(in, length);
+                return value;
+            }
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case TIMESTAMP:
+                return new Timestamp(in.readLong());
+            case BYTES: {
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                return value;
+            }
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Rows whose first key column equals the key, reading only the blocks whose key range covers it
+     */
+    public List<Object[]> find(TableIndex table, String key) throws IOException {
+        List<Object[]> found = new ArrayList<>();
+        if (table == null || table.keyColumn < 0) {
+            return found;
+        }
+        for (BlockIndex block : table.blocks) {
+            if (key.compareTo(block.firstKey) < 0 || key.compareTo(block.lastKey) > 0) {
+                continue;
+            }
+            for (Object[] row : readBlock(table, block)) {
+                Object value = row[table.keyColumn];
+                if (value != null && key.equals(String.valueOf(value))) {
+                    found.add(row);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Columns of a backed up table and the blocks holding its rows, in key order
+     */
+    public static class TableIndex {
+        final String name;
+        final boolean replace;
+        final int keyColumn;
+        final List<String> columns = new ArrayList<>();
+        final List<BlockIndex> blocks = new ArrayList<>();
+
+        TableIndex(String name, boolean replace, int keyColumn) {
+            this.name = name;
+            this.replace = replace;
+            this.keyColumn = keyColumn;
+        }
+
+        public String getName() { return name; }
+        public List<String> getColumns() { return columns; }
+        public List<BlockIndex> getBlocks() { return blocks; }
+    }
+
+    /**
+     * Position, size, checksum and key range of one compressed block
+     */
+    public static class BlockIndex {
+        final int rows;
+        final int rawLength;
+        final String firstKey;
+        final String lastKey;
+        long offset;
+        int compressedLength;
+        long crc;
+
+        BlockIndex(int rows, int rawLength, String firstKey, String lastKey) {
+            this.rows = rows;
+            this.rawLength = rawLength;
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+        }
+
+        public int getRows() { return rows; }
+        public int getCompressedLength() { return compressedLength; }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.playerdatasync.managers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.example.playerdatasync.database.UuidKeys;
+import com.example.playerdatasync.managers.BinaryBackupReader.BlockIndex;
+import com.example.playerdatasync.managers.BinaryBackupReader.TableIndex;
+
+/**
+ * Writes backup rows as length-prefixed typed records into blocks of a table. Each block is
+ * compressed on its own by a worker pool while the next one fills, and blocks are written in
+ * order with an index of their offsets and key ranges at the end of the file, followed by the
+ * index offset. A restore reads the index first and can then decode any block on its own.
+ */
+public class BinaryBackupWriter implements BackupSink, Closeable {
+    private final CountingOutputStream file;
+    private final DataOutputStream out;
+    private final ExecutorService pool;
+    private final int blockSize;
+    private final int level;
+    private final int maxPending;
+    // Blocks handed to the pool, oldest first
+    private final ArrayDeque<BlockIndex> pendingBlocks = new ArrayDeque<>();
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final List<TableIndex> tables = new ArrayList<>();
+
+    private TableIndex table;
+    private int uuidColumn;
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream blockData = new DataOutputStream(block);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordData = new DataOutputStream(record);
+    private int blockRows;
+    private String firstKey;
+    private String lastKey;
+    private long rawBytes;
+
+    /**
+     * @param threads   compression workers
+     * @param blockSize uncompressed bytes per block
+     * @param level     Deflater compression level
+     */
+    public BinaryBackupWriter(File target, int threads, int blockSize, int level) throws IOException {
+        this.file = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(target), 64 * 1024));
+        this.out = new DataOutputStream(file);
+        this.blockSize = Math.max(4096, blockSize);
+        this.level = level;
+        this.maxPending = Math.max(2, threads * 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "PlayerDataSync-Compress-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        out.writeInt(BinaryBackupReader.MAGIC);
+        out.writeInt(BinaryBackupReader.VERSION);
+    }
+
+    @Override
+    public void beginTable(String name, List<String> columns, List<String> definitions, int keyColumn, boolean replace) {
+        table = new TableIndex(name, replace, keyColumn);
+        uuidColumn = BackupManager.uuidColumn(columns);
+        table.columns.addAll(columns);
+        tables.add(table);
+    }
+
+    @Override
+    public void startChunk() {
+        // Blocks carry their own checksum
+    }
+
+    @Override
+    public void row(ResultSet rs, int[] types) throws SQLException, IOException {
+        record.reset();
+        for (int i = 0; i < types.length; i++) {
+            if (i + 1 == uuidColumn) {
+                // Hex text sorts like the bytes, so key ranges hold for binary keys too
+                writeString(UuidKeys.text(rs, i + 1, types[i]));
+            } else {
+                writeValue(rs, i + 1, types[i]);
+            }
+        }
+        blockData.writeInt(record.size());
+        record.writeTo(blockData);
+        rawBytes += record.size() + 4;
+
+        String key = null;
+        if (table.keyColumn >= 0) {
+            key = table.keyColumn + 1 == uuidColumn
+                ? UuidKeys.text(rs, uuidColumn, types[table.keyColumn])
+                : rs.getString(table.keyColumn + 1);
+        }
+        if (blockRows == 0) {
+            firstKey = key;
+        }
+        lastKey = key;
+        if (++blockRows >= 65536 || block.size() >= blockSize) {
+            flushBlock();
+        }
+    }
+
+    private void writeValue(ResultSet rs, int column, int type) throws SQLException, IOException {
+        switch (type) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT: {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    recordData.writeByte(BinaryBackupReader.NULL);
+                } else {
+                    recordData.writeByte(BinaryBackupReader.LONG);
+                    recordData.writeLong(value);
+                }
+                return;
+            }
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    recordData.writeByte(BinaryBackupReader.NULL);
+                } else {
+                    recordData.writeByte(BinaryBackupReader.DOUBLE);
+                    recordData.writeDouble(value);
+                }
+                return;
+            }
+            case Types.DATE:
+            case Types.TIMESTAMP: {
+                Timestamp value;
+                try {
+                    value = rs.getTimestamp(column);
+                } catch (SQLException e) {
+                    // SQLite keeps CURRENT_TIMESTAMP defaults as text the driver may not parse
+                    writeString(rs.getString(column));
+                    return;
+                }
+                if (value == null) {
+                    recordData.writeByte(BinaryBackupReader.NULL);
+                } else {
+                    recordData.writeByte(BinaryBackupReader.TIMESTAMP);
+                    recordData.writeLong(value.getTime());
+                }
+                return;
+            }
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: {
+                byte[] value = rs.getBytes(column);
+                if (value == null) {
+                    recordData.writeByte(BinaryBackupReader.NULL);
+                } else {
+                    recordData.writeByte(BinaryBackupReader.BYTES);
+                    recordData.writeInt(value.length);
+                    recordData.write(value);
+                }
+                return;
+            }
+            default:
+                writeString(rs.getString(column));
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            recordData.writeByte(BinaryBackupReader.NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordData.writeByte(BinaryBackupReader.STRING);
+        recordData.writeInt(bytes.length);
+        recordData.write(bytes);
+    }
+
+    @Override
+    public void endChunk(int rows) {
+    }
+
+    @Override
+    public void endTable() throws IOException {
+        flushBlock();
+        table = null;
+    }
+
+    @Override
+    public long bytesWritten() {
+        return rawBytes;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        byte[] raw = block.toByteArray();
+        block.reset();
+        BlockIndex index = new BlockIndex(blockRows, raw.length, firstKey != null ? firstKey : "",
+            lastKey != null ? lastKey : "");
+        table.blocks.add(index);
+        blockRows = 0;
+
+        pendingBlocks.add(index);
+        pending.add(pool.submit(() -> compress(index, raw)));
+        while (pending.size() > maxPending) {
+            writeNext();
+        }
+    }
+
+    private byte[] compress(BlockIndex index, byte[] raw) {
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        index.crc = crc.getValue();
+
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressedBlock.write(buffer, 0, n);
+            }
+            return compressedBlock.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Write the oldest pending block once it is compressed, keeping blocks in file order
+     */
+    private void writeNext() throws IOException {
+        BlockIndex index = pendingBlocks.poll();
+        byte[] bytes;
+        try {
+            bytes = pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing the backup");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not compress a backup block: " + e.getCause().getMessage(), e.getCause());
+        }
+        index.offset = file.count;
+        index.compressedLength = bytes.length;
+        out.write(bytes);
+    }
+
+    /**
+     * Write the remaining blocks and the index. The file is complete once this returns.
+     */
+    public void finish() throws IOException {
+        if (table != null) {
+            endTable();
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+
+        long indexOffset = file.count;
+        out.writeInt(BinaryBackupReader.VERSION);
+        out.writeInt(tables.size());
+        for (TableIndex written : tables) {
+            out.writeUTF(written.name);
+            out.writeBoolean(written.replace);
+            out.writeInt(written.keyColumn);
+            out.writeInt(written.columns.size());
+            for (String column : written.columns) {
+                out.writeUTF(column);
+            }
+            out.writeInt(written.blocks.size());
+            for (BlockIndex index : written.blocks) {
+                out.writeInt(index.rows);
+                out.writeInt(index.rawLength);
+                out.writeUTF(index.firstKey);
+                out.writeUTF(index.lastKey);
+                out.writeLong(index.offset);
+                out.writeInt(index.compressedLength);
+                out.writeInt((int) index.crc);
+            }
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(BinaryBackupReader.MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Compressed size of the backup against the uncompressed row data, for the log
+     */
+    public String getSummary() {
+        return String.format("%d tables, %d KB of rows in %d KB", tables.size(), rawBytes / 1024, file.count / 1024);
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        out.close();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.playerdatasync.managers;
+
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.playerdatasync.core.PlayerDataSync;
+import com.example.playerdatasync.utils.StatisticsCodec;
+
+/**
+ * Keeps each online player's statistics up to date from statistic increment events, so saves
+ * do not have to enumerate every statistic, material and entity type.
+ * The server does not fire events for distance and time statistics; those few are read on capture.
+ * A player without tracked state (first save, or data loaded from the old format) gets one full scan.
+ */
+public class StatisticsTracker {
+    private final PlayerDataSync plugin;
+    private final ConcurrentHashMap<UUID, Map<String, Integer>> players = new ConcurrentHashMap<>();
+    private final List<Statistic> polledStatistics = new ArrayList<>();
+
+    private final AtomicLong recordedEvents = new AtomicLong();
+    private final AtomicLong fullScans = new AtomicLong();
+
+    public StatisticsTracker(PlayerDataSync plugin) {
+        this.plugin = plugin;
+        for (Statistic statistic : Statistic.values()) {
+            if (statistic.getType() == Statistic.Type.UNTYPED && isPolled(statistic.name())) {
+                polledStatistics.add(statistic);
+            }
+        }
+    }
+
+    private static boolean isPolled(String name) {
+        return name.endsWith("_ONE_CM")
+                || name.equals("PLAY_ONE_MINUTE") || name.equals("PLAY_ONE_TICK")
+                || name.equals("TOTAL_WORLD_TIME") || name.equals("TIME_SINCE_DEATH")
+                || name.equals("TIME_SINCE_REST") || name.equals("SNEAK_TIME");
+    }
+
+    /**
+     * Record a new value reported by a statistic increment event
+     */
+    public void record(Player player, Statistic statistic, Material material, EntityType entityType, int newValue) {
+        Map<String, Integer> values = players.get(player.getUniqueId());
+        if (values == null) {
+            // Not seeded yet; the first capture scans everything anyway
+            return;
+        }
+        String sub = material != null ? material.name() : entityType != null ? entityType.name() : null;
+        synchronized (values) {
+            values.put(StatisticsCodec.key(statistic.name(), sub), newValue);
+        }
+        recordedEvents.incrementAndGet();
+    }
+
+    /**
+     * Use the values that were just applied from storage as the tracked state
+     */
+    public void seed(UUID uuid, Map<String, Integer> values) {
+        players.put(uuid, new HashMap<>(values));
+    }
+
+    public void forget(UUID uuid) {
+        players.remove(uuid);
+    }
+
+    /**
+     * Current statistics of the player. Must be called on the player's thread.
+     */
+    public Map<String, Integer> capture(Player player) {
+        Map<String, Integer> values = players.get(player.getUniqueId());
+        if (values == null) {
+            values = scanAll(player);
+            players.put(player.getUniqueId(), values);
+        } else {
+            synchronized (values) {
+                for (Statistic statistic : polledStatistics) {
+                    values.put(statistic.name(), player.getStatistic(statistic));
+                }
+            }
+        }
+        synchronized (values) {
+            return new HashMap<>(values);
+        }
+    }
+
+    /**
+     * Read every statistic including the per-material and per-entity ones
+     */
+    private Map<String, Integer> scanAll(Player player) {
+        fullScans.incrementAndGet();
+        Map<String, Integer> values = new HashMap<>();
+        Material[] materials = Material.values();
+        EntityType[] entityTypes = EntityType.values();
+
+        for (Statistic statistic : Statistic.values()) {
+            try {
+                switch (statistic.getType()) {
+                    case UNTYPED:
+                        put(values, statistic, null, player.getStatistic(statistic));
+                        break;
+                    case BLOCK:
+                    case ITEM:
+                        for (Material material : materials) {
+                            if (material.name().startsWith("LEGACY_")
+                                    || (statistic.getType() == Statistic.Type.BLOCK && !material.isBlock())) {
+                                continue;
+                            }
+                            try {
+                                put(values, statistic, material.name(), player.getStatistic(statistic, material));
+                            } catch (IllegalArgumentException e) {
+                                // Material has no statistic of this kind
+                            }
+                        }
+                        break;
+                    case ENTITY:
+                        for (EntityType entityType : entityTypes) {
+                            if (!entityType.isAlive()) {
+                                continue;
+                            }
+                            try {
+                                put(values, statistic, entityType.name(), player.getStatistic(statistic, entityType));
+                            } catch (IllegalArgumentException e) {
+                                // Entity has no statistic of this kind
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                plugin.logDebug("Could not read statistic " + statistic.name() + ": " + e.getMessage());
+            }
+        }
+        return values;
+    }
+
+    private static void put(Map<String, Integer> values, Statistic statistic, String sub, int value) {
+        if (value > 0) {
+            values.put(StatisticsCodec.key(statistic.name(), sub), value);
+        }
+    }
+
+    /**
+     * Apply stored statistics to the player. Must be called on the player's thread.
+     *
+     * @return the values that were applied
+     */
+    public Map<String, Integer> apply(Player player, Map<String, Integer> values) {
+        Map<String, Integer> applied = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : values.entrySet()) {
+            String key = entry.getKey();
+            try {
+                Statistic statistic = Statistic.valueOf(StatisticsCodec.statisticOf(key));
+                String sub = StatisticsCodec.subOf(key);
+                if (sub == null) {
+                    player.setStatistic(statistic, entry.getValue());
+                } else if (statistic.getType() == Statistic.Type.ENTITY) {
+                    player.setStatistic(statistic, EntityType.valueOf(sub), entry.getValue());
+                } else {
+                    Material material = Material.getMaterial(sub);
+                    if (material == null) {
+                        continue;
+                    }
+                    player.setStatistic(statistic, material, entry.getValue());
+                }
+                applied.put(key, entry.getValue());
+            } catch (IllegalArgumentException e) {
+                // Statistic, material or entity not known on this server version
+                plugin.logDebug("Skipping statistic " + key + " for " + player.getName() + ": " + e.getMessage());
+            }
+        }
+        return applied;
+    }
+
+    public String getStats() {
+        return String.format("Statistics tracker: %d players, %d events recorded, %d full scans",
+                players.size(), recordedEvents.get(), fullScans.get());
+    }
+
+    public void resetStats() {
+        recordedEvents.set(0);
+        fullScans.set(0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.playerdatasync.utils;
+
+import java.util.UUID;
+
+import com.example.playerdatasync.utils.ItemSerializationCache.StoredSection;
+
+/**
+ * Result of encoding one inventory section for a save.
+ * Always carries the full slot-indexed payload; when the database is known to hold an
+ * earlier payload of this section, it also carries a delta record with only the changed slots.
+ */
+public class EncodedInventory {
+    private final UUID owner;
+    private final String section;
+    private final String full;
+    private final int codecId;
+    private final byte[][] slots;
+    private final int slotCount;
+    private final long generation;
+    private final String delta;
+    private final StoredSection base;
+
+    EncodedInventory(UUID owner, String section, String full, int codecId, byte[][] slots, long generation,
+                     String delta, StoredSection base) {
+        this.owner = owner;
+        this.section = section;
+        this.full = full;
+        this.codecId = codecId;
+        this.slots = slots;
+        this.slotCount = slots != null ? slots.length : 0;
+        this.generation = generation;
+        this.delta = delta;
+        this.base = base;
+    }
+
+    static EncodedInventory fullOnly(String full) {
+        return new EncodedInventory(null, null, full, -1, null, 0, null, null);
+    }
+
+    public String getFull() { return full; }
+
+    /**
+     * Codec of the slot bytes, or -1 for legacy Bukkit stream payloads
+     */
+    public int getCodecId() { return codecId; }
+
+    /**
+     * Encoded bytes per slot (null for empty slots), or null for legacy Bukkit stream payloads
+     */
+    public byte[][] getEncodedSlots() { return slots; }
+
+    /**
+     * Text to append to the stored value, or null when the full payload must be written
+     */
+    public String getDelta() { return delta; }
+
+    public boolean hasDelta() { return delta != null && base != null; }
+
+    /**
+     * Value the stored column must start with for the delta to apply
+     */
+    public String getExpectedPrefix() { return base != null ? base.getPrefix() : null; }
+
+    /**
+     * Length the stored column must have for the delta to apply
+     */
+    public int getExpectedLength() { return base != null ? base.getLength() : -1; }
+
+    /**
+     * Record a successful write so the next save can append to it
+     */
+    public void confirm(boolean deltaWritten) {
+        ItemSerializationCache cache = InventoryUtils.getSerializationCache();
+        if (cache == null || owner == null || section == null) {
+            return;
+        }
+
+        StoredSection stored;
+        if (deltaWritten && hasDelta()) {
+            stored = new StoredSection(base.getPrefix(), base.getLength() + delta.length(), slotCount, generation,
+                delta.isEmpty() ? base.getChainLength() : base.getChainLength() + 1);
+        } else {
+            stored = new StoredSection(InventoryUtils.lineagePrefix(full), full.length(), slotCount, generation, 0);
+        }
+        cache.confirmStored(owner, section, stored);
+    }
+
+    /**
+     * Record a write that did not store the payload inline, so the next save writes it in full
+     */
+    public void confirmDetached() {
+        ItemSerializationCache cache = InventoryUtils.getSerializationCache();
+        if (cache != null && owner != null && section != null) {
+            cache.confirmStored(owner, section, null);
+        }
+    }
+}
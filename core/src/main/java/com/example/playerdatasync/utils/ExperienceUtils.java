@@ -0,0 +1,42 @@
+package com.example.playerdatasync.utils;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Experience helpers shared by the full save path and the XP micro-saves.
+ */
+public final class ExperienceUtils {
+
+    private ExperienceUtils() {
+    }
+
+    /**
+     * Calculates the player's total experience using level + progress.
+     *
+     * <p>
+     * Using {@link Player#getTotalExperience()} directly can return stale values
+     * in edge-cases where experience is spent quickly (for example in enchanting
+     * workflows followed by immediate logout/server switch).
+     */
+    public static int calculateTotalExperience(Player player) {
+        if (player == null) {
+            return 0;
+        }
+
+        int level = Math.max(0, player.getLevel());
+        float progress = player.getExp();
+        int total = getExpAtLevel(level) + Math.round(progress * player.getExpToLevel());
+
+        return Math.max(total, 0);
+    }
+
+    public static int getExpAtLevel(int level) {
+        if (level <= 16) {
+            return level * level + 6 * level;
+        }
+        if (level <= 31) {
+            return (int) (2.5 * level * level - 40.5 * level + 360);
+        }
+        return (int) (4.5 * level * level - 162.5 * level + 2220);
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.playerdatasync.utils;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.io.BukkitObjectInputStream;
 import org.bukkit.util.io.BukkitObjectOutputStream;
 
+import com.example.playerdatasync.nms.BukkitStreamItemCodec;
+import com.example.playerdatasync.nms.ItemCodec;
+import com.example.playerdatasync.nms.ItemCodecs;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Enhanced inventory utilities for PlayerDataSync
@@ -19,6 +31,30 @@ public class InventoryUtils {
 
     private static final String DOWNGRADE_ERROR_FRAGMENT = "Server downgrades are not supported";
     private static final String NEWER_VERSION_FRAGMENT = "Newer version";
+
+    // Header of codec payloads: "PDS", format version, codec id, data version.
+    // Payloads without it are plain Bukkit object streams.
+    private static final byte[] CODEC_MAGIC = {'P', 'D', 'S'};
+    private static final int CODEC_HEADER_SIZE = CODEC_MAGIC.length + 2 + 4;
+    // Format 1: slot count followed by length-prefixed slots (read only)
+    private static final byte FORMAT_SEQUENTIAL = 1;
+    // Format 2: lineage id, slot count, offset table, slot data
+    private static final byte FORMAT_INDEXED = 2;
+    // Format 3: delta record with only the changed slots, appended after a format 2 payload
+    private static final byte FORMAT_DELTA = 3;
+    // Format 4: slot count followed by (slot, content hash) pairs of the item blob store
+    private static final byte FORMAT_REFERENCE = 4;
+    private static final int REFERENCE_HASH_SIZE = 32;
+    private static final char CHAIN_SEPARATOR = '.';
+    // Base64 characters covering the header including the random lineage id
+    private static final int LINEAGE_PREFIX_CHARS = 24;
+    // Base64 characters covering exactly the codec header
+    private static final int HEADER_CHARS = CODEC_HEADER_SIZE / 3 * 4;
+
+    private static volatile int maxDeltaChain = 8;
+
+    private static volatile ItemCodec itemCodec = BukkitStreamItemCodec.INSTANCE;
+    private static volatile ItemSerializationCache serializationCache;
     
     // Statistics for deserialization issues
     private static int customEnchantmentFailures = 0;
@@ -30,14 +66,27 @@ public class InventoryUtils {
      * Preserves custom enchantments and NBT data from plugins like ExcellentEnchants and EcoEnchants
      */
     public static String itemStackArrayToBase64(ItemStack[] items) throws IOException {
+        return itemStackArrayToBase64(items, null, null);
+    }
+
+    /**
+     * Convert a player's ItemStack array to Base64, reusing the cached bytes of slots
+     * that did not change since the previous save of the same section
+     */
+    public static String itemStackArrayToBase64(ItemStack[] items, UUID owner, String section) throws IOException {
         if (items == null) return "";
-        
+
+        ItemCodec codec = itemCodec;
+        if (codec.getId() != ItemCodec.BUKKIT_STREAM) {
+            return encodeInventory(items, owner, section).getFull();
+        }
+
         // Validate and sanitize items before serialization
         // Note: sanitizeItemStackArray uses clone() which should preserve all NBT data including custom enchantments
         ItemStack[] sanitizedItems = sanitizeItemStackArray(items);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+
+        PooledBuffers buffers = PooledBuffers.acquire();
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(buffers.data())) {
             dataOutput.writeInt(sanitizedItems.length);
             for (ItemStack item : sanitizedItems) {
                 // BukkitObjectOutputStream serializes the entire ItemStack including all NBT data,
@@ -45,7 +94,7 @@ public class InventoryUtils {
                 dataOutput.writeObject(item);
             }
         }
-        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+        return buffers.toBase64();
     }
 
     /**
@@ -54,8 +103,31 @@ public class InventoryUtils {
      */
     public static ItemStack[] itemStackArrayFromBase64(String data) throws IOException, ClassNotFoundException {
         if (data == null || data.isEmpty()) return new ItemStack[0];
+
+        if (data.indexOf(CHAIN_SEPARATOR) >= 0) {
+            ItemStack[] items = decodeChain(data);
+            return validateItemStackArray(items) ? items : sanitizeItemStackArray(items);
+        }
+        byte[] bytes = Base64.getDecoder().decode(data);
+        if (hasCodecHeader(bytes)) {
+            ItemStack[] items = decodeWithCodec(bytes);
+            return validateItemStackArray(items) ? items : sanitizeItemStackArray(items);
+        }
+
+        ItemStack[] items = readBukkitStream(new ByteArrayInputStream(bytes));
         
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(data));
+        // Validate deserialized items
+        // Note: We don't sanitize here to preserve all NBT data including custom enchantments
+        // Only validate that items are not corrupted
+        if (!validateItemStackArray(items)) {
+            // If validation fails, sanitize the items (but preserve NBT data via clone())
+            return sanitizeItemStackArray(items);
+        }
+        
+        return items;
+    }
+    
+    private static ItemStack[] readBukkitStream(InputStream inputStream) throws IOException {
         ItemStack[] items;
         try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
             int length = dataInput.readInt();
@@ -71,68 +143,75 @@ public class InventoryUtils {
                     }
                     items[i] = (ItemStack) obj;
                 } catch (Exception e) {
-                    if (isVersionDowngradeIssue(e)) {
-                        versionCompatibilityFailures++;
-                        String enchantmentName = extractEnchantmentName(e);
-                        Bukkit.getLogger().warning("[PlayerDataSync] Version compatibility issue detected for item " + i
-                            + (enchantmentName != null ? " (enchantment: " + enchantmentName + ")" : "")
-                            + ": " + collectCompatibilityMessage(e) + ". Skipping unsupported item.");
-                        items[i] = null;
-                    } else if (isCustomEnchantmentIssue(e)) {
-                        customEnchantmentFailures++;
-                        String enchantmentName = extractEnchantmentName(e);
-                        
-                        // Log detailed information about the custom enchantment issue
-                        Bukkit.getLogger().warning("[PlayerDataSync] Custom enchantment deserialization failed for item " + i
-                            + (enchantmentName != null ? " (enchantment: " + enchantmentName + ")" : "")
-                            + ". The enchantment plugin may not be loaded or the enchantment is not registered.");
-                        
-                        // Extract more details from the error
-                        String errorDetails = extractErrorDetails(e);
-                        if (errorDetails != null && !errorDetails.isEmpty()) {
-                            Bukkit.getLogger().fine("[PlayerDataSync] Error details: " + errorDetails);
-                        }
-                        
-                        // The item cannot be deserialized due to the custom enchantment issue
-                        // The NBT data is preserved in the database and will be available once
-                        // the enchantment plugin is properly loaded and recognizes the enchantment
-                        items[i] = null;
-                        
-                        Bukkit.getLogger().info("[PlayerDataSync] Item " + i + " skipped. Data preserved in database. " +
-                            "Ensure the enchantment plugin (e.g., ExcellentEnchants/EcoEnchants) is loaded and the enchantment is registered.");
-                    } else {
-                        otherDeserializationFailures++;
-                        String errorType = e.getClass().getSimpleName();
-                        Bukkit.getLogger().warning("[PlayerDataSync] Failed to deserialize item " + i 
-                            + " (error type: " + errorType + "): " + collectCompatibilityMessage(e) + ". Skipping item.");
-                        items[i] = null;
-                    }
+                    handleItemFailure(e, i);
+                    items[i] = null;
                 }
             }
         }
-        
-        // Validate deserialized items
-        // Note: We don't sanitize here to preserve all NBT data including custom enchantments
-        // Only validate that items are not corrupted
-        if (!validateItemStackArray(items)) {
-            // If validation fails, sanitize the items (but preserve NBT data via clone())
-            return sanitizeItemStackArray(items);
-        }
-        
         return items;
     }
-    
+
+    /**
+     * Record and log why a single item of an array could not be deserialized
+     */
+    private static void handleItemFailure(Exception e, int index) {
+        if (isVersionDowngradeIssue(e)) {
+            versionCompatibilityFailures++;
+            String enchantmentName = extractEnchantmentName(e);
+            Bukkit.getLogger().warning("[PlayerDataSync] Version compatibility issue detected for item " + index
+                + (enchantmentName != null ? " (enchantment: " + enchantmentName + ")" : "")
+                + ": " + collectCompatibilityMessage(e) + ". Skipping unsupported item.");
+        } else if (isCustomEnchantmentIssue(e)) {
+            customEnchantmentFailures++;
+            String enchantmentName = extractEnchantmentName(e);
+            
+            // Log detailed information about the custom enchantment issue
+            Bukkit.getLogger().warning("[PlayerDataSync] Custom enchantment deserialization failed for item " + index
+                + (enchantmentName != null ? " (enchantment: " + enchantmentName + ")" : "")
+                + ". The enchantment plugin may not be loaded or the enchantment is not registered.");
+            
+            // Extract more details from the error
+            String errorDetails = extractErrorDetails(e);
+            if (errorDetails != null && !errorDetails.isEmpty()) {
+                Bukkit.getLogger().fine("[PlayerDataSync] Error details: " + errorDetails);
+            }
+            
+            // The item cannot be deserialized due to the custom enchantment issue
+            // The NBT data is preserved in the database and will be available once
+            // the enchantment plugin is properly loaded and recognizes the enchantment
+            Bukkit.getLogger().info("[PlayerDataSync] Item " + index + " skipped. Data preserved in database. " +
+                "Ensure the enchantment plugin (e.g., ExcellentEnchants/EcoEnchants) is loaded and the enchantment is registered.");
+        } else {
+            otherDeserializationFailures++;
+            String errorType = e.getClass().getSimpleName();
+            Bukkit.getLogger().warning("[PlayerDataSync] Failed to deserialize item " + index 
+                + " (error type: " + errorType + "): " + collectCompatibilityMessage(e) + ". Skipping item.");
+        }
+    }
+
     /**
      * Convert single ItemStack to Base64 string
      */
     public static String itemStackToBase64(ItemStack item) throws IOException {
+        return itemStackToBase64(item, null, null);
+    }
+
+    /**
+     * Convert a player's single ItemStack to Base64, reusing cached bytes when unchanged
+     */
+    public static String itemStackToBase64(ItemStack item, UUID owner, String section) throws IOException {
         if (item == null) return "";
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+
+        ItemCodec codec = itemCodec;
+        if (codec.getId() != ItemCodec.BUKKIT_STREAM) {
+            return encodeInventory(new ItemStack[] { item }, owner, section).getFull();
+        }
+
+        PooledBuffers buffers = PooledBuffers.acquire();
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(buffers.data())) {
             dataOutput.writeObject(item);
         }
-        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+        return buffers.toBase64();
     }
 
     /**
@@ -141,8 +220,17 @@ public class InventoryUtils {
      */
     public static ItemStack itemStackFromBase64(String data) throws IOException, ClassNotFoundException {
         if (data == null || data.isEmpty()) return null;
-        
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(data));
+
+        if (data.indexOf(CHAIN_SEPARATOR) >= 0) {
+            return readSlot(data, 0);
+        }
+        byte[] bytes = Base64.getDecoder().decode(data);
+        if (hasCodecHeader(bytes)) {
+            ItemStack[] items = decodeWithCodec(bytes);
+            return items.length > 0 ? items[0] : null;
+        }
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
             try {
                 // BukkitObjectInputStream deserializes the complete ItemStack including all NBT data
@@ -184,6 +272,552 @@ public class InventoryUtils {
         }
     }
     
+    /**
+     * Codec used for new payloads; set from the NMS handler during startup
+     */
+    public static void setItemCodec(ItemCodec codec) {
+        itemCodec = codec != null ? codec : BukkitStreamItemCodec.INSTANCE;
+    }
+
+    public static ItemCodec getItemCodec() {
+        return itemCodec;
+    }
+
+    /**
+     * Per-player cache of encoded slots; null disables caching
+     */
+    public static void setSerializationCache(ItemSerializationCache cache) {
+        serializationCache = cache;
+    }
+
+    public static ItemSerializationCache getSerializationCache() {
+        return serializationCache;
+    }
+
+    /**
+     * Longest chain of delta records appended to a stored payload before it is rewritten in full
+     */
+    public static void setMaxDeltaChain(int maxChain) {
+        maxDeltaChain = Math.max(0, maxChain);
+    }
+
+    /**
+     * Encode a player's inventory section in the slot-indexed format. Unchanged slots reuse
+     * their cached bytes, and if an earlier payload of this section is known to be stored,
+     * a delta record with only the changed slots is prepared as well.
+     */
+    public static EncodedInventory encodeInventory(ItemStack[] items, UUID owner, String section) throws IOException {
+        if (items == null) return EncodedInventory.fullOnly("");
+
+        ItemCodec codec = itemCodec;
+        if (codec.getId() == ItemCodec.BUKKIT_STREAM) {
+            return EncodedInventory.fullOnly(itemStackArrayToBase64(items));
+        }
+
+        ItemSerializationCache cache = owner != null && section != null ? serializationCache : null;
+        long generation = cache != null ? cache.beginEncode(owner, section) : 0;
+
+        byte[][] slots = new byte[items.length][];
+        for (int slot = 0; slot < items.length; slot++) {
+            ItemStack item = sanitizeItem(items[slot], slot);
+            if (item == null) {
+                if (cache != null) {
+                    cache.clear(owner, section, slot);
+                }
+                continue;
+            }
+
+            byte[] encoded = cache != null ? cache.get(owner, section, slot, item, codec.getId()) : null;
+            if (encoded == null) {
+                encoded = encodeSlot(codec, item, slot);
+                if (cache != null) {
+                    cache.put(owner, section, slot, item, codec.getId(), encoded);
+                }
+            }
+            slots[slot] = encoded;
+        }
+
+        String full = writeIndexed(codec, slots);
+        if (cache == null || maxDeltaChain <= 0 || items.length > ItemSerializationCache.getMaxSlotsPerSection()) {
+            return new EncodedInventory(owner, section, full, codec.getId(), slots, generation, null, null);
+        }
+
+        ItemSerializationCache.StoredSection base = cache.getStored(owner, section);
+        if (base == null || base.getSlotCount() != items.length || base.getChainLength() >= maxDeltaChain) {
+            return new EncodedInventory(owner, section, full, codec.getId(), slots, generation, null, null);
+        }
+
+        int[] changed = cache.changedSince(owner, section, base.getGeneration(), items.length);
+        if (changed == null) {
+            return new EncodedInventory(owner, section, full, codec.getId(), slots, generation, null, null);
+        }
+        String delta = changed.length == 0 ? "" : writeDelta(codec, slots, changed);
+        // Rewrite in full once appending is no longer clearly cheaper
+        if (delta.length() * 2 > full.length()) {
+            return new EncodedInventory(owner, section, full, codec.getId(), slots, generation, null, null);
+        }
+        return new EncodedInventory(owner, section, full, codec.getId(), slots, generation, delta, base);
+    }
+
+    /**
+     * Decode a single slot without decoding the rest of the payload
+     */
+    public static ItemStack readSlot(String data, int slot) throws IOException, ClassNotFoundException {
+        if (data == null || data.isEmpty() || slot < 0) return null;
+
+        String[] parts = data.split("\\" + CHAIN_SEPARATOR);
+        // The newest delta that touches the slot wins
+        for (int i = parts.length - 1; i >= 1; i--) {
+            byte[] bytes = Base64.getDecoder().decode(parts[i]);
+            try (DataInputStream in = openPayload(bytes, FORMAT_DELTA)) {
+                ItemCodec codec = codecFor(in.readUnsignedByte());
+                in.readInt(); // data version
+                in.readInt(); // slot count
+                int changes = in.readInt();
+                for (int c = 0; c < changes; c++) {
+                    int changedSlot = in.readInt();
+                    int size = in.readInt();
+                    if (changedSlot == slot) {
+                        return size < 0 ? null : decodeSlot(codec, in, size, slot);
+                    }
+                    if (size > 0) {
+                        in.skipBytes(size);
+                    }
+                }
+            }
+        }
+
+        byte[] bytes = Base64.getDecoder().decode(parts[0]);
+        if (!hasCodecHeader(bytes) || bytes[CODEC_MAGIC.length] != FORMAT_INDEXED) {
+            ItemStack[] items = itemStackArrayFromBase64(parts[0]);
+            return slot < items.length ? items[slot] : null;
+        }
+
+        try (DataInputStream in = openPayload(bytes, FORMAT_INDEXED)) {
+            ItemCodec codec = codecFor(in.readUnsignedByte());
+            in.readInt(); // data version
+            in.readLong(); // lineage
+            int slotCount = in.readInt();
+            if (slot >= slotCount) {
+                return null;
+            }
+            in.skipBytes(slot * 8);
+            int offset = in.readInt();
+            int size = in.readInt();
+            if (size < 0) {
+                return null;
+            }
+            in.skipBytes((slotCount - slot - 1) * 8 + offset);
+            return decodeSlot(codec, in, size, slot);
+        }
+    }
+
+    static String lineagePrefix(String payload) {
+        return payload.length() > LINEAGE_PREFIX_CHARS ? payload.substring(0, LINEAGE_PREFIX_CHARS) : payload;
+    }
+
+    public static int getLineagePrefixLength() {
+        return LINEAGE_PREFIX_CHARS;
+    }
+
+    /**
+     * Characters of a stored payload needed by {@link #isOutdatedPayload(String)}
+     */
+    public static int getHeaderLength() {
+        return HEADER_CHARS;
+    }
+
+    /**
+     * Whether a stored payload, given at least its header, was written for an older data version
+     * or in the legacy Bukkit stream while another codec is configured. Such payloads are upgraded
+     * by Bukkit on every load until they are written again.
+     */
+    public static boolean isOutdatedPayload(String head) {
+        if (head == null || head.length() < HEADER_CHARS) {
+            return false;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(head.substring(0, HEADER_CHARS));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!hasCodecHeader(bytes)) {
+            return itemCodec.getId() != ItemCodec.BUKKIT_STREAM;
+        }
+
+        int offset = CODEC_MAGIC.length + 2;
+        int dataVersion = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+            | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+        int serverDataVersion = ItemCodecs.currentDataVersion();
+        return dataVersion > 0 && serverDataVersion > 0 && dataVersion < serverDataVersion;
+    }
+
+    private static void writeHeader(DataOutputStream out, byte format, ItemCodec codec) throws IOException {
+        out.write(CODEC_MAGIC);
+        out.writeByte(format);
+        out.writeByte(codec.getId());
+        out.writeInt(ItemCodecs.currentDataVersion());
+    }
+
+    /**
+     * Base64 of a slot-indexed payload, built in the thread's pooled buffer
+     */
+    private static String writeIndexed(ItemCodec codec, byte[][] slots) throws IOException {
+        PooledBuffers buffers = PooledBuffers.acquire();
+        DataOutputStream out = buffers.data();
+        writeHeader(out, FORMAT_INDEXED, codec);
+        // Random id of this payload; delta writes check it to make sure they extend this exact payload
+        out.writeLong(ThreadLocalRandom.current().nextLong());
+        out.writeInt(slots.length);
+        int offset = 0;
+        for (byte[] slot : slots) {
+            out.writeInt(slot != null ? offset : 0);
+            out.writeInt(slot != null ? slot.length : -1);
+            offset += slot != null ? slot.length : 0;
+        }
+        for (byte[] slot : slots) {
+            if (slot != null) {
+                out.write(slot);
+            }
+        }
+        return buffers.toBase64();
+    }
+
+    /**
+     * Base64 of a delta record including its leading chain separator
+     */
+    private static String writeDelta(ItemCodec codec, byte[][] slots, int[] changed) throws IOException {
+        PooledBuffers buffers = PooledBuffers.acquire();
+        DataOutputStream out = buffers.data();
+        writeHeader(out, FORMAT_DELTA, codec);
+        out.writeInt(slots.length);
+        out.writeInt(changed.length);
+        for (int slot : changed) {
+            out.writeInt(slot);
+            byte[] encoded = slots[slot];
+            out.writeInt(encoded != null ? encoded.length : -1);
+            if (encoded != null) {
+                out.write(encoded);
+            }
+        }
+        return buffers.toBase64(CHAIN_SEPARATOR);
+    }
+
+    private static boolean hasCodecHeader(byte[] bytes) {
+        return hasCodecHeader(bytes, bytes.length);
+    }
+
+    private static boolean hasCodecHeader(byte[] bytes, int length) {
+        if (length < CODEC_HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < CODEC_MAGIC.length; i++) {
+            if (bytes[i] != CODEC_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open a codec payload positioned after its format byte
+     */
+    private static DataInputStream openPayload(byte[] bytes, byte expectedFormat) throws IOException {
+        return openPayload(bytes, bytes.length, expectedFormat);
+    }
+
+    private static DataInputStream openPayload(byte[] bytes, int length, byte expectedFormat) throws IOException {
+        if (!hasCodecHeader(bytes, length)) {
+            throw new IOException("Malformed item payload");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        in.skipBytes(CODEC_MAGIC.length);
+        int format = in.readUnsignedByte();
+        if (expectedFormat != 0 && format != expectedFormat) {
+            in.close();
+            throw new IOException("Unexpected item payload format " + format);
+        }
+        return in;
+    }
+
+    private static ItemCodec codecFor(int codecId) throws IOException {
+        ItemCodec codec = ItemCodecs.byId(codecId);
+        if (codec == null) {
+            versionCompatibilityFailures++;
+            throw new IOException("Item payload was written by codec " + codecId
+                + ", which is not available on this server");
+        }
+        return codec;
+    }
+
+    private static void checkDataVersion(int dataVersion) {
+        int serverDataVersion = ItemCodecs.currentDataVersion();
+        if (dataVersion > 0 && serverDataVersion > 0 && dataVersion > serverDataVersion) {
+            Bukkit.getLogger().warning("[PlayerDataSync] Item data was saved on a newer Minecraft version (data version "
+                + dataVersion + " > " + serverDataVersion + "). Items that cannot be read will be skipped.");
+        }
+    }
+
+    /**
+     * Encode one slot with the payload codec, or as a Bukkit stream when the codec cannot represent the
+     * item, so one unusual item does not fail the whole section. Stream slots are told apart on reading
+     * by the Java serialization header, which the other codecs never start with.
+     */
+    private static byte[] encodeSlot(ItemCodec codec, ItemStack item, int slot) throws IOException {
+        try {
+            return codec.encode(item);
+        } catch (IOException | RuntimeException e) {
+            Bukkit.getLogger().warning("[PlayerDataSync] The " + codec.getName() + " codec cannot encode the item in slot "
+                + slot + " (" + e.getMessage() + "), storing it as a Bukkit stream");
+            return BukkitStreamItemCodec.INSTANCE.encode(item);
+        }
+    }
+
+    private static boolean isStreamSlot(byte[] encoded) {
+        return encoded.length >= 2 && (encoded[0] & 0xFF) == 0xAC && (encoded[1] & 0xFF) == 0xED;
+    }
+
+    private static ItemStack decodeSlot(ItemCodec codec, DataInputStream in, int size, int slot) throws IOException {
+        byte[] encoded = new byte[size];
+        in.readFully(encoded);
+        if (codec.getId() != ItemCodec.BUKKIT_STREAM && isStreamSlot(encoded)) {
+            codec = BukkitStreamItemCodec.INSTANCE;
+        }
+        try {
+            return codec.decode(encoded);
+        } catch (Exception e) {
+            handleItemFailure(e, slot);
+            return null;
+        }
+    }
+
+    private static ItemStack[] decodeWithCodec(byte[] bytes) throws IOException {
+        return decodeWithCodec(bytes, bytes.length);
+    }
+
+    private static ItemStack[] decodeWithCodec(byte[] bytes, int byteLength) throws IOException {
+        try (DataInputStream in = openPayload(bytes, byteLength, (byte) 0)) {
+            int format = bytes[CODEC_MAGIC.length];
+            if (format != FORMAT_SEQUENTIAL && format != FORMAT_INDEXED) {
+                throw new IOException("Unsupported item payload format " + format);
+            }
+            ItemCodec codec = codecFor(in.readUnsignedByte());
+            checkDataVersion(in.readInt());
+
+            if (format == FORMAT_SEQUENTIAL) {
+                int length = in.readInt();
+                if (length < 0 || length > byteLength) {
+                    throw new IOException("Malformed item payload");
+                }
+                ItemStack[] items = new ItemStack[length];
+                for (int i = 0; i < length; i++) {
+                    int size = in.readInt();
+                    if (size >= 0) {
+                        items[i] = decodeSlot(codec, in, size, i);
+                    }
+                }
+                return items;
+            }
+
+            in.readLong(); // lineage
+            int length = in.readInt();
+            if (length < 0 || length * 8L > byteLength) {
+                throw new IOException("Malformed item payload");
+            }
+            int[] sizes = new int[length];
+            for (int i = 0; i < length; i++) {
+                in.readInt(); // offset, slots are stored in order
+                sizes[i] = in.readInt();
+            }
+            ItemStack[] items = new ItemStack[length];
+            for (int i = 0; i < length; i++) {
+                if (sizes[i] >= 0) {
+                    items[i] = decodeSlot(codec, in, sizes[i], i);
+                }
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Decode a stored payload followed by delta records, applying the deltas in order
+     */
+    private static ItemStack[] decodeChain(String data) throws IOException {
+        String[] parts = data.split("\\" + CHAIN_SEPARATOR);
+        ItemStack[] items = decodeWithCodec(Base64.getDecoder().decode(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            byte[] bytes = Base64.getDecoder().decode(parts[i]);
+            items = applyDelta(items, bytes, bytes.length);
+        }
+        return items;
+    }
+
+    private static ItemStack[] applyDelta(ItemStack[] items, byte[] bytes, int length) throws IOException {
+        try (DataInputStream in = openPayload(bytes, length, FORMAT_DELTA)) {
+            ItemCodec codec = codecFor(in.readUnsignedByte());
+            checkDataVersion(in.readInt());
+            int slotCount = in.readInt();
+            if (slotCount < 0 || slotCount > length + items.length) {
+                throw new IOException("Malformed item payload");
+            }
+            if (slotCount != items.length) {
+                items = Arrays.copyOf(items, slotCount);
+            }
+            int changes = in.readInt();
+            for (int c = 0; c < changes; c++) {
+                int slot = in.readInt();
+                int size = in.readInt();
+                ItemStack item = size >= 0 ? decodeSlot(codec, in, size, slot) : null;
+                if (slot >= 0 && slot < items.length) {
+                    items[slot] = item;
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Decode a stored payload from a stream of its Base64 text. Each segment of a delta chain
+     * is decoded into the thread's pooled buffer and parsed from there, so neither the text nor
+     * a full copy of the decoded bytes is held at once.
+     */
+    public static ItemStack[] itemStackArrayFromStream(InputStream base64) throws IOException, ClassNotFoundException {
+        PooledBuffers buffers = PooledBuffers.acquire();
+        buffers.openBase64(base64);
+        if (!buffers.readBase64(CHAIN_SEPARATOR) || buffers.size() == 0) {
+            return new ItemStack[0];
+        }
+
+        ItemStack[] items;
+        if (hasCodecHeader(buffers.array(), buffers.size())) {
+            items = decodeWithCodec(buffers.array(), buffers.size());
+            while (buffers.readBase64(CHAIN_SEPARATOR)) {
+                items = applyDelta(items, buffers.array(), buffers.size());
+            }
+        } else {
+            items = readBukkitStream(buffers.bytesInput());
+        }
+        return validateItemStackArray(items) ? items : sanitizeItemStackArray(items);
+    }
+
+    /**
+     * Like {@link #safeItemStackArrayFromBase64(String)} for a stream of the stored text
+     */
+    public static ItemStack[] safeItemStackArrayFromStream(InputStream base64) {
+        if (base64 == null) return new ItemStack[0];
+
+        try {
+            return itemStackArrayFromStream(base64);
+        } catch (Exception e) {
+            otherDeserializationFailures++;
+            Bukkit.getLogger().severe("[PlayerDataSync] Critical failure deserializing ItemStack array (error type: "
+                + e.getClass().getSimpleName() + "): " + collectCompatibilityMessage(e));
+            return new ItemStack[0];
+        }
+    }
+
+    /**
+     * Write a payload that only references item blobs by content hash; null hashes are empty slots
+     */
+    public static String writeReferencePayload(int codecId, byte[][] hashes) throws IOException {
+        PooledBuffers buffers = PooledBuffers.acquire();
+        DataOutputStream out = buffers.data();
+        out.write(CODEC_MAGIC);
+        out.writeByte(FORMAT_REFERENCE);
+        out.writeByte(codecId);
+        out.writeInt(ItemCodecs.currentDataVersion());
+        out.writeInt(hashes.length);
+        int present = 0;
+        for (byte[] hash : hashes) {
+            if (hash != null) {
+                present++;
+            }
+        }
+        out.writeInt(present);
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] != null) {
+                out.writeShort(slot);
+                out.write(hashes[slot], 0, REFERENCE_HASH_SIZE);
+            }
+        }
+        return buffers.toBase64();
+    }
+
+    public static boolean isReferencePayload(String data) {
+        if (data == null || data.length() < 8) {
+            return false;
+        }
+        try {
+            byte[] head = Base64.getDecoder().decode(data.substring(0, 8));
+            return head[0] == CODEC_MAGIC[0] && head[1] == CODEC_MAGIC[1] && head[2] == CODEC_MAGIC[2]
+                && head[3] == FORMAT_REFERENCE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Content hashes per slot of a reference payload, null for empty slots
+     */
+    public static byte[][] readReferenceHashes(String data) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(data);
+        try (DataInputStream in = openPayload(bytes, FORMAT_REFERENCE)) {
+            in.readUnsignedByte(); // codec
+            in.readInt(); // data version
+            int slotCount = in.readInt();
+            int present = in.readInt();
+            if (slotCount < 0 || present < 0 || present > slotCount || slotCount > bytes.length) {
+                throw new IOException("Malformed item payload");
+            }
+            byte[][] hashes = new byte[slotCount][];
+            for (int i = 0; i < present; i++) {
+                int slot = in.readUnsignedShort();
+                byte[] hash = new byte[REFERENCE_HASH_SIZE];
+                in.readFully(hash);
+                if (slot < slotCount) {
+                    hashes[slot] = hash;
+                }
+            }
+            return hashes;
+        }
+    }
+
+    /**
+     * Rebuild a regular slot-indexed payload from a reference payload and the referenced blobs.
+     * Slots whose blob is missing are left empty.
+     */
+    public static String resolveReferencePayload(String data, Map<String, byte[]> blobsByHash) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(data);
+        ItemCodec codec;
+        try (DataInputStream in = openPayload(bytes, FORMAT_REFERENCE)) {
+            codec = codecFor(in.readUnsignedByte());
+        }
+
+        byte[][] hashes = readReferenceHashes(data);
+        byte[][] slots = new byte[hashes.length][];
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] == null) {
+                continue;
+            }
+            slots[slot] = blobsByHash.get(toHex(hashes[slot]));
+            if (slots[slot] == null) {
+                otherDeserializationFailures++;
+                Bukkit.getLogger().warning("[PlayerDataSync] Item blob " + toHex(hashes[slot])
+                    + " referenced by slot " + slot + " is missing, leaving the slot empty");
+            }
+        }
+        return writeIndexed(codec, slots);
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
     /**
      * Validate ItemStack array for corruption
      */
@@ -253,6 +887,28 @@ public class InventoryUtils {
         return sanitized;
     }
     
+    /**
+     * Same rules as {@link #sanitizeItemStackArray(ItemStack[])} for a single slot, but only
+     * copies the item when its amount has to be clamped
+     */
+    private static ItemStack sanitizeItem(ItemStack item, int index) {
+        if (item == null) return null;
+        try {
+            if (item.getType() == null || item.getType() == Material.AIR || item.getAmount() <= 0) {
+                return null;
+            }
+            if (item.getAmount() > item.getMaxStackSize()) {
+                ItemStack fixed = item.clone();
+                fixed.setAmount(item.getMaxStackSize());
+                return fixed;
+            }
+            return item;
+        } catch (Exception e) {
+            Bukkit.getLogger().fine("[PlayerDataSync] Error sanitizing item at index " + index + ": " + e.getClass().getSimpleName());
+            return null;
+        }
+    }
+
     /**
      * Count non-null items in array
      */
@@ -0,0 +1,274 @@
+package com.example.playerdatasync.utils;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the encoded bytes of each inventory slot per player, so slots that did not
+ * change since the previous save are not serialized again.
+ * Entries are validated by hash and equality against a copy of the item that was encoded.
+ * Each section also tracks which slots changed in which encode pass and what was last
+ * confirmed as stored, so a save can write only the slots that changed since.
+ */
+public class ItemSerializationCache {
+    private static final int MAX_SLOTS_PER_SECTION = 128;
+
+    private final ConcurrentHashMap<UUID, PlayerSlots> players = new ConcurrentHashMap<>();
+    private final int maxPlayers;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ItemSerializationCache(int maxPlayers) {
+        this.maxPlayers = Math.max(1, maxPlayers);
+    }
+
+    /**
+     * @return the bytes previously encoded for this slot, or null if the item changed
+     */
+    public byte[] get(UUID owner, String section, int slot, ItemStack item, int codecId) {
+        PlayerSlots slots = players.get(owner);
+        if (slots == null || slot >= MAX_SLOTS_PER_SECTION) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        byte[] encoded = slots.get(section, slot, item, codecId);
+        if (encoded != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return encoded;
+    }
+
+    public void put(UUID owner, String section, int slot, ItemStack item, int codecId, byte[] encoded) {
+        if (slot >= MAX_SLOTS_PER_SECTION) {
+            return;
+        }
+
+        PlayerSlots slots = players.get(owner);
+        if (slots == null) {
+            if (players.size() >= maxPlayers) {
+                evictLeastRecentlyUsed();
+            }
+            slots = players.computeIfAbsent(owner, key -> new PlayerSlots());
+        }
+        slots.put(section, slot, item, codecId, encoded);
+    }
+
+    /**
+     * Drop a slot that is now empty so a later item in it is not compared against stale data
+     */
+    public void clear(UUID owner, String section, int slot) {
+        PlayerSlots slots = players.get(owner);
+        if (slots != null) {
+            slots.clear(section, slot);
+        }
+    }
+
+    /**
+     * Start an encode pass for a section; slots stored during the pass are marked with the returned generation
+     */
+    public long beginEncode(UUID owner, String section) {
+        PlayerSlots slots = players.get(owner);
+        if (slots == null) {
+            if (players.size() >= maxPlayers) {
+                evictLeastRecentlyUsed();
+            }
+            slots = players.computeIfAbsent(owner, key -> new PlayerSlots());
+        }
+        return slots.beginEncode(section);
+    }
+
+    /**
+     * Slots of the section that changed in an encode pass after the given generation
+     */
+    public int[] changedSince(UUID owner, String section, long generation, int slotCount) {
+        PlayerSlots slots = players.get(owner);
+        return slots != null ? slots.changedSince(section, generation, slotCount) : null;
+    }
+
+    public StoredSection getStored(UUID owner, String section) {
+        PlayerSlots slots = players.get(owner);
+        return slots != null ? slots.getStored(section) : null;
+    }
+
+    /**
+     * Record what the database now holds for the section; ignored once the player was invalidated
+     */
+    public void confirmStored(UUID owner, String section, StoredSection stored) {
+        PlayerSlots slots = players.get(owner);
+        if (slots != null) {
+            slots.setStored(section, stored);
+        }
+    }
+
+    public static int getMaxSlotsPerSection() {
+        return MAX_SLOTS_PER_SECTION;
+    }
+
+    public void invalidate(UUID owner) {
+        players.remove(owner);
+    }
+
+    public void clearAll() {
+        players.clear();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        UUID oldestKey = null;
+        long oldestTime = Long.MAX_VALUE;
+
+        for (Map.Entry<UUID, PlayerSlots> entry : players.entrySet()) {
+            if (entry.getValue().lastAccessed < oldestTime) {
+                oldestTime = entry.getValue().lastAccessed;
+                oldestKey = entry.getKey();
+            }
+        }
+
+        if (oldestKey != null && players.remove(oldestKey) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public String getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return String.format("Item serialization cache: %d/%d players, Hit Rate: %.1f%%, Hits: %d, Misses: %d, Evictions: %d",
+            players.size(), maxPlayers, total > 0 ? (double) hitCount / total * 100 : 0.0,
+            hitCount, misses.get(), evictions.get());
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    private static class PlayerSlots {
+        private final Map<String, SectionSlots> sections = new HashMap<>();
+        private volatile long lastAccessed = System.currentTimeMillis();
+
+        private SectionSlots section(String section) {
+            SectionSlots slots = sections.get(section);
+            if (slots == null) {
+                slots = new SectionSlots();
+                sections.put(section, slots);
+            }
+            return slots;
+        }
+
+        private synchronized long beginEncode(String section) {
+            lastAccessed = System.currentTimeMillis();
+            return ++section(section).generation;
+        }
+
+        private synchronized byte[] get(String section, int slot, ItemStack item, int codecId) {
+            lastAccessed = System.currentTimeMillis();
+            SectionSlots slots = sections.get(section);
+            if (slots == null) {
+                return null;
+            }
+            SlotEntry entry = slots.entries[slot];
+            if (entry == null || entry.codecId != codecId || entry.hash != item.hashCode() || !entry.item.equals(item)) {
+                return null;
+            }
+            return entry.encoded;
+        }
+
+        private synchronized void put(String section, int slot, ItemStack item, int codecId, byte[] encoded) {
+            SectionSlots slots = section(section);
+            // Keep a copy: the live stack keeps changing after this save
+            ItemStack copy = item.clone();
+            slots.entries[slot] = new SlotEntry(copy, copy.hashCode(), codecId, encoded);
+            slots.changedAt[slot] = slots.generation;
+        }
+
+        private synchronized void clear(String section, int slot) {
+            SectionSlots slots = sections.get(section);
+            if (slots != null && slot < MAX_SLOTS_PER_SECTION && slots.entries[slot] != null) {
+                slots.entries[slot] = null;
+                slots.changedAt[slot] = slots.generation;
+            }
+        }
+
+        private synchronized int[] changedSince(String section, long generation, int slotCount) {
+            SectionSlots slots = sections.get(section);
+            if (slots == null || slotCount > MAX_SLOTS_PER_SECTION) {
+                return null;
+            }
+            int count = 0;
+            int[] changed = new int[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slots.changedAt[slot] > generation) {
+                    changed[count++] = slot;
+                }
+            }
+            return Arrays.copyOf(changed, count);
+        }
+
+        private synchronized StoredSection getStored(String section) {
+            SectionSlots slots = sections.get(section);
+            return slots != null ? slots.stored : null;
+        }
+
+        private synchronized void setStored(String section, StoredSection stored) {
+            section(section).stored = stored;
+        }
+    }
+
+    private static class SectionSlots {
+        private final SlotEntry[] entries = new SlotEntry[MAX_SLOTS_PER_SECTION];
+        private final long[] changedAt = new long[MAX_SLOTS_PER_SECTION];
+        private long generation;
+        private StoredSection stored;
+    }
+
+    /**
+     * What the database holds for a section after a confirmed write: the payload's
+     * lineage prefix and length, and the encode generation it reflects.
+     */
+    public static class StoredSection {
+        private final String prefix;
+        private final int length;
+        private final int slotCount;
+        private final long generation;
+        private final int chainLength;
+
+        public StoredSection(String prefix, int length, int slotCount, long generation, int chainLength) {
+            this.prefix = prefix;
+            this.length = length;
+            this.slotCount = slotCount;
+            this.generation = generation;
+            this.chainLength = chainLength;
+        }
+
+        public String getPrefix() { return prefix; }
+        public int getLength() { return length; }
+        public int getSlotCount() { return slotCount; }
+        public long getGeneration() { return generation; }
+        public int getChainLength() { return chainLength; }
+    }
+
+    private static class SlotEntry {
+        private final ItemStack item;
+        private final int hash;
+        private final int codecId;
+        private final byte[] encoded;
+
+        private SlotEntry(ItemStack item, int hash, int codecId, byte[] encoded) {
+            this.item = item;
+            this.hash = hash;
+            this.codecId = codecId;
+            this.encoded = encoded;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.playerdatasync.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch buffers for the save path. Encoders write into these instead of a fresh
+ * stream that grows by doubling, and Base64 is produced straight from the buffer, so the only
+ * allocation left per payload is the final text handed to the database.
+ * Buffers are not re-entrant: a caller must finish with them before another encoder on the
+ * same thread calls {@link #acquire()}.
+ */
+public final class PooledBuffers {
+    private static final int INITIAL_SIZE = 4096;
+    // Keep a thread from pinning the memory of one oversized payload
+    private static final int MAX_RETAINED = 1 << 20;
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private static final ThreadLocal<PooledBuffers> BUFFERS = ThreadLocal.withInitial(PooledBuffers::new);
+
+    private final Bytes bytes = new Bytes();
+    private final DataOutputStream data = new DataOutputStream(bytes);
+    private final StringBuilder text = new StringBuilder(256);
+    private byte[] base64 = new byte[INITIAL_SIZE * 4 / 3 + 4];
+
+    // Read state of the Base64 text stream being decoded, see readBase64
+    private InputStream source;
+    private int sourcePos;
+    private int sourceLimit;
+    private boolean afterSeparator;
+
+    private PooledBuffers() {
+    }
+
+    /**
+     * The calling thread's buffers, emptied
+     */
+    public static PooledBuffers acquire() {
+        PooledBuffers buffers = BUFFERS.get();
+        buffers.bytes.reset();
+        buffers.text.setLength(0);
+        if (buffers.text.capacity() > MAX_RETAINED) {
+            buffers.text.trimToSize();
+        }
+        return buffers;
+    }
+
+    /**
+     * Binary output over the byte buffer
+     */
+    public DataOutputStream data() {
+        return data;
+    }
+
+    /**
+     * Cleared builder for text payloads such as effects
+     */
+    public StringBuilder text() {
+        return text;
+    }
+
+    public int size() {
+        return bytes.count;
+    }
+
+    /**
+     * The byte buffer; valid up to {@link #size()}
+     */
+    public byte[] array() {
+        return bytes.buf;
+    }
+
+    public InputStream bytesInput() {
+        return new ByteArrayInputStream(bytes.buf, 0, bytes.count);
+    }
+
+    /**
+     * Start decoding Base64 text from a stream with {@link #readBase64(char)}
+     */
+    public void openBase64(InputStream in) {
+        source = in;
+        sourcePos = 0;
+        sourceLimit = 0;
+        afterSeparator = false;
+    }
+
+    /**
+     * Decode the next segment of the opened stream into the byte buffer, up to the separator
+     * or the end of the stream. The text is read in blocks into the scratch array, so the whole
+     * payload never exists as a String or as one contiguous text buffer.
+     *
+     * @return false once the stream is exhausted
+     */
+    public boolean readBase64(char separator) throws IOException {
+        bytes.reset();
+        if (source == null) {
+            return false;
+        }
+
+        int bits = 0;
+        int pending = 0;
+        // A separator promises another segment, even an empty one
+        boolean read = afterSeparator;
+        afterSeparator = false;
+        while (true) {
+            if (sourcePos >= sourceLimit) {
+                sourceLimit = source.read(base64, 0, base64.length);
+                sourcePos = 0;
+                if (sourceLimit <= 0) {
+                    source = null;
+                    break;
+                }
+            }
+            int c = base64[sourcePos++] & 0xFF;
+            read = true;
+            if (c == separator) {
+                afterSeparator = true;
+                break;
+            }
+            if (c == '=') {
+                continue;
+            }
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                throw new IOException("Illegal Base64 character " + c);
+            }
+            bits = bits << 6 | value;
+            if (++pending == 4) {
+                bytes.write(bits >> 16);
+                bytes.write(bits >> 8);
+                bytes.write(bits);
+                bits = 0;
+                pending = 0;
+            }
+        }
+        if (pending == 2) {
+            bytes.write(bits >> 4);
+        } else if (pending == 3) {
+            bytes.write(bits >> 10);
+            bytes.write(bits >> 2);
+        } else if (pending == 1) {
+            throw new IOException("Truncated Base64 data");
+        }
+        return read;
+    }
+
+    public String toBase64() {
+        return toBase64((char) 0);
+    }
+
+    /**
+     * Base64 of everything written so far, optionally preceded by a single ASCII character
+     */
+    public String toBase64(char prefix) {
+        int length = bytes.count;
+        int prefixLength = prefix != 0 ? 1 : 0;
+        int needed = prefixLength + (length + 2) / 3 * 4;
+        if (base64.length < needed) {
+            base64 = new byte[Math.max(needed, base64.length * 2)];
+        }
+
+        byte[] src = bytes.buf;
+        byte[] dst = base64;
+        int d = 0;
+        if (prefixLength > 0) {
+            dst[d++] = (byte) prefix;
+        }
+        int s = 0;
+        int whole = length - length % 3;
+        while (s < whole) {
+            int bits = (src[s++] & 0xFF) << 16 | (src[s++] & 0xFF) << 8 | (src[s++] & 0xFF);
+            dst[d++] = ALPHABET[bits >>> 18];
+            dst[d++] = ALPHABET[(bits >>> 12) & 0x3F];
+            dst[d++] = ALPHABET[(bits >>> 6) & 0x3F];
+            dst[d++] = ALPHABET[bits & 0x3F];
+        }
+        if (s < length) {
+            int b0 = src[s++] & 0xFF;
+            dst[d++] = ALPHABET[b0 >> 2];
+            if (s == length) {
+                dst[d++] = ALPHABET[(b0 << 4) & 0x3F];
+                dst[d++] = '=';
+            } else {
+                int b1 = src[s] & 0xFF;
+                dst[d++] = ALPHABET[(b0 << 4) & 0x3F | (b1 >> 4)];
+                dst[d++] = ALPHABET[(b1 << 2) & 0x3F];
+            }
+            dst[d++] = '=';
+        }
+
+        String result = new String(dst, 0, d, StandardCharsets.ISO_8859_1);
+        if (base64.length > MAX_RETAINED) {
+            base64 = new byte[INITIAL_SIZE * 4 / 3 + 4];
+        }
+        return result;
+    }
+
+    /**
+     * Unsynchronized growable byte buffer; unlike ByteArrayOutputStream it is reused between payloads
+     */
+    private static final class Bytes extends OutputStream {
+        private byte[] buf = new byte[INITIAL_SIZE];
+        private int count;
+
+        private void reset() {
+            if (buf.length > MAX_RETAINED) {
+                buf = new byte[INITIAL_SIZE];
+            }
+            count = 0;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.playerdatasync.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Packed encoding of player statistics.
+ * Keys are {@code STATISTIC} for untyped statistics and {@code STATISTIC:SUB} for statistics
+ * of a material or entity type. Payloads carry their own name dictionaries, so indices stay
+ * valid when enum constants are added or reordered between server versions.
+ *
+ * Layout: "PST", version, varint sub-name count, sub names, varint statistic count, then per
+ * statistic its name, varint entry count and (varint sub index + 1 or 0, varint value) pairs.
+ */
+public final class StatisticsCodec {
+    private static final byte[] MAGIC = {'P', 'S', 'T'};
+    private static final byte VERSION = 1;
+    private static final char SUB_SEPARATOR = ':';
+
+    private StatisticsCodec() {
+    }
+
+    public static String key(String statistic, String sub) {
+        return sub == null ? statistic : statistic + SUB_SEPARATOR + sub;
+    }
+
+    public static String statisticOf(String key) {
+        int separator = key.indexOf(SUB_SEPARATOR);
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    /**
+     * @return the material or entity name of a typed key, null for untyped statistics
+     */
+    public static String subOf(String key) {
+        int separator = key.indexOf(SUB_SEPARATOR);
+        return separator < 0 ? null : key.substring(separator + 1);
+    }
+
+    public static boolean isBinary(String data) {
+        // Base64 of the magic bytes; legacy "NAME,value" data never starts with it
+        return data != null && data.startsWith("UFNU");
+    }
+
+    public static String encode(Map<String, Integer> values) throws IOException {
+        Map<String, Map<String, Integer>> byStatistic = new TreeMap<>();
+        Map<String, Integer> subIndex = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(values).entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                continue;
+            }
+            String sub = subOf(entry.getKey());
+            if (sub != null && !subIndex.containsKey(sub)) {
+                subIndex.put(sub, subIndex.size());
+            }
+            byStatistic.computeIfAbsent(statisticOf(entry.getKey()), k -> new LinkedHashMap<>()).put(sub, entry.getValue());
+        }
+
+        PooledBuffers buffers = PooledBuffers.acquire();
+        DataOutputStream out = buffers.data();
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarInt(out, subIndex.size());
+        for (String sub : subIndex.keySet()) {
+            out.writeUTF(sub);
+        }
+        writeVarInt(out, byStatistic.size());
+        for (Map.Entry<String, Map<String, Integer>> statistic : byStatistic.entrySet()) {
+            out.writeUTF(statistic.getKey());
+            writeVarInt(out, statistic.getValue().size());
+            for (Map.Entry<String, Integer> entry : statistic.getValue().entrySet()) {
+                writeVarInt(out, entry.getKey() == null ? 0 : subIndex.get(entry.getKey()) + 1);
+                writeVarInt(out, entry.getValue());
+            }
+        }
+        return buffers.toBase64();
+    }
+
+    /**
+     * Decode packed or legacy "NAME,value;" statistics
+     */
+    public static Map<String, Integer> decode(String data) throws IOException {
+        if (data == null || data.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (!isBinary(data)) {
+            return decodeLegacy(data);
+        }
+
+        byte[] bytes = Base64.getDecoder().decode(data);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            for (byte magic : MAGIC) {
+                if (in.readByte() != magic) {
+                    throw new IOException("Malformed statistics payload");
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported statistics format " + version);
+            }
+
+            int subCount = readVarInt(in);
+            if (subCount < 0 || subCount > bytes.length) {
+                throw new IOException("Malformed statistics payload");
+            }
+            List<String> subs = new ArrayList<>(subCount);
+            for (int i = 0; i < subCount; i++) {
+                subs.add(in.readUTF());
+            }
+
+            Map<String, Integer> values = new HashMap<>();
+            int statisticCount = readVarInt(in);
+            for (int i = 0; i < statisticCount; i++) {
+                String statistic = in.readUTF();
+                int entries = readVarInt(in);
+                for (int e = 0; e < entries; e++) {
+                    int sub = readVarInt(in);
+                    int value = readVarInt(in);
+                    if (sub > subs.size()) {
+                        throw new IOException("Malformed statistics payload");
+                    }
+                    values.put(key(statistic, sub == 0 ? null : subs.get(sub - 1)), value);
+                }
+            }
+            return values;
+        }
+    }
+
+    public static Map<String, Integer> decodeLegacy(String data) {
+        Map<String, Integer> values = new HashMap<>();
+        for (String statStr : data.split(";")) {
+            String[] parts = statStr.split(",");
+            if (parts.length >= 2) {
+                try {
+                    values.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                } catch (NumberFormatException ignored) {
+                    // Skip damaged entries like the old loader did
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The old "NAME,value;" format; it can only hold untyped statistics
+     */
+    public static String encodeLegacy(Map<String, Integer> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : values.entrySet()) {
+            if (subOf(entry.getKey()) != null || entry.getValue() == null || entry.getValue() <= 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(";");
+            }
+            sb.append(entry.getKey()).append(",").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.playerdatasync.database;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java 21 variant of {@link WorkloadThreads}: every task gets its own virtual thread,
+ * and a semaphore sized from the connection pool bounds how many run JDBC work at once.
+ * Waiting tasks park cheaply instead of occupying platform threads.
+ */
+final class WorkloadThreads {
+    private WorkloadThreads() {
+    }
+
+    static boolean isVirtual() {
+        return true;
+    }
+
+    static ExecutorService newExecutor(WorkloadType type, int concurrency, int queueCapacity) {
+        return new BoundedVirtualExecutor(type, concurrency, queueCapacity);
+    }
+
+    static String threadPrefix(WorkloadType type) {
+        String key = type.getConfigKey();
+        return "PlayerDataSync-" + key.substring(0, 1).toUpperCase() + key.substring(1) + "-";
+    }
+
+    private static final class BoundedVirtualExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final int capacity;
+
+        private BoundedVirtualExecutor(WorkloadType type, int concurrency, int queueCapacity) {
+            this.delegate = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(threadPrefix(type), 1).factory());
+            this.permits = new Semaphore(concurrency, true);
+            this.capacity = concurrency + queueCapacity;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (outstanding.incrementAndGet() > capacity) {
+                outstanding.decrementAndGet();
+                throw new RejectedExecutionException("Workload queue is full");
+            }
+            try {
+                delegate.execute(() -> runWithPermit(task));
+            } catch (RejectedExecutionException e) {
+                outstanding.decrementAndGet();
+                throw e;
+            }
+        }
+
+        /**
+         * The task is the accounting wrapper of {@link WorkloadExecutor}; it only starts once a permit
+         * is held, so time parked on the semaphore is reported as queue wait and active tasks never
+         * exceed the permits. A task interrupted while parked (shutdownNow) is dropped like a queued one.
+         */
+        private void runWithPermit(Runnable task) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                outstanding.decrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+                outstanding.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
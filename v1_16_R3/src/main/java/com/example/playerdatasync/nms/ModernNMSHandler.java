@@ -0,0 +1,390 @@
+package com.example.playerdatasync.nms;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.advancement.Advancement;
+import org.bukkit.advancement.AdvancementProgress;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerAdvancementDoneEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Handler for 1.16 and newer, where offhand, attributes and advancements are all in the Bukkit API.
+ * The version modules from 1.16 on extend it and only override what changed in their version.
+ */
+public abstract class ModernNMSHandler implements NMSHandler {
+
+    private final AdvancementTracker advancementTracker = new AdvancementTracker();
+    private Plugin plugin;
+    private Listener advancementListener;
+
+    // Keys of the advancements on this server, built off-thread at startup
+    private final Map<String, NamespacedKey> advancementIndex = new ConcurrentHashMap<>();
+    private volatile boolean indexComplete;
+    private volatile boolean indexCancelled;
+    private volatile long indexBuildMs = -1;
+
+    @Override
+    public void setItemInOffHand(Player player, ItemStack item) {
+        player.getInventory().setItemInOffHand(item);
+    }
+
+    @Override
+    public ItemStack getItemInOffHand(Player player) {
+        return player.getInventory().getItemInOffHand();
+    }
+
+    @Override
+    public double getGenericMaxHealth(Player player) {
+        AttributeInstance attr = player.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+        return attr != null ? attr.getValue() : player.getMaxHealth();
+    }
+
+    @Override
+    public void setGenericMaxHealth(Player player, double value) {
+        AttributeInstance attr = player.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+        if (attr != null) {
+            attr.setBaseValue(value);
+        } else {
+            player.setMaxHealth(value);
+        }
+    }
+
+    @Override
+    public String serializeAttributes(Player player) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (Attribute attr : Attribute.values()) {
+            AttributeInstance instance = player.getAttribute(attr);
+            if (instance != null) {
+                joiner.add(attr.name() + ":" + instance.getBaseValue());
+            }
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public void loadAttributes(Player player, String data) {
+        if (data == null || data.isEmpty()) return;
+        String[] parts = data.split("\\|");
+        for (String part : parts) {
+            String[] kv = part.split(":");
+            if (kv.length == 2) {
+                try {
+                    Attribute attr = Attribute.valueOf(kv[0]);
+                    double value = Double.parseDouble(kv[1]);
+                    AttributeInstance instance = player.getAttribute(attr);
+                    if (instance != null) {
+                        instance.setBaseValue(value);
+                    }
+                } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    @Override
+    public void setupAdvancements(Plugin plugin) {
+        this.plugin = plugin;
+        advancementTracker.setCriteriaRescanMs(
+                plugin.getConfig().getLong("performance.advancement_rescan_seconds", 300) * 1000L);
+        advancementListener = new AdvancementListener();
+        plugin.getServer().getPluginManager().registerEvents(advancementListener, plugin);
+        advancementTracker.setCriteriaEvents(registerCriterionEvent(plugin));
+
+        if (plugin.getConfig().getBoolean("performance.preload_advancements_on_startup", true)) {
+            int chunkSize = Math.max(1, plugin.getConfig().getInt("performance.advancement_import_batch_size", 250));
+            indexCancelled = false;
+            CompletableFuture.runAsync(() -> buildIndex(chunkSize)).exceptionally(e -> {
+                // Leave lookups to the server; the index is only a shortcut
+                getLogger().warning("Could not preload advancements: " + e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Publish the advancement keys in chunks, so lookups benefit while the build is still running
+     */
+    private void buildIndex(int chunkSize) {
+        long start = System.currentTimeMillis();
+        Map<String, NamespacedKey> chunk = new HashMap<>();
+        Iterator<Advancement> it = Bukkit.getServer().advancementIterator();
+        while (it.hasNext() && !indexCancelled) {
+            NamespacedKey key = it.next().getKey();
+            chunk.put(key.toString(), key);
+            if (chunk.size() >= chunkSize) {
+                advancementIndex.putAll(chunk);
+                chunk.clear();
+            }
+        }
+        advancementIndex.putAll(chunk);
+        if (indexCancelled) {
+            return;
+        }
+        indexBuildMs = System.currentTimeMillis() - start;
+        indexComplete = true;
+        registerIndexedKeys();
+    }
+
+    /**
+     * Assign ordinals to every known key up front, so the first saves are fully packed
+     */
+    private void registerIndexedKeys() {
+        AdvancementDictionary dictionary = advancementTracker.getDictionary();
+        if (dictionary == null || !indexComplete) {
+            return;
+        }
+        for (String key : advancementIndex.keySet()) {
+            dictionary.ordinalOf(key);
+        }
+    }
+
+    /**
+     * Paper reports single criteria; on Spigot partial progress is picked up by periodic rescans
+     */
+    private boolean registerCriterionEvent(Plugin plugin) {
+        try {
+            Class<? extends Event> eventClass = Class
+                    .forName("com.destroystokyo.paper.event.player.PlayerAdvancementCriterionGrantEvent")
+                    .asSubclass(Event.class);
+            Method getAdvancement = eventClass.getMethod("getAdvancement");
+            Method getCriterion = eventClass.getMethod("getCriterion");
+            plugin.getServer().getPluginManager().registerEvent(eventClass, advancementListener, EventPriority.MONITOR,
+                    (listener, event) -> {
+                        if (!eventClass.isInstance(event)) return;
+                        try {
+                            Advancement advancement = (Advancement) getAdvancement.invoke(event);
+                            advancementTracker.awardCriterion(((PlayerEvent) event).getPlayer().getUniqueId(),
+                                    advancement.getKey().toString(), (String) getCriterion.invoke(event));
+                        } catch (ReflectiveOperationException ignored) {}
+                    }, plugin, true);
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void shutdownAdvancements() {
+        indexCancelled = true;
+        if (advancementListener != null) {
+            HandlerList.unregisterAll(advancementListener);
+            advancementListener = null;
+        }
+    }
+
+    @Override
+    public void setAdvancementDictionary(AdvancementDictionary dictionary) {
+        advancementTracker.setDictionary(dictionary);
+        registerIndexedKeys();
+    }
+
+    @Override
+    public void handlePlayerJoinAdvancements(Player player) {
+    }
+
+    @Override
+    public void handlePlayerQuitAdvancements(Player player) {
+        advancementTracker.forget(player.getUniqueId());
+    }
+
+    @Override
+    public void seedAdvancementsFromDatabase(UUID uuid, String csv) {
+        if (csv == null || csv.isEmpty()) {
+            // Nothing stored; the first save scans what the player has on this server
+            advancementTracker.forget(uuid);
+            return;
+        }
+        advancementTracker.seed(uuid, csv, getLogger());
+    }
+
+    @Override
+    public String serializeAdvancements(Player player) {
+        UUID uuid = player.getUniqueId();
+        StoredAdvancements advancements = advancementTracker.get(uuid);
+        if (advancements == null || advancementTracker.needsCriteriaScan(uuid)) {
+            advancements = scanAdvancements(player);
+            advancementTracker.put(uuid, advancements);
+        }
+        try {
+            return advancementTracker.encode(advancements);
+        } catch (IOException e) {
+            getLogger().warning("Could not encode advancements of " + player.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read completed advancements and awarded criteria of every advancement on the server
+     */
+    private StoredAdvancements scanAdvancements(Player player) {
+        StoredAdvancements advancements = new StoredAdvancements();
+        Iterator<Advancement> it = player.getServer().advancementIterator();
+        while (it.hasNext()) {
+            Advancement adv = it.next();
+            AdvancementProgress prog = player.getAdvancementProgress(adv);
+            if (prog.isDone()) {
+                advancements.markDone(adv.getKey().toString());
+            } else if (!prog.getAwardedCriteria().isEmpty()) {
+                advancements.setCriteria(adv.getKey().toString(), prog.getAwardedCriteria());
+            }
+        }
+        return advancements;
+    }
+
+    @Override
+    public void loadAdvancements(Player player, String data) {
+        AdvancementImport job = prepareAdvancementImport(player, data);
+        if (job != null) {
+            job.step(Integer.MAX_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public AdvancementImport prepareAdvancementImport(Player player, String data) {
+        if (data == null || data.isEmpty()) return null;
+        StoredAdvancements stored;
+        try {
+            stored = AdvancementCodec.decode(data, advancementTracker.getDictionary());
+        } catch (IOException e) {
+            getLogger().warning("Could not read advancements of " + player.getName() + ": " + e.getMessage());
+            return null;
+        }
+        return new StoredAdvancementImport(player, stored);
+    }
+
+    private NamespacedKey resolveKey(String key) {
+        NamespacedKey nsk = advancementIndex.get(key);
+        if (nsk != null || indexComplete) {
+            // A complete index without the key means the advancement is gone from this server
+            return nsk;
+        }
+        String[] parts = key.split(":");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            return new NamespacedKey(parts[0], parts[1]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private AdvancementProgress getProgress(Player player, String key) {
+        NamespacedKey nsk = resolveKey(key);
+        if (nsk == null) {
+            return null;
+        }
+        // Always resolve through the server, the advancement objects are replaced on datapack reloads
+        Advancement adv = player.getServer().getAdvancement(nsk);
+        return adv != null ? player.getAdvancementProgress(adv) : null;
+    }
+
+    @Override
+    public String getAdvancementIndexStats() {
+        if (indexComplete) {
+            return "Advancement index: " + advancementIndex.size() + " advancements, built in " + indexBuildMs + "ms";
+        }
+        return "Advancement index: " + (advancementIndex.isEmpty() ? "not built" : "building, " + advancementIndex.size() + " advancements so far");
+    }
+
+    @Override
+    public void queueAdvancementImport(Player player, boolean force) {
+        if (force || advancementTracker.get(player.getUniqueId()) == null) {
+            advancementTracker.put(player.getUniqueId(), scanAdvancements(player));
+        }
+    }
+
+    private Logger getLogger() {
+        return plugin != null ? plugin.getLogger() : Bukkit.getLogger();
+    }
+
+    /**
+     * Awards completed advancements first, then partial criteria, one advancement per unit of work
+     */
+    private class StoredAdvancementImport implements AdvancementImport {
+        private final Player player;
+        private final List<String> done;
+        private final List<Map.Entry<String, Set<String>>> partial;
+        private int position;
+
+        private StoredAdvancementImport(Player player, StoredAdvancements stored) {
+            this.player = player;
+            this.done = new ArrayList<>(stored.getDone());
+            this.partial = new ArrayList<>(stored.getPartial().entrySet());
+        }
+
+        @Override
+        public boolean step(int maxAdvancements, long deadlineNanos) {
+            int total = getTotal();
+            int steps = 0;
+            while (position < total && steps < maxAdvancements) {
+                if (steps > 0 && System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+                if (position < done.size()) {
+                    AdvancementProgress prog = getProgress(player, done.get(position));
+                    if (prog != null && !prog.isDone()) {
+                        for (String criterion : prog.getRemainingCriteria()) {
+                            prog.awardCriteria(criterion);
+                        }
+                    }
+                } else {
+                    Map.Entry<String, Set<String>> entry = partial.get(position - done.size());
+                    AdvancementProgress prog = getProgress(player, entry.getKey());
+                    if (prog != null) {
+                        for (String criterion : entry.getValue()) {
+                            prog.awardCriteria(criterion);
+                        }
+                    }
+                }
+                position++;
+                steps++;
+            }
+            return position >= total;
+        }
+
+        @Override
+        public int getApplied() {
+            return position;
+        }
+
+        @Override
+        public int getTotal() {
+            return done.size() + partial.size();
+        }
+    }
+
+    private class AdvancementListener implements Listener {
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onAdvancementDone(PlayerAdvancementDoneEvent event) {
+            advancementTracker.markDone(event.getPlayer().getUniqueId(), event.getAdvancement().getKey().toString());
+        }
+    }
+
+    @Override
+    public ItemCodec getItemCodec() {
+        return ItemCodecs.preferred();
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.playerdatasync.nms.v1_21_R1;
+
+import com.example.playerdatasync.nms.ModernNMSHandler;
+
+public class NMSHandlerImpl extends ModernNMSHandler {
+}
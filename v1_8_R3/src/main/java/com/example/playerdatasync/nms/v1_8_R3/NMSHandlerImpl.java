@@ -1,6 +1,11 @@
 package com.example.playerdatasync.nms.v1_8_R3;
 
+import com.example.playerdatasync.nms.AdvancementDictionary;
+import com.example.playerdatasync.nms.AdvancementImport;
+import com.example.playerdatasync.nms.ItemCodec;
 import com.example.playerdatasync.nms.NMSHandler;
+import com.example.playerdatasync.nms.SingleStepAdvancementImport;
+import com.example.playerdatasync.nms.TaggedMapItemCodec;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
@@ -65,6 +70,9 @@ public class NMSHandlerImpl implements NMSHandler {
     @Override
     public void shutdownAdvancements() {}
 
+    @Override
+    public void setAdvancementDictionary(AdvancementDictionary dictionary) {}
+
     @Override
     public void handlePlayerJoinAdvancements(Player player) {}
 
@@ -102,4 +110,20 @@ public class NMSHandlerImpl implements NMSHandler {
     public void queueAdvancementImport(Player player, boolean force) {
         // Not supported in 1.8
     }
+
+    @Override
+    public AdvancementImport prepareAdvancementImport(Player player, String data) {
+        if (data == null || data.isEmpty()) return null;
+        return new SingleStepAdvancementImport(() -> loadAdvancements(player, data));
+    }
+
+    @Override
+    public String getAdvancementIndexStats() {
+        return null;
+    }
+
+    @Override
+    public ItemCodec getItemCodec() {
+        return TaggedMapItemCodec.INSTANCE;
+    }
 }